@@ -0,0 +1,131 @@
+package com.smartmedical.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bulkheads for the heavy endpoints. Handlers marked {@link Bulkhead} pass a
+ * {@link BulkheadLimiter} before they run, so a burst of list or dashboard calls holds at
+ * most limit + max-queue request threads (and at most limit pooled connections) per
+ * bulkhead; everything unmarked, like reads by id and writes, never waits behind them.
+ * Rejections become 503 with Retry-After (see {@code BulkheadFullHandler}).
+ * <p>
+ * Settings per bulkhead name, read once at startup:
+ * {@code bulkheads.<name>.limit} (starting limit with adaptive), {@code max-queue},
+ * {@code queue-timeout-ms}, {@code adaptive}, {@code min-limit} and {@code max-limit}.
+ * {@code bulkheads.enabled=false} removes the whole thing.
+ */
+@Component
+@ConditionalOnProperty(name = "bulkheads.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControl implements WebMvcConfigurer, AsyncHandlerInterceptor, SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControl.class);
+
+    private static final String PERMIT = AdmissionControl.class.getName() + ".permit";
+
+    private final ApplicationContext context;
+    private final Environment environment;
+    private final MeterRegistry registry;
+
+    // handler method -> its bulkhead; filled once all handler mappings exist, read-only after that
+    private volatile Map<Method, BulkheadLimiter> byHandler = Map.of();
+    private volatile Map<String, BulkheadLimiter> byName = Map.of();
+
+    private record Permit(BulkheadLimiter limiter, long admittedAt) {}
+
+    public AdmissionControl(ApplicationContext context, Environment environment, MeterRegistry registry) {
+        this.context = context;
+        this.environment = environment;
+        this.registry = registry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this).addPathPatterns("/api/**");
+    }
+
+    // handler mappings are built from the WebMvcConfigurers, this one included, so they are
+    // looked up here rather than injected
+    @Override
+    public void afterSingletonsInstantiated() {
+        Map<String, BulkheadLimiter> byName = new TreeMap<>();
+        Map<Method, BulkheadLimiter> handlers = new HashMap<>();
+        for (RequestMappingHandlerMapping mapping : context.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+            for (HandlerMethod handler : mapping.getHandlerMethods().values()) {
+                Bulkhead bulkhead = handler.getMethodAnnotation(Bulkhead.class);
+                if (bulkhead == null) bulkhead = AnnotationUtils.findAnnotation(handler.getBeanType(), Bulkhead.class);
+                if (bulkhead == null) continue;
+                handlers.put(handler.getMethod(), byName.computeIfAbsent(bulkhead.value(),
+                        name -> new BulkheadLimiter(name, settings(name), registry)));
+            }
+        }
+        byHandler = Map.copyOf(handlers);
+        this.byName = Map.copyOf(byName);
+        byName.forEach((name, limiter) -> log.info("Bulkhead {}: {}", name, settings(name)));
+    }
+
+    // the bulkhead behind the given name, null if no handler uses it; lets tests hold its permits
+    BulkheadLimiter limiter(String name) {
+        return byName.get(name);
+    }
+
+    private BulkheadLimiter.Settings settings(String name) {
+        String prefix = "bulkheads." + name + ".";
+        int limit = environment.getProperty(prefix + "limit", Integer.class, 10);
+        boolean adaptive = environment.getProperty(prefix + "adaptive", Boolean.class, false);
+        return new BulkheadLimiter.Settings(limit,
+                adaptive ? environment.getProperty(prefix + "min-limit", Integer.class, 1) : limit,
+                adaptive ? environment.getProperty(prefix + "max-limit", Integer.class, limit) : limit,
+                environment.getProperty(prefix + "max-queue", Integer.class, 0),
+                environment.getProperty(prefix + "queue-timeout-ms", Long.class, 1000L),
+                adaptive);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // async and error dispatches of an admitted request pass through again; only the first one counts
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod hm)) return true;
+        BulkheadLimiter limiter = byHandler.get(hm.getMethod());
+        if (limiter == null) return true;
+        limiter.acquire();
+        request.setAttribute(PERMIT, new Permit(limiter, System.nanoTime()));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        release(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        release(request);
+    }
+
+    private static void release(HttpServletRequest request) {
+        if (request.getAttribute(PERMIT) instanceof Permit permit) {
+            request.removeAttribute(PERMIT);
+            permit.limiter().release(System.nanoTime() - permit.admittedAt());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.smartmedical.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Puts a handler method (or every handler of a controller) behind the named bulkhead of
+ * {@link AdmissionControl}: handlers sharing a name share one concurrency limit and one
+ * queue, configured under {@code bulkheads.<name>.*}. Meant for synchronous handlers;
+ * an async handler holds its permit only until it returns.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Bulkhead {
+
+    String value();
+}
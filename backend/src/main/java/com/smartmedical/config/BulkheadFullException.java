@@ -0,0 +1,26 @@
+package com.smartmedical.config;
+
+/**
+ * A request turned away by a {@link BulkheadLimiter}: its queue was full, or the request
+ * waited the whole queue timeout without a permit. Mapped to 503 with Retry-After.
+ * No stack trace: under overload these are thrown by the thousand.
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    private final String bulkhead;
+    private final long retryAfterSeconds;
+
+    public BulkheadFullException(String bulkhead, String reason, long retryAfterSeconds) {
+        super("Bulkhead " + bulkhead + ": " + reason, null, false, false);
+        this.bulkhead = bulkhead;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getBulkhead() {
+        return bulkhead;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,188 @@
+package com.smartmedical.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One bulkhead: at most {@code limit} requests in flight, up to {@code maxQueue} more
+ * waiting in arrival order for at most {@code queueTimeoutMs} each, anything beyond
+ * that rejected at once with a {@link BulkheadFullException}.
+ * <p>
+ * With {@code adaptive} the limit follows observed latency between {@code minLimit} and
+ * {@code maxLimit}, using the gradient of a long-term over a short-term latency average:
+ * while requests finish about as fast as usual the limit grows by a fraction of
+ * sqrt(limit) per request, once they get more than {@link #TOLERANCE} times slower it
+ * shrinks in proportion (at most halving per step) down to {@code minLimit}. A slowdown
+ * that lasts becomes the new usual after a few hundred requests. The limit only moves
+ * while at least half of it is in use, so a quiet period does not inflate it.
+ * <p>
+ * Meters, tagged {@code bulkhead=<name>}: {@code bulkhead.inflight}, {@code bulkhead.queued}
+ * and {@code bulkhead.limit} gauges, {@code bulkhead.rejected} (tag {@code reason}:
+ * {@code queue_full} or {@code queue_timeout}) and {@code bulkhead.queue.wait}, the wait
+ * of every request that was queued and then admitted.
+ */
+public final class BulkheadLimiter {
+
+    public record Settings(int limit, int minLimit, int maxLimit, int maxQueue, long queueTimeoutMs, boolean adaptive) {
+
+        public Settings {
+            if (minLimit < 1 || minLimit > limit || limit > maxLimit || maxQueue < 0 || queueTimeoutMs < 0) {
+                throw new IllegalArgumentException("need 1 <= min-limit <= limit <= max-limit, max-queue >= 0"
+                        + " and queue-timeout-ms >= 0: " + this);
+            }
+        }
+    }
+
+    // averages over roughly the last 10 and 500 requests
+    private static final double SHORT_WEIGHT = 2.0 / (10 + 1);
+    private static final double LONG_WEIGHT = 2.0 / (500 + 1);
+    // latency may reach this multiple of the long-term average before the limit shrinks
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+    private final String name;
+    private final Settings settings;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitFreed = lock.newCondition();
+
+    // written under the lock, volatile for the gauges
+    private volatile int limit;
+    private volatile int inFlight;
+    private volatile int waiting;
+    private double estimatedLimit;
+    private double shortLatencyNanos;
+    private double longLatencyNanos;
+
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedQueueTimeout;
+    private final Timer queueWait;
+
+    public BulkheadLimiter(String name, Settings settings, MeterRegistry registry) {
+        this.name = name;
+        this.settings = settings;
+        this.limit = settings.limit();
+        this.estimatedLimit = settings.limit();
+        Gauge.builder("bulkhead.inflight", this, b -> b.inFlight)
+                .description("Requests admitted by the bulkhead and not finished yet")
+                .tag("bulkhead", name)
+                .register(registry);
+        Gauge.builder("bulkhead.queued", this, b -> b.waiting)
+                .description("Requests waiting for a bulkhead permit")
+                .tag("bulkhead", name)
+                .register(registry);
+        Gauge.builder("bulkhead.limit", this, b -> b.limit)
+                .description("Current concurrency limit of the bulkhead")
+                .tag("bulkhead", name)
+                .register(registry);
+        rejectedQueueFull = rejected(registry, "queue_full");
+        rejectedQueueTimeout = rejected(registry, "queue_timeout");
+        queueWait = Timer.builder("bulkhead.queue.wait")
+                .description("Time queued requests waited before the bulkhead admitted them")
+                .tag("bulkhead", name)
+                .register(registry);
+    }
+
+    private Counter rejected(MeterRegistry registry, String reason) {
+        return Counter.builder("bulkhead.rejected")
+                .description("Requests turned away with 503")
+                .tags("bulkhead", name, "reason", reason)
+                .register(registry);
+    }
+
+    /** Takes a permit, queueing if need be; every successful call must be paired with {@link #release}. */
+    public void acquire() {
+        lock.lock();
+        try {
+            // a free permit goes to a new request only when nobody is queued for it
+            if (waiting == 0 && inFlight < limit) {
+                inFlight++;
+                return;
+            }
+            if (waiting >= settings.maxQueue()) {
+                rejectedQueueFull.increment();
+                throw new BulkheadFullException(name, "queue full", retryAfterSeconds());
+            }
+            long queuedAt = System.nanoTime();
+            long remaining = TimeUnit.MILLISECONDS.toNanos(settings.queueTimeoutMs());
+            waiting++;
+            try {
+                while (inFlight >= limit) {
+                    if (remaining <= 0) {
+                        rejectedQueueTimeout.increment();
+                        throw new BulkheadFullException(name, "no permit within " + settings.queueTimeoutMs() + " ms",
+                                retryAfterSeconds());
+                    }
+                    remaining = permitFreed.awaitNanos(remaining);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                rejectedQueueTimeout.increment();
+                throw new BulkheadFullException(name, "interrupted while queued", retryAfterSeconds());
+            } finally {
+                waiting--;
+            }
+            inFlight++;
+            queueWait.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Returns a permit; {@code latencyNanos} is how long the request held it. */
+    public void release(long latencyNanos) {
+        lock.lock();
+        try {
+            int before = limit;
+            sample(latencyNanos, inFlight);
+            inFlight--;
+            if (limit > before) {
+                permitFreed.signalAll();
+            } else if (inFlight < limit) {
+                permitFreed.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    private void sample(long latencyNanos, int inFlightAtFinish) {
+        shortLatencyNanos = shortLatencyNanos == 0 ? latencyNanos
+                : shortLatencyNanos + SHORT_WEIGHT * (latencyNanos - shortLatencyNanos);
+        longLatencyNanos = longLatencyNanos == 0 ? latencyNanos
+                : longLatencyNanos + LONG_WEIGHT * (latencyNanos - longLatencyNanos);
+        if (!settings.adaptive()) return;
+        // after a slow spell the long-term average stays high for a while; pull it down so
+        // that spell does not pass for normal latency
+        if (longLatencyNanos > 2 * shortLatencyNanos) longLatencyNanos *= 0.95;
+        if (inFlightAtFinish < estimatedLimit / 2) return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatencyNanos / shortLatencyNanos));
+        // headroom only while latency is normal: with it added under pressure too, small limits
+        // (sqrt(4) = 2) could never shrink below 4
+        double target = gradient < 1.0 ? estimatedLimit * gradient : estimatedLimit + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(settings.minLimit(), Math.min(settings.maxLimit(),
+                estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+
+    // about how long until the requests ahead (in flight and queued) have gone through once
+    private long retryAfterSeconds() {
+        double seconds = shortLatencyNanos / 1e9 * (inFlight + waiting + 1) / limit;
+        return Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, (long) Math.ceil(seconds)));
+    }
+}
@@ -0,0 +1,124 @@
+package com.smartmedical.config;
+
+import com.smartmedical.model.Doctor;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Migration 1.4: moves the free-text {@code appointments.doctor_name} column onto the
+ * {@code doctor} dictionary of V1_3. Spellings that differ only in case or surrounding
+ * spaces ("Dr. Rao", "dr. rao ") become one doctor named by the most used spelling, and
+ * each appointment gets its {@code doctor_id}. A bean, so Spring Boot hands it to Flyway;
+ * runs outside a transaction, one UPDATE per id chunk, and only touches rows still
+ * without a doctor_id, so after a failure {@code flyway repair} and a restart finish it.
+ * The old column is left in place, unused; drop it once every instance runs this version.
+ */
+@Component
+public class DoctorNameMigration implements JavaMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(DoctorNameMigration.class);
+
+    // id range per UPDATE, so a large table is not rewritten in one transaction
+    private static final long CHUNK = 50_000;
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("1.4");
+    }
+
+    @Override
+    public String getDescription() {
+        return "doctor names to doctor table";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) {
+        // Flyway's connection; it stays open for Flyway when the template is done
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+        Integer pending = jdbcTemplate.queryForObject(
+                "select count(*) from appointments where doctor_id is null and doctor_name is not null"
+                        + " and trim(doctor_name) <> ''", Integer.class);
+        if (pending == null || pending == 0) return;
+
+        long started = System.nanoTime();
+        int added = addDoctors(jdbcTemplate);
+        long linked = linkAppointments(jdbcTemplate);
+        log.info("doctor_name migrated: {} doctors added, {} appointments linked, {} ms",
+                added, linked, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /** One doctor row per distinct key not in the dictionary yet; returns how many were added. */
+    private int addDoctors(JdbcTemplate jdbcTemplate) {
+        // rows per trimmed spelling, grouped by key
+        Map<String, Map<String, Long>> spellings = new LinkedHashMap<>();
+        jdbcTemplate.query("select doctor_name, count(*) from appointments"
+                        + " where doctor_id is null and doctor_name is not null group by doctor_name",
+                rs -> {
+                    String spelling = rs.getString(1);
+                    if (spelling.isBlank()) return;
+                    spellings.computeIfAbsent(Doctor.keyOf(spelling), k -> new HashMap<>())
+                            .merge(spelling.trim(), rs.getLong(2), Long::sum);
+                });
+        Map<String, String> chosen = new LinkedHashMap<>();
+        spellings.forEach((key, counts) -> chosen.put(key,
+                Collections.max(counts.entrySet(), Map.Entry.comparingByValue()).getKey()));
+        jdbcTemplate.queryForList("select name_key from doctor", String.class).forEach(chosen::remove);
+        if (chosen.isEmpty()) return 0;
+
+        // plain JDBC ids; IdGeneratorAligner moves the "doctor" generator past them afterwards
+        Integer max = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from doctor", Integer.class);
+        int next = max == null ? 1 : max + 1;
+        List<Object[]> rows = new ArrayList<>(chosen.size());
+        for (Map.Entry<String, String> e : chosen.entrySet()) {
+            rows.add(new Object[]{next++, e.getValue(), e.getKey()});
+        }
+        jdbcTemplate.batchUpdate("insert into doctor (id, name, name_key) values (?, ?, ?)", rows);
+        return rows.size();
+    }
+
+    private long linkAppointments(JdbcTemplate jdbcTemplate) {
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from appointments", Long.class);
+        long linked = 0;
+        for (long from = 0; maxId != null && from < maxId; from += CHUNK) {
+            linked += jdbcTemplate.update("update appointments set doctor_id ="
+                            + " (select d.id from doctor d where d.name_key = lower(trim(appointments.doctor_name)))"
+                            + " where id > ? and id <= ? and doctor_id is null and doctor_name is not null"
+                            + " and trim(doctor_name) <> ''",
+                    from, from + CHUNK);
+        }
+        // SQL lower()/trim() can disagree with Doctor.keyOf on unusual whitespace or letters;
+        // whatever the set-based pass missed is matched spelling by spelling
+        List<String> leftovers = jdbcTemplate.queryForList("select distinct doctor_name from appointments"
+                + " where doctor_id is null and doctor_name is not null and trim(doctor_name) <> ''", String.class);
+        for (String spelling : leftovers) {
+            linked += jdbcTemplate.update("update appointments set doctor_id ="
+                            + " (select d.id from doctor d where d.name_key = ?)"
+                            + " where doctor_id is null and doctor_name = ?",
+                    Doctor.keyOf(spelling), spelling);
+        }
+        return linked;
+    }
+}
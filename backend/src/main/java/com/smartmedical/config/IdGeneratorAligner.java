@@ -0,0 +1,60 @@
+package com.smartmedical.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tables that were filled while ids were AUTO_INCREMENT need the pooled
+ * {@code id_generator} rows moved past their current max(id). Otherwise the first
+ * generated block would collide with existing rows. Runs once on startup; it is a
+ * no-op when the generator is already ahead.
+ */
+@Component
+public class IdGeneratorAligner implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(IdGeneratorAligner.class);
+
+    // Must match allocationSize on the @TableGenerator mappings
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // EntityManagerFactory dependency: Flyway migrates before the factory is built, so id_generator exists
+    public IdGeneratorAligner(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        align("patient", "patient");
+        align("appointments", "appointments");
+        align("doctor", "doctor");
+    }
+
+    private void align(String generatorKey, String table) {
+        Long max = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from " + table, Long.class);
+        if (max == null || max == 0) return;
+
+        // pooled optimizer hands out (next_val - allocationSize, next_val], so stay one block ahead
+        long target = max + ALLOCATION_SIZE + 1;
+        int updated = jdbcTemplate.update(
+                "update id_generator set next_val = ? where entity_name = ? and next_val < ?",
+                target, generatorKey, target);
+        if (updated == 0) {
+            Integer rows = jdbcTemplate.queryForObject(
+                    "select count(*) from id_generator where entity_name = ?", Integer.class, generatorKey);
+            if (rows == null || rows == 0) {
+                jdbcTemplate.update("insert into id_generator (entity_name, next_val) values (?, ?)",
+                        generatorKey, target);
+                updated = 1;
+            }
+        }
+        if (updated > 0) {
+            log.info("id_generator[{}] moved to {} (max id {})", generatorKey, target, max);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.smartmedical.config;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+
+/**
+ * Request metrics on top of what Actuator already records. Every {@code /api} request
+ * gets a {@code controller} tag on its {@code http.server.requests} timer, plus two
+ * summaries with the same tags: {@code http.server.requests.sql.statements} (JDBC
+ * executions) and {@code http.server.requests.sql.rows} (rows fetched). Pool, JVM and
+ * Hibernate meters come from Actuator's auto-configuration.
+ */
+@Configuration
+public class MetricsConfig {
+
+    // adds controller=<simple class name> to the endpoint timers
+    @Bean
+    public ServerRequestObservationConvention controllerTaggingConvention() {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                return super.getLowCardinalityKeyValues(context)
+                        .and(KeyValue.of("controller", controllerOf(context.getCarrier())));
+            }
+        };
+    }
+
+    // static: post-processors are created before the rest of the configuration
+    @Bean
+    @ConditionalOnProperty(name = "metrics.sql.per-request", havingValue = "true", matchIfMissing = true)
+    public static BeanPostProcessor sqlCountingDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ds ? RequestSqlCounter.wrap(ds) : bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "metrics.sql.per-request", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<OncePerRequestFilter> sqlPerRequestFilter(MeterRegistry registry) {
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                    throws ServletException, IOException {
+                RequestSqlCounter.begin();
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    long[] counts = RequestSqlCounter.end();
+                    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                    String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+                    String controller = controllerOf(request);
+                    summary(registry, "http.server.requests.sql.statements", "JDBC statements executed per request",
+                            uri, request.getMethod(), controller).record(counts[0]);
+                    summary(registry, "http.server.requests.sql.rows", "Result set rows fetched per request",
+                            uri, request.getMethod(), controller).record(counts[1]);
+                }
+            }
+        });
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    private static DistributionSummary summary(MeterRegistry registry, String name, String description,
+                                               String uri, String method, String controller) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tags("uri", uri, "method", method, "controller", controller)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(100_000.0)
+                .register(registry);
+    }
+
+    private static String controllerOf(HttpServletRequest request) {
+        return request != null && request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod hm
+                ? hm.getBeanType().getSimpleName()
+                : "none";
+    }
+}
@@ -0,0 +1,51 @@
+package com.smartmedical.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Patients by id, cached in Caffeine and used by Hibernate as the second-level cache
+ * region of {@link com.smartmedical.model.Patient}. Every {@code findById} (and the eager
+ * patient load behind each appointment) reads it first. Hibernate keeps the region in
+ * step with saves, deletes and imports, because they all go through the entity manager.
+ * <p>
+ * The cache is per JVM. With several backend instances, the TTL bounds how stale a
+ * patient written elsewhere can be.
+ */
+@Configuration
+public class PatientCacheConfig {
+
+    // must match @Cache(region = ...) on Patient
+    public static final String PATIENT_REGION = "patients";
+
+    @Bean
+    public CacheManager patientCacheManager(@Value("${patients.cache.max-size:100000}") long maxSize,
+                                            @Value("${patients.cache.ttl-seconds:600}") long ttlSeconds) {
+        CacheManager manager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+        CaffeineConfiguration<Object, Object> region = new CaffeineConfiguration<>();
+        region.setMaximumSize(OptionalLong.of(maxSize));
+        region.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        // Hibernate already stores a disassembled copy; no serialization round trip per hit
+        region.setStoreByValue(false);
+        region.setNativeStatisticsEnabled(true);
+        if (manager.getCache(PATIENT_REGION) == null) {
+            manager.createCache(PATIENT_REGION, region);
+        }
+        return manager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheManager(CacheManager patientCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, patientCacheManager);
+    }
+}
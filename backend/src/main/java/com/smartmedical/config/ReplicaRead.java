@@ -0,0 +1,25 @@
+package com.smartmedical.config;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A read-only transaction that may run on a read replica (see {@link ReplicaRouter}).
+ * Plain {@code @Transactional(readOnly = true)} stays on the primary: Spring Data marks
+ * every repository read that way, including the lookups inside write paths, so only
+ * reads that opt in with this label are routed. Without replicas configured it is just
+ * a read-only transaction.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Transactional(readOnly = true, label = ReplicaRead.LABEL)
+public @interface ReplicaRead {
+
+    String LABEL = "replica";
+}
@@ -0,0 +1,290 @@
+package com.smartmedical.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends {@link ReplicaRead} transactions to a read replica and everything else to the
+ * primary. Sits behind a {@code LazyConnectionDataSourceProxy} (see
+ * {@link ReplicaRoutingConfig}), so the choice is made at the first statement of a
+ * transaction, once it is known to be read-only and replica-eligible.
+ * <p>
+ * Lag guard: every {@code datasource.replicas.probe-interval-ms} the primary's
+ * {@code replica_heartbeat} row (table from migration V3) gets the current time, and each
+ * replica is asked which beat it has applied. A replica holds every primary commit made before that beat; its
+ * lag is the time since the beat. Replicas lagging more than
+ * {@code datasource.replicas.max-lag-ms}, failing the probe or refusing a connection
+ * are skipped; with none left the read goes to the primary.
+ * <p>
+ * Read-your-writes: a replica is also skipped when it has not applied
+ * <ul>
+ *   <li>the last write committed by the current request (a request that wrote reads its
+ *       own write; off-request, by the current thread), or</li>
+ *   <li>after {@link #requireLocalWrites()}, every write this instance has committed:
+ *       for reads that must match in-memory state, like an ETag taken from
+ *       {@code DataVersions} or rollup rows combined with unflushed deltas. Like the
+ *       last write, the mark belongs to the request, so a 304 that never reads leaves
+ *       nothing behind on its pooled thread.</li>
+ * </ul>
+ * Heartbeats use this instance's clock; with several instances the clocks must be
+ * synced (NTP) for the comparison to hold.
+ */
+public class ReplicaRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    // set by the transaction manager for the duration of a @ReplicaRead transaction
+    private static final ThreadLocal<Boolean> REPLICA_TRANSACTION = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> NEEDS_LOCAL_WRITES = new ThreadLocal<>();
+    // flags of the transactions a REQUIRES_NEW one suspended, innermost first
+    private static final ThreadLocal<Deque<Boolean[]>> SUSPENDED = ThreadLocal.withInitial(ArrayDeque::new);
+    // last write of work outside a request (schedulers, startup); a request keeps its own as an attribute
+    private static final ThreadLocal<long[]> THREAD_LAST_WRITE = ThreadLocal.withInitial(() -> new long[1]);
+    private static final String REQUEST_LAST_WRITE = ReplicaRouter.class.getName() + ".lastWrite";
+    private static final String REQUEST_LOCAL_WRITES = ReplicaRouter.class.getName() + ".localWrites";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMs;
+    private final AtomicLong lastWrite = new AtomicLong();
+    private final AtomicInteger next = new AtomicInteger();
+    private final DataSource routing = new RoutingDataSource();
+
+    private final Counter primaryDefault;
+    private final Counter primaryNoReplica;
+    private final Counter primaryReadYourWrites;
+
+    public ReplicaRouter(DataSource primary, List<Replica> replicas, long maxLagMs, MeterRegistry registry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.maxLagMs = maxLagMs;
+        primaryDefault = routed(registry, "primary", "default");
+        primaryNoReplica = routed(registry, "primary", "no_replica");
+        primaryReadYourWrites = routed(registry, "primary", "read_your_writes");
+        for (Replica replica : this.replicas) {
+            replica.routed = routed(registry, replica.name, "read");
+            Gauge.builder("datasource.replica.lag", replica, r -> r.caughtUpTo == 0 ? Double.NaN : r.lagMs() / 1000.0)
+                    .description("Time since the newest primary heartbeat the replica has applied")
+                    .baseUnit("seconds")
+                    .tag("replica", replica.name)
+                    .register(registry);
+        }
+    }
+
+    /** One replica pool and what the last probes saw of it. */
+    public static final class Replica {
+        final String name;
+        final DataSource dataSource;
+        // newest heartbeat applied by the replica (epoch ms); 0 = none seen yet
+        volatile long caughtUpTo;
+        volatile boolean healthy;
+        Counter routed;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        long lagMs() {
+            return caughtUpTo == 0 ? Long.MAX_VALUE : Math.max(0, System.currentTimeMillis() - caughtUpTo);
+        }
+    }
+
+    /**
+     * Replica reads must see every write this instance has committed so far: for the rest
+     * of the current request, or off-request for the next replica transaction on this
+     * thread. Harmless without replicas.
+     */
+    public static void requireLocalWrites() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            request.setAttribute(REQUEST_LOCAL_WRITES, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        } else {
+            NEEDS_LOCAL_WRITES.set(Boolean.TRUE);
+        }
+    }
+
+    private static boolean needsLocalWrites() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null && request.getAttribute(REQUEST_LOCAL_WRITES, RequestAttributes.SCOPE_REQUEST) != null) {
+            return true;
+        }
+        return Boolean.TRUE.equals(NEEDS_LOCAL_WRITES.get());
+    }
+
+    static void transactionStarted(boolean replicaEligible) {
+        Boolean outer = REPLICA_TRANSACTION.get();
+        if (outer != null) SUSPENDED.get().push(new Boolean[] {outer, NEEDS_LOCAL_WRITES.get()});
+        REPLICA_TRANSACTION.set(replicaEligible);
+    }
+
+    // a nested transaction hands the flags back to the one it suspended
+    static void transactionEnded() {
+        Boolean[] outer = SUSPENDED.get().poll();
+        if (outer != null) {
+            REPLICA_TRANSACTION.set(outer[0]);
+            NEEDS_LOCAL_WRITES.set(outer[1]);
+            return;
+        }
+        if (Boolean.TRUE.equals(REPLICA_TRANSACTION.get())) NEEDS_LOCAL_WRITES.remove();
+        REPLICA_TRANSACTION.remove();
+    }
+
+    void writeCommitted() {
+        long now = System.currentTimeMillis();
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            request.setAttribute(REQUEST_LAST_WRITE, now, RequestAttributes.SCOPE_REQUEST);
+        } else {
+            THREAD_LAST_WRITE.get()[0] = now;
+        }
+        lastWrite.accumulateAndGet(now, Math::max);
+    }
+
+    private static long lastWriteOfCaller() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request == null) return THREAD_LAST_WRITE.get()[0];
+        return request.getAttribute(REQUEST_LAST_WRITE, RequestAttributes.SCOPE_REQUEST) instanceof Long at ? at : 0;
+    }
+
+    /** The DataSource that picks primary or replica per connection. */
+    public DataSource dataSource() {
+        return routing;
+    }
+
+    private final class RoutingDataSource extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Replica replica = choose();
+            if (replica != null) {
+                try {
+                    Connection connection = replica.dataSource.getConnection();
+                    replica.routed.increment();
+                    return connection;
+                } catch (SQLException ex) {
+                    replica.healthy = false;
+                    log.warn("Replica {} refused a connection, reading from the primary: {}",
+                            replica.name, ex.getMessage());
+                    primaryNoReplica.increment();
+                }
+            }
+            return primary.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new SQLException("Routing data source uses the configured credentials");
+        }
+
+        // pool metrics and health checks look for the HikariDataSource: hand out the primary's
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            return iface.isInstance(this) ? iface.cast(this) : primary.unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            return iface.isInstance(this) || primary.isWrapperFor(iface);
+        }
+    }
+
+    // null = primary
+    private Replica choose() {
+        if (!Boolean.TRUE.equals(REPLICA_TRANSACTION.get())
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryDefault.increment();
+            return null;
+        }
+        long required = lastWriteOfCaller();
+        if (needsLocalWrites()) required = Math.max(required, lastWrite.get());
+
+        boolean withinLag = false;
+        int n = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), n);
+        for (int i = 0; i < n; i++) {
+            Replica replica = replicas.get((start + i) % n);
+            if (!replica.healthy || replica.lagMs() > maxLagMs) continue;
+            withinLag = true;
+            // strictly newer: a beat taken in the same millisecond as the write may predate its commit
+            if (replica.caughtUpTo > required) return replica;
+        }
+        (withinLag ? primaryReadYourWrites : primaryNoReplica).increment();
+        return null;
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replicas.probe-interval-ms:500}")
+    public void probe() {
+        try {
+            beat(System.currentTimeMillis());
+        } catch (SQLException ex) {
+            // replicas keep serving until their lag passes the limit
+            log.warn("Replica heartbeat not written: {}", ex.getMessage());
+        }
+        for (Replica replica : replicas) {
+            boolean wasHealthy = replica.healthy;
+            try (Connection c = replica.dataSource.getConnection();
+                 PreparedStatement ps = c.prepareStatement("select beat_at from replica_heartbeat where id = 1");
+                 ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    replica.caughtUpTo = Math.max(replica.caughtUpTo, rs.getLong(1));
+                }
+                replica.healthy = true;
+                if (!wasHealthy) {
+                    log.info("Replica {} reachable, {}", replica.name,
+                            replica.caughtUpTo == 0 ? "no heartbeat yet" : "lag " + replica.lagMs() + " ms");
+                }
+            } catch (SQLException ex) {
+                replica.healthy = false;
+                if (wasHealthy) log.warn("Replica {} failed its probe: {}", replica.name, ex.getMessage());
+            }
+        }
+    }
+
+    // bean destroy method: the pools are not beans of their own
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable pool) pool.close();
+        }
+        if (primary instanceof AutoCloseable pool) pool.close();
+    }
+
+    private void beat(long now) throws SQLException {
+        try (Connection c = primary.getConnection()) {
+            try (PreparedStatement update = c.prepareStatement("update replica_heartbeat set beat_at = ? where id = 1")) {
+                update.setLong(1, now);
+                if (update.executeUpdate() > 0) return;
+            }
+            try (PreparedStatement insert = c.prepareStatement("insert into replica_heartbeat (id, beat_at) values (1, ?)")) {
+                insert.setLong(1, now);
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    private static Counter routed(MeterRegistry registry, String target, String reason) {
+        return Counter.builder("datasource.routing")
+                .description("Connections handed out by the read/write router, by target and reason")
+                .tags("target", target, "reason", reason)
+                .register(registry);
+    }
+}
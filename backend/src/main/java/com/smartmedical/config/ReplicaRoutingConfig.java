@@ -0,0 +1,182 @@
+package com.smartmedical.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.Session;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionManager;
+import org.springframework.transaction.interceptor.DefaultTransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas ({@code datasource.replicas.enabled=true}). Replaces the auto-configured
+ * DataSource with primary + replica pools behind a {@link ReplicaRouter}, and the JPA
+ * transaction manager with one that tells the router which transactions are
+ * {@link ReplicaRead}. Transactions with an isolation level keep working: Hibernate
+ * refuses one with the connection handling used here, so the transaction manager's
+ * dialect sets it on the connection itself. Replica URLs go in {@code datasource.replicas.urls[0..n]};
+ * user and password default to the primary's.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replicas.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    public ReplicaRouter replicaRouter(DataSourceProperties properties, Environment environment, MeterRegistry registry,
+                                       @Value("${datasource.replicas.pool-size:10}") int replicaPoolSize,
+                                       @Value("${datasource.replicas.max-lag-ms:2000}") long maxLagMs,
+                                       @Value("${datasource.replicas.connection-timeout-ms:250}") long connectionTimeoutMs) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+
+        List<String> urls = binder.bind("datasource.replicas.urls", Bindable.listOf(String.class)).orElse(List.of());
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("datasource.replicas.enabled=true needs datasource.replicas.urls[0]");
+        }
+        String username = environment.getProperty("datasource.replicas.username", primary.getUsername());
+        String password = environment.getProperty("datasource.replicas.password", primary.getPassword());
+        List<ReplicaRouter.Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource pool = new HikariDataSource();
+            pool.setJdbcUrl(urls.get(i));
+            pool.setUsername(username);
+            pool.setPassword(password);
+            if (primary.getDriverClassName() != null) pool.setDriverClassName(primary.getDriverClassName());
+            pool.setPoolName(primary.getPoolName() + "-replica-" + i);
+            pool.setMaximumPoolSize(replicaPoolSize);
+            // short: a replica that is down costs each probe and the first read after it this long
+            pool.setConnectionTimeout(connectionTimeoutMs);
+            pool.setReadOnly(true);
+            // a replica that is down must not stop the application from starting
+            pool.setInitializationFailTimeout(-1);
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            replicas.add(new ReplicaRouter.Replica("replica-" + i, pool));
+        }
+
+        ReplicaRouter router = new ReplicaRouter(primary, replicas, maxLagMs, registry);
+        router.probe();
+        return router;
+    }
+
+    // connections are taken at the first statement, when the transaction's read-only flag is known
+    @Bean
+    public DataSource dataSource(ReplicaRouter router) {
+        return new LazyConnectionDataSourceProxy(router.dataSource());
+    }
+
+    // Hibernate's default keeps a session's connection across transactions (open-in-view keeps the
+    // session for the whole request), so a write after a replica read would reuse the replica connection.
+    // Hibernate then rejects transactions with an isolation level: IsolationOnConnectionDialect applies it
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return props -> props.put(AvailableSettings.CONNECTION_HANDLING,
+                "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+
+    @Bean
+    public JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory, ReplicaRouter router,
+                                                    ObjectProvider<TransactionManagerCustomizers> customizers) {
+        JpaTransactionManager manager = new RoutingTransactionManager(router);
+        manager.setEntityManagerFactory(entityManagerFactory);
+        customizers.ifAvailable(c -> c.customize((TransactionManager) manager));
+        return manager;
+    }
+
+    /** Marks {@link ReplicaRead} transactions for the router and reports committed writes to it. */
+    static final class RoutingTransactionManager extends JpaTransactionManager {
+
+        private final transient ReplicaRouter router;
+
+        RoutingTransactionManager(ReplicaRouter router) {
+            this.router = router;
+        }
+
+        // after the factory's own dialect has been taken over
+        @Override
+        public void afterPropertiesSet() {
+            super.afterPropertiesSet();
+            setJpaDialect(new IsolationOnConnectionDialect());
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            boolean replica = definition.isReadOnly() && definition instanceof TransactionAttribute attribute
+                    && attribute.getLabels().contains(ReplicaRead.LABEL);
+            ReplicaRouter.transactionStarted(replica);
+            try {
+                super.doBegin(transaction, definition);
+            } catch (RuntimeException ex) {
+                ReplicaRouter.transactionEnded();
+                throw ex;
+            }
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            super.doCommit(status);
+            if (!status.isReadOnly()) router.writeCommitted();
+        }
+
+        @Override
+        protected void doCleanupAfterCompletion(Object transaction) {
+            try {
+                super.doCleanupAfterCompletion(transaction);
+            } finally {
+                ReplicaRouter.transactionEnded();
+            }
+        }
+    }
+
+    /**
+     * Begins transactions that ask for an isolation level, which Hibernate refuses with
+     * connections released after each transaction: begins them with the default and sets
+     * the level on the session's connection. That is still the lazy proxy, which applies it
+     * before the first statement; the pool resets it when the connection goes back.
+     */
+    static final class IsolationOnConnectionDialect extends HibernateJpaDialect {
+
+        @Override
+        public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+                throws PersistenceException, SQLException, TransactionException {
+            int isolation = definition.getIsolationLevel();
+            if (isolation == TransactionDefinition.ISOLATION_DEFAULT) {
+                return super.beginTransaction(entityManager, definition);
+            }
+            DefaultTransactionDefinition withDefault = definition instanceof TransactionAttribute attribute
+                    ? new DefaultTransactionAttribute(attribute) : new DefaultTransactionDefinition(definition);
+            withDefault.setIsolationLevel(TransactionDefinition.ISOLATION_DEFAULT);
+            Object transactionData = super.beginTransaction(entityManager, withDefault);
+            entityManager.unwrap(Session.class).doWork(connection -> connection.setTransactionIsolation(isolation));
+            return transactionData;
+        }
+    }
+}
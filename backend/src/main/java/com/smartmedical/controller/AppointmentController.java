@@ -1,15 +1,39 @@
 package com.smartmedical.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartmedical.config.Bulkhead;
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.dto.ArchiveStats;
+import com.smartmedical.dto.BulkStatusRequest;
+import com.smartmedical.dto.CursorPage;
+import com.smartmedical.dto.SweeperStats;
 import com.smartmedical.model.Appointment;
-import com.smartmedical.model.Patient;
+import com.smartmedical.model.Doctor;
+import com.smartmedical.service.AppointmentArchive;
+import com.smartmedical.service.AppointmentArchivedException;
+import com.smartmedical.service.AppointmentConflictException;
 import com.smartmedical.service.AppointmentService;
+import com.smartmedical.service.AppointmentStatusSweeper;
+import com.smartmedical.service.BulkAction;
+import com.smartmedical.service.DoctorDirectory;
 import com.smartmedical.repository.PatientRepository;
 import com.smartmedical.repository.AppointmentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.*;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -27,42 +51,109 @@ public class AppointmentController {
     @Autowired
     private AppointmentRepository appointmentRepository;
 
+    @Autowired
+    private AppointmentStatusSweeper statusSweeper;
+
+    @Autowired
+    private AppointmentArchive appointmentArchive;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ConditionalGet conditionalGet;
+
+    @Autowired
+    private DoctorDirectory doctorDirectory;
+
     // Create appointment
     @PostMapping
     public ResponseEntity<?> createAppointment(@RequestBody Appointment appointment) {
-        if (appointment.getPatient() != null && appointment.getPatient().getId() != null) {
-            Optional<Patient> p = patientRepository.findById(appointment.getPatient().getId());
-            if (p.isEmpty())
-                return ResponseEntity.badRequest()
-                        .body("Patient not found with id: " + appointment.getPatient().getId());
-            appointment.setPatient(p.get());
+        // patient lookup happens once, in the service (unknown patient -> 400)
+        try {
+            Appointment saved = appointmentService.createAppointment(appointment);
+            return ResponseEntity.ok(saved);
+        } catch (AppointmentConflictException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage()); // doctor double-booked
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
         }
-        Appointment saved = appointmentService.createAppointment(appointment);
-        return ResponseEntity.ok(saved);
     }
 
+    // Same JSON array as before, but written row by row from a DB stream,
+    // so memory stays flat whatever the table size; 304 before the stream opens if unchanged
     @GetMapping
-    public List<Appointment> listAll() {
-        return appointmentService.getAllAppointments();
+    @Bulkhead("lists") // poora table stream karta hai, burst pe baaki endpoints ko block na kare
+    public void listAll(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String etag = conditionalGet.tag(ConditionalGet.Resource.APPOINTMENTS);
+        if (conditionalGet.notModified(new ServletWebRequest(request, response),
+                ConditionalGet.Resource.APPOINTMENTS, etag)) {
+            return;
+        }
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        try (JsonGenerator json = objectMapper.createGenerator(response.getOutputStream())) {
+            json.writeStartArray();
+            appointmentService.streamAllAppointments(appt -> {
+                try {
+                    json.writeObject(appt);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.writeEndArray();
+        }
+    }
+
+    //  Keyset pagination: ?cursor=<nextCursor from previous page>&limit=50&status=&doctorName=
+    @GetMapping("/cursor")
+    public ResponseEntity<?> getCursorPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String doctorName
+    ) {
+        if (limit < 1 || limit > 500) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and 500");
+        }
+        try {
+            CursorPage<AppointmentSummary> page = appointmentService.getAppointmentsPage(cursor, limit, status, doctorName);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
     }
 
     // Upcoming appointments
     @GetMapping("/upcoming")
-    public List<Appointment> upcoming() {
+    @Bulkhead("lists")
+    public List<AppointmentSummary> upcoming() {
         return appointmentService.getUpcomingAppointments();
     }
 
+    // Dashboard ke "recent" ke liye: latest appointment time pehle, sirf N rows (1-50)
+    @GetMapping("/latest")
+    public ResponseEntity<?> latest(@RequestParam(defaultValue = "5") int limit) {
+        if (limit < 1 || limit > 50) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and 50");
+        }
+        return ResponseEntity.ok(appointmentService.getLatestAppointments(limit));
+    }
+
     // Get by patient id
     @GetMapping("/patient/{patientId}")
     public ResponseEntity<?> getByPatient(@PathVariable Long patientId) {
-        Optional<Patient> p = patientRepository.findById(patientId);
-        if (p.isEmpty()) return ResponseEntity.badRequest().body("Patient not found");
-        return ResponseEntity.ok(appointmentService.getAppointmentsByPatient(p.get()));
+        // existence check comes from the patient cache; the rows are one projection query
+        if (patientRepository.findById(patientId).isEmpty()) return ResponseEntity.badRequest().body("Patient not found");
+        return ResponseEntity.ok(appointmentService.getAppointmentsByPatient(patientId));
     }
 
     // Between range
     @GetMapping("/range")
-    public List<Appointment> range(
+    @Bulkhead("lists")
+    public List<AppointmentSummary> range(
             @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
             @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
     ) {
@@ -71,12 +162,15 @@ public class AppointmentController {
 
     //  Filter by status and sort by appointment time (ascending)
     @GetMapping("/filter")
-    public List<Appointment> filterAppointments(@RequestParam String status) {
-        return appointmentRepository.findByStatusOrderByAppointmentTimeAsc(status);
+    @Bulkhead("lists")
+    public List<AppointmentSummary> filterAppointments(@RequestParam String status) {
+        // no date range: live tier only, archived rows come back through /range, /filterByStatusAndDate and /patient
+        return appointmentRepository.findSummariesByStatus(status);
     }
 
     //  Filter by status + date range + optional doctor name
     @GetMapping("/filterByStatusAndDate")
+    @Bulkhead("lists")
     public ResponseEntity<?> filterByStatusAndDate(
             @RequestParam String status,
             @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
@@ -84,14 +178,15 @@ public class AppointmentController {
             @RequestParam(required = false) String doctorName
     ) {
         try {
-            List<Appointment> results;
+            List<AppointmentSummary> results;
 
             if (doctorName != null && !doctorName.trim().isEmpty()) {
-                results = appointmentRepository
-                        .findByStatusAndDoctorNameAndAppointmentTimeBetweenOrderByAppointmentTimeAsc(status, doctorName, from, to);
+                // naam se doctor id, phir (doctor_id, appointment_time) index range
+                Optional<Doctor> doctor = doctorDirectory.find(doctorName);
+                results = doctor.isEmpty() ? List.of() : appointmentService
+                        .getAppointmentsByStatusBetween(status, doctor.get().getId(), from, to);
             } else {
-                results = appointmentRepository
-                        .findByStatusAndAppointmentTimeBetweenOrderByAppointmentTimeAsc(status, from, to);
+                results = appointmentService.getAppointmentsByStatusBetween(status, null, from, to);
             }
 
             return ResponseEntity.ok(results);
@@ -104,6 +199,7 @@ public class AppointmentController {
 
     //  Paginated, Sortable Appointment List
     @GetMapping("/paged")
+    @Bulkhead("lists") // offset paging: deep pages scan everything before them
     public ResponseEntity<?> getPagedAppointments(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
@@ -111,28 +207,56 @@ public class AppointmentController {
             @RequestParam(defaultValue = "asc") String direction,
             @RequestParam(required = false) String status
     ) {
+        // /cursor jaisi hi limit, warna ek request poora table utha le
+        if (size < 1 || size > 500) {
+            return ResponseEntity.badRequest().body("size must be between 1 and 500");
+        }
+        if (page < 0) {
+            return ResponseEntity.badRequest().body("page must not be negative");
+        }
+        // doctorName ab doctor table mein hai: sort on the joined name (alias d in SUMMARY)
+        String sortProperty = "doctorName".equals(sortBy) ? "d.name" : sortBy;
         Sort sort = direction.equalsIgnoreCase("desc") ?
-                Sort.by(sortBy).descending() :
-                Sort.by(sortBy).ascending();
+                Sort.by(sortProperty).descending() :
+                Sort.by(sortProperty).ascending();
 
         Pageable pageable = PageRequest.of(page, size, sort);
-        Page<Appointment> result;
+        Page<AppointmentSummary> result;
 
         if (status != null && !status.isEmpty()) {
-            result = appointmentRepository.findByStatus(status, pageable);
+            result = appointmentRepository.findSummariesByStatus(status, pageable);
         } else {
-            result = appointmentRepository.findAll(pageable);
+            result = appointmentRepository.findSummaries(pageable);
         }
 
         return ResponseEntity.ok(result);
     }
 
+    //  Status sweeper metrics (rows per run, duration, lag)
+    @GetMapping("/sweeper/stats")
+    public SweeperStats sweeperStats() {
+        return statusSweeper.getStats();
+    }
+
+    //  Archive job stats (rows moved per run, cutoff, newest archived appointment)
+    @GetMapping("/archive/stats")
+    public ArchiveStats archiveStats() {
+        return appointmentArchive.getStats();
+    }
+
     //  Update appointment
     @PutMapping("/{id:\\d+}") // only matches numbers
     public ResponseEntity<?> update(@PathVariable Long id, @RequestBody Appointment appointment) {
         try {
             Appointment updated = appointmentService.updateAppointment(id, appointment);
             return ResponseEntity.ok(updated);
+        } catch (AppointmentConflictException | AppointmentArchivedException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+        } catch (ObjectOptimisticLockingFailureException ex) {
+            // someone else saved it after this copy was read - reload and edit again
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Appointment was changed by someone else, reload it");
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
         } catch (RuntimeException ex) {
             return ResponseEntity.notFound().build();
         }
@@ -141,11 +265,16 @@ public class AppointmentController {
     //  Delete appointment
     @DeleteMapping("/{id:\\d+}") // only matches numbers
     public ResponseEntity<?> delete(@PathVariable Long id) {
-        appointmentService.deleteAppointment(id);
+        try {
+            appointmentService.deleteAppointment(id);
+        } catch (AppointmentArchivedException ex) {
+            // archived rows are read-only
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+        }
         return ResponseEntity.ok("Deleted");
     }
 
-    //  Get appointment by ID (number only)
+    //  Get appointment by ID (number only) - the only read that returns the full entity, archived ones too
     @GetMapping("/{id:\\d+}")
     public ResponseEntity<?> getById(@PathVariable Long id) {
         return appointmentService.getAppointmentById(id)
@@ -153,10 +282,30 @@ public class AppointmentController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    //  Bulk cancel / complete / reschedule: {"ids": [...]} or a filter {"doctorName", "from", "to", "status"},
+    //  reschedule also takes "offsetMinutes". One transaction, one outcome per appointment
+    @PostMapping("/bulk/{action}")
+    @Bulkhead("bulk") // ek transaction mein hazaron rows lock ho sakti hain
+    public ResponseEntity<?> bulk(@PathVariable String action, @RequestBody BulkStatusRequest request) {
+        BulkAction bulkAction = BulkAction.from(action);
+        if (bulkAction == null) {
+            return ResponseEntity.badRequest().body("action must be cancel, complete or reschedule");
+        }
+        try {
+            return ResponseEntity.ok(appointmentService.bulkUpdate(bulkAction, request));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
     //  Cancel appointment
     @PutMapping("/{id}/cancel")
-    public ResponseEntity<Appointment> cancelAppointment(@PathVariable Long id) {
-        Appointment cancelled = appointmentService.cancelAppointment(id);
-        return ResponseEntity.ok(cancelled);
+    public ResponseEntity<?> cancelAppointment(@PathVariable Long id) {
+        try {
+            Appointment cancelled = appointmentService.cancelAppointment(id);
+            return ResponseEntity.ok(cancelled);
+        } catch (AppointmentArchivedException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.smartmedical.controller;
+
+import com.smartmedical.config.Bulkhead;
+import com.smartmedical.dto.AuditRecord;
+import com.smartmedical.dto.CursorPage;
+import com.smartmedical.service.AuditLog;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/audit")
+@CrossOrigin(origins = "http://localhost:3000") // frontend ke liye CORS
+public class AuditController {
+
+    private final AuditLog auditLog;
+
+    public AuditController(AuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    // e.g. /api/audit?entity=appointment&entityId=42&from=2025-01-01T00:00:00&cursor=<nextCursor>&limit=100
+    // oldest first; the cursor is the seq of the last entry on the previous page
+    @GetMapping
+    @Bulkhead("lists") // filters scan the segment files
+    public ResponseEntity<?> query(
+            @RequestParam(required = false) String entity,
+            @RequestParam(required = false) Long entityId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        if (!auditLog.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Audit log is disabled (audit.enabled=false)");
+        }
+        if (limit < 1 || limit > 1000) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and 1000");
+        }
+        long afterSeq;
+        try {
+            afterSeq = cursor == null ? 0 : Long.parseLong(cursor);
+        } catch (NumberFormatException ex) {
+            return ResponseEntity.badRequest().body("Invalid cursor");
+        }
+        try {
+            List<AuditRecord> items = auditLog.query(entity, entityId, from, to, afterSeq, limit);
+            String next = items.size() < limit ? null : String.valueOf(items.get(items.size() - 1).seq());
+            return ResponseEntity.ok(new CursorPage<>(items, next));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+}
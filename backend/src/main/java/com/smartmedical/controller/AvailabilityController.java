@@ -0,0 +1,50 @@
+package com.smartmedical.controller;
+
+import com.smartmedical.dto.AvailabilityQuery;
+import com.smartmedical.service.AvailabilityService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/availability")
+public class AvailabilityController {
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    // e.g. /api/availability?from=2025-09-01&to=2025-09-30&workStart=09:00&workEnd=17:00
+    //      &breakStart=13:00&breakEnd=14:00&slotMinutes=30&limit=5&doctorName=Dr. Strange
+    // perDoctor=false -> one list of the earliest slots across all doctors
+    @GetMapping
+    public ResponseEntity<?> findFreeSlots(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "MONDAY,TUESDAY,WEDNESDAY,THURSDAY,FRIDAY") Set<DayOfWeek> workDays,
+            @RequestParam(defaultValue = "09:00") @DateTimeFormat(pattern = "HH:mm") LocalTime workStart,
+            @RequestParam(defaultValue = "17:00") @DateTimeFormat(pattern = "HH:mm") LocalTime workEnd,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "HH:mm") LocalTime breakStart,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "HH:mm") LocalTime breakEnd,
+            @RequestParam(defaultValue = "30") int slotMinutes,
+            @RequestParam(required = false) Integer stepMinutes,
+            @RequestParam(defaultValue = "5") int limit,
+            @RequestParam(required = false) String doctorName,
+            @RequestParam(defaultValue = "true") boolean perDoctor
+    ) {
+        LocalDate start = from != null ? from : LocalDate.now();
+        LocalDate end = to != null ? to : start.plusDays(30);
+        AvailabilityQuery query = new AvailabilityQuery(start, end, workDays, workStart, workEnd, breakStart, breakEnd,
+                slotMinutes, stepMinutes != null ? stepMinutes : slotMinutes, limit, doctorName, perDoctor);
+        try {
+            return ResponseEntity.ok(availabilityService.findFreeSlots(query));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.smartmedical.controller;
+
+import com.smartmedical.config.BulkheadFullException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * A bulkhead turned the request away -> 503 with a Retry-After estimated from its queue.
+ * Not logged: under overload that is one line per rejection; bulkhead.rejected counts them.
+ */
+@RestControllerAdvice
+public class BulkheadFullHandler {
+
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<String> bulkheadFull(BulkheadFullException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body("Too many " + ex.getBulkhead() + " requests, please retry");
+    }
+}
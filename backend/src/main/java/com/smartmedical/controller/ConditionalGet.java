@@ -0,0 +1,103 @@
+package com.smartmedical.controller;
+
+import com.smartmedical.config.ReplicaRouter;
+import com.smartmedical.service.DashboardAggregateStore;
+import com.smartmedical.service.DataVersions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Strong ETags for the big read endpoints, built from {@link DataVersions} alone, so an
+ * {@code If-None-Match} that still matches is answered 304 before any query runs or any
+ * JSON is written. Responses carry {@code Cache-Control: no-cache}: browsers keep the
+ * body but revalidate every time.
+ * <p>
+ * Appointment rows show the patient name and relabel past SCHEDULED rows as COMPLETED,
+ * so their tag also covers the patient version and the upcoming count (which drops the
+ * moment a row passes its start time). Metrics: {@code http.conditional.requests}
+ * ({@code resource}, {@code outcome} = not_modified / modified / unconditional) and
+ * {@code http.conditional.hit.ratio} (304s over all requests, per resource).
+ */
+@Component
+public class ConditionalGet {
+
+    public enum Resource { APPOINTMENTS, PATIENTS, DASHBOARD }
+
+    private final DataVersions versions;
+    private final DashboardAggregateStore aggregateStore;
+    private final Map<Resource, Outcomes> outcomes = new EnumMap<>(Resource.class);
+
+    public ConditionalGet(DataVersions versions, DashboardAggregateStore aggregateStore, MeterRegistry meterRegistry) {
+        this.versions = versions;
+        this.aggregateStore = aggregateStore;
+        for (Resource resource : Resource.values()) {
+            outcomes.put(resource, new Outcomes(meterRegistry, resource.name().toLowerCase(Locale.ROOT)));
+        }
+    }
+
+    // Take the tag before reading the data (see DataVersions). The reads later in this request may not
+    // come from a replica that is behind this instance's writes, or old rows would go out under a new tag
+    public String tag(Resource resource) {
+        ReplicaRouter.requireLocalWrites();
+        String epoch = Long.toString(versions.epoch(), 36);
+        return switch (resource) {
+            case PATIENTS -> "\"p-" + epoch + "-" + versions.patients() + "\"";
+            case APPOINTMENTS -> "\"a-" + epoch + "-" + versions.appointments() + "." + versions.patients()
+                    + "." + aggregateStore.upcomingCount() + "\"";
+            case DASHBOARD -> "\"d-" + epoch + "-" + versions.appointments() + "." + versions.patients()
+                    + "." + versions.dashboard() + "." + aggregateStore.upcomingCount() + "\"";
+        };
+    }
+
+    // true = 304 with the tag is already on the response; the handler returns without a body
+    public boolean notModified(WebRequest request, Resource resource, String etag) {
+        boolean conditional = request.getHeader(HttpHeaders.IF_NONE_MATCH) != null;
+        boolean notModified = request.checkNotModified(etag);
+        Outcomes o = outcomes.get(resource);
+        (notModified ? o.notModified : conditional ? o.modified : o.unconditional).increment();
+        return notModified;
+    }
+
+    public static <T> ResponseEntity<T> ok(String etag, T body) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(body);
+    }
+
+    private static final class Outcomes {
+        final Counter notModified;
+        final Counter modified;
+        final Counter unconditional;
+
+        Outcomes(MeterRegistry registry, String resource) {
+            notModified = counter(registry, resource, "not_modified");
+            modified = counter(registry, resource, "modified");
+            unconditional = counter(registry, resource, "unconditional");
+            Gauge.builder("http.conditional.hit.ratio", this, Outcomes::hitRatio)
+                    .description("Share of GETs answered 304 Not Modified since startup")
+                    .tag("resource", resource)
+                    .register(registry);
+        }
+
+        double hitRatio() {
+            double hits = notModified.count();
+            double total = hits + modified.count() + unconditional.count();
+            return total == 0 ? 0 : hits / total;
+        }
+
+        private static Counter counter(MeterRegistry registry, String resource, String outcome) {
+            return Counter.builder("http.conditional.requests")
+                    .description("GETs on ETag-versioned endpoints, by outcome")
+                    .tags("resource", resource, "outcome", outcome)
+                    .register(registry);
+        }
+    }
+}
@@ -1,100 +1,109 @@
 package com.smartmedical.controller;
 
+import com.smartmedical.config.Bulkhead;
+import com.smartmedical.dto.DashboardConsistencyReport;
 import com.smartmedical.dto.DashboardStats;
-import com.smartmedical.model.Appointment;
-import com.smartmedical.repository.AppointmentRepository;
-import com.smartmedical.repository.PatientRepository;
+import com.smartmedical.dto.RollupBackfillReport;
+import com.smartmedical.service.DashboardAggregateStore;
+import com.smartmedical.service.DashboardRollupStore;
+import com.smartmedical.service.Granularity;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.util.*;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "http://localhost:3000") // frontend ke liye CORS
 public class DashboardController {
 
-    private final PatientRepository patientRepository;
-    private final AppointmentRepository appointmentRepository;
+    private final DashboardAggregateStore aggregateStore;
+    private final DashboardRollupStore rollupStore;
+    private final ConditionalGet conditionalGet;
 
-    public DashboardController(PatientRepository patientRepository,
-                               AppointmentRepository appointmentRepository) {
-        this.patientRepository = patientRepository;
-        this.appointmentRepository = appointmentRepository;
+    public DashboardController(DashboardAggregateStore aggregateStore, DashboardRollupStore rollupStore,
+                               ConditionalGet conditionalGet) {
+        this.aggregateStore = aggregateStore;
+        this.rollupStore = rollupStore;
+        this.conditionalGet = conditionalGet;
     }
 
+    // Counters are maintained on every write, so this never touches the appointments table;
+    // an unchanged If-None-Match gets 304 without even building the snapshot. In-memory, so no bulkhead
     @GetMapping("/dashboard")
-    public DashboardStats getDashboard() {
-        DashboardStats out = new DashboardStats();
+    public ResponseEntity<?> getDashboard(
+            WebRequest request,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "day") String granularity
+    ) {
+        if (Granularity.from(granularity) == null) {
+            return ResponseEntity.badRequest().body("granularity must be day, week or month");
+        }
+        // dono saath aaye to getDashboardRange handle karta hai
+        if (from != null || to != null) {
+            return ResponseEntity.badRequest().body("from and to go together, with from <= to");
+        }
 
-        long totalPatients = patientRepository.count();
-        List<Appointment> appts = appointmentRepository.findAll();
-        long totalAppointments = appts.size();
-
-        // Upcoming = aaj/abhi ke baad wali SCHEDULED
-        LocalDateTime now = LocalDateTime.now();
-        long upcoming = appts.stream()
-                .filter(a -> a.getAppointmentTime() != null
-                        && a.getAppointmentTime().isAfter(now)
-                        && a.getStatus() != null
-                        && a.getStatus().equalsIgnoreCase("SCHEDULED"))
-                .count();
-
-        // Status breakdown
-        Map<String, Long> statusMap = appts.stream()
-                .collect(Collectors.groupingBy(
-                        a -> Optional.ofNullable(a.getStatus()).orElse("UNKNOWN"),
-                        Collectors.counting()
-                ));
-
-        // Doctor wise count
-        Map<String, Long> doctorMap = appts.stream()
-                .collect(Collectors.groupingBy(
-                        a -> Optional.ofNullable(a.getDoctorName()).orElse("Unknown"),
-                        Collectors.counting()
-                ));
+        String etag = conditionalGet.tag(ConditionalGet.Resource.DASHBOARD);
+        if (conditionalGet.notModified(request, ConditionalGet.Resource.DASHBOARD, etag)) return null;
+        return ConditionalGet.ok(etag, aggregateStore.snapshot());
+    }
 
-        // Per-day line chart data (yyyy-MM-dd)
-        Map<String, Long> perDayMap = appts.stream()
-                .filter(a -> a.getAppointmentTime() != null)
-                .collect(Collectors.groupingBy(
-                        a -> a.getAppointmentTime().toLocalDate().toString(),
-                        Collectors.counting()
-                ));
+    // ?from=2025-01-01&to=2025-12-31&granularity=day|week|month -> appointment figures for that
+    // range only, read from the daily rollup (patients and upcoming stay global)
+    @Bulkhead("dashboard") // rollup pe range query, DB pe bhari
+    @GetMapping(value = "/dashboard", params = {"from", "to"})
+    public ResponseEntity<?> getDashboardRange(
+            WebRequest request,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String granularity
+    ) {
+        Granularity buckets = Granularity.from(granularity);
+        if (buckets == null) {
+            return ResponseEntity.badRequest().body("granularity must be day, week or month");
+        }
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().body("from and to go together, with from <= to");
+        }
 
-        out.setTotalPatients(totalPatients);
-        out.setTotalAppointments(totalAppointments);
-        out.setUpcomingAppointments(upcoming);
-        out.setStatusBreakdown(sortByKey(statusMap));
-        out.setAppointmentsPerDoctor(sortByValueDesc(doctorMap));
-        out.setAppointmentsPerDay(sortByKey(perDayMap)); // date asc
+        String etag = conditionalGet.tag(ConditionalGet.Resource.DASHBOARD);
+        if (conditionalGet.notModified(request, ConditionalGet.Resource.DASHBOARD, etag)) return null;
+        DashboardStats stats = rollupStore.rangeStats(from, to, buckets);
+        stats.setTotalPatients(aggregateStore.totalPatients());
+        stats.setUpcomingAppointments(aggregateStore.upcomingCount());
+        return ConditionalGet.ok(etag, stats);
+    }
 
-        return out;
+    // Rebuild the daily rollup from the appointments table (whole history without from/to).
+    // Apna bulkhead: ek backfill ek time pe, doosra turant 503
+    @Bulkhead("backfill")
+    @PostMapping("/dashboard/rollup/backfill")
+    public ResponseEntity<?> backfillRollup(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().body("from must not be after to");
+        }
+        RollupBackfillReport report = rollupStore.backfill(from, to);
+        return ResponseEntity.ok(report);
     }
 
-    // helper: sort map by key (ascending)
-    private static Map<String, Long> sortByKey(Map<String, Long> map) {
-        return map.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (a, b) -> a,
-                        LinkedHashMap::new
-                ));
+    // Live counters vs full recompute from DB, read-only; POST on the same path repairs drifted counters
+    @Bulkhead("dashboard")
+    @GetMapping("/dashboard/consistency")
+    public DashboardConsistencyReport checkConsistency() {
+        return aggregateStore.checkConsistency(false);
     }
 
-    // helper: sort by value desc
-    private static Map<String, Long> sortByValueDesc(Map<String, Long> map) {
-        return map.entrySet().stream()
-                .sorted(Collections.reverseOrder(Map.Entry.comparingByValue()))
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (a, b) -> a,
-                        LinkedHashMap::new
-                ));
+    // counters ko DB recompute se replace karta hai - state badalta hai isliye POST
+    @Bulkhead("dashboard")
+    @PostMapping("/dashboard/consistency")
+    public DashboardConsistencyReport repairConsistency() {
+        return aggregateStore.checkConsistency(true);
     }
-}
\ No newline at end of file
+}
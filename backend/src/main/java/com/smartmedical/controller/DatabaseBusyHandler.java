@@ -0,0 +1,31 @@
+package com.smartmedical.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.NestedRuntimeException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * No connection within {@code spring.datasource.hikari.connection-timeout} (pool
+ * exhausted, or the database is unreachable) -> 503 with Retry-After, not a 500.
+ * Clients back off instead of piling more requests onto the pool.
+ */
+@RestControllerAdvice
+public class DatabaseBusyHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseBusyHandler.class);
+
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<String> databaseBusy(NestedRuntimeException ex) {
+        log.warn("No database connection available: {}", ex.getMostSpecificCause().getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Database busy, please retry");
+    }
+}
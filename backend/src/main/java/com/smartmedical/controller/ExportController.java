@@ -0,0 +1,75 @@
+package com.smartmedical.controller;
+
+import com.smartmedical.config.Bulkhead;
+import com.smartmedical.service.ExportFormat;
+import com.smartmedical.service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/api/export")
+@Bulkhead("export")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    // e.g. /api/export/appointments?format=csv&from=2025-01-01T00:00:00&status=COMPLETED&gzip=true
+    @GetMapping("/appointments")
+    public void exportAppointments(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String doctorName,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response
+    ) throws IOException {
+        ExportFormat fmt = ExportFormat.from(format);
+        if (fmt == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "format must be csv or ndjson");
+            return;
+        }
+        try (OutputStream out = open(response, "appointments", fmt, gzip)) {
+            exportService.exportAppointments(from, to, status, doctorName, fmt, out);
+        }
+    }
+
+    @GetMapping("/patients")
+    public void exportPatients(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response
+    ) throws IOException {
+        ExportFormat fmt = ExportFormat.from(format);
+        if (fmt == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "format must be csv or ndjson");
+            return;
+        }
+        try (OutputStream out = open(response, "patients", fmt, gzip)) {
+            exportService.exportPatients(fmt, out);
+        }
+    }
+
+    // Headers go out before the first row; with gzip the file itself is compressed (.csv.gz)
+    private static OutputStream open(HttpServletResponse response, String name, ExportFormat fmt, boolean gzip)
+            throws IOException {
+        String fileName = name + "." + fmt.getExtension() + (gzip ? ".gz" : "");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        if (gzip) {
+            response.setContentType("application/gzip");
+            return new GZIPOutputStream(response.getOutputStream(), 64 * 1024);
+        }
+        response.setContentType(fmt.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        return response.getOutputStream();
+    }
+}
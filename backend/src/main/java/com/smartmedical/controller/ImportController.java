@@ -0,0 +1,33 @@
+package com.smartmedical.controller;
+
+import com.smartmedical.config.Bulkhead;
+import com.smartmedical.dto.ImportReport;
+import com.smartmedical.service.ImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+// Bulk ingest: POST a JSON array (application/json) or NDJSON (application/x-ndjson)
+@RestController
+@RequestMapping("/api/import")
+@Bulkhead("import")
+public class ImportController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private ImportService importService;
+
+    @PostMapping(value = "/patients", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    public ImportReport importPatients(HttpServletRequest request) throws IOException {
+        return importService.importPatients(request.getInputStream());
+    }
+
+    @PostMapping(value = "/appointments", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    public ImportReport importAppointments(HttpServletRequest request) throws IOException {
+        return importService.importAppointments(request.getInputStream());
+    }
+}
@@ -1,9 +1,13 @@
 package com.smartmedical.controller;
 
+import com.smartmedical.config.Bulkhead;
+import com.smartmedical.dto.PatientCacheStats;
 import com.smartmedical.model.Patient;
 import com.smartmedical.service.PatientService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,16 +19,37 @@ public class PatientController {
     @Autowired
     private PatientService patientService;
 
+    @Autowired
+    private ConditionalGet conditionalGet;
+
     // Add new patient
     @PostMapping
     public Patient createPatient(@RequestBody Patient patient) {
         return patientService.savePatient(patient);
     }
 
-    // Get all patients
+    // Get all patients (304 from the version counter when the client's copy is current)
     @GetMapping
-    public List<Patient> getAllPatients() {
-        return patientService.getAllPatients();
+    @Bulkhead("lists")
+    public ResponseEntity<List<Patient>> getAllPatients(WebRequest request) {
+        String etag = conditionalGet.tag(ConditionalGet.Resource.PATIENTS);
+        if (conditionalGet.notModified(request, ConditionalGet.Resource.PATIENTS, etag)) return null;
+        return ConditionalGet.ok(etag, patientService.getAllPatients());
+    }
+
+    // Typeahead search on name / phone / email: /api/patients/search?q=rah&limit=10
+    @GetMapping("/search")
+    public ResponseEntity<?> searchPatients(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > 50) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and 50");
+        }
+        return ResponseEntity.ok(patientService.searchPatients(q, limit));
+    }
+
+    // Patient cache counters (hits, misses, evictions, size) for sizing patients.cache.*
+    @GetMapping("/cache/stats")
+    public PatientCacheStats cacheStats() {
+        return patientService.getCacheStats();
     }
 
     // Get patient by ID
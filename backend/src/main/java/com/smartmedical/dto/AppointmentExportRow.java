@@ -0,0 +1,14 @@
+package com.smartmedical.dto;
+
+import java.time.LocalDateTime;
+
+// Flat row for exports - built straight from a projection query, never a managed entity
+public record AppointmentExportRow(Long id,
+                                   Long patientId,
+                                   String patientName,
+                                   String doctorName,
+                                   LocalDateTime appointmentTime,
+                                   String reason,
+                                   String status,
+                                   LocalDateTime createdAt) {
+}
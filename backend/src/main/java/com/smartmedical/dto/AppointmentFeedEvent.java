@@ -0,0 +1,6 @@
+package com.smartmedical.dto;
+
+import com.smartmedical.event.AppointmentChangeEvent.ChangeType;
+
+// One "appointment" message on /api/changes; appointment is null for DELETED
+public record AppointmentFeedEvent(ChangeType type, Long id, AppointmentSummary appointment) {}
@@ -0,0 +1,31 @@
+package com.smartmedical.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+
+// List row: appointment columns plus patient id + name, built by one joined projection query.
+// Same JSON shape as the entity (patient.id / patient.name) minus medicalHistory and friends.
+public record AppointmentSummary(Long id,
+                                 PatientRef patient,
+                                 String doctorName,
+                                 @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss") LocalDateTime appointmentTime,
+                                 Integer durationMinutes,
+                                 String reason,
+                                 String status,
+                                 LocalDateTime createdAt) {
+
+    public record PatientRef(Long id, String name) {}
+
+    // JPQL constructor expression (see AppointmentRepository.SUMMARY); no patient -> null
+    public AppointmentSummary(Long id, Long patientId, String patientName, String doctorName,
+                              LocalDateTime appointmentTime, Integer durationMinutes, String reason,
+                              String status, LocalDateTime createdAt) {
+        this(id, patientId == null ? null : new PatientRef(patientId, patientName), doctorName,
+                appointmentTime, durationMinutes, reason, status, createdAt);
+    }
+
+    public AppointmentSummary withStatus(String status) {
+        return new AppointmentSummary(id, patient, doctorName, appointmentTime, durationMinutes, reason, status, createdAt);
+    }
+}
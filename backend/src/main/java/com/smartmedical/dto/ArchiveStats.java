@@ -0,0 +1,42 @@
+package com.smartmedical.dto;
+
+import java.time.LocalDateTime;
+
+public class ArchiveStats {
+    private LocalDateTime lastRunAt;
+    private LocalDateTime cutoff;           // rows older than this were eligible in the last run
+    private long lastRunRows;               // moved to appointments_archive in the last run
+    private int lastRunBatches;
+    private long lastRunDurationMs;
+    private boolean caughtUp;               // false: the run stopped at max-batches-per-run, rows left for the next one
+    private LocalDateTime newestArchived;   // latest appointment time in the archive, null while it is empty
+    private long totalRuns;
+    private long totalRows;
+
+    public LocalDateTime getLastRunAt() { return lastRunAt; }
+    public void setLastRunAt(LocalDateTime lastRunAt) { this.lastRunAt = lastRunAt; }
+
+    public LocalDateTime getCutoff() { return cutoff; }
+    public void setCutoff(LocalDateTime cutoff) { this.cutoff = cutoff; }
+
+    public long getLastRunRows() { return lastRunRows; }
+    public void setLastRunRows(long lastRunRows) { this.lastRunRows = lastRunRows; }
+
+    public int getLastRunBatches() { return lastRunBatches; }
+    public void setLastRunBatches(int lastRunBatches) { this.lastRunBatches = lastRunBatches; }
+
+    public long getLastRunDurationMs() { return lastRunDurationMs; }
+    public void setLastRunDurationMs(long lastRunDurationMs) { this.lastRunDurationMs = lastRunDurationMs; }
+
+    public boolean isCaughtUp() { return caughtUp; }
+    public void setCaughtUp(boolean caughtUp) { this.caughtUp = caughtUp; }
+
+    public LocalDateTime getNewestArchived() { return newestArchived; }
+    public void setNewestArchived(LocalDateTime newestArchived) { this.newestArchived = newestArchived; }
+
+    public long getTotalRuns() { return totalRuns; }
+    public void setTotalRuns(long totalRuns) { this.totalRuns = totalRuns; }
+
+    public long getTotalRows() { return totalRows; }
+    public void setTotalRows(long totalRows) { this.totalRows = totalRows; }
+}
@@ -0,0 +1,21 @@
+package com.smartmedical.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.LocalDateTime;
+
+/**
+ * One audit log entry: what changed ({@code entity} "appointment" or "patient", its id,
+ * the action), when, where the change came from ("PUT /api/appointments/5", or the
+ * thread for scheduled jobs and imports), and the row before and after. {@code seq}
+ * orders the entries and is the cursor for the next page.
+ */
+public record AuditRecord(long seq,
+                          LocalDateTime at,
+                          String entity,
+                          long entityId,
+                          String action,
+                          String source,
+                          JsonNode before,
+                          JsonNode after) {
+}
@@ -0,0 +1,25 @@
+package com.smartmedical.dto;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Set;
+
+/**
+ * Free-slot search: a date range, a working-hours template (days, hours, optional
+ * break) and the slot length. {@code doctorName} null means every known doctor;
+ * {@code perDoctor} false merges all doctors into one earliest-first list.
+ */
+public record AvailabilityQuery(LocalDate from,
+                                LocalDate to,
+                                Set<DayOfWeek> workDays,
+                                LocalTime workStart,
+                                LocalTime workEnd,
+                                LocalTime breakStart,
+                                LocalTime breakEnd,
+                                int slotMinutes,
+                                int stepMinutes,
+                                int limit,
+                                String doctorName,
+                                boolean perDoctor) {
+}
@@ -0,0 +1,39 @@
+package com.smartmedical.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AvailabilityResult {
+    private LocalDate from;
+    private LocalDate to;
+    private int slotMinutes;
+    private int doctorsSearched;
+    private long tookMicros;
+    private Map<String, List<FreeSlot>> byDoctor; // perDoctor=true: doctor -> next N slots
+    private List<FreeSlot> earliest;              // perDoctor=false: next N slots across doctors
+
+    public LocalDate getFrom() { return from; }
+    public void setFrom(LocalDate from) { this.from = from; }
+
+    public LocalDate getTo() { return to; }
+    public void setTo(LocalDate to) { this.to = to; }
+
+    public int getSlotMinutes() { return slotMinutes; }
+    public void setSlotMinutes(int slotMinutes) { this.slotMinutes = slotMinutes; }
+
+    public int getDoctorsSearched() { return doctorsSearched; }
+    public void setDoctorsSearched(int doctorsSearched) { this.doctorsSearched = doctorsSearched; }
+
+    public long getTookMicros() { return tookMicros; }
+    public void setTookMicros(long tookMicros) { this.tookMicros = tookMicros; }
+
+    public Map<String, List<FreeSlot>> getByDoctor() { return byDoctor; }
+    public void setByDoctor(Map<String, List<FreeSlot>> byDoctor) { this.byDoctor = byDoctor; }
+
+    public List<FreeSlot> getEarliest() { return earliest; }
+    public void setEarliest(List<FreeSlot> earliest) { this.earliest = earliest; }
+}
@@ -0,0 +1,40 @@
+package com.smartmedical.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+// Body of POST /api/appointments/bulk/{cancel|complete|reschedule}: either ids or a filter
+public class BulkStatusRequest {
+    private List<Long> ids;
+    private Map<Long, Long> versions;   // optional, id -> version the caller last saw (ids only)
+
+    // filter: doctor and/or [from, to), optionally one status
+    private String doctorName;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private String status;
+
+    private Integer offsetMinutes;      // reschedule only, may be negative
+
+    public List<Long> getIds() { return ids; }
+    public void setIds(List<Long> ids) { this.ids = ids; }
+
+    public Map<Long, Long> getVersions() { return versions; }
+    public void setVersions(Map<Long, Long> versions) { this.versions = versions; }
+
+    public String getDoctorName() { return doctorName; }
+    public void setDoctorName(String doctorName) { this.doctorName = doctorName; }
+
+    public LocalDateTime getFrom() { return from; }
+    public void setFrom(LocalDateTime from) { this.from = from; }
+
+    public LocalDateTime getTo() { return to; }
+    public void setTo(LocalDateTime to) { this.to = to; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Integer getOffsetMinutes() { return offsetMinutes; }
+    public void setOffsetMinutes(Integer offsetMinutes) { this.offsetMinutes = offsetMinutes; }
+}
@@ -0,0 +1,65 @@
+package com.smartmedical.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkStatusResult {
+    private String action;
+    private int matched;           // rows found (ids that exist, or rows the filter selected)
+    private int updated;
+    private long durationMs;
+    private List<Outcome> outcomes = new ArrayList<>();
+
+    public enum Result {
+        UPDATED,
+        UNCHANGED,          // already in the requested status
+        NOT_FOUND,
+        VERSION_CONFLICT,   // changed since the caller read it (versions map)
+        REJECTED,           // the status rules say no, e.g. completed cannot be cancelled
+        SLOT_CONFLICT       // reschedule target overlaps another booking of the doctor
+    }
+
+    public String getAction() { return action; }
+    public void setAction(String action) { this.action = action; }
+
+    public int getMatched() { return matched; }
+    public void setMatched(int matched) { this.matched = matched; }
+
+    public int getUpdated() { return updated; }
+    public void setUpdated(int updated) { this.updated = updated; }
+
+    public long getDurationMs() { return durationMs; }
+    public void setDurationMs(long durationMs) { this.durationMs = durationMs; }
+
+    public List<Outcome> getOutcomes() { return outcomes; }
+    public void setOutcomes(List<Outcome> outcomes) { this.outcomes = outcomes; }
+
+    // version = the row's version after the operation (null when not found)
+    public static class Outcome {
+        private Long id;
+        private Result result;
+        private Long version;
+        private String message;
+
+        public Outcome() {}
+
+        public Outcome(Long id, Result result, Long version, String message) {
+            this.id = id;
+            this.result = result;
+            this.version = version;
+            this.message = message;
+        }
+
+        public Long getId() { return id; }
+        public void setId(Long id) { this.id = id; }
+
+        public Result getResult() { return result; }
+        public void setResult(Result result) { this.result = result; }
+
+        public Long getVersion() { return version; }
+        public void setVersion(Long version) { this.version = version; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+    }
+}
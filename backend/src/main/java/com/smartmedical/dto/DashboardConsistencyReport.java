@@ -0,0 +1,23 @@
+package com.smartmedical.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class DashboardConsistencyReport {
+    private LocalDateTime checkedAt;
+    private boolean consistent;
+    private boolean repaired;
+    private List<String> differences; // "statusBreakdown[CANCELLED]: live=3, recomputed=4"
+
+    public LocalDateTime getCheckedAt() { return checkedAt; }
+    public void setCheckedAt(LocalDateTime checkedAt) { this.checkedAt = checkedAt; }
+
+    public boolean isConsistent() { return consistent; }
+    public void setConsistent(boolean consistent) { this.consistent = consistent; }
+
+    public boolean isRepaired() { return repaired; }
+    public void setRepaired(boolean repaired) { this.repaired = repaired; }
+
+    public List<String> getDifferences() { return differences; }
+    public void setDifferences(List<String> differences) { this.differences = differences; }
+}
@@ -1,5 +1,6 @@
 package com.smartmedical.dto;
 
+import java.time.LocalDate;
 import java.util.Map;
 
 public class DashboardStats {
@@ -8,7 +9,12 @@ public class DashboardStats {
     private long upcomingAppointments; // next-time insight
     private Map<String, Long> appointmentsPerDoctor;
     private Map<String, Long> statusBreakdown;
-    private Map<String, Long> appointmentsPerDay; // yyyy-MM-dd -> count
+    private Map<String, Long> appointmentsPerDay; // yyyy-MM-dd -> count (bucket start date for week/month)
+
+    // Set only for ?from=&to= requests: appointment figures then cover that range, from the daily rollup
+    private LocalDate from;
+    private LocalDate to;
+    private String granularity;
 
     public long getTotalPatients() { return totalPatients; }
     public void setTotalPatients(long totalPatients) { this.totalPatients = totalPatients; }
@@ -27,4 +33,13 @@ public class DashboardStats {
 
     public Map<String, Long> getAppointmentsPerDay() { return appointmentsPerDay; }
     public void setAppointmentsPerDay(Map<String, Long> appointmentsPerDay) { this.appointmentsPerDay = appointmentsPerDay; }
-}
\ No newline at end of file
+
+    public LocalDate getFrom() { return from; }
+    public void setFrom(LocalDate from) { this.from = from; }
+
+    public LocalDate getTo() { return to; }
+    public void setTo(LocalDate to) { this.to = to; }
+
+    public String getGranularity() { return granularity; }
+    public void setGranularity(String granularity) { this.granularity = granularity; }
+}
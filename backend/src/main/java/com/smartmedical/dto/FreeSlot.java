@@ -0,0 +1,11 @@
+package com.smartmedical.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+
+// One bookable slot from the availability search
+public record FreeSlot(String doctorName,
+                       @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss") LocalDateTime start,
+                       @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss") LocalDateTime end) {
+}
@@ -0,0 +1,32 @@
+package com.smartmedical.dto;
+
+public class PatientCacheStats {
+    private long maxSize;            // patients.cache.max-size
+    private long ttlSeconds;         // patients.cache.ttl-seconds
+    private long size;               // entries right now (estimate)
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private long evictions;          // dropped for size or expired
+
+    public long getMaxSize() { return maxSize; }
+    public void setMaxSize(long maxSize) { this.maxSize = maxSize; }
+
+    public long getTtlSeconds() { return ttlSeconds; }
+    public void setTtlSeconds(long ttlSeconds) { this.ttlSeconds = ttlSeconds; }
+
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+
+    public long getHits() { return hits; }
+    public void setHits(long hits) { this.hits = hits; }
+
+    public long getMisses() { return misses; }
+    public void setMisses(long misses) { this.misses = misses; }
+
+    public double getHitRate() { return hitRate; }
+    public void setHitRate(double hitRate) { this.hitRate = hitRate; }
+
+    public long getEvictions() { return evictions; }
+    public void setEvictions(long evictions) { this.evictions = evictions; }
+}
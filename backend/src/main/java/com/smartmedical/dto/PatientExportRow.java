@@ -0,0 +1,10 @@
+package com.smartmedical.dto;
+
+// Flat row for exports - built straight from a projection query, never a managed entity
+public record PatientExportRow(Long id,
+                               String name,
+                               int age,
+                               String email,
+                               String phone,
+                               String medicalHistory) {
+}
@@ -0,0 +1,5 @@
+package com.smartmedical.dto;
+
+// Typeahead row: just enough to pick a patient (no medical history)
+public record PatientSearchResult(Long id, String name, String phone, String email) {
+}
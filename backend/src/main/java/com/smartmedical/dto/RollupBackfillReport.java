@@ -0,0 +1,26 @@
+package com.smartmedical.dto;
+
+import java.time.LocalDate;
+
+public class RollupBackfillReport {
+    private LocalDate from;
+    private LocalDate to;
+    private long appointments;   // source rows counted
+    private long rollupRows;     // (day, doctor, status) rows written
+    private long durationMs;
+
+    public LocalDate getFrom() { return from; }
+    public void setFrom(LocalDate from) { this.from = from; }
+
+    public LocalDate getTo() { return to; }
+    public void setTo(LocalDate to) { this.to = to; }
+
+    public long getAppointments() { return appointments; }
+    public void setAppointments(long appointments) { this.appointments = appointments; }
+
+    public long getRollupRows() { return rollupRows; }
+    public void setRollupRows(long rollupRows) { this.rollupRows = rollupRows; }
+
+    public long getDurationMs() { return durationMs; }
+    public void setDurationMs(long durationMs) { this.durationMs = durationMs; }
+}
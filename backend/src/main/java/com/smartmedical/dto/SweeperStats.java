@@ -0,0 +1,34 @@
+package com.smartmedical.dto;
+
+import java.time.LocalDateTime;
+
+public class SweeperStats {
+    private LocalDateTime lastRunAt;
+    private long lastRunRows;        // SCHEDULED -> COMPLETED in the last run
+    private int lastRunBatches;
+    private long lastRunDurationMs;
+    private long lagSeconds;         // oldest still-overdue SCHEDULED row vs now, 0 when caught up
+    private long totalRuns;
+    private long totalRows;
+
+    public LocalDateTime getLastRunAt() { return lastRunAt; }
+    public void setLastRunAt(LocalDateTime lastRunAt) { this.lastRunAt = lastRunAt; }
+
+    public long getLastRunRows() { return lastRunRows; }
+    public void setLastRunRows(long lastRunRows) { this.lastRunRows = lastRunRows; }
+
+    public int getLastRunBatches() { return lastRunBatches; }
+    public void setLastRunBatches(int lastRunBatches) { this.lastRunBatches = lastRunBatches; }
+
+    public long getLastRunDurationMs() { return lastRunDurationMs; }
+    public void setLastRunDurationMs(long lastRunDurationMs) { this.lastRunDurationMs = lastRunDurationMs; }
+
+    public long getLagSeconds() { return lagSeconds; }
+    public void setLagSeconds(long lagSeconds) { this.lagSeconds = lagSeconds; }
+
+    public long getTotalRuns() { return totalRuns; }
+    public void setTotalRuns(long totalRuns) { this.totalRuns = totalRuns; }
+
+    public long getTotalRows() { return totalRows; }
+    public void setTotalRows(long totalRows) { this.totalRows = totalRows; }
+}
@@ -0,0 +1,22 @@
+package com.smartmedical.dto;
+
+import com.smartmedical.event.AppointmentSnapshot;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bulk status operations: the fields the rules and the read models need, plus the
+ * optimistic-lock version the caller may have sent back.
+ */
+public record VersionedAppointment(Long id,
+                                   Long patientId,
+                                   String doctorName,
+                                   LocalDateTime appointmentTime,
+                                   Integer durationMinutes,
+                                   String status,
+                                   Long version) {
+
+    public AppointmentSnapshot snapshot() {
+        return new AppointmentSnapshot(id, patientId, doctorName, appointmentTime, durationMinutes, status);
+    }
+}
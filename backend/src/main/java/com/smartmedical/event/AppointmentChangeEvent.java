@@ -0,0 +1,30 @@
+package com.smartmedical.event;
+
+/**
+ * Published by the appointment service after a write has been saved.
+ * {@code before} is null for CREATED, {@code after} is null for DELETED.
+ */
+public record AppointmentChangeEvent(ChangeType type,
+                                     AppointmentSnapshot before,
+                                     AppointmentSnapshot after) {
+
+    public enum ChangeType {
+        CREATED, UPDATED, CANCELLED, DELETED
+    }
+
+    public static AppointmentChangeEvent created(AppointmentSnapshot after) {
+        return new AppointmentChangeEvent(ChangeType.CREATED, null, after);
+    }
+
+    public static AppointmentChangeEvent updated(AppointmentSnapshot before, AppointmentSnapshot after) {
+        return new AppointmentChangeEvent(ChangeType.UPDATED, before, after);
+    }
+
+    public static AppointmentChangeEvent cancelled(AppointmentSnapshot before, AppointmentSnapshot after) {
+        return new AppointmentChangeEvent(ChangeType.CANCELLED, before, after);
+    }
+
+    public static AppointmentChangeEvent deleted(AppointmentSnapshot before) {
+        return new AppointmentChangeEvent(ChangeType.DELETED, before, null);
+    }
+}
@@ -0,0 +1,51 @@
+package com.smartmedical.event;
+
+import com.smartmedical.model.Appointment;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable copy of the appointment fields that read models care about.
+ * Taken before an entity is mutated so listeners can see the old state.
+ */
+public record AppointmentSnapshot(Long id,
+                                  Long patientId,
+                                  String doctorName,
+                                  LocalDateTime appointmentTime,
+                                  Integer durationMinutes,
+                                  String status) {
+
+    public static AppointmentSnapshot of(Appointment appointment) {
+        Long patientId = appointment.getPatient() != null ? appointment.getPatient().getId() : null;
+        return new AppointmentSnapshot(
+                appointment.getId(),
+                patientId,
+                appointment.getDoctorName(),
+                appointment.getAppointmentTime(),
+                appointment.getDurationMinutes(),
+                appointment.getStatus()
+        );
+    }
+
+    public AppointmentSnapshot withStatus(String newStatus) {
+        return new AppointmentSnapshot(id, patientId, doctorName, appointmentTime, durationMinutes, newStatus);
+    }
+
+    public AppointmentSnapshot withAppointmentTime(LocalDateTime newTime) {
+        return new AppointmentSnapshot(id, patientId, doctorName, newTime, durationMinutes, status);
+    }
+
+    public LocalDateTime endTime() {
+        int minutes = durationMinutes != null ? durationMinutes : Appointment.DEFAULT_DURATION_MINUTES;
+        return appointmentTime.plusMinutes(minutes);
+    }
+
+    // Cancelled appointments free their slot; everything else keeps it
+    public boolean isCancelled() {
+        return "CANCELLED".equalsIgnoreCase(status);
+    }
+
+    public boolean isScheduled() {
+        return "SCHEDULED".equalsIgnoreCase(status);
+    }
+}
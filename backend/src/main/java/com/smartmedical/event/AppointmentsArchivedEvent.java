@@ -0,0 +1,10 @@
+package com.smartmedical.event;
+
+import java.util.List;
+
+/**
+ * Published by {@code AppointmentArchive} after a batch has moved to the archive. Not an
+ * {@link AppointmentChangeEvent}: the rows still count everywhere totals are kept, they only
+ * leave the read models that hold live rows (the schedule index).
+ */
+public record AppointmentsArchivedEvent(List<AppointmentSnapshot> appointments) {}
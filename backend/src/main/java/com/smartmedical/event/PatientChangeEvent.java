@@ -0,0 +1,14 @@
+package com.smartmedical.event;
+
+import com.smartmedical.model.Patient;
+
+/**
+ * Published by the patient service after a patient is saved or deleted.
+ * {@code patient} is the saved entity, or the removed one for DELETED.
+ */
+public record PatientChangeEvent(ChangeType type, Patient patient) {
+
+    public enum ChangeType {
+        CREATED, UPDATED, DELETED
+    }
+}
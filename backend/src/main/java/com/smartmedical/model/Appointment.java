@@ -1,18 +1,28 @@
 package com.smartmedical.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 
+// Schema and indexes: db/migration (V1_1 updated_at, V1_3 a doctor's diary, V2 the list queries)
 @Entity
 @Table(name = "appointments")
 public class Appointment {
 
+    public static final int DEFAULT_DURATION_MINUTES = 30;
+    public static final int MAX_DURATION_MINUTES = 480;
+
+    // Block-allocated ids so inserts can be JDBC-batched (see Patient)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "appointment_ids")
+    @TableGenerator(name = "appointment_ids", table = "id_generator", pkColumnName = "entity_name",
+            valueColumnName = "next_val", pkColumnValue = "appointments", allocationSize = 50)
     private Long id;
 
     // Link to Patient
@@ -21,13 +31,24 @@ public class Appointment {
     @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
     private Patient patient;
 
-    @Column(name = "doctor_name")
+    // Dictionary-encoded doctor (see DoctorDirectory); the API still speaks doctorName
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "doctor_id")
+    @JsonIgnore
+    private Doctor doctor;
+
+    // Name as sent by the client until the service resolves it to a Doctor
+    @Transient
     private String doctorName;
 
     @Column(name = "appointment_time")
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime appointmentTime;
 
+    // Slot length; null (older rows) means DEFAULT_DURATION_MINUTES
+    @Column(name = "duration_minutes")
+    private Integer durationMinutes;
+
     @Column(length = 1000)
     private String reason;
 
@@ -37,6 +58,18 @@ public class Appointment {
     @CreationTimestamp
     private LocalDateTime createdAt;
 
+    // Last insert/update; bulk JPQL updates must set it themselves (warm start replays rows changed after the snapshot)
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Optimistic lock: every update bumps it, bulk JPQL updates too. A PUT that sends it back
+    // is refused (409) when the row changed since it was read; the default fills existing rows
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     public Appointment() {}
 
     // convenience ctor
@@ -55,12 +88,24 @@ public class Appointment {
     public Patient getPatient() { return patient; }
     public void setPatient(Patient patient) { this.patient = patient; }
 
-    public String getDoctorName() { return doctorName; }
-    public void setDoctorName(String doctorName) { this.doctorName = doctorName; }
+    public Doctor getDoctor() { return doctor; }
+    public void setDoctor(Doctor doctor) {
+        this.doctor = doctor;
+        this.doctorName = doctor == null ? null : doctor.getName();
+    }
+
+    public String getDoctorName() { return doctor != null ? doctor.getName() : doctorName; }
+    public void setDoctorName(String doctorName) {
+        this.doctorName = doctorName;
+        if (doctor != null && !doctor.getName().equals(doctorName)) doctor = null;
+    }
 
     public LocalDateTime getAppointmentTime() { return appointmentTime; }
     public void setAppointmentTime(LocalDateTime appointmentTime) { this.appointmentTime = appointmentTime; }
 
+    public Integer getDurationMinutes() { return durationMinutes; }
+    public void setDurationMinutes(Integer durationMinutes) { this.durationMinutes = durationMinutes; }
+
     public String getReason() { return reason; }
     public void setReason(String reason) { this.reason = reason; }
 
@@ -68,4 +113,24 @@ public class Appointment {
     public void setStatus(String status) { this.status = status; }
 
     public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+
+    // copies of archived rows (ArchivedAppointment); Hibernate sets them on saved rows
+    void setTimestamps(LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    // A name that never went through DoctorDirectory would be silently dropped
+    @PrePersist
+    @PreUpdate
+    void requireResolvedDoctor() {
+        if (doctor == null && doctorName != null && !doctorName.isBlank()) {
+            throw new IllegalStateException("doctorName '" + doctorName + "' not resolved to a Doctor");
+        }
+    }
 }
\ No newline at end of file
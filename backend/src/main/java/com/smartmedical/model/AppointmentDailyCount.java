@@ -0,0 +1,69 @@
+package com.smartmedical.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Daily rollup row: appointments per (day, doctor, status). The primary key starts with
+ * the day, so a dashboard range is one index range scan over days x doctors x statuses
+ * rows. Maintained by DashboardRollupStore. Keyed by doctor id (V1_3), the name joined in on
+ * read; key columns cannot be null, so no doctor is stored as 0 and no status as "UNKNOWN",
+ * the dashboard's label.
+ */
+@Entity
+@Table(name = "appointment_daily_rollup")
+public class AppointmentDailyCount {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "appointment_count", nullable = false)
+    private long count;
+
+    public AppointmentDailyCount() {}
+
+    public Key getId() { return id; }
+    public void setId(Key id) { this.id = id; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    @Embeddable
+    public static class Key implements Serializable {
+
+        @Column(name = "rollup_day", nullable = false)
+        private LocalDate day;
+
+        // 0: no doctor
+        @Column(name = "doctor_id", nullable = false)
+        private int doctorId;
+
+        @Column(name = "status", nullable = false)
+        private String status;
+
+        public Key() {}
+
+        public Key(LocalDate day, int doctorId, String status) {
+            this.day = day;
+            this.doctorId = doctorId;
+            this.status = status;
+        }
+
+        public LocalDate getDay() { return day; }
+        public int getDoctorId() { return doctorId; }
+        public String getStatus() { return status; }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && day.equals(k.day) && doctorId == k.doctorId && status.equals(k.status);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(day, doctorId, status);
+        }
+    }
+}
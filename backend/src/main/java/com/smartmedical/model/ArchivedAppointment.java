@@ -0,0 +1,78 @@
+package com.smartmedical.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+// Cold tier: an Appointment moved out of the live table by AppointmentArchive (schema: V4).
+// Written only by the archive job's INSERT ... SELECT and never changed; read through
+// AppointmentArchiveRepository projections, loaded as an entity only for a read by id
+@Entity
+@Immutable
+@Table(name = "appointments_archive")
+public class ArchivedAppointment {
+
+    // same id the row had in appointments
+    @Id
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "patient_id")
+    private Patient patient;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doctor_id")
+    private Doctor doctor;
+
+    @Column(name = "appointment_time")
+    private LocalDateTime appointmentTime;
+
+    @Column(name = "duration_minutes")
+    private Integer durationMinutes;
+
+    @Column(length = 1000)
+    private String reason;
+
+    private String status;
+
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    protected ArchivedAppointment() {}
+
+    public Long getId() { return id; }
+    public Patient getPatient() { return patient; }
+    public Doctor getDoctor() { return doctor; }
+    public LocalDateTime getAppointmentTime() { return appointmentTime; }
+    public Integer getDurationMinutes() { return durationMinutes; }
+    public String getReason() { return reason; }
+    public String getStatus() { return status; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public Long getVersion() { return version; }
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+
+    // GET /{id} answers with the Appointment the row was before the move
+    public Appointment toAppointment() {
+        Appointment a = new Appointment();
+        a.setId(id);
+        a.setPatient(patient);
+        a.setDoctor(doctor);
+        a.setAppointmentTime(appointmentTime);
+        a.setDurationMinutes(durationMinutes);
+        a.setReason(reason);
+        a.setStatus(status);
+        a.setVersion(version);
+        a.setTimestamps(createdAt, updatedAt);
+        return a;
+    }
+}
@@ -0,0 +1,50 @@
+package com.smartmedical.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.UniqueConstraint;
+import org.hibernate.annotations.Immutable;
+
+import java.util.Locale;
+
+// Doctor dictionary: each name stored once, appointments point at it by a 4-byte id
+// (appointments.doctor_id). Rows are never changed, only added (see DoctorDirectory)
+@Entity
+@Immutable
+@Table(name = "doctor", uniqueConstraints = @UniqueConstraint(name = "uk_doctor_name_key", columnNames = "name_key"))
+public class Doctor {
+
+    // Same pooled table generator as Patient / Appointment
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "doctor_ids")
+    @TableGenerator(name = "doctor_ids", table = "id_generator", pkColumnName = "entity_name",
+            valueColumnName = "next_val", pkColumnValue = "doctor", allocationSize = 50)
+    private Integer id;
+
+    @Column(nullable = false)
+    private String name;
+
+    // lower-cased, trimmed name: "Dr. Rao" and " dr. rao" are the same doctor
+    @Column(name = "name_key", nullable = false)
+    private String nameKey;
+
+    protected Doctor() {}
+
+    public Doctor(String name) {
+        this.name = name.trim();
+        this.nameKey = keyOf(name);
+    }
+
+    public static String keyOf(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public Integer getId() { return id; }
+    public String getName() { return name; }
+    public String getNameKey() { return nameKey; }
+}
@@ -4,12 +4,22 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.TableGenerator;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+// Second-level cached by id (see PatientCacheConfig); READ_WRITE so a save or delete
+// never leaves another session reading the old row from the cache
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "patients")
 public class Patient {
 
+    // Pooled table generator (MySQL has no sequences): ids are handed out in blocks,
+    // so Hibernate can batch inserts, which IDENTITY does not allow
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "patient_ids")
+    @TableGenerator(name = "patient_ids", table = "id_generator", pkColumnName = "entity_name",
+            valueColumnName = "next_val", pkColumnValue = "patient", allocationSize = 50)
     private Long id;
 
     private String name;
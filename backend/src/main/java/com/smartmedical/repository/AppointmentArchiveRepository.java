@@ -0,0 +1,73 @@
+package com.smartmedical.repository;
+
+import com.smartmedical.dto.AppointmentExportRow;
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.model.ArchivedAppointment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Cold tier reads: the same projections as AppointmentRepository, on appointments_archive.
+// Rows get here only through AppointmentArchive; callers merge them with the live rows
+@Repository
+public interface AppointmentArchiveRepository extends JpaRepository<ArchivedAppointment, Long> {
+
+    String SUMMARY = "select new com.smartmedical.dto.AppointmentSummary(a.id, p.id, p.name, d.name, "
+            + "a.appointmentTime, a.durationMinutes, a.reason, a.status, a.createdAt) "
+            + "from ArchivedAppointment a left join a.patient p left join a.doctor d ";
+
+    // Patient ki purani history
+    @Query(SUMMARY + "where a.patient.id = :patientId order by a.appointmentTime asc, a.id asc")
+    List<AppointmentSummary> findSummariesByPatientId(@Param("patientId") Long patientId);
+
+    @Query(SUMMARY + "where a.appointmentTime between :from and :to order by a.appointmentTime asc, a.id asc")
+    List<AppointmentSummary> findSummariesBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // only two statuses in here: the time range narrows it down, status is a filter
+    @Query(SUMMARY + "where a.status = :status and a.appointmentTime between :from and :to "
+            + "order by a.appointmentTime asc, a.id asc")
+    List<AppointmentSummary> findSummariesByStatusBetween(@Param("status") String status,
+                                                          @Param("from") LocalDateTime from,
+                                                          @Param("to") LocalDateTime to);
+
+    @Query(SUMMARY + "where a.doctor.id = :doctorId and a.appointmentTime between :from and :to "
+            + "and a.status = :status order by a.appointmentTime asc, a.id asc")
+    List<AppointmentSummary> findSummariesByStatusAndDoctorBetween(@Param("status") String status,
+                                                                   @Param("doctorId") Integer doctorId,
+                                                                   @Param("from") LocalDateTime from,
+                                                                   @Param("to") LocalDateTime to);
+
+    // GET /{id} of an archived appointment: the whole row, patient and doctor with it
+    @Query("select a from ArchivedAppointment a left join fetch a.patient left join fetch a.doctor where a.id = :id")
+    Optional<ArchivedAppointment> findWithPatientAndDoctorById(@Param("id") Long id);
+
+    // Export: same filters and order as AppointmentRepository.streamForExport
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + AppointmentRepository.STREAM_FETCH_SIZE))
+    @Query("select new com.smartmedical.dto.AppointmentExportRow("
+            + "a.id, p.id, p.name, d.name, a.appointmentTime, a.reason, a.status, a.createdAt) "
+            + "from ArchivedAppointment a left join a.patient p left join a.doctor d "
+            + "where (:from is null or a.appointmentTime >= :from) "
+            + "and (:to is null or a.appointmentTime <= :to) "
+            + "and (:status is null or a.status = :status) "
+            + "and (:doctorId is null or a.doctor.id = :doctorId) "
+            + "order by a.appointmentTime asc, a.id asc")
+    Stream<AppointmentExportRow> streamForExport(@Param("from") LocalDateTime from,
+                                                 @Param("to") LocalDateTime to,
+                                                 @Param("status") String status,
+                                                 @Param("doctorId") Integer doctorId);
+
+    @Query("select min(a.appointmentTime) from ArchivedAppointment a")
+    LocalDateTime findFirstAppointmentTime();
+
+    @Query("select max(a.appointmentTime) from ArchivedAppointment a")
+    LocalDateTime findLastAppointmentTime();
+}
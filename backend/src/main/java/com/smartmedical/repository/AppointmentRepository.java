@@ -1,40 +1,237 @@
 package com.smartmedical.repository;
 
+import com.smartmedical.dto.AppointmentExportRow;
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.dto.VersionedAppointment;
+import com.smartmedical.event.AppointmentSnapshot;
 import com.smartmedical.model.Appointment;
-import com.smartmedical.model.Patient;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
 
+    // Rows per round trip for the streaming queries
+    int STREAM_FETCH_SIZE = 500;
+
+    // List endpoints: flat projection rows, patient and doctor names via left joins (no entity, no N+1)
+    String SUMMARY = "select new com.smartmedical.dto.AppointmentSummary(a.id, p.id, p.name, d.name, "
+            + "a.appointmentTime, a.durationMinutes, a.reason, a.status, a.createdAt) "
+            + "from Appointment a left join a.patient p left join a.doctor d ";
+
+    // Doctor name for the locking reads: a scalar subquery, not a join, so FOR UPDATE
+    // locks the appointment rows only and never the shared doctor rows
+    String DOCTOR_NAME = "(select d.name from Doctor d where d.id = a.doctor.id)";
+
     // Patient ke saare appointments
-    List<Appointment> findByPatient(Patient patient);
+    @Query(SUMMARY + "where a.patient.id = :patientId order by a.appointmentTime asc, a.id asc")
+    List<AppointmentSummary> findSummariesByPatientId(@Param("patientId") Long patientId);
+
+    // Change feed: rows touched since the last dispatch, one query per batch
+    @Query(SUMMARY + "where a.id in :ids")
+    List<AppointmentSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
 
     // Date range ke beech ke appointments
-    List<Appointment> findByAppointmentTimeBetween(LocalDateTime from, LocalDateTime to);
+    @Query(SUMMARY + "where a.appointmentTime between :from and :to order by a.appointmentTime asc, a.id asc")
+    List<AppointmentSummary> findSummariesBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 
     // Sirf status ke basis par
-    List<Appointment> findByStatusOrderByAppointmentTimeAsc(String status);
+    @Query(SUMMARY + "where a.status = :status order by a.appointmentTime asc")
+    List<AppointmentSummary> findSummariesByStatus(@Param("status") String status);
 
     // Status + Date range
-    List<Appointment> findByStatusAndAppointmentTimeBetweenOrderByAppointmentTimeAsc(
-            String status, LocalDateTime from, LocalDateTime to
-    );
+    @Query(SUMMARY + "where a.status = :status and a.appointmentTime between :from and :to "
+            + "order by a.appointmentTime asc")
+    List<AppointmentSummary> findSummariesByStatusBetween(@Param("status") String status,
+                                                          @Param("from") LocalDateTime from,
+                                                          @Param("to") LocalDateTime to);
 
-    // Status + Doctor name + Date range
-    List<Appointment> findByStatusAndDoctorNameAndAppointmentTimeBetweenOrderByAppointmentTimeAsc(
-            String status, String doctorName, LocalDateTime from, LocalDateTime to
-    );
+    // Status + Doctor + Date range: range scan on idx_appointments_doctor_time
+    @Query(SUMMARY + "where a.doctor.id = :doctorId and a.appointmentTime between :from and :to "
+            + "and a.status = :status order by a.appointmentTime asc")
+    List<AppointmentSummary> findSummariesByStatusAndDoctorBetween(@Param("status") String status,
+                                                                   @Param("doctorId") Integer doctorId,
+                                                                   @Param("from") LocalDateTime from,
+                                                                   @Param("to") LocalDateTime to);
 
     // Sirf upcoming appointments
-    List<Appointment> findByAppointmentTimeAfterOrderByAppointmentTimeAsc(LocalDateTime now);
+    @Query(SUMMARY + "where a.appointmentTime > :now order by a.appointmentTime asc")
+    List<AppointmentSummary> findUpcomingSummaries(@Param("now") LocalDateTime now);
+
+    // Dashboard "recent": latest appointment time first, N rows; MySQL reads idx_appointments_time from its end
+    @Query(SUMMARY + "order by a.appointmentTime desc, a.id desc")
+    List<AppointmentSummary> findLatestSummaries(Limit limit);
+
+    // Pagination support (sort from the Pageable)
+    @Query(value = SUMMARY, countQuery = "select count(a) from Appointment a")
+    Page<AppointmentSummary> findSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY + "where a.status = :status",
+            countQuery = "select count(a) from Appointment a where a.status = :status")
+    Page<AppointmentSummary> findSummariesByStatus(@Param("status") String status, Pageable pageable);
+
+    // Keyset (cursor) pagination on (appointmentTime, id) - no offset, no count(*).
+    // Null status is ignored, null afterId is the first page; the caller asks for limit + 1 rows to learn hasNext.
+    // Undated rows sort first (NULL is lowest): after one of them (afterTime null) come the later
+    // undated ids, then every dated row
+    @Query(SUMMARY + "where (:status is null or a.status = :status) "
+            + "and (:afterId is null "
+            + "or (:afterTime is null and (a.appointmentTime is not null or a.id > :afterId)) "
+            + "or a.appointmentTime > :afterTime "
+            + "or (a.appointmentTime = :afterTime and a.id > :afterId)) "
+            + "order by a.appointmentTime asc, a.id asc")
+    List<AppointmentSummary> findSummaryPage(@Param("status") String status,
+                                             @Param("afterTime") LocalDateTime afterTime,
+                                             @Param("afterId") Long afterId,
+                                             Limit limit);
+
+    // Same page for one doctor, read in (doctor_id, appointment_time) index order from :afterTime on.
+    // afterTime null: the doctor's undated rows after :afterId (0 for the first page), then all dated ones
+    @Query(SUMMARY + "where a.doctor.id = :doctorId "
+            + "and ((:afterTime is null and (a.appointmentTime is not null or a.id > :afterId)) "
+            + "or (a.appointmentTime >= :afterTime and (a.appointmentTime > :afterTime or a.id > :afterId))) "
+            + "and (:status is null or a.status = :status) "
+            + "order by a.appointmentTime asc, a.id asc")
+    List<AppointmentSummary> findDoctorSummaryPage(@Param("doctorId") Integer doctorId,
+                                                   @Param("status") String status,
+                                                   @Param("afterTime") LocalDateTime afterTime,
+                                                   @Param("afterId") Long afterId,
+                                                   Limit limit);
+
+    // Poori table stream karo, fetch size ke chunks mein (caller must be in a transaction)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query(SUMMARY)
+    Stream<AppointmentSummary> streamSummaries();
+
+    // Export: optional filters (null = ignore), oldest first, flat rows only
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("select new com.smartmedical.dto.AppointmentExportRow("
+            + "a.id, p.id, p.name, d.name, a.appointmentTime, a.reason, a.status, a.createdAt) "
+            + "from Appointment a left join a.patient p left join a.doctor d "
+            + "where (:from is null or a.appointmentTime >= :from) "
+            + "and (:to is null or a.appointmentTime <= :to) "
+            + "and (:status is null or a.status = :status) "
+            + "and (:doctorId is null or a.doctor.id = :doctorId) "
+            + "order by a.appointmentTime asc, a.id asc")
+    Stream<AppointmentExportRow> streamForExport(@Param("from") LocalDateTime from,
+                                                 @Param("to") LocalDateTime to,
+                                                 @Param("status") String status,
+                                                 @Param("doctorId") Integer doctorId);
+
+    @Query("select min(a.appointmentTime) from Appointment a")
+    LocalDateTime findFirstAppointmentTime();
+
+    @Query("select max(a.appointmentTime) from Appointment a")
+    LocalDateTime findLastAppointmentTime();
+
+    // Sirf SCHEDULED appointments ke future times (upcoming counter ke liye)
+    @Query("select a.appointmentTime from Appointment a "
+            + "where upper(a.status) = 'SCHEDULED' and a.appointmentTime > :now")
+    List<LocalDateTime> findScheduledTimesAfter(@Param("now") LocalDateTime now);
+
+    // Status sweeper: overdue SCHEDULED rows, oldest first, locked until the batch commits
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select new com.smartmedical.event.AppointmentSnapshot(a.id, a.patient.id, " + DOCTOR_NAME + ", "
+            + "a.appointmentTime, a.durationMinutes, a.status) "
+            + "from Appointment a where a.status = 'SCHEDULED' and a.appointmentTime < :now order by a.appointmentTime asc")
+    List<AppointmentSnapshot> findOverdueScheduled(@Param("now") LocalDateTime now, Pageable batch);
+
+    @Modifying
+    @Transactional
+    @Query("update Appointment a set a.status = 'COMPLETED', a.version = a.version + 1, a.updatedAt = :now "
+            + "where a.id in :ids and a.status = 'SCHEDULED'")
+    int markCompleted(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Query("select min(a.appointmentTime) from Appointment a "
+            + "where a.status = 'SCHEDULED' and a.appointmentTime < :now")
+    LocalDateTime findOldestOverdueScheduledTime(@Param("now") LocalDateTime now);
+
+    // Archive job: finished rows older than the cutoff, oldest first, locked until the batch commits.
+    // Walks idx_appointments_time from the start; old SCHEDULED rows (sweeper behind) are skipped
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select new com.smartmedical.event.AppointmentSnapshot(a.id, a.patient.id, " + DOCTOR_NAME + ", "
+            + "a.appointmentTime, a.durationMinutes, a.status) "
+            + "from Appointment a where a.appointmentTime < :cutoff and upper(a.status) in ('COMPLETED', 'CANCELLED') "
+            + "order by a.appointmentTime asc, a.id asc")
+    List<AppointmentSnapshot> lockArchivable(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    // Bulk status ops: ids or filter (null = ignore, to is exclusive). Doctors first, to take their stripes,
+    // then the rows themselves, locked until the batch commits, in id order so two batches cannot deadlock
+    String BULK_FILTER = "where (:doctorId is null or a.doctor.id = :doctorId) "
+            + "and (:from is null or a.appointmentTime >= :from) and (:to is null or a.appointmentTime < :to) "
+            + "and (:status is null or a.status = :status) ";
+
+    String VERSIONED = "select new com.smartmedical.dto.VersionedAppointment(a.id, a.patient.id, " + DOCTOR_NAME + ", "
+            + "a.appointmentTime, a.durationMinutes, a.status, a.version) from Appointment a ";
+
+    @Query("select distinct d.name from Appointment a join a.doctor d where a.id in :ids")
+    List<String> findDoctorNamesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select distinct d.name from Appointment a join a.doctor d " + BULK_FILTER)
+    List<String> findDoctorNamesByFilter(@Param("doctorId") Integer doctorId,
+                                         @Param("from") LocalDateTime from,
+                                         @Param("to") LocalDateTime to,
+                                         @Param("status") String status);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(VERSIONED + "where a.id in :ids order by a.id")
+    List<VersionedAppointment> lockByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(VERSIONED + BULK_FILTER + "order by a.id")
+    List<VersionedAppointment> lockByFilter(@Param("doctorId") Integer doctorId,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to,
+                                            @Param("status") String status,
+                                            Limit limit);
+
+    // Set-based writes on rows the caller has locked; version + updatedAt like any other update
+    @Modifying
+    @Query("update Appointment a set a.status = :status, a.version = a.version + 1, a.updatedAt = :now "
+            + "where a.id in :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") String status,
+                     @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update Appointment a set a.appointmentTime = a.appointmentTime + :offsetMinutes minute, "
+            + "a.version = a.version + 1, a.updatedAt = :now where a.id in :ids")
+    int shiftTime(@Param("ids") Collection<Long> ids, @Param("offsetMinutes") int offsetMinutes,
+                  @Param("now") LocalDateTime now);
+
+    // Doctor schedule index: every slot that is still held (cancelled ones are free)
+    @Query("select new com.smartmedical.event.AppointmentSnapshot(a.id, a.patient.id, d.name, a.appointmentTime, "
+            + "a.durationMinutes, a.status) from Appointment a join a.doctor d "
+            + "where a.appointmentTime is not null and (a.status is null or upper(a.status) <> 'CANCELLED')")
+    List<AppointmentSnapshot> findHeldSlots();
+
+    // Warm start snapshot (AppointmentSnapshotStore): every row, and rows touched since a time, in id order
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("select new com.smartmedical.event.AppointmentSnapshot(a.id, a.patient.id, d.name, a.appointmentTime, "
+            + "a.durationMinutes, a.status) from Appointment a left join a.doctor d order by a.id")
+    Stream<AppointmentSnapshot> streamSnapshots();
+
+    @Query("select new com.smartmedical.event.AppointmentSnapshot(a.id, a.patient.id, d.name, a.appointmentTime, "
+            + "a.durationMinutes, a.status) from Appointment a left join a.doctor d where a.updatedAt >= :since order by a.id")
+    List<AppointmentSnapshot> findSnapshotsChangedSince(@Param("since") LocalDateTime since);
 
-    // Pagination support
-    Page<Appointment> findByStatus(String status, Pageable pageable);
-}
\ No newline at end of file
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("select a.id from Appointment a order by a.id")
+    Stream<Long> streamIds();
+}
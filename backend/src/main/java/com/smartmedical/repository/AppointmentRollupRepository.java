@@ -0,0 +1,21 @@
+package com.smartmedical.repository;
+
+import com.smartmedical.model.AppointmentDailyCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AppointmentRollupRepository extends JpaRepository<AppointmentDailyCount, AppointmentDailyCount.Key> {
+
+    // Dashboard range: [day, doctorId, doctorName, status, count] rows, a primary-key range scan on the day;
+    // doctor 0 (none) has no name
+    @Query("select r.id.day, r.id.doctorId, d.name, r.id.status, r.count from AppointmentDailyCount r "
+            + "left join Doctor d on d.id = r.id.doctorId "
+            + "where r.id.day between :from and :to and r.count <> 0")
+    List<Object[]> findCountsBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
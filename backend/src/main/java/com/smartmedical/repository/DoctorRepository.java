@@ -0,0 +1,14 @@
+package com.smartmedical.repository;
+
+import com.smartmedical.model.Doctor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface DoctorRepository extends JpaRepository<Doctor, Integer> {
+
+    // unique key lookup (uk_doctor_name_key)
+    Optional<Doctor> findByNameKey(String nameKey);
+}
@@ -1,9 +1,35 @@
 package com.smartmedical.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import com.smartmedical.dto.PatientExportRow;
+import com.smartmedical.dto.PatientSearchResult;
 import com.smartmedical.model.Patient;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface PatientRepository extends JpaRepository<Patient, Long> {
+
+    // Export: saare patients, id order mein, fetch size ke chunks mein
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + AppointmentRepository.STREAM_FETCH_SIZE))
+    @Query("select new com.smartmedical.dto.PatientExportRow(p.id, p.name, p.age, p.email, p.phone, p.medicalHistory) "
+            + "from Patient p order by p.id asc")
+    Stream<PatientExportRow> streamForExport();
+
+    // Bulk import: ek query mein check karo kaun se ids exist karte hain
+    @Query("select p.id from Patient p where p.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Search index ke liye sirf name/phone/email load karo; id order = primary key walk, no table scan
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + AppointmentRepository.STREAM_FETCH_SIZE))
+    @Query("select new com.smartmedical.dto.PatientSearchResult(p.id, p.name, p.phone, p.email) from Patient p order by p.id")
+    Stream<PatientSearchResult> streamForSearchIndex();
 }
@@ -0,0 +1,351 @@
+package com.smartmedical.service;
+
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.dto.ArchiveStats;
+import com.smartmedical.event.AppointmentSnapshot;
+import com.smartmedical.event.AppointmentsArchivedEvent;
+import com.smartmedical.repository.AppointmentArchiveRepository;
+import com.smartmedical.repository.AppointmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Hot/cold tiering of appointments. Every {@code archive.interval-ms}, COMPLETED and
+ * CANCELLED appointments older than {@code archive.horizon-days} move from
+ * {@code appointments} to {@code appointments_archive} (V4), {@code archive.batch-size}
+ * rows per transaction and at most {@code archive.max-batches-per-run} batches per run:
+ * the rows are locked oldest first, copied by INSERT ... SELECT, added to
+ * {@code appointment_archive_rollup} and deleted. The unranged lists, cursor pages and
+ * in-memory read models then work on the live rows only.
+ * <p>
+ * Reads that must stay complete fan out to the archive: a patient's history always, a
+ * date range or an export when it starts before the horizon ({@link #mayHold}). Callers
+ * read the live table first and the archive second, so a batch committing in between
+ * shows its rows twice (dropped by id in {@link #merge}), never not at all.
+ * <p>
+ * A move is not a change: no change events, so the dashboard counters, the daily rollup and
+ * the change feed go on counting archived rows; an {@link AppointmentsArchivedEvent} after
+ * each batch takes them out of the schedule index. Archived rows are read-only: reads by id
+ * fall back to the archive, writes are refused ({@link AppointmentArchivedException}). Recounts from the database read both
+ * tables at once ({@link #countsWithArchive}).
+ */
+@Component
+public class AppointmentArchive implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentArchive.class);
+
+    private static final Set<String> ARCHIVED_STATUSES = Set.of("COMPLETED", "CANCELLED");
+
+    private static final String COPY_SQL = "insert into appointments_archive (id, patient_id, doctor_id, "
+            + "appointment_time, duration_minutes, reason, status, created_at, updated_at, version, archived_at) "
+            + "select id, patient_id, doctor_id, appointment_time, duration_minutes, reason, status, created_at, "
+            + "updated_at, version, :now from appointments where id in (:ids)";
+    private static final String DELETE_SQL = "delete from appointments where id in (:ids)";
+    private static final String BATCH_COUNTS_SQL = "select cast(appointment_time as date), coalesce(doctor_id, 0), "
+            + "status, count(*) from appointments where id in (:ids) "
+            + "group by cast(appointment_time as date), coalesce(doctor_id, 0), status";
+    private static final String ROLLUP_UPDATE_SQL = "update appointment_archive_rollup "
+            + "set appointment_count = appointment_count + ? where rollup_day = ? and doctor_id = ? and status = ?";
+    private static final String ROLLUP_INSERT_SQL = "insert into appointment_archive_rollup "
+            + "(rollup_day, doctor_id, status, appointment_count) values (?, ?, ?, ?)";
+    // live rows and the archive's counts in one statement, so one snapshot: a batch is on exactly one side
+    private static final String COUNTS_SQL = "select rollup_day, doctor_id, status, sum(n) from ("
+            + "select cast(appointment_time as date) as rollup_day, coalesce(doctor_id, 0) as doctor_id, status, "
+            + "count(*) as n from appointments %s group by cast(appointment_time as date), coalesce(doctor_id, 0), status "
+            + "union all select rollup_day, doctor_id, status, appointment_count from appointment_archive_rollup %s"
+            + ") t group by rollup_day, doctor_id, status";
+    private static final String ALL_COUNTS_SQL = COUNTS_SQL.formatted("", "");
+    private static final String RANGE_COUNTS_SQL = COUNTS_SQL.formatted(
+            "where appointment_time >= ? and appointment_time < ?", "where rollup_day between ? and ?");
+    private static final String ARCHIVED_COUNTS_SQL = "select rollup_day, doctor_id, status, appointment_count "
+            + "from appointment_archive_rollup";
+
+    // (appointmentTime, id), the order of every list and export; undated rows first, as MySQL sorts them
+    private static final Comparator<AppointmentSummary> IN_TIME_ORDER = Comparator
+            .comparing(AppointmentSummary::appointmentTime, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(AppointmentSummary::id);
+
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentArchiveRepository archiveRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DataVersions dataVersions;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int horizonDays;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final ReentrantLock runLock = new ReentrantLock();
+    // latest appointment time in the archive; raised before a batch commits, so readers never miss its rows
+    private volatile LocalDateTime newestArchived;
+    private long totalRuns;
+    private long totalRows;
+    private volatile ArchiveStats stats = new ArchiveStats();
+
+    public AppointmentArchive(AppointmentRepository appointmentRepository,
+                              AppointmentArchiveRepository archiveRepository,
+                              JdbcTemplate jdbcTemplate,
+                              NamedParameterJdbcTemplate namedJdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              DataVersions dataVersions,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${archive.enabled:true}") boolean enabled,
+                              @Value("${archive.horizon-days:365}") int horizonDays,
+                              @Value("${archive.batch-size:1000}") int batchSize,
+                              @Value("${archive.max-batches-per-run:50}") int maxBatchesPerRun) {
+        if (horizonDays < 1 || batchSize < 1 || maxBatchesPerRun < 1) {
+            throw new IllegalArgumentException("archive.horizon-days, batch-size and max-batches-per-run must be positive");
+        }
+        this.appointmentRepository = appointmentRepository;
+        this.archiveRepository = archiveRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.dataVersions = dataVersions;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.horizonDays = horizonDays;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        newestArchived = archiveRepository.findLastAppointmentTime();
+    }
+
+    /** Appointments before this are archived once they are COMPLETED or CANCELLED. */
+    public LocalDateTime cutoff(LocalDateTime now) {
+        return now.minusDays(horizonDays);
+    }
+
+    /**
+     * Whether the archive may hold rows at or after {@code from} (null: no lower bound)
+     * with {@code status} (null: any). Rows older than today's cutoff may be there, and so
+     * may anything up to the newest archived row, should the horizon have been raised since.
+     */
+    public boolean mayHold(LocalDateTime from, String status) {
+        if (status != null && !ARCHIVED_STATUSES.contains(status.toUpperCase(Locale.ROOT))) return false;
+        if (from == null || from.isBefore(cutoff(LocalDateTime.now()))) return true;
+        LocalDateTime newest = newestArchived;
+        return newest != null && !from.isAfter(newest);
+    }
+
+    /** Live rows plus archived ones in (appointmentTime, id) order; a row read on both sides is kept once. */
+    public static List<AppointmentSummary> merge(List<AppointmentSummary> live, List<AppointmentSummary> archived) {
+        if (archived.isEmpty()) return live;
+        Set<Long> liveIds = new HashSet<>();
+        live.forEach(row -> liveIds.add(row.id()));
+        List<AppointmentSummary> out = new ArrayList<>(live.size() + archived.size());
+        out.addAll(live);
+        for (AppointmentSummary row : archived) {
+            if (!liveIds.contains(row.id())) out.add(row);
+        }
+        // two sorted runs: TimSort merges them in one pass
+        out.sort(IN_TIME_ORDER);
+        return out;
+    }
+
+    /**
+     * Streaming {@link #merge} of two iterators already in (time, id) order, for exports;
+     * when both sides hold a row (a batch committed between the two queries) the live copy wins.
+     */
+    public static <T> Iterator<T> merge(Iterator<T> live, Iterator<T> archived,
+                                        Function<T, LocalDateTime> time, Function<T, Long> id) {
+        Comparator<T> order = Comparator.comparing(time, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+                .thenComparing(id);
+        return new Iterator<>() {
+            private T nextLive = live.hasNext() ? live.next() : null;
+            private T nextArchived = archived.hasNext() ? archived.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return nextLive != null || nextArchived != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                if (nextLive != null && nextArchived != null && id.apply(nextLive).equals(id.apply(nextArchived))) {
+                    nextArchived = archived.hasNext() ? archived.next() : null;
+                }
+                T out;
+                if (nextArchived == null || (nextLive != null && order.compare(nextLive, nextArchived) <= 0)) {
+                    out = nextLive;
+                    nextLive = live.hasNext() ? live.next() : null;
+                } else {
+                    out = nextArchived;
+                    nextArchived = archived.hasNext() ? archived.next() : null;
+                }
+                return out;
+            }
+        };
+    }
+
+    /**
+     * Appointments per day, doctor and status, live and archived together, as
+     * [day, doctorId, status, count] rows (day null for undated rows, doctorId null for
+     * none); days in {@code [from, to]}, or all of them when both are null. One statement,
+     * so a batch moving in the meantime is counted once, whatever the isolation level.
+     */
+    public List<Object[]> countsWithArchive(LocalDate from, LocalDate to) {
+        if (from == null && to == null) {
+            return jdbcTemplate.query(ALL_COUNTS_SQL, AppointmentArchive::countRow);
+        }
+        return jdbcTemplate.query(RANGE_COUNTS_SQL, AppointmentArchive::countRow,
+                Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.plusDays(1).atStartOfDay()),
+                Date.valueOf(from), Date.valueOf(to));
+    }
+
+    /**
+     * What the archive alone holds, rows as in {@link #countsWithArchive}. Startup only,
+     * for counters whose live side comes from elsewhere and before any archive run.
+     */
+    public List<Object[]> archivedCounts() {
+        return jdbcTemplate.query(ARCHIVED_COUNTS_SQL, AppointmentArchive::countRow);
+    }
+
+    private static Object[] countRow(ResultSet rs, int rowNum) throws SQLException {
+        Date day = rs.getDate(1);
+        int doctorId = rs.getInt(2);
+        return new Object[]{day != null ? day.toLocalDate() : null, doctorId != 0 ? doctorId : null,
+                rs.getString(3), rs.getLong(4)};
+    }
+
+    @Scheduled(fixedDelayString = "${archive.interval-ms:3600000}",
+            initialDelayString = "${archive.initial-delay-ms:120000}")
+    public void archiveOld() {
+        if (!enabled || !runLock.tryLock()) return; // disabled, or a run is already in progress
+        try {
+            long started = System.nanoTime();
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime cutoff = cutoff(now);
+            // another instance may have archived since
+            LocalDateTime newest = archiveRepository.findLastAppointmentTime();
+            if (newest != null && (newestArchived == null || newest.isAfter(newestArchived))) newestArchived = newest;
+            long rows = 0;
+            int batches = 0;
+            boolean caughtUp = false;
+
+            while (batches < maxBatchesPerRun) {
+                List<AppointmentSnapshot> batch = transactionTemplate.execute(tx -> archiveBatch(cutoff, now));
+                if (batch == null || batch.isEmpty()) {
+                    caughtUp = true;
+                    break;
+                }
+                int moved = batch.size();
+                batches++;
+                rows += moved;
+                // lists and ETags: the unranged lists lost these rows; the schedule index drops their slots
+                dataVersions.appointmentsChanged();
+                eventPublisher.publishEvent(new AppointmentsArchivedEvent(batch));
+                if (moved < batchSize) {
+                    caughtUp = true;
+                    break;
+                }
+            }
+
+            totalRuns++;
+            totalRows += rows;
+            ArchiveStats s = new ArchiveStats();
+            s.setLastRunAt(now);
+            s.setCutoff(cutoff);
+            s.setLastRunRows(rows);
+            s.setLastRunBatches(batches);
+            s.setLastRunDurationMs((System.nanoTime() - started) / 1_000_000);
+            s.setCaughtUp(caughtUp);
+            s.setNewestArchived(newestArchived);
+            s.setTotalRuns(totalRuns);
+            s.setTotalRows(totalRows);
+            stats = s;
+
+            if (rows > 0) {
+                log.info("Archived {} appointments older than {} in {} batches ({} ms{})", rows, cutoff, batches,
+                        s.getLastRunDurationMs(), caughtUp ? "" : ", more left for the next run");
+            }
+        } catch (RuntimeException ex) {
+            log.error("Appointment archive run failed", ex);
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    public ArchiveStats getStats() {
+        return stats;
+    }
+
+    // One transaction: lock, copy, count, delete. Any mismatch rolls the whole batch back
+    private List<AppointmentSnapshot> archiveBatch(LocalDateTime cutoff, LocalDateTime now) {
+        List<AppointmentSnapshot> batch = appointmentRepository.lockArchivable(cutoff, Limit.of(batchSize));
+        if (batch.isEmpty()) return batch;
+
+        LocalDateTime newest = batch.get(batch.size() - 1).appointmentTime();
+        if (newestArchived == null || newest.isAfter(newestArchived)) newestArchived = newest;
+
+        List<Long> ids = batch.stream().map(AppointmentSnapshot::id).toList();
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids).addValue("now", now);
+        int copied = namedJdbcTemplate.update(COPY_SQL, params);
+        addToRollup(params);
+        int deleted = namedJdbcTemplate.update(DELETE_SQL, params);
+        if (copied != ids.size() || deleted != ids.size()) {
+            // the rows are locked, so this is not a race
+            throw new IllegalStateException("Archive batch of " + ids.size() + " rows copied " + copied
+                    + " and deleted " + deleted);
+        }
+        return batch;
+    }
+
+    // counted from the locked rows before they are deleted, keyed like the rows themselves
+    private void addToRollup(MapSqlParameterSource ids) {
+        List<Object[]> counts = namedJdbcTemplate.query(BATCH_COUNTS_SQL, ids, (rs, rowNum) ->
+                new Object[]{rs.getDate(1), rs.getInt(2), rs.getString(3), rs.getLong(4)});
+        int[] updated = jdbcTemplate.batchUpdate(ROLLUP_UPDATE_SQL, counts.stream()
+                .map(c -> new Object[]{c[3], c[0], c[1], c[2]})
+                .toList());
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < counts.size(); i++) {
+            Object[] c = counts.get(i);
+            int rows = updated[i];
+            if (rows == Statement.SUCCESS_NO_INFO) {
+                // driver did not report per-statement counts: ask again for this one
+                rows = jdbcTemplate.update(ROLLUP_UPDATE_SQL, 0, c[0], c[1], c[2]);
+            }
+            if (rows == 0) {
+                inserts.add(c);
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(ROLLUP_INSERT_SQL, inserts);
+        }
+    }
+}
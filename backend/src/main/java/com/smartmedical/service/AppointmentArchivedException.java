@@ -0,0 +1,12 @@
+package com.smartmedical.service;
+
+/**
+ * The appointment was moved to the archive ({@link AppointmentArchive}), where rows are
+ * read-only. Controllers map this to 409 Conflict.
+ */
+public class AppointmentArchivedException extends RuntimeException {
+
+    public AppointmentArchivedException(Long id) {
+        super("Appointment " + id + " is archived and can no longer be changed");
+    }
+}
@@ -0,0 +1,24 @@
+package com.smartmedical.service;
+
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The doctor already has a held appointment overlapping the requested slot.
+ * Controllers map this to 409 Conflict.
+ */
+public class AppointmentConflictException extends RuntimeException {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+
+    private final Long conflictingAppointmentId;
+
+    public AppointmentConflictException(String doctorName, DoctorScheduleIndex.Slot conflict) {
+        super(doctorName + " is already booked from " + TIME.format(conflict.start())
+                + " to " + TIME.format(conflict.end()) + " (appointment " + conflict.appointmentId() + ")");
+        this.conflictingAppointmentId = conflict.appointmentId();
+    }
+
+    public Long getConflictingAppointmentId() {
+        return conflictingAppointmentId;
+    }
+}
@@ -0,0 +1,43 @@
+package com.smartmedical.service;
+
+import com.smartmedical.dto.AppointmentSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for keyset pagination: the (appointmentTime, id) of the last row
+ * a client has seen, base64url encoded. Undated rows come first in the keyset order
+ * (NULL sorts lowest), by id; their cursor carries {@code null} for the time.
+ */
+final class AppointmentCursor {
+
+    // Position after which the next page starts; appointmentTime null = still among the undated rows
+    record Position(LocalDateTime appointmentTime, Long id) {}
+
+    private static final String UNDATED = "null";
+
+    private AppointmentCursor() {}
+
+    static String encode(AppointmentSummary last) {
+        String raw = (last.appointmentTime() == null ? UNDATED : last.appointmentTime().toString()) + "|" + last.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // null = first page
+    static Position decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            String time = raw.substring(0, sep);
+            return new Position(time.equals(UNDATED) ? null : LocalDateTime.parse(time),
+                    Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -3,17 +3,26 @@ package com.smartmedical.service;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.dto.BulkStatusRequest;
+import com.smartmedical.dto.BulkStatusResult;
+import com.smartmedical.dto.CursorPage;
 import com.smartmedical.model.Appointment;
-import com.smartmedical.model.Patient;
 
 public interface AppointmentService {
     Appointment createAppointment(Appointment appointment);
     List<Appointment> getAllAppointments();
+    void streamAllAppointments(Consumer<AppointmentSummary> sink);
+    CursorPage<AppointmentSummary> getAppointmentsPage(String cursor, int limit, String status, String doctorName);
     Optional<Appointment> getAppointmentById(Long id);
     Appointment updateAppointment(Long id, Appointment appointment);
     void deleteAppointment(Long id);
-    List<Appointment> getAppointmentsByPatient(Patient patient);
-    List<Appointment> getUpcomingAppointments();
-    List<Appointment> getAppointmentsBetween(LocalDateTime start, LocalDateTime end);
+    List<AppointmentSummary> getAppointmentsByPatient(Long patientId);
+    List<AppointmentSummary> getUpcomingAppointments();
+    List<AppointmentSummary> getLatestAppointments(int limit);
+    List<AppointmentSummary> getAppointmentsBetween(LocalDateTime start, LocalDateTime end);
+    List<AppointmentSummary> getAppointmentsByStatusBetween(String status, Integer doctorId, LocalDateTime start, LocalDateTime end);
     Appointment cancelAppointment(Long id);
+    BulkStatusResult bulkUpdate(BulkAction action, BulkStatusRequest request);
 }
\ No newline at end of file
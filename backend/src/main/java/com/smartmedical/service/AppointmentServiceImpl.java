@@ -1,15 +1,46 @@
 package com.smartmedical.service;
 
+import com.smartmedical.config.ReplicaRead;
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.dto.BulkStatusRequest;
+import com.smartmedical.dto.BulkStatusResult;
+import com.smartmedical.dto.BulkStatusResult.Outcome;
+import com.smartmedical.dto.BulkStatusResult.Result;
+import com.smartmedical.dto.CursorPage;
+import com.smartmedical.dto.VersionedAppointment;
+import com.smartmedical.event.AppointmentChangeEvent;
+import com.smartmedical.event.AppointmentSnapshot;
 import com.smartmedical.model.Appointment;
+import com.smartmedical.model.ArchivedAppointment;
+import com.smartmedical.model.Doctor;
 import com.smartmedical.model.Patient;
+import com.smartmedical.repository.AppointmentArchiveRepository;
 import com.smartmedical.repository.AppointmentRepository;
 import com.smartmedical.repository.PatientRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 public class AppointmentServiceImpl implements AppointmentService {
@@ -17,15 +48,43 @@ public class AppointmentServiceImpl implements AppointmentService {
     @Autowired
     private AppointmentRepository appointmentRepository;
 
+    @Autowired
+    private AppointmentArchiveRepository archiveRepository;
+
+    @Autowired
+    private AppointmentArchive archive;
+
     @Autowired
     private PatientRepository patientRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DoctorScheduleIndex scheduleIndex;
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private DoctorDirectory doctorDirectory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Bulk status ops: most rows one request may touch (one transaction, rows locked until it ends)
+    @Value("${appointments.bulk.max-rows:5000}")
+    private int bulkMaxRows;
+
+    // ids per IN list of the bulk UPDATEs
+    private static final int BULK_CHUNK = 1000;
+
     @Override
     public Appointment createAppointment(Appointment appointment) {
    
         if (appointment.getPatient() != null && appointment.getPatient().getId() != null) {
             Patient patient = patientRepository.findById(appointment.getPatient().getId())
-                    .orElseThrow(() -> new RuntimeException("Patient not found with id " + appointment.getPatient().getId()));
+                    .orElseThrow(() -> new IllegalArgumentException("Patient not found with id: " + appointment.getPatient().getId()));
             appointment.setPatient(patient);
         }
 
@@ -33,114 +92,493 @@ public class AppointmentServiceImpl implements AppointmentService {
         if (appointment.getStatus() == null) {
             appointment.setStatus("SCHEDULED");
         }
+        applyDuration(appointment);
+        // outside any transaction: a new doctor is committed on its own
+        appointment.setDoctor(doctorDirectory.resolve(appointment.getDoctorName()));
 
-        return appointmentRepository.save(appointment);
+        // doctor's stripe held until the index has seen the saved row
+        return scheduleIndex.withDoctorsLocked(Collections.singletonList(appointment.getDoctorName()), () -> {
+            ensureSlotFree(null, appointment);
+            Appointment saved = appointmentRepository.save(appointment);
+            eventPublisher.publishEvent(AppointmentChangeEvent.created(AppointmentSnapshot.of(saved)));
+            dataVersions.appointmentsChanged();
+            return saved;
+        });
     }
 
     @Override
+    @ReplicaRead
     public List<Appointment> getAllAppointments() {
         List<Appointment> appointments = appointmentRepository.findAll();
 
-        // Auto-update
+        // Overdue SCHEDULED dikhao as COMPLETED; the sweeper persists it
+        applyEffectiveStatus(appointments);
+
+        return appointments;
+    }
+
+    @Override
+    @ReplicaRead
+    public void streamAllAppointments(Consumer<AppointmentSummary> sink) {
         LocalDateTime now = LocalDateTime.now();
-        for (Appointment appt : appointments) {
-            if ("SCHEDULED".equalsIgnoreCase(appt.getStatus())
-                && appt.getAppointmentTime().isBefore(now)) {
-                appt.setStatus("COMPLETED");
-                appointmentRepository.save(appt);
-            }
+        // projection rows are never managed, so the persistence context stays empty
+        try (Stream<AppointmentSummary> rows = appointmentRepository.streamSummaries()) {
+            rows.forEach(row -> sink.accept(effectiveStatus(row, now)));
         }
+    }
 
-        return appointments;
+    @Override
+    @ReplicaRead
+    public CursorPage<AppointmentSummary> getAppointmentsPage(String cursor, int limit, String status, String doctorName) {
+        AppointmentCursor.Position after = AppointmentCursor.decode(cursor);
+        String byStatus = status != null && !status.isBlank() ? status : null;
+        List<AppointmentSummary> rows;
+
+        // one extra row tells us whether there is a next page
+        if (doctorName != null && !doctorName.isBlank()) {
+            Optional<Doctor> doctor = doctorDirectory.find(doctorName);
+            if (doctor.isEmpty()) return new CursorPage<>(List.of(), null);
+            rows = appointmentRepository.findDoctorSummaryPage(doctor.get().getId(), byStatus,
+                    after == null ? null : after.appointmentTime(), after == null ? 0L : after.id(),
+                    Limit.of(limit + 1));
+        } else {
+            rows = appointmentRepository.findSummaryPage(byStatus,
+                    after == null ? null : after.appointmentTime(), after == null ? null : after.id(),
+                    Limit.of(limit + 1));
+        }
+        boolean hasNext = rows.size() > limit;
+        List<AppointmentSummary> items = effectiveStatus(hasNext ? rows.subList(0, limit) : rows);
+        String next = hasNext ? AppointmentCursor.encode(items.get(items.size() - 1)) : null;
+        return new CursorPage<>(items, next);
     }
 
+    // Primary, not a replica: single-row reads feed edit forms, and a stale copy saved back loses changes
     @Override
+    @Transactional(readOnly = true)
     public Optional<Appointment> getAppointmentById(Long id) {
         Optional<Appointment> apptOpt = appointmentRepository.findById(id);
 
-        // Auto-update for single appointment
-        apptOpt.ifPresent(appt -> {
-            if ("SCHEDULED".equalsIgnoreCase(appt.getStatus())
-                && appt.getAppointmentTime().isBefore(LocalDateTime.now())) {
-                appt.setStatus("COMPLETED");
-                appointmentRepository.save(appt);
-            }
-        });
+        apptOpt.ifPresent(appt -> applyEffectiveStatus(appt, LocalDateTime.now()));
 
+        // moved to the archive: still readable, finished rows so no effective status to apply
+        if (apptOpt.isEmpty()) {
+            return archiveRepository.findWithPatientAndDoctorById(id).map(ArchivedAppointment::toAppointment);
+        }
         return apptOpt;
     }
 
     @Override
     public Appointment updateAppointment(Long id, Appointment updated) {
-        return appointmentRepository.findById(id).map(existing -> {
-            existing.setDoctorName(updated.getDoctorName());
+        Patient patient = null;
+        if (updated.getPatient() != null && updated.getPatient().getId() != null) {
+            patient = patientRepository.findById(updated.getPatient().getId())
+                    .orElseThrow(() -> new RuntimeException("Patient not found with id " + updated.getPatient().getId()));
+        }
+        Patient newPatient = patient;
+        Doctor doctor = doctorDirectory.resolve(updated.getDoctorName());
+
+        // old and new doctor both locked when the appointment moves between diaries
+        return withRowLocked(id, doctor == null ? null : doctor.getName(), existing -> {
+            // the caller edited an older copy (only when it sent the version back)
+            if (updated.getVersion() != null && !updated.getVersion().equals(existing.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(Appointment.class, id);
+            }
+            AppointmentSnapshot before = AppointmentSnapshot.of(existing);
+            existing.setDoctor(doctor);
             existing.setAppointmentTime(updated.getAppointmentTime());
+            existing.setDurationMinutes(updated.getDurationMinutes() != null
+                    ? updated.getDurationMinutes() : existing.getDurationMinutes());
             existing.setReason(updated.getReason());
             existing.setStatus(updated.getStatus());
-
-            if (updated.getPatient() != null && updated.getPatient().getId() != null) {
-                Patient patient = patientRepository.findById(updated.getPatient().getId())
-                        .orElseThrow(() -> new RuntimeException("Patient not found with id " + updated.getPatient().getId()));
-                existing.setPatient(patient);
+            applyDuration(existing);
+            if (newPatient != null) {
+                existing.setPatient(newPatient);
             }
 
-            return appointmentRepository.save(existing);
+            ensureSlotFree(id, existing);
+            Appointment saved = appointmentRepository.save(existing);
+            eventPublisher.publishEvent(AppointmentChangeEvent.updated(before, AppointmentSnapshot.of(saved)));
+            dataVersions.appointmentsChanged();
+            return saved;
         }).orElseThrow(() -> new RuntimeException("Appointment not found with id " + id));
     }
 
     @Override
     public void deleteAppointment(Long id) {
-        appointmentRepository.deleteById(id);
+        withRowLocked(id, null, existing -> {
+            AppointmentSnapshot before = AppointmentSnapshot.of(existing);
+            appointmentRepository.delete(existing);
+            eventPublisher.publishEvent(AppointmentChangeEvent.deleted(before));
+            dataVersions.appointmentsChanged();
+            return existing;
+        });
     }
 
     @Override
-    public List<Appointment> getAppointmentsByPatient(Patient patient) {
-        List<Appointment> appointments = appointmentRepository.findByPatient(patient);
-
-        // Auto-update patient ke appointments
-        LocalDateTime now = LocalDateTime.now();
-        for (Appointment appt : appointments) {
-            if ("SCHEDULED".equalsIgnoreCase(appt.getStatus())
-                && appt.getAppointmentTime().isBefore(now)) {
-                appt.setStatus("COMPLETED");
-                appointmentRepository.save(appt);
-            }
-        }
-
-        return appointments;
+    @ReplicaRead
+    public List<AppointmentSummary> getAppointmentsByPatient(Long patientId) {
+        // poori history: archived rows bhi (live first, see AppointmentArchive)
+        List<AppointmentSummary> live = appointmentRepository.findSummariesByPatientId(patientId);
+        return effectiveStatus(AppointmentArchive.merge(live, archiveRepository.findSummariesByPatientId(patientId)));
     }
 
     @Override
-    public List<Appointment> getUpcomingAppointments() {
-        return appointmentRepository.findByAppointmentTimeAfterOrderByAppointmentTimeAsc(LocalDateTime.now());
+    @ReplicaRead
+    public List<AppointmentSummary> getUpcomingAppointments() {
+        return appointmentRepository.findUpcomingSummaries(LocalDateTime.now());
     }
 
     @Override
-    public List<Appointment> getAppointmentsBetween(LocalDateTime from, LocalDateTime to) {
-        List<Appointment> appointments = appointmentRepository.findByAppointmentTimeBetween(from, to);
+    @ReplicaRead
+    public List<AppointmentSummary> getLatestAppointments(int limit) {
+        return effectiveStatus(appointmentRepository.findLatestSummaries(Limit.of(limit)));
+    }
 
-        // Auto-update between appointments
-        LocalDateTime now = LocalDateTime.now();
-        for (Appointment appt : appointments) {
-            if ("SCHEDULED".equalsIgnoreCase(appt.getStatus())
-                && appt.getAppointmentTime().isBefore(now)) {
-                appt.setStatus("COMPLETED");
-                appointmentRepository.save(appt);
-            }
-        }
+    @Override
+    @ReplicaRead
+    public List<AppointmentSummary> getAppointmentsBetween(LocalDateTime from, LocalDateTime to) {
+        List<AppointmentSummary> live = appointmentRepository.findSummariesBetween(from, to);
+        if (!archive.mayHold(from, null)) return effectiveStatus(live);
+        return effectiveStatus(AppointmentArchive.merge(live, archiveRepository.findSummariesBetween(from, to)));
+    }
 
-        return appointments;
+    @Override
+    @ReplicaRead
+    public List<AppointmentSummary> getAppointmentsByStatusBetween(String status, Integer doctorId,
+                                                                   LocalDateTime from, LocalDateTime to) {
+        // doctor filter: range scan on (doctor_id, appointment_time), in both tiers
+        List<AppointmentSummary> live = doctorId != null
+                ? appointmentRepository.findSummariesByStatusAndDoctorBetween(status, doctorId, from, to)
+                : appointmentRepository.findSummariesByStatusBetween(status, from, to);
+        if (!archive.mayHold(from, status)) return live;
+        return AppointmentArchive.merge(live, doctorId != null
+                ? archiveRepository.findSummariesByStatusAndDoctorBetween(status, doctorId, from, to)
+                : archiveRepository.findSummariesByStatusBetween(status, from, to));
     }
 
     //  NEW: Cancel appointment method
     @Override
     public Appointment cancelAppointment(Long id) {
-        return appointmentRepository.findById(id).map(existing -> {
+        return withRowLocked(id, null, existing -> {
             if ("COMPLETED".equalsIgnoreCase(existing.getStatus())) {
                 throw new RuntimeException("Completed appointment cannot be cancelled");
             }
+            AppointmentSnapshot before = AppointmentSnapshot.of(existing);
             existing.setStatus("CANCELLED");
-            return appointmentRepository.save(existing);
+            Appointment saved = appointmentRepository.save(existing);
+            eventPublisher.publishEvent(AppointmentChangeEvent.cancelled(before, AppointmentSnapshot.of(saved)));
+            dataVersions.appointmentsChanged();
+            return saved;
         }).orElseThrow(() -> new RuntimeException("Appointment not found with id " + id));
     }
-}
\ No newline at end of file
+
+    /**
+     * Cancels, completes or moves (by {@code offsetMinutes}) the appointments given by id or
+     * matched by the filter, under the same rules as the single-row endpoints, in one
+     * transaction. The rows are locked in id order and changed by set-based UPDATEs that
+     * bump their version, so a single-row edit that read one of them before fails its
+     * optimistic check instead of overwriting the batch; {@code versions} lets the caller
+     * have the same check against its own copies. As for single writes, the doctors'
+     * stripes are held until the index and the other listeners have the events.
+     */
+    @Override
+    public BulkStatusResult bulkUpdate(BulkAction action, BulkStatusRequest request) {
+        long started = System.nanoTime();
+        BulkTarget target = bulkTarget(action, request);
+        if (target.doctorName() != null && target.doctorId() == null) {
+            // no doctor by that name, so the filter matches nothing
+            BulkStatusResult none = new BulkStatusResult();
+            none.setAction(action.name());
+            none.setOutcomes(new ArrayList<>());
+            none.setDurationMs((System.nanoTime() - started) / 1_000_000);
+            return none;
+        }
+        Set<String> doctors = new HashSet<>(target.ids() != null
+                ? appointmentRepository.findDoctorNamesByIdIn(target.ids())
+                : appointmentRepository.findDoctorNamesByFilter(target.doctorId(), target.from(), target.to(),
+                        target.status()));
+
+        while (true) {
+            BulkStatusResult result = scheduleIndex.withDoctorsLocked(doctors, () -> {
+                BulkBatch batch = transactionTemplate.execute(tx -> {
+                    List<VersionedAppointment> rows = target.ids() != null
+                            ? appointmentRepository.lockByIdIn(target.ids())
+                            : appointmentRepository.lockByFilter(target.doctorId(), target.from(), target.to(),
+                                    target.status(), Limit.of(bulkMaxRows + 1));
+                    List<String> unlocked = rows.stream().map(VersionedAppointment::doctorName)
+                            .filter(d -> d != null && !scheduleIndex.isLocked(d)).distinct().toList();
+                    if (!unlocked.isEmpty()) {
+                        // rows moved to other doctors since the first look: lock those too, start over
+                        doctors.addAll(unlocked);
+                        tx.setRollbackOnly();
+                        return null;
+                    }
+                    if (rows.size() > bulkMaxRows) {
+                        throw new IllegalArgumentException("Filter matches more than " + bulkMaxRows
+                                + " appointments, narrow it down");
+                    }
+                    return applyBulk(action, request, target, rows);
+                });
+                if (batch == null) return null;
+                // published after commit, same as the per-row writes
+                batch.events().forEach(eventPublisher::publishEvent);
+                if (!batch.events().isEmpty()) dataVersions.appointmentsChanged();
+                return batch.result();
+            });
+            if (result != null) {
+                result.setDurationMs((System.nanoTime() - started) / 1_000_000);
+                return result;
+            }
+        }
+    }
+
+    // ids (distinct, request order) or a filter; blank filter fields count as absent.
+    // doctorId is null for an unknown doctorName
+    private record BulkTarget(List<Long> ids, String doctorName, Integer doctorId, LocalDateTime from,
+                              LocalDateTime to, String status) {}
+
+    private record BulkBatch(BulkStatusResult result, List<AppointmentChangeEvent> events) {}
+
+    // Bad requests -> IllegalArgumentException (400)
+    private BulkTarget bulkTarget(BulkAction action, BulkStatusRequest request) {
+        String doctorName = blankToNull(request.getDoctorName());
+        String status = blankToNull(request.getStatus());
+        LocalDateTime from = request.getFrom();
+        LocalDateTime to = request.getTo();
+        boolean byFilter = doctorName != null || status != null || from != null || to != null;
+        if ((request.getIds() != null) == byFilter) {
+            throw new IllegalArgumentException("Send either ids or a filter (doctorName, from, to, status)");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (action == BulkAction.RESCHEDULE) {
+            if (request.getOffsetMinutes() == null || request.getOffsetMinutes() == 0) {
+                throw new IllegalArgumentException("reschedule needs a non-zero offsetMinutes");
+            }
+        } else if (request.getOffsetMinutes() != null) {
+            throw new IllegalArgumentException("offsetMinutes only applies to reschedule");
+        }
+
+        if (byFilter) {
+            if (doctorName == null && (from == null || to == null)) {
+                throw new IllegalArgumentException("A filter needs doctorName or both from and to");
+            }
+            if (request.getVersions() != null && !request.getVersions().isEmpty()) {
+                throw new IllegalArgumentException("versions can only be sent with ids");
+            }
+            Integer doctorId = doctorName == null ? null
+                    : doctorDirectory.find(doctorName).map(Doctor::getId).orElse(null);
+            return new BulkTarget(null, doctorName, doctorId, from, to, status);
+        }
+        if (request.getIds().isEmpty() || request.getIds().contains(null)) {
+            throw new IllegalArgumentException("ids must be a non-empty list of appointment ids");
+        }
+        List<Long> ids = request.getIds().stream().distinct().toList();
+        if (ids.size() > bulkMaxRows) {
+            throw new IllegalArgumentException("At most " + bulkMaxRows + " ids per request");
+        }
+        return new BulkTarget(ids, null, null, null, null, null);
+    }
+
+    // Inside the transaction, rows locked and their doctors' stripes held
+    private BulkBatch applyBulk(BulkAction action, BulkStatusRequest request, BulkTarget target,
+                                List<VersionedAppointment> rows) {
+        Map<Long, Long> versions = request.getVersions() != null ? request.getVersions() : Map.of();
+        // one outcome per requested id, in request order; filter rows in id order
+        Map<Long, Outcome> outcomes = new LinkedHashMap<>();
+        if (target.ids() != null) {
+            target.ids().forEach(id -> outcomes.put(id, new Outcome(id, Result.NOT_FOUND, null, "Appointment not found")));
+        }
+
+        List<VersionedAppointment> eligible = new ArrayList<>();
+        for (VersionedAppointment row : rows) {
+            Long seen = versions.get(row.id());
+            String refusal = bulkRefusal(action, row);
+            if (seen != null && !seen.equals(row.version())) {
+                outcomes.put(row.id(), new Outcome(row.id(), Result.VERSION_CONFLICT, row.version(),
+                        "Changed since version " + seen));
+            } else if (isAlready(action, row)) {
+                outcomes.put(row.id(), new Outcome(row.id(), Result.UNCHANGED, row.version(), null));
+            } else if (refusal != null) {
+                outcomes.put(row.id(), new Outcome(row.id(), Result.REJECTED, row.version(), refusal));
+            } else {
+                eligible.add(row);
+            }
+        }
+        if (action == BulkAction.RESCHEDULE) {
+            dropSlotConflicts(eligible, request.getOffsetMinutes(), outcomes);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = eligible.stream().map(VersionedAppointment::id).toList();
+        int updated = 0;
+        for (int i = 0; i < ids.size(); i += BULK_CHUNK) {
+            List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + BULK_CHUNK));
+            updated += switch (action) {
+                case CANCEL -> appointmentRepository.updateStatus(chunk, "CANCELLED", now);
+                case COMPLETE -> appointmentRepository.updateStatus(chunk, "COMPLETED", now);
+                case RESCHEDULE -> appointmentRepository.shiftTime(chunk, request.getOffsetMinutes(), now);
+            };
+        }
+        if (updated != ids.size()) {
+            // the rows are locked, so this is not a race
+            throw new IllegalStateException("Bulk " + action + " updated " + updated + " of " + ids.size() + " rows");
+        }
+
+        List<AppointmentChangeEvent> events = new ArrayList<>(eligible.size());
+        for (VersionedAppointment row : eligible) {
+            AppointmentSnapshot before = row.snapshot();
+            events.add(switch (action) {
+                case CANCEL -> AppointmentChangeEvent.cancelled(before, before.withStatus("CANCELLED"));
+                case COMPLETE -> AppointmentChangeEvent.updated(before, before.withStatus("COMPLETED"));
+                case RESCHEDULE -> AppointmentChangeEvent.updated(before,
+                        before.withAppointmentTime(before.appointmentTime().plusMinutes(request.getOffsetMinutes())));
+            });
+            outcomes.put(row.id(), new Outcome(row.id(), Result.UPDATED, row.version() + 1, null));
+        }
+
+        BulkStatusResult result = new BulkStatusResult();
+        result.setAction(action.name());
+        result.setMatched(rows.size());
+        result.setUpdated(updated);
+        result.setOutcomes(new ArrayList<>(outcomes.values()));
+        return new BulkBatch(result, events);
+    }
+
+    // Target state already there: nothing to write
+    private static boolean isAlready(BulkAction action, VersionedAppointment row) {
+        return switch (action) {
+            case CANCEL -> "CANCELLED".equalsIgnoreCase(row.status());
+            case COMPLETE -> "COMPLETED".equalsIgnoreCase(row.status());
+            case RESCHEDULE -> false;
+        };
+    }
+
+    // Same rules as the single-row paths; null = allowed
+    private static String bulkRefusal(BulkAction action, VersionedAppointment row) {
+        boolean completed = "COMPLETED".equalsIgnoreCase(row.status());
+        boolean cancelled = "CANCELLED".equalsIgnoreCase(row.status());
+        return switch (action) {
+            case CANCEL -> completed ? "Completed appointment cannot be cancelled" : null;
+            case COMPLETE -> cancelled ? "Cancelled appointment cannot be completed" : null;
+            case RESCHEDULE -> completed ? "Completed appointment cannot be rescheduled"
+                    : cancelled ? "Cancelled appointment cannot be rescheduled"
+                    : row.appointmentTime() == null ? "Appointment has no time to move" : null;
+        };
+    }
+
+    // The batch moves together, so its own old slots are free. A row that cannot move keeps
+    // its slot, which may block another row of the batch: repeat until nothing more drops out
+    private void dropSlotConflicts(List<VersionedAppointment> moving, int offsetMinutes, Map<Long, Outcome> outcomes) {
+        Set<Long> movingIds = new HashSet<>();
+        moving.forEach(row -> movingIds.add(row.id()));
+        boolean dropped = true;
+        while (dropped) {
+            dropped = false;
+            for (Iterator<VersionedAppointment> it = moving.iterator(); it.hasNext(); ) {
+                VersionedAppointment row = it.next();
+                if (row.doctorName() == null) continue;
+                int minutes = row.durationMinutes() != null ? row.durationMinutes() : Appointment.DEFAULT_DURATION_MINUTES;
+                Optional<DoctorScheduleIndex.Slot> conflict = scheduleIndex.findConflictExcluding(movingIds, row.doctorName(),
+                        row.appointmentTime().plusMinutes(offsetMinutes), minutes);
+                if (conflict.isPresent()) {
+                    outcomes.put(row.id(), new Outcome(row.id(), Result.SLOT_CONFLICT, row.version(),
+                            new AppointmentConflictException(row.doctorName(), conflict.get()).getMessage()));
+                    movingIds.remove(row.id());
+                    it.remove();
+                    dropped = true;
+                }
+            }
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value != null && !value.isBlank() ? value : null;
+    }
+
+    /**
+     * Runs {@code change} on a fresh read of the row while its doctor's stripe (and
+     * {@code targetDoctor}'s, if it moves) is held, so save + event reach the schedule
+     * index before any other writer of that doctor. The doctor is only known after a
+     * first read; if another writer moved the row in between, lock again.
+     */
+    private <T> Optional<T> withRowLocked(Long id, String targetDoctor, Function<Appointment, T> change) {
+        while (true) {
+            Optional<Appointment> peek = appointmentRepository.findById(id);
+            if (peek.isEmpty()) return notArchived(id);
+            String doctor = peek.get().getDoctorName();
+
+            // empty = row changed doctor under us, retry
+            Optional<Optional<T>> attempt = scheduleIndex.withDoctorsLocked(Arrays.asList(doctor, targetDoctor), () -> {
+                Optional<Appointment> current = appointmentRepository.findById(id);
+                if (current.isPresent() && !Objects.equals(current.get().getDoctorName(), doctor)) {
+                    return Optional.empty();
+                }
+                return Optional.of(current.map(change));
+            });
+            if (attempt.isPresent()) return attempt.get().isPresent() ? attempt.get() : notArchived(id);
+        }
+    }
+
+    // Not in the live table: gone, or read-only in the archive (409, not 404)
+    private <T> Optional<T> notArchived(Long id) {
+        if (archiveRepository.existsById(id)) throw new AppointmentArchivedException(id);
+        return Optional.empty();
+    }
+
+    // Missing duration -> default slot; anything outside 1..MAX is rejected
+    private static void applyDuration(Appointment appt) {
+        if (appt.getDurationMinutes() == null) {
+            appt.setDurationMinutes(Appointment.DEFAULT_DURATION_MINUTES);
+        }
+        if (appt.getDurationMinutes() < 1 || appt.getDurationMinutes() > Appointment.MAX_DURATION_MINUTES) {
+            throw new IllegalArgumentException("durationMinutes must be between 1 and " + Appointment.MAX_DURATION_MINUTES);
+        }
+    }
+
+    // Caller holds the doctor's stripe; cancelled or undated rows hold no slot
+    private void ensureSlotFree(Long selfId, Appointment appt) {
+        if (appt.getDoctorName() == null || appt.getAppointmentTime() == null
+                || "CANCELLED".equalsIgnoreCase(appt.getStatus())) {
+            return;
+        }
+        scheduleIndex.findConflict(selfId, appt.getDoctorName(), appt.getAppointmentTime(), appt.getDurationMinutes())
+                .ifPresent(conflict -> {
+                    throw new AppointmentConflictException(appt.getDoctorName(), conflict);
+                });
+    }
+
+    // Read paths never write: an overdue SCHEDULED row is only relabelled in memory.
+    // Read-only transactions keep Hibernate from flushing the change;
+    // AppointmentStatusSweeper does the real bulk UPDATE.
+    private static void applyEffectiveStatus(List<Appointment> appointments) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Appointment appt : appointments) {
+            applyEffectiveStatus(appt, now);
+        }
+    }
+
+    private static void applyEffectiveStatus(Appointment appt, LocalDateTime now) {
+        if ("SCHEDULED".equalsIgnoreCase(appt.getStatus())
+            && appt.getAppointmentTime() != null
+            && appt.getAppointmentTime().isBefore(now)) {
+            appt.setStatus("COMPLETED");
+        }
+    }
+
+    // Same rule for projection rows (records, so a relabelled copy)
+    static List<AppointmentSummary> effectiveStatus(List<AppointmentSummary> rows) {
+        LocalDateTime now = LocalDateTime.now();
+        return rows.stream().map(row -> effectiveStatus(row, now)).toList();
+    }
+
+    static AppointmentSummary effectiveStatus(AppointmentSummary row, LocalDateTime now) {
+        if ("SCHEDULED".equalsIgnoreCase(row.status())
+            && row.appointmentTime() != null
+            && row.appointmentTime().isBefore(now)) {
+            return row.withStatus("COMPLETED");
+        }
+        return row;
+    }
+}
@@ -0,0 +1,380 @@
+package com.smartmedical.service;
+
+import com.smartmedical.event.AppointmentSnapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk format of the appointment snapshot (see {@link AppointmentSnapshotStore}).
+ * Little-endian, rows in ascending id order, cut into blocks of up to
+ * {@link #BLOCK_ROWS} rows; inside a block each field is its own column:
+ * <pre>
+ *   header   magic "SMAS", version, watermark (epoch second), block rows
+ *   block    rows, pad,
+ *            id long[], start long[] (epoch second), patient id long[],
+ *            doctor int[] and status short[] (dictionary codes), duration short[], pad to 8
+ *   footer   row count, block count, block offsets long[], doctor dictionary, status dictionary,
+ *            sub-second parts (count, then id long + nanos int each)
+ *   trailer  footer offset, CRC32 of everything before the trailer
+ * </pre>
+ * Times are {@code LocalDateTime} seconds taken as UTC (an encoding, not an instant);
+ * the rare time with a sub-second part keeps it in the footer, since the read models
+ * key slots by exact start time. Null times and patient ids are {@code Long.MIN_VALUE},
+ * null codes and durations {@code -1}. At 32 bytes a row, a million appointments
+ * take about 32 MB. The writer needs one block of memory; the reader maps one block
+ * at a time, so neither cares how big the file is.
+ */
+final class AppointmentSnapshotFile {
+
+    static final int MAGIC = 0x53414D53; // "SMAS" little-endian
+    static final int VERSION = 1;
+    static final int BLOCK_ROWS = 65_536;
+
+    private static final int HEADER_BYTES = 24;
+    private static final int TRAILER_BYTES = 16;
+    private static final int ROW_BYTES = 8 + 8 + 8 + 4 + 2 + 2;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+
+    private AppointmentSnapshotFile() {}
+
+    private static long blockBytes(int rows) {
+        long bytes = 8L + (long) rows * ROW_BYTES;
+        return (bytes + 7) & ~7L;
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time == null ? NULL_LONG : time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fromEpochSecond(long seconds) {
+        return seconds == NULL_LONG ? null : LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+    private static ByteBuffer buffer(int bytes) {
+        return ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** Streams rows (ascending id) into a new file; {@link #finish} completes it. */
+    static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final CRC32 crc = new CRC32();
+        private long position;
+
+        private final long[] ids = new long[BLOCK_ROWS];
+        private final long[] starts = new long[BLOCK_ROWS];
+        private final long[] patients = new long[BLOCK_ROWS];
+        private final int[] doctors = new int[BLOCK_ROWS];
+        private final short[] statuses = new short[BLOCK_ROWS];
+        private final short[] durations = new short[BLOCK_ROWS];
+        private int buffered;
+
+        private final Map<String, Integer> doctorCodes = new HashMap<>();
+        private final List<String> doctorDictionary = new ArrayList<>();
+        private final Map<String, Integer> statusCodes = new HashMap<>();
+        private final List<String> statusDictionary = new ArrayList<>();
+        private final List<Long> blockOffsets = new ArrayList<>();
+        private final Map<Long, Integer> nanos = new HashMap<>();
+        private long rows;
+        private long lastId = Long.MIN_VALUE;
+
+        Writer(Path path, LocalDateTime watermark) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            ByteBuffer header = buffer(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(toEpochSecond(watermark)).putInt(BLOCK_ROWS).putInt(0);
+            write(header);
+        }
+
+        void add(AppointmentSnapshot a) {
+            if (a.id() <= lastId) {
+                throw new IllegalArgumentException("Snapshot rows must come in ascending id order: " + a.id());
+            }
+            lastId = a.id();
+            int i = buffered;
+            ids[i] = a.id();
+            starts[i] = toEpochSecond(a.appointmentTime());
+            if (a.appointmentTime() != null && a.appointmentTime().getNano() != 0) {
+                nanos.put(a.id(), a.appointmentTime().getNano());
+            }
+            patients[i] = a.patientId() == null ? NULL_LONG : a.patientId();
+            doctors[i] = code(a.doctorName(), doctorCodes, doctorDictionary, Integer.MAX_VALUE);
+            statuses[i] = (short) code(a.status(), statusCodes, statusDictionary, Short.MAX_VALUE);
+            durations[i] = a.durationMinutes() == null ? -1 : (short) Math.min(a.durationMinutes(), Short.MAX_VALUE);
+            if (++buffered == BLOCK_ROWS) {
+                flushBlock();
+            }
+        }
+
+        long rows() {
+            return rows + buffered;
+        }
+
+        void finish() throws IOException {
+            flushBlock();
+            long footerOffset = position;
+            ByteBuffer footer = buffer(12 + 8 * blockOffsets.size()
+                    + dictionaryBytes(doctorDictionary) + dictionaryBytes(statusDictionary) + 4 + 12 * nanos.size());
+            footer.putLong(rows).putInt(blockOffsets.size());
+            blockOffsets.forEach(footer::putLong);
+            putDictionary(footer, doctorDictionary);
+            putDictionary(footer, statusDictionary);
+            footer.putInt(nanos.size());
+            nanos.forEach((id, n) -> footer.putLong(id).putInt(n));
+            write(footer);
+
+            ByteBuffer trailer = buffer(TRAILER_BYTES);
+            trailer.putLong(footerOffset).putLong(crc.getValue());
+            trailer.flip();
+            while (trailer.hasRemaining()) {
+                position += channel.write(trailer, position);
+            }
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private void flushBlock() {
+            if (buffered == 0) return;
+            int n = buffered;
+            ByteBuffer block = buffer((int) blockBytes(n));
+            block.putInt(n).putInt(0);
+            for (int i = 0; i < n; i++) block.putLong(ids[i]);
+            for (int i = 0; i < n; i++) block.putLong(starts[i]);
+            for (int i = 0; i < n; i++) block.putLong(patients[i]);
+            for (int i = 0; i < n; i++) block.putInt(doctors[i]);
+            for (int i = 0; i < n; i++) block.putShort(statuses[i]);
+            for (int i = 0; i < n; i++) block.putShort(durations[i]);
+            block.position(block.capacity());
+            blockOffsets.add(position);
+            try {
+                write(block);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            rows += n;
+            buffered = 0;
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+
+        private static int code(String value, Map<String, Integer> codes, List<String> dictionary, int max) {
+            if (value == null) return -1;
+            Integer code = codes.get(value);
+            if (code == null) {
+                if (dictionary.size() == max) {
+                    throw new IllegalStateException("Snapshot dictionary full (" + max + " values)");
+                }
+                code = dictionary.size();
+                codes.put(value, code);
+                dictionary.add(value);
+            }
+            return code;
+        }
+
+        private static int dictionaryBytes(List<String> dictionary) {
+            int bytes = 4;
+            for (String value : dictionary) bytes += 4 + value.getBytes(StandardCharsets.UTF_8).length;
+            return bytes;
+        }
+
+        private static void putDictionary(ByteBuffer buffer, List<String> dictionary) {
+            buffer.putInt(dictionary.size());
+            for (String value : dictionary) {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                buffer.putInt(utf8.length).put(utf8);
+            }
+        }
+    }
+
+    /** A validated snapshot file, mapped block by block while a {@link Cursor} walks it. */
+    static final class Reader implements Closeable {
+
+        private final FileChannel channel;
+        private final LocalDateTime watermark;
+        private final long rows;
+        private final long[] blockOffsets;
+        private final long footerOffset;
+        private final String[] doctors;
+        private final String[] statuses;
+        private final Map<Long, Integer> nanos;
+
+        private Reader(FileChannel channel, LocalDateTime watermark, long rows, long[] blockOffsets,
+                       long footerOffset, String[] doctors, String[] statuses, Map<Long, Integer> nanos) {
+            this.channel = channel;
+            this.watermark = watermark;
+            this.rows = rows;
+            this.blockOffsets = blockOffsets;
+            this.footerOffset = footerOffset;
+            this.doctors = doctors;
+            this.statuses = statuses;
+            this.nanos = nanos;
+        }
+
+        /** Opens and checks {@code path}: magic, version and checksum must all match, or it throws. */
+        static Reader open(Path path) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                if (size < HEADER_BYTES + TRAILER_BYTES) throw new IOException("Snapshot file truncated");
+                ByteBuffer trailer = map(channel, size - TRAILER_BYTES, TRAILER_BYTES);
+                long footerOffset = trailer.getLong();
+                long expectedCrc = trailer.getLong();
+                if (footerOffset < HEADER_BYTES || footerOffset > size - TRAILER_BYTES) {
+                    throw new IOException("Snapshot footer offset out of range");
+                }
+                if (checksum(channel, size - TRAILER_BYTES) != expectedCrc) {
+                    throw new IOException("Snapshot checksum mismatch");
+                }
+
+                ByteBuffer header = map(channel, 0, HEADER_BYTES);
+                if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                    throw new IOException("Not a version " + VERSION + " appointment snapshot");
+                }
+                LocalDateTime watermark = fromEpochSecond(header.getLong());
+
+                ByteBuffer footer = map(channel, footerOffset, size - TRAILER_BYTES - footerOffset);
+                long rows = footer.getLong();
+                long[] blockOffsets = new long[footer.getInt()];
+                for (int i = 0; i < blockOffsets.length; i++) blockOffsets[i] = footer.getLong();
+                String[] doctors = dictionary(footer);
+                String[] statuses = dictionary(footer);
+                int withNanos = footer.getInt();
+                Map<Long, Integer> nanos = new HashMap<>();
+                for (int i = 0; i < withNanos; i++) nanos.put(footer.getLong(), footer.getInt());
+                return new Reader(channel, watermark, rows, blockOffsets, footerOffset, doctors, statuses, nanos);
+            } catch (IOException | RuntimeException ex) {
+                channel.close();
+                throw ex;
+            }
+        }
+
+        /** Rows changed at or after this time are not (or not reliably) in the file. */
+        LocalDateTime watermark() {
+            return watermark;
+        }
+
+        long rows() {
+            return rows;
+        }
+
+        Cursor cursor() {
+            return new Cursor(this);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private MappedByteBuffer block(int index) {
+            long start = blockOffsets[index];
+            long end = index + 1 < blockOffsets.length ? blockOffsets[index + 1] : footerOffset;
+            try {
+                return map(channel, start, end - start);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private static MappedByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+
+        private static long checksum(FileChannel channel, long length) throws IOException {
+            CRC32 crc = new CRC32();
+            for (long offset = 0; offset < length; offset += 1 << 30) {
+                crc.update(map(channel, offset, Math.min(1 << 30, length - offset)));
+            }
+            return crc.getValue();
+        }
+
+        private static String[] dictionary(ByteBuffer buffer) {
+            String[] values = new String[buffer.getInt()];
+            for (int i = 0; i < values.length; i++) {
+                byte[] utf8 = new byte[buffer.getInt()];
+                buffer.get(utf8);
+                values[i] = new String(utf8, StandardCharsets.UTF_8);
+            }
+            return values;
+        }
+    }
+
+    /** Forward-only walk over the rows; {@link #id()} reads one column, {@link #row()} decodes all of them. */
+    static final class Cursor {
+
+        private final Reader reader;
+        private int block = -1;
+        private MappedByteBuffer buffer;
+        private int blockSize;
+        private int index;
+
+        private Cursor(Reader reader) {
+            this.reader = reader;
+        }
+
+        boolean next() {
+            if (buffer != null && ++index < blockSize) return true;
+            while (++block < reader.blockOffsets.length) {
+                buffer = reader.block(block);
+                blockSize = buffer.getInt(0);
+                index = 0;
+                if (blockSize > 0) return true;
+            }
+            buffer = null;
+            return false;
+        }
+
+        long id() {
+            return buffer.getLong(8 + 8 * index);
+        }
+
+        AppointmentSnapshot row() {
+            int n = blockSize;
+            long start = buffer.getLong(8 + 8 * n + 8 * index);
+            long patient = buffer.getLong(8 + 16 * n + 8 * index);
+            int doctor = buffer.getInt(8 + 24 * n + 4 * index);
+            short status = buffer.getShort(8 + 28 * n + 2 * index);
+            short duration = buffer.getShort(8 + 30 * n + 2 * index);
+            long id = id();
+            LocalDateTime time = fromEpochSecond(start);
+            if (time != null && !reader.nanos.isEmpty()) {
+                time = time.withNano(reader.nanos.getOrDefault(id, 0));
+            }
+            return new AppointmentSnapshot(
+                    id,
+                    patient == NULL_LONG ? null : patient,
+                    doctor < 0 ? null : reader.doctors[doctor],
+                    time,
+                    duration < 0 ? null : (int) duration,
+                    status < 0 ? null : reader.statuses[status]);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.smartmedical.service;
+
+import com.smartmedical.event.AppointmentSnapshot;
+import com.smartmedical.repository.AppointmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Warm start for the in-memory appointment read models ({@link DoctorScheduleIndex},
+ * {@link DashboardAggregateStore}). Every {@code snapshot.write-interval-ms} and on
+ * shutdown the appointments go to a columnar file ({@link AppointmentSnapshotFile});
+ * on the next boot the models load from the memory-mapped file plus the rows changed
+ * since it was written, instead of scanning the whole table.
+ * <p>
+ * "Changed since" comes from {@code appointments.updated_at}, read back to the file's
+ * watermark minus {@code snapshot.replay-margin-seconds} (clock skew between instances,
+ * transactions that committed after the watermark was taken). Deletes leave no row
+ * behind, so they are counted instead: file rows + new rows - {@code count(*)}. Only
+ * when that is not zero are the ids compared against the table. All of it runs in one
+ * repeatable-read transaction so the count and the delta see the same data. A count
+ * that does not add up (rows written without {@code updated_at}, e.g. by hand) drops
+ * the file and the models load from the database as before.
+ * <p>
+ * A new file is the old one merged with the same delta, so periodic and shutdown
+ * writes read the changes, not the table; only the very first one streams every row.
+ */
+@Component
+public class AppointmentSnapshotStore implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentSnapshotStore.class);
+
+    private final AppointmentRepository appointmentRepository;
+    private final TransactionTemplate snapshotTransaction;
+    private final boolean enabled;
+    private final Path path;
+    private final long replayMarginSeconds;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // file + delta used while the read models load; dropped once the application is ready
+    private Warm warm;
+    private boolean bootDone;
+    private boolean warmStarted;
+
+    public AppointmentSnapshotStore(AppointmentRepository appointmentRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${snapshot.enabled:true}") boolean enabled,
+                                    @Value("${snapshot.path:data/appointments.snapshot}") String path,
+                                    @Value("${snapshot.replay-margin-seconds:60}") long replayMarginSeconds) {
+        this.appointmentRepository = appointmentRepository;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.enabled = enabled;
+        this.path = Path.of(path);
+        this.replayMarginSeconds = replayMarginSeconds;
+    }
+
+    /** Rows changed after the file was written, in id order, and ids deleted since. */
+    private record Delta(List<AppointmentSnapshot> changed, Set<Long> deleted) {}
+
+    private record Warm(AppointmentSnapshotFile.Reader file, Delta delta) {}
+
+    /**
+     * Feeds every current appointment to {@code sink}, in id order, from the snapshot
+     * file and the delta. Only during startup; false when there is no usable file (or
+     * startup is over), and the caller loads from the database itself.
+     */
+    public synchronized boolean replay(Consumer<AppointmentSnapshot> sink) {
+        if (!bootDone) {
+            bootDone = true;
+            warm = openWarm();
+        }
+        if (warm == null) return false;
+        merge(warm.file(), warm.delta(), sink);
+        warmStarted = true;
+        return true;
+    }
+
+    /** Whether the read models were loaded from the snapshot file at startup. */
+    public synchronized boolean warmStarted() {
+        return warmStarted;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void onReady() {
+        bootDone = true;
+        if (warm != null) {
+            closeQuietly(warm.file());
+            warm = null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        write();
+    }
+
+    /** Writes a fresh file: the current one merged with its delta, or every row when there is none. */
+    @Scheduled(fixedDelayString = "${snapshot.write-interval-ms:600000}",
+            initialDelayString = "${snapshot.initial-delay-ms:60000}")
+    public void write() {
+        if (!enabled || !writeLock.tryLock()) return;
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            long started = System.nanoTime();
+            // taken before anything is read: a row changed after this is replayed next time
+            LocalDateTime watermark = LocalDateTime.now();
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+
+            String source;
+            long rows;
+            try (AppointmentSnapshotFile.Reader previous = openQuietly();
+                 AppointmentSnapshotFile.Writer out = new AppointmentSnapshotFile.Writer(tmp, watermark)) {
+                Delta delta = previous == null ? null : loadDelta(previous);
+                if (delta != null) {
+                    merge(previous, delta, out::add);
+                    source = "previous snapshot + " + delta.changed().size() + " changed, "
+                            + delta.deleted().size() + " deleted";
+                } else {
+                    snapshotTransaction.executeWithoutResult(status -> {
+                        try (Stream<AppointmentSnapshot> all = appointmentRepository.streamSnapshots()) {
+                            all.forEach(out::add);
+                        }
+                    });
+                    source = "appointments table";
+                }
+                out.finish();
+                rows = out.rows();
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Appointment snapshot written: {} rows from {} in {} ms ({} bytes)",
+                    rows, source, (System.nanoTime() - started) / 1_000_000, Files.size(path));
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Appointment snapshot not written: {}", ex.toString());
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // next write truncates it anyway
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Warm openWarm() {
+        if (!enabled) return null;
+        long started = System.nanoTime();
+        AppointmentSnapshotFile.Reader file = openQuietly();
+        if (file == null) return null;
+        try {
+            Delta delta = loadDelta(file);
+            if (delta == null) {
+                file.close();
+                return null;
+            }
+            log.info("Appointment snapshot from {} opened in {} ms: {} rows, {} changed and {} deleted since",
+                    file.watermark(), (System.nanoTime() - started) / 1_000_000, file.rows(),
+                    delta.changed().size(), delta.deleted().size());
+            return new Warm(file, delta);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Appointment snapshot ignored, loading from the database: {}", ex.toString());
+            closeQuietly(file);
+            return null;
+        }
+    }
+
+    private AppointmentSnapshotFile.Reader openQuietly() {
+        try {
+            return AppointmentSnapshotFile.Reader.open(path);
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Appointment snapshot {} unreadable: {}", path, ex.toString());
+            return null;
+        }
+    }
+
+    // null = the file cannot be brought up to date, start from the table
+    private Delta loadDelta(AppointmentSnapshotFile.Reader file) {
+        return snapshotTransaction.execute(status -> {
+            List<AppointmentSnapshot> changed = appointmentRepository.findSnapshotsChangedSince(
+                    file.watermark().minusSeconds(replayMarginSeconds));
+            long total = appointmentRepository.count();
+            long deletedCount = file.rows() + countNew(file, changed) - total;
+            if (deletedCount < 0) {
+                log.warn("Appointment snapshot out of step ({} rows not accounted for), loading from the database",
+                        -deletedCount);
+                return null;
+            }
+            Set<Long> deleted = deletedCount == 0 ? Set.of() : findDeleted(file);
+            return new Delta(changed, deleted);
+        });
+    }
+
+    // changed rows whose id is not in the file (both sides in id order)
+    private static long countNew(AppointmentSnapshotFile.Reader file, List<AppointmentSnapshot> changed) {
+        AppointmentSnapshotFile.Cursor cursor = file.cursor();
+        boolean more = cursor.next();
+        long fresh = 0;
+        for (AppointmentSnapshot a : changed) {
+            while (more && cursor.id() < a.id()) more = cursor.next();
+            if (!more || cursor.id() != a.id()) fresh++;
+        }
+        return fresh;
+    }
+
+    // file ids missing from the table; streams the id column of both sides
+    private Set<Long> findDeleted(AppointmentSnapshotFile.Reader file) {
+        Set<Long> deleted = new HashSet<>();
+        try (Stream<Long> ids = appointmentRepository.streamIds()) {
+            Iterator<Long> table = ids.iterator();
+            long current = table.hasNext() ? table.next() : Long.MAX_VALUE;
+            AppointmentSnapshotFile.Cursor cursor = file.cursor();
+            while (cursor.next()) {
+                long id = cursor.id();
+                while (current < id) current = table.hasNext() ? table.next() : Long.MAX_VALUE;
+                if (current != id) deleted.add(id);
+            }
+        }
+        return deleted;
+    }
+
+    private static void merge(AppointmentSnapshotFile.Reader file, Delta delta,
+                              Consumer<AppointmentSnapshot> sink) {
+        AppointmentSnapshotFile.Cursor cursor = file.cursor();
+        boolean more = cursor.next();
+        Iterator<AppointmentSnapshot> changed = delta.changed().iterator();
+        AppointmentSnapshot next = changed.hasNext() ? changed.next() : null;
+        while (more || next != null) {
+            if (next == null || (more && cursor.id() < next.id())) {
+                if (!delta.deleted().contains(cursor.id())) sink.accept(cursor.row());
+                more = cursor.next();
+            } else {
+                // the table's version wins over the file's
+                if (more && cursor.id() == next.id()) more = cursor.next();
+                sink.accept(next);
+                next = changed.hasNext() ? changed.next() : null;
+            }
+        }
+    }
+
+    private static void closeQuietly(AppointmentSnapshotFile.Reader file) {
+        try {
+            file.close();
+        } catch (IOException ignored) {
+            // read-only channel, nothing to lose
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.smartmedical.service;
+
+import com.smartmedical.dto.SweeperStats;
+import com.smartmedical.event.AppointmentChangeEvent;
+import com.smartmedical.event.AppointmentSnapshot;
+import com.smartmedical.repository.AppointmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves overdue SCHEDULED appointments to COMPLETED in the background, one bounded
+ * batch per transaction, so the GET endpoints never have to write.
+ */
+@Component
+public class AppointmentStatusSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentStatusSweeper.class);
+
+    private final AppointmentRepository appointmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DataVersions dataVersions;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final ReentrantLock runLock = new ReentrantLock();
+    private long totalRuns;
+    private long totalRows;
+    private volatile SweeperStats stats = new SweeperStats();
+
+    public AppointmentStatusSweeper(AppointmentRepository appointmentRepository,
+                                    ApplicationEventPublisher eventPublisher,
+                                    DataVersions dataVersions,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${appointments.sweeper.batch-size:500}") int batchSize,
+                                    @Value("${appointments.sweeper.max-batches-per-run:20}") int maxBatchesPerRun) {
+        this.appointmentRepository = appointmentRepository;
+        this.eventPublisher = eventPublisher;
+        this.dataVersions = dataVersions;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    @Scheduled(fixedDelayString = "${appointments.sweeper.interval-ms:60000}",
+            initialDelayString = "${appointments.sweeper.initial-delay-ms:5000}")
+    public void sweep() {
+        if (!runLock.tryLock()) return; // a run is already in progress
+        try {
+            long started = System.nanoTime();
+            LocalDateTime now = LocalDateTime.now();
+            long rows = 0;
+            int batches = 0;
+
+            while (batches < maxBatchesPerRun) {
+                List<AppointmentSnapshot> completed = transactionTemplate.execute(tx -> completeBatch(now));
+                if (completed == null || completed.isEmpty()) break;
+                batches++;
+                rows += completed.size();
+                // published after commit, same as the per-row service writes
+                for (AppointmentSnapshot before : completed) {
+                    eventPublisher.publishEvent(
+                            AppointmentChangeEvent.updated(before, before.withStatus("COMPLETED")));
+                }
+                // the lists already showed these rows as COMPLETED; only the dashboard counters moved
+                dataVersions.dashboardChanged();
+                if (completed.size() < batchSize) break;
+            }
+
+            LocalDateTime oldestLeft = appointmentRepository.findOldestOverdueScheduledTime(now);
+            long lagSeconds = oldestLeft == null ? 0 : Duration.between(oldestLeft, now).getSeconds();
+
+            totalRuns++;
+            totalRows += rows;
+            SweeperStats s = new SweeperStats();
+            s.setLastRunAt(now);
+            s.setLastRunRows(rows);
+            s.setLastRunBatches(batches);
+            s.setLastRunDurationMs((System.nanoTime() - started) / 1_000_000);
+            s.setLagSeconds(lagSeconds);
+            s.setTotalRuns(totalRuns);
+            s.setTotalRows(totalRows);
+            stats = s;
+
+            if (rows > 0 || lagSeconds > 0) {
+                log.info("Status sweep completed {} appointments in {} batches ({} ms, lag {} s)",
+                        rows, batches, s.getLastRunDurationMs(), lagSeconds);
+            }
+        } catch (RuntimeException ex) {
+            log.error("Status sweep failed", ex);
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    public SweeperStats getStats() {
+        return stats;
+    }
+
+    private List<AppointmentSnapshot> completeBatch(LocalDateTime now) {
+        List<AppointmentSnapshot> overdue =
+                appointmentRepository.findOverdueScheduled(now, PageRequest.of(0, batchSize));
+        if (!overdue.isEmpty()) {
+            appointmentRepository.markCompleted(overdue.stream().map(AppointmentSnapshot::id).toList(), now);
+        }
+        return overdue;
+    }
+}
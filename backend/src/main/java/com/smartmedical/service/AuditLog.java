@@ -0,0 +1,613 @@
+package com.smartmedical.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartmedical.dto.AuditRecord;
+import com.smartmedical.event.AppointmentChangeEvent;
+import com.smartmedical.event.AppointmentSnapshot;
+import com.smartmedical.event.PatientChangeEvent;
+import com.smartmedical.model.Patient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only audit trail of appointment and patient changes, kept in local files under
+ * {@code audit.dir}. The change events the services already publish after commit are
+ * put on a bounded lock-free queue ({@link AuditQueue}); the request thread does not
+ * touch the disk. One writer thread takes up to {@code audit.batch-size} entries at a
+ * time, writes them as checksummed records ({@link AuditLogFile}) in one write, and with
+ * {@code audit.fsync} forces them to disk before they count as written; under load the
+ * cost of a write and an fsync is shared by the whole batch.
+ * <p>
+ * Files are segments of about {@code audit.segment-bytes}; a full one is forced, closed
+ * and never written again. With {@code audit.retention-days} above zero, the oldest
+ * segments whose every entry is past it are deleted when a segment is sealed and at
+ * startup. At startup the last segment is checked record by record and a torn tail
+ * (crash in the middle of a write) is cut off, so numbering continues after the last
+ * complete entry.
+ * <p>
+ * A full queue makes the appending thread wait for the writer (counted in
+ * {@code audit.queue.full}); only after {@code audit.full-wait-ms} is the entry given up
+ * ({@code audit.dropped}, e.g. the disk is failing). On shutdown new entries are written
+ * directly, and everything queued is written and forced before the file is closed.
+ * <p>
+ * Reads ({@link #query}, {@link #replay}) walk the records in seq order and see only
+ * entries that are fully written. Segments are skipped by seq (cursor) and by time
+ * (every entry of a segment is older than the next segment); entity filters read the
+ * record headers without parsing the JSON. There is no index by id: fine for looking
+ * into a complaint, not for a hot path.
+ */
+@Component
+public class AuditLog implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    static final byte APPOINTMENT = 1;
+    static final byte PATIENT = 2;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long FULL_RETRY_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long SHUTDOWN_WAIT_MS = 30_000;
+    private static final int WRITE_ATTEMPTS_WHEN_STOPPING = 3;
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Path dir;
+    private final int batchSize;
+    private final long segmentBytes;
+    private final boolean fsync;
+    private final long retentionMs;
+    private final long fullWaitNanos;
+
+    private final AuditQueue<Entry> queue;
+    // appenders between their closed check and their offer; shutdown waits for them
+    private final AtomicInteger appending = new AtomicInteger();
+    private volatile boolean closed;
+    private volatile boolean stopping;
+    private volatile boolean writerParked;
+    private final Thread writer;
+
+    // file state: used by the writer thread, or by the closing thread and late appenders
+    private final ReentrantLock fileLock = new ReentrantLock();
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+    private FileChannel channel;
+    private long activeBytes;
+    private long nextSeq = 1;
+    // what readers may see
+    private volatile View view = new View(List.of(), 0, 0);
+
+    private final Counter records;
+    private final Counter queueFull;
+    private final Counter dropped;
+    private final Counter corrupt;
+    private final Timer batchTimer;
+
+    /** One change, as queued; serialized by the writer. */
+    record Entry(long at, byte entity, long entityId, String action, String source, Object before, Object after) {}
+
+    /** Segments in seq order, how much of the last one is written, and its last seq. */
+    private record View(List<SegmentFile> segments, long activeBytes, long lastSeq) {}
+
+    private record SegmentFile(Path path, long firstSeq, long createdAt) {}
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Payload(String action, String source, Object before, Object after) {}
+
+    // medical history stays out of the audit files: it is the one free-text field with clinical detail
+    record PatientAudit(Long id, String name, int age, String email, String phone) {
+        static PatientAudit of(Patient patient) {
+            return new PatientAudit(patient.getId(), patient.getName(), patient.getAge(),
+                    patient.getEmail(), patient.getPhone());
+        }
+    }
+
+    public AuditLog(ObjectMapper objectMapper,
+                    MeterRegistry meterRegistry,
+                    @Value("${audit.enabled:true}") boolean enabled,
+                    @Value("${audit.dir:data/audit}") String dir,
+                    @Value("${audit.queue-capacity:65536}") int queueCapacity,
+                    @Value("${audit.batch-size:1024}") int batchSize,
+                    @Value("${audit.segment-bytes:67108864}") long segmentBytes,
+                    @Value("${audit.fsync:true}") boolean fsync,
+                    @Value("${audit.retention-days:0}") int retentionDays,
+                    @Value("${audit.full-wait-ms:2000}") long fullWaitMs) throws IOException {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.dir = Path.of(dir);
+        this.batchSize = Math.max(1, batchSize);
+        // segments are read through one mapping each
+        this.segmentBytes = Math.min(Math.max(segmentBytes, 4096), Integer.MAX_VALUE);
+        this.fsync = fsync;
+        this.retentionMs = TimeUnit.DAYS.toMillis(retentionDays);
+        this.fullWaitNanos = TimeUnit.MILLISECONDS.toNanos(fullWaitMs);
+        this.queue = new AuditQueue<>(queueCapacity);
+
+        Gauge.builder("audit.queue.size", queue, AuditQueue::size)
+                .description("Audit entries waiting for the writer")
+                .register(meterRegistry);
+        this.records = Counter.builder("audit.records")
+                .description("Audit entries written to the log")
+                .register(meterRegistry);
+        this.queueFull = Counter.builder("audit.queue.full")
+                .description("Appends that found the audit queue full and waited for the writer")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("audit.dropped")
+                .description("Audit entries not written: queue full past audit.full-wait-ms, or log closed")
+                .register(meterRegistry);
+        this.corrupt = Counter.builder("audit.corrupt")
+                .description("Invalid records or unreadable segments met while reading the audit log")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("audit.batch")
+                .description("Writing one batch of audit entries, fsync included")
+                .register(meterRegistry);
+
+        if (!enabled) {
+            writer = null;
+            return;
+        }
+        open();
+        writer = Thread.ofPlatform().name("audit-writer").daemon().unstarted(this::run);
+        writer.start();
+    }
+
+    @EventListener
+    public void onAppointmentChange(AppointmentChangeEvent event) {
+        if (!enabled) return;
+        AppointmentSnapshot row = event.after() != null ? event.after() : event.before();
+        append(new Entry(System.currentTimeMillis(), APPOINTMENT, row.id(), event.type().name(), source(),
+                event.before(), event.after()));
+    }
+
+    // the event carries the patient after the change (the removed one for deletes), not before
+    @EventListener
+    public void onPatientChange(PatientChangeEvent event) {
+        if (!enabled) return;
+        PatientAudit row = PatientAudit.of(event.patient());
+        boolean deleted = event.type() == PatientChangeEvent.ChangeType.DELETED;
+        append(new Entry(System.currentTimeMillis(), PATIENT, row.id(), event.type().name(), source(),
+                deleted ? row : null, deleted ? null : row));
+    }
+
+    /**
+     * Entries after {@code afterSeq}, oldest first, up to {@code limit}. {@code entity}
+     * is "appointment", "patient" or null for both; null bounds are open.
+     */
+    public List<AuditRecord> query(String entity, Long entityId, LocalDateTime from, LocalDateTime to,
+                                   long afterSeq, int limit) {
+        byte code = entity == null ? 0 : entityCode(entity);
+        long fromMs = from == null ? Long.MIN_VALUE : toMillis(from);
+        long toMs = to == null ? Long.MAX_VALUE : toMillis(to);
+        List<AuditRecord> page = new ArrayList<>();
+        if (limit < 1) return page;
+        scan(afterSeq, fromMs, cursor -> {
+            if (code != 0 && cursor.entity() != code) return true;
+            if (entityId != null && cursor.entityId() != entityId) return true;
+            if (cursor.at() < fromMs || cursor.at() > toMs) return true;
+            page.add(toRecord(cursor));
+            return page.size() < limit;
+        });
+        return page;
+    }
+
+    /** Feeds every entry after {@code afterSeq} to {@code sink}, in order; returns the last seq seen. */
+    public long replay(long afterSeq, Consumer<AuditRecord> sink) {
+        long[] last = {afterSeq};
+        scan(afterSeq, Long.MIN_VALUE, cursor -> {
+            sink.accept(toRecord(cursor));
+            last[0] = cursor.seq();
+            return true;
+        });
+        return last[0];
+    }
+
+    /** Seq of the newest entry readers can see; 0 when the log is empty. */
+    public long lastSeq() {
+        return view.lastSeq();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void destroy() {
+        if (!enabled) return;
+        closed = true;
+        while (appending.get() > 0) Thread.onSpinWait();
+        stopping = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(SHUTDOWN_WAIT_MS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        fileLock.lock();
+        try {
+            if (writer.isAlive()) {
+                log.error("Audit writer still busy after {} ms, {} entries not written", SHUTDOWN_WAIT_MS, queue.size());
+            } else {
+                List<Entry> rest = new ArrayList<>();
+                queue.drainTo(rest, Integer.MAX_VALUE);
+                if (!rest.isEmpty()) write(rest);
+            }
+            channel.force(true);
+            channel.close();
+            log.info("Audit log closed at seq {}", nextSeq - 1);
+        } catch (IOException ex) {
+            log.error("Audit log not closed cleanly: {}", ex.toString());
+        } finally {
+            channel = null;
+            fileLock.unlock();
+        }
+    }
+
+    private void append(Entry entry) {
+        appending.incrementAndGet();
+        try {
+            if (!closed) {
+                enqueue(entry);
+                return;
+            }
+        } finally {
+            appending.decrementAndGet();
+        }
+        writeLate(entry);
+    }
+
+    private void enqueue(Entry entry) {
+        if (!queue.offer(entry)) {
+            queueFull.increment();
+            long deadline = System.nanoTime() + fullWaitNanos;
+            boolean queued = false;
+            while (!queued && System.nanoTime() < deadline) {
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(FULL_RETRY_NANOS);
+                queued = queue.offer(entry);
+            }
+            if (!queued) {
+                dropped.increment();
+                log.error("Audit queue full for {} ms, {} {} {} not audited",
+                        TimeUnit.NANOSECONDS.toMillis(fullWaitNanos), entry.action(), entityName(entry.entity()), entry.entityId());
+                return;
+            }
+        }
+        if (writerParked) LockSupport.unpark(writer);
+    }
+
+    // after shutdown began: straight to the file, while it is still open
+    private void writeLate(Entry entry) {
+        fileLock.lock();
+        try {
+            if (channel == null) {
+                dropped.increment();
+                log.warn("Audit log closed, {} {} {} not audited", entry.action(), entityName(entry.entity()), entry.entityId());
+                return;
+            }
+            write(List.of(entry));
+        } catch (IOException ex) {
+            dropped.increment();
+            log.error("Audit entry not written during shutdown: {}", ex.toString());
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (true) {
+            queue.drainTo(batch, batchSize);
+            if (batch.isEmpty()) {
+                if (!queue.isEmpty()) {
+                    // an appender claimed a slot and is about to fill it
+                    Thread.onSpinWait();
+                    continue;
+                }
+                if (stopping) return;
+                writerParked = true;
+                if (queue.isEmpty() && !stopping) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                writerParked = false;
+                continue;
+            }
+            writeRetrying(batch);
+            batch.clear();
+        }
+    }
+
+    // an entry is not given up while the application runs; the queue backs up meanwhile
+    private void writeRetrying(List<Entry> batch) {
+        long firstSeq = nextSeq;
+        for (int attempt = 1; ; attempt++) {
+            fileLock.lock();
+            try {
+                // records that made it into the file before a failure are not written twice
+                write(batch.subList((int) (nextSeq - firstSeq), batch.size()));
+                return;
+            } catch (IOException ex) {
+                log.error("Audit batch not written (attempt {}): {}", attempt, ex.toString());
+                if (stopping && attempt >= WRITE_ATTEMPTS_WHEN_STOPPING) {
+                    dropped.increment(batch.size() - (nextSeq - firstSeq));
+                    return;
+                }
+            } finally {
+                fileLock.unlock();
+            }
+            LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(Math.min(attempt, 10)));
+        }
+    }
+
+    // caller holds fileLock
+    private void write(List<Entry> entries) throws IOException {
+        if (entries.isEmpty()) return;
+        long started = System.nanoTime();
+        long seq = nextSeq;
+        for (Entry entry : entries) {
+            byte[] payload = payload(entry);
+            int bytes = AuditLogFile.recordBytes(payload.length);
+            long pending = activeBytes + buffer.position();
+            if (pending + bytes > segmentBytes && pending > AuditLogFile.HEADER_BYTES) {
+                flush(seq);
+                rotate(seq);
+            }
+            if (buffer.remaining() < bytes) {
+                flush(seq);
+                if (buffer.capacity() < bytes) {
+                    buffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.LITTLE_ENDIAN);
+                }
+            }
+            AuditLogFile.put(buffer, crc, seq++, entry.at(), entry.entity(), entry.entityId(), payload);
+        }
+        flush(seq);
+        if (fsync) channel.force(false);
+        view = new View(view.segments(), activeBytes, nextSeq - 1);
+        records.increment(entries.size());
+        batchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    // buffer -> file; on failure the file is cut back to the last complete record
+    private void flush(long seqAfter) throws IOException {
+        if (buffer.position() == 0) return;
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        } catch (IOException ex) {
+            buffer.clear();
+            try {
+                channel.truncate(activeBytes);
+                channel.position(activeBytes);
+            } catch (IOException truncateFailed) {
+                ex.addSuppressed(truncateFailed);
+            }
+            throw ex;
+        }
+        activeBytes += buffer.limit();
+        buffer.clear();
+        nextSeq = seqAfter;
+    }
+
+    private void rotate(long firstSeq) throws IOException {
+        channel.force(true);
+        channel.close();
+        long now = System.currentTimeMillis();
+        Path path = dir.resolve(AuditLogFile.fileName(firstSeq));
+        channel = AuditLogFile.create(path, firstSeq, now);
+        activeBytes = AuditLogFile.HEADER_BYTES;
+        List<SegmentFile> segments = new ArrayList<>(view.segments());
+        segments.add(new SegmentFile(path, firstSeq, now));
+        view = new View(applyRetention(segments, now), activeBytes, firstSeq - 1);
+    }
+
+    // oldest first, and only while the next segment started before the cut-off, so seqs stay contiguous
+    private List<SegmentFile> applyRetention(List<SegmentFile> segments, long now) {
+        if (retentionMs <= 0) return List.copyOf(segments);
+        int keepFrom = 0;
+        while (keepFrom < segments.size() - 1 && segments.get(keepFrom + 1).createdAt() < now - retentionMs) {
+            SegmentFile expired = segments.get(keepFrom);
+            try {
+                Files.deleteIfExists(expired.path());
+                log.info("Audit segment {} deleted (retention {} days)", expired.path().getFileName(),
+                        TimeUnit.MILLISECONDS.toDays(retentionMs));
+            } catch (IOException ex) {
+                log.warn("Audit segment {} past retention not deleted: {}", expired.path(), ex.toString());
+                break;
+            }
+            keepFrom++;
+        }
+        return List.copyOf(segments.subList(keepFrom, segments.size()));
+    }
+
+    private byte[] payload(Entry entry) {
+        String error;
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(new Payload(entry.action(), entry.source(), entry.before(), entry.after()));
+            if (json.length <= AuditLogFile.MAX_BODY_BYTES - AuditLogFile.FIXED_BODY_BYTES) return json;
+            error = "row too large (" + json.length + " bytes)";
+        } catch (JsonProcessingException ex) {
+            error = "row not serializable";
+        }
+        log.warn("Audit entry for {} {} written without the row: {}", entityName(entry.entity()), entry.entityId(), error);
+        return objectMapper.createObjectNode()
+                .put("action", entry.action())
+                .put("source", entry.source())
+                .put("error", error)
+                .toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // startup: find the segments, repair the last one and continue after its last record
+    private void open() throws IOException {
+        Files.createDirectories(dir);
+        List<SegmentFile> segments = new ArrayList<>(listSegments());
+        long lastSeq = 0;
+        while (!segments.isEmpty() && channel == null) {
+            SegmentFile last = segments.get(segments.size() - 1);
+            try {
+                AuditLogFile.Cursor cursor = AuditLogFile.Segment.open(last.path(), -1).cursor();
+                lastSeq = last.firstSeq() - 1;
+                while (cursor.next()) lastSeq = cursor.seq();
+                FileChannel reopened = FileChannel.open(last.path(), StandardOpenOption.WRITE);
+                long size = reopened.size();
+                if (cursor.validEnd() < size) {
+                    log.warn("Audit segment {}: {} bytes after the last complete record cut off",
+                            last.path().getFileName(), size - cursor.validEnd());
+                    reopened.truncate(cursor.validEnd());
+                    reopened.force(true);
+                }
+                reopened.position(cursor.validEnd());
+                channel = reopened;
+                activeBytes = cursor.validEnd();
+            } catch (IOException ex) {
+                // a crash while creating the segment leaves it without a complete header
+                Path aside = last.path().resolveSibling(last.path().getFileName() + ".corrupt");
+                log.warn("Audit segment {} unreadable ({}), moved to {}", last.path().getFileName(), ex.getMessage(),
+                        aside.getFileName());
+                Files.move(last.path(), aside, StandardCopyOption.REPLACE_EXISTING);
+                segments.remove(segments.size() - 1);
+            }
+        }
+        if (channel == null) {
+            long now = System.currentTimeMillis();
+            Path path = dir.resolve(AuditLogFile.fileName(lastSeq + 1));
+            channel = AuditLogFile.create(path, lastSeq + 1, now);
+            activeBytes = AuditLogFile.HEADER_BYTES;
+            segments.add(new SegmentFile(path, lastSeq + 1, now));
+        }
+        nextSeq = lastSeq + 1;
+        view = new View(applyRetention(segments, System.currentTimeMillis()), activeBytes, lastSeq);
+        log.info("Audit log {}: {} segments, continuing at seq {}", dir, view.segments().size(), nextSeq);
+    }
+
+    private List<SegmentFile> listSegments() throws IOException {
+        List<SegmentFile> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                long firstSeq = AuditLogFile.firstSeqOf(path);
+                if (firstSeq < 0) continue;
+                long createdAt;
+                try {
+                    createdAt = AuditLogFile.Segment.open(path, AuditLogFile.HEADER_BYTES).createdAt;
+                } catch (IOException ex) {
+                    // never skipped by time nor expired; startup moves it aside if it is the newest
+                    createdAt = Long.MAX_VALUE;
+                }
+                segments.add(new SegmentFile(path, firstSeq, createdAt));
+            }
+        }
+        segments.sort(Comparator.comparingLong(SegmentFile::firstSeq));
+        return segments;
+    }
+
+    private void scan(long afterSeq, long fromMs, Predicate<AuditLogFile.Cursor> visitor) {
+        View current = view;
+        List<SegmentFile> segments = current.segments();
+        for (int i = 0; i < segments.size(); i++) {
+            SegmentFile segment = segments.get(i);
+            boolean newest = i == segments.size() - 1;
+            if (!newest) {
+                SegmentFile following = segments.get(i + 1);
+                if (following.firstSeq() <= afterSeq + 1 || following.createdAt() <= fromMs) continue;
+            }
+            AuditLogFile.Cursor cursor;
+            try {
+                cursor = AuditLogFile.Segment.open(segment.path(), newest ? current.activeBytes() : -1).cursor();
+            } catch (NoSuchFileException ex) {
+                // deleted by retention since the view was taken
+                continue;
+            } catch (IOException ex) {
+                corrupt.increment();
+                log.warn("Audit segment {} unreadable: {}", segment.path().getFileName(), ex.getMessage());
+                continue;
+            }
+            while (cursor.next()) {
+                if (cursor.seq() <= afterSeq) continue;
+                if (!visitor.test(cursor)) return;
+            }
+            if (cursor.invalid()) {
+                corrupt.increment();
+                log.warn("Audit segment {}: invalid record at offset {}, rest of the segment skipped",
+                        segment.path().getFileName(), cursor.validEnd());
+            }
+        }
+    }
+
+    private AuditRecord toRecord(AuditLogFile.Cursor cursor) {
+        JsonNode payload;
+        try {
+            payload = objectMapper.readTree(cursor.payload());
+        } catch (IOException ex) {
+            // checksum matched, so this was written like that
+            payload = objectMapper.createObjectNode();
+        }
+        LocalDateTime at = LocalDateTime.ofInstant(Instant.ofEpochMilli(cursor.at()), ZoneId.systemDefault());
+        return new AuditRecord(cursor.seq(), at, entityName(cursor.entity()), cursor.entityId(),
+                payload.path("action").asText(null), payload.path("source").asText(null),
+                payload.get("before"), payload.get("after"));
+    }
+
+    // "PUT /api/appointments/5" inside a request, else the thread (sweeper, import job)
+    private static String source() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletRequest request = attributes.getRequest();
+            return request.getMethod() + " " + request.getRequestURI();
+        }
+        return "thread " + Thread.currentThread().getName();
+    }
+
+    private static byte entityCode(String entity) {
+        return switch (entity.toLowerCase(Locale.ROOT)) {
+            case "appointment" -> APPOINTMENT;
+            case "patient" -> PATIENT;
+            default -> throw new IllegalArgumentException("entity must be appointment or patient");
+        };
+    }
+
+    private static String entityName(byte code) {
+        return switch (code) {
+            case APPOINTMENT -> "appointment";
+            case PATIENT -> "patient";
+            default -> "unknown(" + code + ")";
+        };
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
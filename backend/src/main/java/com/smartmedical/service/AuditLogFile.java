@@ -0,0 +1,187 @@
+package com.smartmedical.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk format of the audit log segments (see {@link AuditLog}). Little-endian:
+ * <pre>
+ *   header   magic "SMAL", version, first seq, created at (epoch ms)
+ *   record   body length int, CRC32C of the body int,
+ *            body: seq long, at (epoch ms) long, entity byte, entity id long, JSON payload
+ * </pre>
+ * A segment is named after its first seq ({@code audit-00000000000000000001.log}) and
+ * only ever appended to. Seqs go up by one across segments, so a record's segment is
+ * found from the file names alone. A record is valid when its length fits in the file
+ * and the checksum matches; the first one that is not ends the readable part of the
+ * segment (a torn write at the tail after a crash, or damage on disk).
+ */
+final class AuditLogFile {
+
+    static final int MAGIC = 0x4C414D53; // "SMAL" little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+    static final int FRAME_BYTES = 8;
+    static final int FIXED_BODY_BYTES = 8 + 8 + 1 + 8;
+    static final int MAX_BODY_BYTES = 1 << 20;
+
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".log";
+
+    private AuditLogFile() {}
+
+    static String fileName(long firstSeq) {
+        return String.format("%s%020d%s", PREFIX, firstSeq, SUFFIX);
+    }
+
+    // -1 for files that are not segments
+    static long firstSeqOf(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) return -1;
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    static int recordBytes(int payloadBytes) {
+        return FRAME_BYTES + FIXED_BODY_BYTES + payloadBytes;
+    }
+
+    /** A new, empty segment, open for appending. */
+    static FileChannel create(Path path, long firstSeq, long createdAt) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(firstSeq).putLong(createdAt).flip();
+            while (header.hasRemaining()) channel.write(header);
+            channel.force(true);
+            return channel;
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /** Appends one record to {@code out}, which must have {@link #recordBytes} room left. */
+    static void put(ByteBuffer out, CRC32C crc, long seq, long at, byte entity, long entityId, byte[] payload) {
+        int start = out.position();
+        int bodyBytes = FIXED_BODY_BYTES + payload.length;
+        out.putInt(bodyBytes).putInt(0);
+        out.putLong(seq).putLong(at).put(entity).putLong(entityId).put(payload);
+        crc.reset();
+        crc.update(out.slice(start + FRAME_BYTES, bodyBytes));
+        out.putInt(start + 4, (int) crc.getValue());
+    }
+
+    /** Header fields and the readable records of a segment file. */
+    static final class Segment {
+
+        final long firstSeq;
+        final long createdAt;
+        private final ByteBuffer data;
+
+        private Segment(long firstSeq, long createdAt, ByteBuffer data) {
+            this.firstSeq = firstSeq;
+            this.createdAt = createdAt;
+            this.data = data;
+        }
+
+        /**
+         * Maps the first {@code limit} bytes of the file (all of it when {@code limit < 0});
+         * throws when the header is missing or not an audit segment.
+         */
+        static Segment open(Path path, long limit) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = limit < 0 ? channel.size() : Math.min(limit, channel.size());
+                if (size < HEADER_BYTES) throw new IOException(path + ": no segment header");
+                if (size > Integer.MAX_VALUE) throw new IOException(path + ": segment over 2 GB");
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                ByteBuffer data = mapped.order(ByteOrder.LITTLE_ENDIAN);
+                if (data.getInt(0) != MAGIC) throw new IOException(path + ": not an audit segment");
+                if (data.getInt(4) != VERSION) throw new IOException(path + ": unsupported version " + data.getInt(4));
+                return new Segment(data.getLong(8), data.getLong(16), data);
+            }
+        }
+
+        Cursor cursor() {
+            return new Cursor(data);
+        }
+    }
+
+    /** Walks the records of a segment in order; stops at the end or the first invalid record. */
+    static final class Cursor {
+
+        private final ByteBuffer data;
+        private final CRC32C crc = new CRC32C();
+        private int next = HEADER_BYTES;
+        private int body;
+        private int bodyBytes;
+        private boolean invalid;
+
+        private Cursor(ByteBuffer data) {
+            this.data = data;
+        }
+
+        boolean next() {
+            int limit = data.limit();
+            if (invalid || next == limit) return false;
+            if (limit - next < FRAME_BYTES + FIXED_BODY_BYTES) return stop();
+            int length = data.getInt(next);
+            if (length < FIXED_BODY_BYTES || length > MAX_BODY_BYTES || length > limit - next - FRAME_BYTES) {
+                return stop();
+            }
+            crc.reset();
+            crc.update(data.slice(next + FRAME_BYTES, length));
+            if ((int) crc.getValue() != data.getInt(next + 4)) return stop();
+            body = next + FRAME_BYTES;
+            bodyBytes = length;
+            next = body + length;
+            return true;
+        }
+
+        private boolean stop() {
+            invalid = true;
+            return false;
+        }
+
+        /** Whether the walk ended on an invalid record rather than at the end of the data. */
+        boolean invalid() {
+            return invalid;
+        }
+
+        /** Offset just past the last valid record. */
+        long validEnd() {
+            return next;
+        }
+
+        long seq() {
+            return data.getLong(body);
+        }
+
+        long at() {
+            return data.getLong(body + 8);
+        }
+
+        byte entity() {
+            return data.get(body + 16);
+        }
+
+        long entityId() {
+            return data.getLong(body + 17);
+        }
+
+        byte[] payload() {
+            byte[] payload = new byte[bodyBytes - FIXED_BODY_BYTES];
+            data.get(body + FIXED_BODY_BYTES, payload);
+            return payload;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.smartmedical.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for {@link AuditLog}: any number of producers, one consumer.
+ * A ring of slots, each with a sequence number telling whose turn it is (Vyukov's
+ * bounded queue): a producer claims a slot with one CAS on the tail and publishes it
+ * by advancing the slot's sequence; the consumer takes slots in order without CAS.
+ * Nothing is allocated per element, and a full queue makes {@link #offer} return false
+ * instead of blocking.
+ */
+final class AuditQueue<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // only the consumer moves it; atomic so size() can read it from other threads
+    private final AtomicLong head = new AtomicLong();
+
+    AuditQueue(int capacity) {
+        if (capacity < 2) throw new IllegalArgumentException("capacity must be at least 2");
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.items = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /** False when the queue is full. */
+    boolean offer(E item) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.lazySet(slot, item);
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // the consumer has not freed this slot since the last lap
+                return false;
+            }
+            // another producer took the slot first: try the next position
+        }
+    }
+
+    /** Moves up to {@code max} elements into {@code sink}; consumer thread only. */
+    int drainTo(List<E> sink, int max) {
+        long position = head.get();
+        int taken = 0;
+        while (taken < max) {
+            int slot = (int) position & mask;
+            // not published yet (empty, or a producer between its CAS and the publish)
+            if (sequences.get(slot) != position + 1) break;
+            sink.add(items.get(slot));
+            items.lazySet(slot, null);
+            sequences.set(slot, position + mask + 1);
+            position++;
+            taken++;
+        }
+        head.lazySet(position);
+        return taken;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+}
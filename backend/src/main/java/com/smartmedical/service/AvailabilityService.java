@@ -0,0 +1,8 @@
+package com.smartmedical.service;
+
+import com.smartmedical.dto.AvailabilityQuery;
+import com.smartmedical.dto.AvailabilityResult;
+
+public interface AvailabilityService {
+    AvailabilityResult findFreeSlots(AvailabilityQuery query);
+}
@@ -0,0 +1,155 @@
+package com.smartmedical.service;
+
+import com.smartmedical.dto.AvailabilityQuery;
+import com.smartmedical.dto.AvailabilityResult;
+import com.smartmedical.dto.FreeSlot;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Doctor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Free-slot search straight from the in-memory schedule index: per doctor and day,
+ * {@code free = workingHours & ~occupied}, then one bitset pass finds every start
+ * cell with a long enough free run. No query per candidate slot, no DB access at all.
+ */
+@Service
+public class AvailabilityServiceImpl implements AvailabilityService {
+
+    static final int MAX_RANGE_DAYS = 92;
+    static final int MAX_LIMIT = 100;
+
+    @Autowired
+    private DoctorScheduleIndex scheduleIndex;
+
+    @Autowired
+    private DoctorDirectory doctorDirectory;
+
+    @Override
+    public AvailabilityResult findFreeSlots(AvailabilityQuery q) {
+        long started = System.nanoTime();
+        Template template = Template.of(q);
+        LocalDateTime now = LocalDateTime.now();
+
+        List<String> doctors = q.doctorName() != null && !q.doctorName().isBlank()
+                // stored spelling, so "dr. rao" reports slots as Dr. Rao's
+                ? List.of(doctorDirectory.find(q.doctorName()).map(Doctor::getName).orElse(q.doctorName().trim()))
+                : scheduleIndex.doctorNames();
+
+        AvailabilityResult result = new AvailabilityResult();
+        result.setFrom(q.from());
+        result.setTo(q.to());
+        result.setSlotMinutes(q.slotMinutes());
+        result.setDoctorsSearched(doctors.size());
+
+        if (q.perDoctor()) {
+            Map<String, List<FreeSlot>> byDoctor = new LinkedHashMap<>();
+            for (String doctor : doctors) {
+                List<FreeSlot> slots = new ArrayList<>(q.limit());
+                for (LocalDate day = q.from(); !day.isAfter(q.to()) && slots.size() < q.limit(); day = day.plusDays(1)) {
+                    collectDay(doctor, day, template, now, q.limit() - slots.size(), slots);
+                }
+                byDoctor.put(doctor, slots);
+            }
+            result.setByDoctor(byDoctor);
+        } else {
+            // day by day, so the search stops as soon as the earliest N are known
+            List<FreeSlot> earliest = new ArrayList<>(q.limit());
+            for (LocalDate day = q.from(); !day.isAfter(q.to()) && earliest.size() < q.limit(); day = day.plusDays(1)) {
+                int wanted = q.limit() - earliest.size();
+                List<FreeSlot> sameDay = new ArrayList<>();
+                for (String doctor : doctors) {
+                    collectDay(doctor, day, template, now, wanted, sameDay);
+                }
+                sameDay.sort(Comparator.comparing(FreeSlot::start).thenComparing(FreeSlot::doctorName));
+                earliest.addAll(sameDay.subList(0, Math.min(wanted, sameDay.size())));
+            }
+            result.setEarliest(earliest);
+        }
+
+        result.setTookMicros((System.nanoTime() - started) / 1_000);
+        return result;
+    }
+
+    private void collectDay(String doctor, LocalDate day, Template t, LocalDateTime now, int max, List<FreeSlot> out) {
+        if (!t.workDays.contains(day.getDayOfWeek()) || day.isBefore(now.toLocalDate())) return;
+
+        long[] free = DayBits.andNot(t.workMask, scheduleIndex.occupancy(doctor, day));
+        long[] starts = DayBits.runStarts(free, t.slotCells);
+        DayBits.and(starts, t.startMask);
+
+        // today: nothing that has already started
+        int fromCell = day.equals(now.toLocalDate()) ? DayBits.cellCeil(day.atStartOfDay(), now) : 0;
+        int added = 0;
+        for (int p = DayBits.nextSetBit(starts, fromCell); p >= 0 && added < max; p = DayBits.nextSetBit(starts, p + 1)) {
+            LocalDateTime start = day.atTime(DayBits.timeOf(p));
+            out.add(new FreeSlot(doctor, start, start.plusMinutes(t.slotMinutes)));
+            added++;
+        }
+    }
+
+    // Per-request masks, built once and shared by every doctor/day
+    private static final class Template {
+        Set<DayOfWeek> workDays;
+        long[] workMask;   // cells inside working hours, minus the break
+        long[] startMask;  // cells a slot may start on (workStart + k * step)
+        int slotCells;
+        int slotMinutes;
+
+        static Template of(AvailabilityQuery q) {
+            if (q.from() == null || q.to() == null || q.to().isBefore(q.from())) {
+                throw new IllegalArgumentException("from must be on or before to");
+            }
+            if (ChronoUnit.DAYS.between(q.from(), q.to()) >= MAX_RANGE_DAYS) {
+                throw new IllegalArgumentException("date range is limited to " + MAX_RANGE_DAYS + " days");
+            }
+            if (q.limit() < 1 || q.limit() > MAX_LIMIT) {
+                throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+            }
+            checkMinutes("slotMinutes", q.slotMinutes(), Appointment.MAX_DURATION_MINUTES);
+            checkMinutes("stepMinutes", q.stepMinutes(), 24 * 60);
+            if (q.workDays() == null || q.workDays().isEmpty()) {
+                throw new IllegalArgumentException("workDays must not be empty");
+            }
+            if (!q.workStart().isBefore(q.workEnd())) {
+                throw new IllegalArgumentException("workStart must be before workEnd");
+            }
+            if ((q.breakStart() == null) != (q.breakEnd() == null)
+                    || (q.breakStart() != null && !q.breakStart().isBefore(q.breakEnd()))) {
+                throw new IllegalArgumentException("breakStart and breakEnd go together, start before end");
+            }
+
+            Template t = new Template();
+            t.workDays = q.workDays();
+            t.slotMinutes = q.slotMinutes();
+            t.slotCells = q.slotMinutes() / DayBits.CELL_MINUTES;
+
+            // hours off the 5-minute grid shrink inwards
+            int open = DayBits.cellCeil(q.workStart());
+            int close = DayBits.cellFloor(q.workEnd());
+            t.workMask = DayBits.create();
+            DayBits.set(t.workMask, open, close);
+            if (q.breakStart() != null) {
+                long[] lunch = DayBits.create();
+                DayBits.set(lunch, DayBits.cellFloor(q.breakStart()), DayBits.cellCeil(q.breakEnd()));
+                t.workMask = DayBits.andNot(t.workMask, lunch);
+            }
+            t.startMask = DayBits.create();
+            DayBits.setEvery(t.startMask, open, close, q.stepMinutes() / DayBits.CELL_MINUTES);
+            return t;
+        }
+
+        private static void checkMinutes(String name, int minutes, int max) {
+            if (minutes < DayBits.CELL_MINUTES || minutes > max || minutes % DayBits.CELL_MINUTES != 0) {
+                throw new IllegalArgumentException(name + " must be a multiple of " + DayBits.CELL_MINUTES
+                        + " between " + DayBits.CELL_MINUTES + " and " + max);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.smartmedical.service;
+
+// Bulk status operations (POST /api/appointments/bulk/{action})
+public enum BulkAction {
+    CANCEL, COMPLETE, RESCHEDULE;
+
+    // "cancel" / "complete" / "reschedule" (any case) -> action, anything else -> null
+    public static BulkAction from(String value) {
+        for (BulkAction a : values()) {
+            if (a.name().equalsIgnoreCase(value)) return a;
+        }
+        return null;
+    }
+}
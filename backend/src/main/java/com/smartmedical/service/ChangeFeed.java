@@ -0,0 +1,410 @@
+package com.smartmedical.service;
+
+import com.smartmedical.dto.AppointmentFeedEvent;
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.dto.DashboardStats;
+import com.smartmedical.event.AppointmentChangeEvent;
+import com.smartmedical.event.AppointmentChangeEvent.ChangeType;
+import com.smartmedical.event.AppointmentSnapshot;
+import com.smartmedical.repository.AppointmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Server-sent change feed behind {@code GET /api/changes}, so open screens apply diffs
+ * instead of re-reading {@code /api/appointments} and {@code /api/dashboard}.
+ * <p>
+ * Appointment changes are collected for {@code changefeed.batch-delay-ms} and resolved
+ * to summary rows with one query per batch, whatever the number of subscribers. Every
+ * subscriber has its own bounded backlog: newer changes to a row replace older ones
+ * still waiting, dashboard deltas merge into one, and a backlog over
+ * {@code changefeed.max-pending} is dropped for a single {@code resync} (client reloads).
+ * Idle connections hold no thread (async servlet response); a virtual thread writes
+ * while a subscriber has something to send, so a slow client only delays itself.
+ * <p>
+ * On shutdown the streams are completed in {@link #stop(Runnable)}, which runs before the
+ * web server stops (default {@link SmartLifecycle} phase), while their responses are still live.
+ */
+@Component
+public class ChangeFeed implements SmartLifecycle, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private final AppointmentRepository appointmentRepository;
+    private final DashboardAggregateStore aggregateStore;
+    private final long timeoutMs;
+    private final int maxSubscribers;
+    private final int maxPending;
+    private final long batchDelayMs;
+    private final Counter resyncs;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // appointment id -> latest change since the last dispatch
+    private final Map<Long, ChangeType> changed = new ConcurrentHashMap<>();
+    private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "change-feed");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile DashboardStats lastDashboard;
+    private volatile boolean running;
+    // set by stop(callback); runs once the last stream has ended
+    private final AtomicReference<Runnable> stopCallback = new AtomicReference<>();
+
+    public ChangeFeed(AppointmentRepository appointmentRepository,
+                      DashboardAggregateStore aggregateStore,
+                      MeterRegistry meterRegistry,
+                      @Value("${changefeed.timeout-ms:1800000}") long timeoutMs,
+                      @Value("${changefeed.max-subscribers:10000}") int maxSubscribers,
+                      @Value("${changefeed.max-pending:200}") int maxPending,
+                      @Value("${changefeed.batch-delay-ms:100}") long batchDelayMs) {
+        this.appointmentRepository = appointmentRepository;
+        this.aggregateStore = aggregateStore;
+        this.timeoutMs = timeoutMs;
+        this.maxSubscribers = maxSubscribers;
+        this.maxPending = maxPending;
+        this.batchDelayMs = batchDelayMs;
+        Gauge.builder("changefeed.subscribers", subscribers, Set::size)
+                .description("Open /api/changes connections")
+                .register(meterRegistry);
+        this.resyncs = Counter.builder("changefeed.resyncs")
+                .description("Subscribers told to reload because their backlog overflowed")
+                .register(meterRegistry);
+    }
+
+    // null when the subscriber limit is reached or the server is shutting down
+    public SseEmitter subscribe() {
+        if (!running || subscribers.size() >= maxSubscribers) return null;
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(ex -> remove(subscriber));
+        return emitter;
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        if (subscribers.isEmpty()) {
+            Runnable callback = stopCallback.getAndSet(null);
+            if (callback != null) callback.run();
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @EventListener
+    public void onAppointmentChange(AppointmentChangeEvent event) {
+        if (subscribers.isEmpty() || isOverdueRelabel(event)) return;
+        AppointmentSnapshot row = event.after() != null ? event.after() : event.before();
+        changed.put(row.id(), event.type());
+        if (dispatchScheduled.compareAndSet(false, true)) {
+            dispatcher.schedule(this::dispatch, batchDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // sweeper completing a past SCHEDULED row: clients already show it as COMPLETED
+    private static boolean isOverdueRelabel(AppointmentChangeEvent event) {
+        AppointmentSnapshot before = event.before();
+        AppointmentSnapshot after = event.after();
+        return before != null && after != null && before.isScheduled()
+                && "COMPLETED".equalsIgnoreCase(after.status())
+                && Objects.equals(before.appointmentTime(), after.appointmentTime())
+                && after.appointmentTime() != null && after.appointmentTime().isBefore(LocalDateTime.now());
+    }
+
+    private void dispatch() {
+        dispatchScheduled.set(false);
+        Map<Long, ChangeType> batch = new LinkedHashMap<>();
+        for (Long id : changed.keySet()) {
+            ChangeType type = changed.remove(id);
+            if (type != null) batch.put(id, type);
+        }
+        if (batch.isEmpty()) return;
+        try {
+            // bulk writes (import, sweeper): one reload is cheaper than thousands of diffs
+            if (batch.size() > maxPending) {
+                subscribers.forEach(Subscriber::resync);
+                return;
+            }
+            List<Long> live = batch.entrySet().stream()
+                    .filter(e -> e.getValue() != ChangeType.DELETED)
+                    .map(Map.Entry::getKey)
+                    .toList();
+            LocalDateTime now = LocalDateTime.now();
+            Map<Long, AppointmentSummary> rows = live.isEmpty() ? Map.of()
+                    : appointmentRepository.findSummariesByIdIn(live).stream()
+                    .map(row -> AppointmentServiceImpl.effectiveStatus(row, now))
+                    .collect(Collectors.toMap(AppointmentSummary::id, Function.identity()));
+
+            List<AppointmentFeedEvent> events = new ArrayList<>(batch.size());
+            batch.forEach((id, type) -> {
+                AppointmentSummary row = rows.get(id);
+                // deleted again before we read it
+                events.add(row == null ? new AppointmentFeedEvent(ChangeType.DELETED, id, null)
+                        : new AppointmentFeedEvent(type, id, row));
+            });
+            subscribers.forEach(s -> s.offer(events));
+        } catch (RuntimeException ex) {
+            log.warn("Change feed dispatch failed, asking subscribers to reload", ex);
+            subscribers.forEach(Subscriber::resync);
+        }
+    }
+
+    /**
+     * Dashboard fields that changed since the previous tick, as absolute values (a map
+     * entry that disappeared is sent as null). The baseline is taken even with nobody
+     * listening, so a client that loads {@code /api/dashboard} after subscribing never
+     * misses a change.
+     */
+    @Scheduled(fixedDelayString = "${changefeed.dashboard-interval-ms:2000}")
+    public void publishDashboardDelta() {
+        DashboardStats current = aggregateStore.snapshot();
+        DashboardStats previous = lastDashboard;
+        lastDashboard = current;
+        if (previous == null || subscribers.isEmpty()) return;
+
+        Map<String, Object> delta = new LinkedHashMap<>();
+        diff(delta, "totalPatients", previous.getTotalPatients(), current.getTotalPatients());
+        diff(delta, "totalAppointments", previous.getTotalAppointments(), current.getTotalAppointments());
+        diff(delta, "upcomingAppointments", previous.getUpcomingAppointments(), current.getUpcomingAppointments());
+        diff(delta, "appointmentsPerDoctor", previous.getAppointmentsPerDoctor(), current.getAppointmentsPerDoctor());
+        diff(delta, "statusBreakdown", previous.getStatusBreakdown(), current.getStatusBreakdown());
+        diff(delta, "appointmentsPerDay", previous.getAppointmentsPerDay(), current.getAppointmentsPerDay());
+        if (!delta.isEmpty()) subscribers.forEach(s -> s.offerDashboard(delta));
+    }
+
+    // keeps idle connections open through proxies and finds dead ones
+    @Scheduled(fixedDelayString = "${changefeed.heartbeat-ms:30000}")
+    public void heartbeat() {
+        subscribers.forEach(Subscriber::heartbeat);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        completeAll();
+    }
+
+    // before the web server stops: completed streams end their responses cleanly, and
+    // shutdown waits for that (up to spring.lifecycle.timeout-per-shutdown-phase)
+    @Override
+    public void stop(Runnable callback) {
+        running = false;
+        stopCallback.set(callback);
+        completeAll();
+        if (subscribers.isEmpty() && stopCallback.compareAndSet(callback, null)) callback.run();
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.shutdownNow();
+        completeAll(); // normally none left after stop()
+    }
+
+    // one by one: a response the container already recycled must not keep the rest open
+    private void completeAll() {
+        for (Subscriber s : subscribers) {
+            try {
+                s.emitter.complete();
+            } catch (RuntimeException ex) {
+                log.debug("Change feed subscriber not completed: {}", ex.getMessage());
+                remove(s);
+            }
+        }
+    }
+
+    private static void diff(Map<String, Object> delta, String field, long before, long after) {
+        if (before != after) delta.put(field, after);
+    }
+
+    private static void diff(Map<String, Object> delta, String field, Map<String, Long> before, Map<String, Long> after) {
+        Map<String, Long> changes = new HashMap<>();
+        after.forEach((key, n) -> {
+            if (!n.equals(before.get(key))) changes.put(key, n);
+        });
+        before.keySet().forEach(key -> {
+            if (!after.containsKey(key)) changes.put(key, null);
+        });
+        if (!changes.isEmpty()) delta.put(field, changes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void merge(Map<String, Object> into, Map<String, Object> delta) {
+        delta.forEach((field, value) -> {
+            if (value instanceof Map<?, ?> m && into.get(field) instanceof Map<?, ?> existing) {
+                ((Map<String, Long>) existing).putAll((Map<String, Long>) m);
+            } else {
+                into.put(field, value instanceof Map<?, ?> m ? new HashMap<>((Map<String, Long>) m) : value);
+            }
+        });
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final ReentrantLock lock = new ReentrantLock();
+        final AtomicBoolean sending = new AtomicBoolean();
+        // undelivered, guarded by lock; one entry per appointment, newest change wins
+        final LinkedHashMap<Long, AppointmentFeedEvent> appointments = new LinkedHashMap<>();
+        Map<String, Object> dashboard;
+        boolean resync;
+        boolean heartbeat;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(List<AppointmentFeedEvent> events) {
+            lock.lock();
+            try {
+                if (resync) return; // it reloads everything anyway
+                for (AppointmentFeedEvent e : events) {
+                    appointments.remove(e.id()); // re-insert at the end, keeps delivery order
+                    appointments.put(e.id(), e);
+                }
+                if (appointments.size() > maxPending) markResync();
+            } finally {
+                lock.unlock();
+            }
+            send();
+        }
+
+        void offerDashboard(Map<String, Object> delta) {
+            lock.lock();
+            try {
+                if (resync) return;
+                if (dashboard == null) dashboard = new LinkedHashMap<>();
+                merge(dashboard, delta);
+            } finally {
+                lock.unlock();
+            }
+            send();
+        }
+
+        void resync() {
+            lock.lock();
+            try {
+                if (!resync) markResync();
+            } finally {
+                lock.unlock();
+            }
+            send();
+        }
+
+        void heartbeat() {
+            lock.lock();
+            try {
+                heartbeat = true;
+            } finally {
+                lock.unlock();
+            }
+            send();
+        }
+
+        private void markResync() {
+            appointments.clear();
+            dashboard = null;
+            resync = true;
+            resyncs.increment();
+        }
+
+        // at most one writer per subscriber; offers made while it runs are picked up by it
+        private void send() {
+            if (sending.compareAndSet(false, true)) {
+                Thread.ofVirtual().name("change-feed-send").start(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    List<SseEmitter.SseEventBuilder> out = take();
+                    if (out.isEmpty()) {
+                        sending.set(false);
+                        // an offer that saw sending=true just before we cleared it
+                        if (!hasPending() || !sending.compareAndSet(false, true)) return;
+                        continue;
+                    }
+                    for (SseEmitter.SseEventBuilder event : out) emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException ex) {
+                // client gone (or emitter completed); sending stays set, nothing more is written
+                remove(this);
+                log.debug("Change feed subscriber dropped: {}", ex.getMessage());
+            }
+        }
+
+        private List<SseEmitter.SseEventBuilder> take() {
+            lock.lock();
+            try {
+                List<SseEmitter.SseEventBuilder> out = new ArrayList<>();
+                if (resync) {
+                    out.add(SseEmitter.event().name("resync").data("reload"));
+                    resync = false;
+                }
+                for (AppointmentFeedEvent e : appointments.values()) {
+                    out.add(SseEmitter.event().name("appointment").data(e, MediaType.APPLICATION_JSON));
+                }
+                appointments.clear();
+                if (dashboard != null) {
+                    out.add(SseEmitter.event().name("dashboard").data(dashboard, MediaType.APPLICATION_JSON));
+                    dashboard = null;
+                }
+                if (heartbeat) {
+                    if (out.isEmpty()) out.add(SseEmitter.event().comment("ping"));
+                    heartbeat = false;
+                }
+                return out;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean hasPending() {
+            lock.lock();
+            try {
+                return resync || heartbeat || dashboard != null || !appointments.isEmpty();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
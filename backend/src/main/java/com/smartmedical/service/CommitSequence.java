@@ -0,0 +1,65 @@
+package com.smartmedical.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongFunction;
+
+/**
+ * Numbers the commits of write transactions, so a read model recounted from the database
+ * can tell which change events the recount already saw. Writers publish their events
+ * right after the commit, on the committing thread (listeners are synchronous), so
+ * {@link #lastOnThisThread()} in a listener is the number of the commit the event belongs to.
+ * <p>
+ * {@link #whileHeld} runs a recount with commits held off and hands it the number of the
+ * last commit: everything up to it is in what the recount reads, nothing after it is.
+ * A commit waits for the recount to finish, as its event used to wait in the listeners.
+ * Registered with the transaction manager as a listener bean (Spring Boot picks those up).
+ */
+@Component
+public class CommitSequence implements TransactionExecutionListener {
+
+    // commits share it, a recount takes it alone
+    private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+    private final AtomicLong last = new AtomicLong();
+
+    private static final ThreadLocal<long[]> THREAD_LAST = ThreadLocal.withInitial(() -> new long[1]);
+
+    /** Number of the last write committed on this thread; 0 if there was none. */
+    public long lastOnThisThread() {
+        return THREAD_LAST.get()[0];
+    }
+
+    /** Runs {@code read} with no commit in progress or starting, given the number of the last one. */
+    public <T> T whileHeld(LongFunction<T> read) {
+        gate.writeLock().lock();
+        try {
+            return read.apply(last.get());
+        } finally {
+            gate.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void beforeCommit(TransactionExecution transaction) {
+        if (!transaction.isNewTransaction() || transaction.isReadOnly()) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            THREAD_LAST.get()[0] = 0;
+            return;
+        }
+        gate.readLock().lock();
+        THREAD_LAST.get()[0] = last.incrementAndGet();
+        // afterCompletion runs whatever the commit or the other synchronizations do
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                gate.readLock().unlock();
+            }
+        });
+    }
+}
@@ -0,0 +1,387 @@
+package com.smartmedical.service;
+
+import com.smartmedical.dto.DashboardConsistencyReport;
+import com.smartmedical.dto.DashboardStats;
+import com.smartmedical.event.AppointmentChangeEvent;
+import com.smartmedical.event.AppointmentSnapshot;
+import com.smartmedical.event.PatientChangeEvent;
+import com.smartmedical.repository.AppointmentRepository;
+import com.smartmedical.repository.PatientRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Dashboard counters kept up to date from appointment/patient change events,
+ * so {@code /api/dashboard} never has to scan the appointments table.
+ * Loaded once at startup, from the {@link AppointmentSnapshotStore} file when there
+ * is one, else from a grouped query; {@link #checkConsistency}
+ * compares the live counters against a fresh recompute.
+ * <p>
+ * A recount runs with commits held off ({@link CommitSequence}) and keeps the number of
+ * the last commit it saw; an event of that commit or an earlier one that reaches the
+ * listeners afterwards is already in the counts and is dropped.
+ * <p>
+ * The counters cover archived appointments too ({@link AppointmentArchive} moves rows
+ * without events): a recount reads both tables in one statement
+ * ({@link AppointmentArchive#countsWithArchive}), the snapshot load adds the archive's counts.
+ */
+@Component
+public class DashboardAggregateStore implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardAggregateStore.class);
+
+    private final AppointmentRepository appointmentRepository;
+    private final PatientRepository patientRepository;
+    private final DataVersions dataVersions;
+    private final AppointmentSnapshotStore snapshotStore;
+    private final DoctorDirectory doctorDirectory;
+    private final AppointmentArchive archive;
+    private final CommitSequence commits;
+    private final TransactionTemplate recountTransaction;
+
+    // Deltas share the read lock; rebuild/consistency check take the write lock
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private volatile Counts counts = new Counts();
+
+    public DashboardAggregateStore(AppointmentRepository appointmentRepository,
+                                   PatientRepository patientRepository,
+                                   DataVersions dataVersions,
+                                   AppointmentSnapshotStore snapshotStore,
+                                   DoctorDirectory doctorDirectory,
+                                   AppointmentArchive archive,
+                                   CommitSequence commits,
+                                   PlatformTransactionManager transactionManager) {
+        this.appointmentRepository = appointmentRepository;
+        this.patientRepository = patientRepository;
+        this.dataVersions = dataVersions;
+        this.snapshotStore = snapshotStore;
+        this.doctorDirectory = doctorDirectory;
+        this.archive = archive;
+        this.commits = commits;
+        this.recountTransaction = new TransactionTemplate(transactionManager);
+        this.recountTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!loadFromSnapshot()) rebuild();
+    }
+
+    // Startup only: counters from the snapshot file + rows changed since, instead of the grouped queries
+    private boolean loadFromSnapshot() {
+        long started = System.nanoTime();
+        Counts c = new Counts();
+        if (!snapshotStore.replay(a -> c.apply(a, 1))) return false;
+        // the file has live rows only; no archive run has started yet to move rows in between
+        addCounts(c, archive.archivedCounts());
+        c.totalPatients.set(patientRepository.count());
+        rebuildLock.writeLock().lock();
+        try {
+            counts = c;
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+        dataVersions.dashboardChanged();
+        log.info("Dashboard aggregates loaded from snapshot in {} ms ({} appointments)",
+                (System.nanoTime() - started) / 1_000_000, c.totalAppointments.get());
+        return true;
+    }
+
+    public void rebuild() {
+        long started = System.nanoTime();
+        rebuildLock.writeLock().lock();
+        try {
+            counts = loadFromDatabase(LocalDateTime.now());
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+        dataVersions.dashboardChanged();
+        log.info("Dashboard aggregates rebuilt in {} ms ({} appointments)",
+                (System.nanoTime() - started) / 1_000_000, counts.totalAppointments.get());
+    }
+
+    @EventListener
+    public void onAppointmentChange(AppointmentChangeEvent event) {
+        long commit = commits.lastOnThisThread();
+        rebuildLock.readLock().lock();
+        try {
+            Counts c = counts;
+            if (c.covers(commit)) return;
+            if (event.before() != null) c.apply(event.before(), -1);
+            if (event.after() != null) c.apply(event.after(), 1);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onPatientChange(PatientChangeEvent event) {
+        long commit = commits.lastOnThisThread();
+        rebuildLock.readLock().lock();
+        try {
+            if (counts.covers(commit)) return;
+            switch (event.type()) {
+                case CREATED -> counts.totalPatients.incrementAndGet();
+                case DELETED -> counts.totalPatients.decrementAndGet();
+                default -> { }
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public DashboardStats snapshot() {
+        rebuildLock.readLock().lock();
+        try {
+            return counts.toStats(LocalDateTime.now());
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public long totalPatients() {
+        return counts.totalPatients.get();
+    }
+
+    /**
+     * SCHEDULED appointments still ahead of now. Drops by one exactly when a row passes
+     * its start time, i.e. when the list endpoints start showing it as COMPLETED, so the
+     * ETags fold it in to notice that without any write.
+     */
+    public long upcomingCount() {
+        rebuildLock.readLock().lock();
+        try {
+            return counts.upcoming(LocalDateTime.now());
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Recomputes everything from the database and diffs it against the live counters.
+     * Holds the write lock so no delta lands between the two sides; with {@code repair}
+     * the recomputed counters replace the live ones when they disagree. An event still on
+     * its way from a commit the recount saw can show up as a difference here; after a
+     * repair it is dropped, not counted a second time.
+     */
+    public DashboardConsistencyReport checkConsistency(boolean repair) {
+        LocalDateTime now = LocalDateTime.now();
+        DashboardConsistencyReport report = new DashboardConsistencyReport();
+        report.setCheckedAt(now);
+
+        rebuildLock.writeLock().lock();
+        try {
+            Counts recomputed = loadFromDatabase(now);
+            List<String> differences = counts.diff(recomputed, now);
+            report.setDifferences(differences);
+            report.setConsistent(differences.isEmpty());
+            if (!differences.isEmpty() && repair) {
+                counts = recomputed;
+                report.setRepaired(true);
+            }
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+        if (report.isRepaired()) {
+            dataVersions.dashboardChanged();
+        }
+
+        if (!report.isConsistent()) {
+            log.warn("Dashboard aggregates drifted from database: {}", report.getDifferences());
+        }
+        return report;
+    }
+
+    private Counts loadFromDatabase(LocalDateTime now) {
+        // connection taken at begin, before commits are held off (writers waiting to commit hold theirs)
+        return recountTransaction.execute(status -> commits.whileHeld(lastCommit -> recount(now, lastCommit)));
+    }
+
+    private Counts recount(LocalDateTime now, long lastCommit) {
+        Counts c = new Counts();
+        c.lastCommit = lastCommit;
+        c.totalPatients.set(patientRepository.count());
+
+        // live and archived rows in one statement; archived rows are never upcoming
+        addCounts(c, archive.countsWithArchive(null, null));
+        for (LocalDateTime time : appointmentRepository.findScheduledTimesAfter(now)) {
+            c.scheduledAhead.merge(time, 1L, Long::sum);
+            c.upcoming++;
+        }
+        return c;
+    }
+
+    // [day, doctorId, status, count] rows of AppointmentArchive
+    private void addCounts(Counts c, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            c.add((LocalDate) row[0], doctorDirectory.nameOf((Integer) row[1]), (String) row[2], (Long) row[3]);
+        }
+    }
+
+    private static String statusKey(String status) {
+        return Optional.ofNullable(status).orElse("UNKNOWN");
+    }
+
+    private static String doctorKey(String doctorName) {
+        return Optional.ofNullable(doctorName).orElse("Unknown");
+    }
+
+    private static <K> void bump(Map<K, Long> map, K key, long delta) {
+        map.compute(key, (k, v) -> {
+            long n = (v == null ? 0 : v) + delta;
+            return n == 0 ? null : n;
+        });
+    }
+
+    private static final class Counts {
+        final AtomicLong totalPatients = new AtomicLong();
+        final AtomicLong totalAppointments = new AtomicLong();
+        final Map<String, Long> perStatus = new ConcurrentHashMap<>();
+        final Map<String, Long> perDoctor = new ConcurrentHashMap<>();
+        final ConcurrentSkipListMap<LocalDate, Long> perDay = new ConcurrentSkipListMap<>();
+        // last commit the recount saw (CommitSequence); 0 for counts loaded at startup
+        long lastCommit;
+
+        // Future SCHEDULED times -> count. Heads are evicted as "now" moves past them,
+        // so reading the upcoming count is amortised O(1).
+        final ReentrantLock upcomingLock = new ReentrantLock();
+        final TreeMap<LocalDateTime, Long> scheduledAhead = new TreeMap<>();
+        long upcoming;
+
+        void apply(AppointmentSnapshot a, long delta) {
+            totalAppointments.addAndGet(delta);
+            bump(perStatus, statusKey(a.status()), delta);
+            bump(perDoctor, doctorKey(a.doctorName()), delta);
+            if (a.appointmentTime() != null) {
+                bump(perDay, a.appointmentTime().toLocalDate(), delta);
+                if (a.isScheduled()) applyUpcoming(a.appointmentTime(), delta);
+            }
+        }
+
+        boolean covers(long commit) {
+            return commit != 0 && commit <= lastCommit;
+        }
+
+        // n rows counted in the database; day null for undated ones
+        void add(LocalDate day, String doctorName, String status, long n) {
+            totalAppointments.addAndGet(n);
+            perStatus.merge(statusKey(status), n, Long::sum);
+            perDoctor.merge(doctorKey(doctorName), n, Long::sum);
+            if (day != null) perDay.merge(day, n, Long::sum);
+        }
+
+        private void applyUpcoming(LocalDateTime time, long delta) {
+            upcomingLock.lock();
+            try {
+                if (delta > 0) {
+                    if (time.isAfter(LocalDateTime.now())) {
+                        scheduledAhead.merge(time, delta, Long::sum);
+                        upcoming += delta;
+                    }
+                    return;
+                }
+                Long current = scheduledAhead.get(time);
+                if (current == null) return; // already in the past, nothing counted
+                long removed = Math.min(current, -delta);
+                if (current - removed == 0) scheduledAhead.remove(time);
+                else scheduledAhead.put(time, current - removed);
+                upcoming -= removed;
+            } finally {
+                upcomingLock.unlock();
+            }
+        }
+
+        long upcoming(LocalDateTime now) {
+            upcomingLock.lock();
+            try {
+                Map.Entry<LocalDateTime, Long> head;
+                while ((head = scheduledAhead.firstEntry()) != null && !head.getKey().isAfter(now)) {
+                    scheduledAhead.pollFirstEntry();
+                    upcoming -= head.getValue();
+                }
+                return upcoming;
+            } finally {
+                upcomingLock.unlock();
+            }
+        }
+
+        DashboardStats toStats(LocalDateTime now) {
+            DashboardStats out = new DashboardStats();
+            out.setTotalPatients(totalPatients.get());
+            out.setTotalAppointments(totalAppointments.get());
+            out.setUpcomingAppointments(upcoming(now));
+            out.setStatusBreakdown(sortByKey(perStatus));
+            out.setAppointmentsPerDoctor(sortByValueDesc(perDoctor));
+
+            Map<String, Long> perDayOut = new LinkedHashMap<>(); // date asc
+            perDay.forEach((day, n) -> perDayOut.put(day.toString(), n));
+            out.setAppointmentsPerDay(perDayOut);
+            return out;
+        }
+
+        List<String> diff(Counts other, LocalDateTime now) {
+            List<String> out = new ArrayList<>();
+            compare(out, "totalPatients", totalPatients.get(), other.totalPatients.get());
+            compare(out, "totalAppointments", totalAppointments.get(), other.totalAppointments.get());
+            compare(out, "upcomingAppointments", upcoming(now), other.upcoming(now));
+            compareMaps(out, "statusBreakdown", perStatus, other.perStatus);
+            compareMaps(out, "appointmentsPerDoctor", perDoctor, other.perDoctor);
+            compareMaps(out, "appointmentsPerDay", perDay, other.perDay);
+            return out;
+        }
+
+        private static void compare(List<String> out, String name, long live, long recomputed) {
+            if (live != recomputed) {
+                out.add(name + ": live=" + live + ", recomputed=" + recomputed);
+            }
+        }
+
+        private static <K> void compareMaps(List<String> out, String name, Map<K, Long> live, Map<K, Long> recomputed) {
+            Set<K> keys = new HashSet<>(live.keySet());
+            keys.addAll(recomputed.keySet());
+            for (K key : keys) {
+                compare(out, name + "[" + key + "]",
+                        live.getOrDefault(key, 0L), recomputed.getOrDefault(key, 0L));
+            }
+        }
+    }
+
+    // helper: sort map by key (ascending)
+    private static Map<String, Long> sortByKey(Map<String, Long> map) {
+        return map.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .collect(Collectors.toMap(
+                        Map.Entry::getKey,
+                        Map.Entry::getValue,
+                        (a, b) -> a,
+                        LinkedHashMap::new
+                ));
+    }
+
+    // helper: sort by value desc
+    private static Map<String, Long> sortByValueDesc(Map<String, Long> map) {
+        return map.entrySet().stream()
+                .sorted(Collections.reverseOrder(Map.Entry.comparingByValue()))
+                .collect(Collectors.toMap(
+                        Map.Entry::getKey,
+                        Map.Entry::getValue,
+                        (a, b) -> a,
+                        LinkedHashMap::new
+                ));
+    }
+}
@@ -0,0 +1,334 @@
+package com.smartmedical.service;
+
+import com.smartmedical.config.ReplicaRead;
+import com.smartmedical.config.ReplicaRouter;
+import com.smartmedical.dto.DashboardStats;
+import com.smartmedical.dto.RollupBackfillReport;
+import com.smartmedical.event.AppointmentChangeEvent;
+import com.smartmedical.event.AppointmentSnapshot;
+import com.smartmedical.model.Doctor;
+import com.smartmedical.repository.AppointmentArchiveRepository;
+import com.smartmedical.repository.AppointmentRepository;
+import com.smartmedical.repository.AppointmentRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Persisted daily rollup ({@code appointment_daily_rollup}: day x doctor id x status -> count)
+ * behind {@code /api/dashboard?from=&to=&granularity=}. A year-long chart reads about
+ * 365 x doctors x statuses rows instead of every appointment.
+ * <p>
+ * Appointment change events add +1/-1 deltas to an in-memory map, written to the table
+ * every {@code dashboard.rollup.flush-interval-ms} in one transaction (and on shutdown),
+ * so writes never wait for a rollup UPDATE. Reads add the deltas not flushed yet, so
+ * they are current to the last event. {@link #backfill} recomputes a day range from the
+ * appointments table, in chunks of {@code dashboard.rollup.backfill-chunk-days}; it runs
+ * by itself on startup when the table is still empty. Archived appointments stay in the
+ * rollup (the archive job publishes no events), and a backfill counts the live table and
+ * the archive's own per-day counts in one statement ({@link AppointmentArchive#countsWithArchive}).
+ */
+@Component
+public class DashboardRollupStore implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardRollupStore.class);
+
+    private static final String UPDATE_SQL = "update appointment_daily_rollup set appointment_count = appointment_count + ? "
+            + "where rollup_day = ? and doctor_id = ? and status = ?";
+    private static final String INSERT_SQL = "insert into appointment_daily_rollup "
+            + "(rollup_day, doctor_id, status, appointment_count) values (?, ?, ?, ?)";
+    private static final String DELETE_RANGE_SQL = "delete from appointment_daily_rollup where rollup_day between ? and ?";
+
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentRollupRepository rollupRepository;
+    private final AppointmentArchiveRepository archiveRepository;
+    private final AppointmentArchive archive;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DoctorDirectory doctorDirectory;
+    private final DataVersions dataVersions;
+    private final int backfillChunkDays;
+
+    // Listeners share the read lock while adding deltas; flush/backfill take the write lock to take them out
+    private final ReentrantReadWriteLock deltaLock = new ReentrantReadWriteLock();
+    private volatile Map<Key, Long> pending = new ConcurrentHashMap<>();
+
+    // Range reads (table + pending) share the read lock; flush/backfill change the table under the write lock,
+    // so a reader never sees a delta both in the table and in pending
+    private final ReentrantReadWriteLock tableLock = new ReentrantReadWriteLock();
+
+    public DashboardRollupStore(AppointmentRepository appointmentRepository,
+                                AppointmentRollupRepository rollupRepository,
+                                AppointmentArchiveRepository archiveRepository,
+                                AppointmentArchive archive,
+                                JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                DoctorDirectory doctorDirectory,
+                                DataVersions dataVersions,
+                                @Value("${dashboard.rollup.backfill-chunk-days:31}") int backfillChunkDays) {
+        this.appointmentRepository = appointmentRepository;
+        this.rollupRepository = rollupRepository;
+        this.archiveRepository = archiveRepository;
+        this.archive = archive;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.doctorDirectory = doctorDirectory;
+        this.dataVersions = dataVersions;
+        this.backfillChunkDays = backfillChunkDays;
+    }
+
+    // doctorId 0: no doctor, as stored (V1_3)
+    private record Key(LocalDate day, int doctorId, String status) {}
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // first start with this table: build it from the existing history
+        if (rollupRepository.count() == 0 && appointmentRepository.count() > 0) {
+            RollupBackfillReport report = backfill(null, null);
+            log.info("Daily rollup built for {}..{}: {} rows from {} appointments in {} ms",
+                    report.getFrom(), report.getTo(), report.getRollupRows(), report.getAppointments(),
+                    report.getDurationMs());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+    }
+
+    @EventListener
+    public void onAppointmentChange(AppointmentChangeEvent event) {
+        deltaLock.readLock().lock();
+        try {
+            if (event.before() != null) add(event.before(), -1);
+            if (event.after() != null) add(event.after(), 1);
+        } finally {
+            deltaLock.readLock().unlock();
+        }
+    }
+
+    private void add(AppointmentSnapshot a, long delta) {
+        if (a.appointmentTime() == null) return;
+        // -1 then +1 on the same key (reason edited, say) leaves nothing to write
+        Integer doctorId = a.doctorName() == null ? null
+                : doctorDirectory.find(a.doctorName()).map(Doctor::getId).orElse(null);
+        pending.merge(keyOf(a.appointmentTime().toLocalDate(), doctorId, a.status()), delta,
+                DashboardRollupStore::sumOrNull);
+    }
+
+    @Scheduled(fixedDelayString = "${dashboard.rollup.flush-interval-ms:1000}")
+    public void flush() {
+        tableLock.writeLock().lock();
+        try {
+            Map<Key, Long> batch;
+            deltaLock.writeLock().lock();
+            try {
+                batch = pending;
+                if (batch.isEmpty()) return;
+                pending = new ConcurrentHashMap<>();
+            } finally {
+                deltaLock.writeLock().unlock();
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(tx -> write(batch));
+            } catch (RuntimeException ex) {
+                // keep the deltas for the next run
+                deltaLock.readLock().lock();
+                try {
+                    batch.forEach((key, delta) -> pending.merge(key, delta, DashboardRollupStore::sumOrNull));
+                } finally {
+                    deltaLock.readLock().unlock();
+                }
+                log.warn("Daily rollup flush failed, {} deltas kept for the next run", batch.size(), ex);
+            }
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    // UPDATE every key in one batch, INSERT the ones that had no row yet
+    private void write(Map<Key, Long> batch) {
+        List<Map.Entry<Key, Long>> entries = new ArrayList<>(batch.entrySet());
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, entries.stream()
+                .map(e -> new Object[]{e.getValue(), Date.valueOf(e.getKey().day()), e.getKey().doctorId(), e.getKey().status()})
+                .toList());
+
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            Key key = entries.get(i).getKey();
+            long delta = entries.get(i).getValue();
+            int rows = updated[i];
+            if (rows == Statement.SUCCESS_NO_INFO) {
+                // driver did not report per-statement counts: ask again for this one
+                rows = jdbcTemplate.update(UPDATE_SQL, 0, Date.valueOf(key.day()), key.doctorId(), key.status());
+            }
+            if (rows == 0) {
+                inserts.add(new Object[]{Date.valueOf(key.day()), key.doctorId(), key.status(), delta});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+        }
+    }
+
+    /**
+     * Recomputes {@code [from, to]} (whole history when null, archive included) from the
+     * appointments table and the archive's counts.
+     * Per chunk, the grouped query and dropping that chunk's unflushed deltas happen with
+     * listeners held off, then the chunk's rows are replaced in one transaction. An event
+     * published in the moment between a row's commit and the query can still be counted
+     * twice; rerun the range if the dashboard consistency check disagrees.
+     */
+    public RollupBackfillReport backfill(LocalDate from, LocalDate to) {
+        long started = System.nanoTime();
+        RollupBackfillReport report = new RollupBackfillReport();
+        if (from == null || to == null) {
+            LocalDateTime first = earliest(appointmentRepository.findFirstAppointmentTime(),
+                    archiveRepository.findFirstAppointmentTime());
+            LocalDateTime last = appointmentRepository.findLastAppointmentTime();
+            if (last == null) last = archiveRepository.findLastAppointmentTime();
+            if (first == null) return report;
+            if (from == null) from = first.toLocalDate();
+            if (to == null) to = last.toLocalDate();
+        }
+        report.setFrom(from);
+        report.setTo(to);
+
+        for (LocalDate chunkStart = from; !chunkStart.isAfter(to); ) {
+            LocalDate chunkEnd = chunkStart.plusDays(backfillChunkDays - 1L);
+            if (chunkEnd.isAfter(to)) chunkEnd = to;
+            backfillChunk(chunkStart, chunkEnd, report);
+            chunkStart = chunkEnd.plusDays(1);
+        }
+        dataVersions.dashboardChanged();
+        report.setDurationMs((System.nanoTime() - started) / 1_000_000);
+        return report;
+    }
+
+    private void backfillChunk(LocalDate from, LocalDate to, RollupBackfillReport report) {
+        tableLock.writeLock().lock();
+        try {
+            Map<Key, Long> counts = new HashMap<>();
+            deltaLock.writeLock().lock();
+            try {
+                // live and archived rows in one statement, so an archive batch is counted once
+                for (Object[] row : archive.countsWithArchive(from, to)) {
+                    counts.merge(keyOf((LocalDate) row[0], (Integer) row[1], (String) row[2]), (Long) row[3], Long::sum);
+                }
+                // already part of what the query saw
+                pending.keySet().removeIf(key -> inRange(key.day(), from, to));
+            } finally {
+                deltaLock.writeLock().unlock();
+            }
+
+            List<Object[]> rows = counts.entrySet().stream()
+                    .map(e -> new Object[]{Date.valueOf(e.getKey().day()), e.getKey().doctorId(),
+                            e.getKey().status(), e.getValue()})
+                    .toList();
+            transactionTemplate.executeWithoutResult(tx -> {
+                jdbcTemplate.update(DELETE_RANGE_SQL, Date.valueOf(from), Date.valueOf(to));
+                if (!rows.isEmpty()) jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            });
+            report.setRollupRows(report.getRollupRows() + rows.size());
+            report.setAppointments(report.getAppointments() + counts.values().stream().mapToLong(Long::longValue).sum());
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Appointment figures for {@code [from, to]}: total, per doctor, per status and per
+     * bucket of {@code granularity} (keyed by the bucket's first day). Patient and upcoming
+     * totals are not range-based and are left for the caller. May read from a replica, but
+     * only one that has every flush of this instance: the pending deltas start where they end.
+     */
+    @ReplicaRead
+    public DashboardStats rangeStats(LocalDate from, LocalDate to, Granularity granularity) {
+        ReplicaRouter.requireLocalWrites();
+        Map<Key, Long> counts = new HashMap<>();
+        // names joined in by the range query; doctors only in the pending deltas from the directory
+        Map<Integer, String> names = new HashMap<>();
+        tableLock.readLock().lock();
+        try {
+            for (Object[] row : rollupRepository.findCountsBetween(from, to)) {
+                Key key = new Key(toLocalDate(row[0]), (Integer) row[1], (String) row[3]);
+                if (row[2] != null) names.put(key.doctorId(), (String) row[2]);
+                counts.merge(key, (Long) row[4], Long::sum);
+            }
+            pending.forEach((key, delta) -> {
+                if (inRange(key.day(), from, to)) counts.merge(key, delta, Long::sum);
+            });
+        } finally {
+            tableLock.readLock().unlock();
+        }
+
+        long total = 0;
+        Map<String, Long> perDoctor = new HashMap<>();
+        Map<String, Long> perStatus = new TreeMap<>();
+        Map<LocalDate, Long> perBucket = new TreeMap<>();
+        for (Map.Entry<Key, Long> e : counts.entrySet()) {
+            long n = e.getValue();
+            if (n == 0) continue;
+            total += n;
+            int doctorId = e.getKey().doctorId();
+            String doctorName = doctorId == 0 ? null : names.computeIfAbsent(doctorId, doctorDirectory::nameOf);
+            perDoctor.merge(doctorName != null ? doctorName : "Unknown", n, Long::sum);
+            perStatus.merge(e.getKey().status(), n, Long::sum);
+            perBucket.merge(granularity.bucketOf(e.getKey().day()), n, Long::sum);
+        }
+
+        DashboardStats out = new DashboardStats();
+        out.setFrom(from);
+        out.setTo(to);
+        out.setGranularity(granularity.name().toLowerCase(Locale.ROOT));
+        out.setTotalAppointments(total);
+        out.setAppointmentsPerDoctor(perDoctor.entrySet().stream()
+                .sorted(Collections.reverseOrder(Map.Entry.comparingByValue()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new)));
+        out.setStatusBreakdown(new LinkedHashMap<>(perStatus));
+        Map<String, Long> perBucketOut = new LinkedHashMap<>(); // date asc
+        perBucket.forEach((day, n) -> perBucketOut.put(day.toString(), n));
+        out.setAppointmentsPerDay(perBucketOut);
+        return out;
+    }
+
+    // same label as the live dashboard counters for a missing status
+    private static Key keyOf(LocalDate day, Integer doctorId, String status) {
+        return new Key(day, doctorId != null ? doctorId : 0, status != null ? status : "UNKNOWN");
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        if (a == null) return b;
+        return b == null || a.isBefore(b) ? a : b;
+    }
+
+    private static boolean inRange(LocalDate day, LocalDate from, LocalDate to) {
+        return !day.isBefore(from) && !day.isAfter(to);
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof Date d ? d.toLocalDate() : (LocalDate) value;
+    }
+
+    private static Long sumOrNull(Long a, Long b) {
+        long n = a + b;
+        return n == 0 ? null : n;
+    }
+}
@@ -0,0 +1,53 @@
+package com.smartmedical.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Change counters per collection, the input of the ETags on {@code /api/appointments},
+ * {@code /api/patients} and {@code /api/dashboard}. Writers bump them after the change
+ * is committed and its event has been published (listeners are synchronous), so the
+ * read models already show it. A reader takes the version before it reads any data:
+ * new data may then go out under an old tag (one extra 200 later), but old data never
+ * goes out under a new tag (a stale 304 forever).
+ * <p>
+ * Counters restart with the process; {@link #epoch()} keeps tags of two runs apart.
+ */
+@Component
+public class DataVersions {
+
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong appointments = new AtomicLong();
+    private final AtomicLong patients = new AtomicLong();
+    // dashboard-only changes: overdue sweep (list output unchanged), counter repair
+    private final AtomicLong dashboard = new AtomicLong();
+
+    public long epoch() {
+        return epoch;
+    }
+
+    public long appointments() {
+        return appointments.get();
+    }
+
+    public long patients() {
+        return patients.get();
+    }
+
+    public long dashboard() {
+        return dashboard.get();
+    }
+
+    public void appointmentsChanged() {
+        appointments.incrementAndGet();
+    }
+
+    public void patientsChanged() {
+        patients.incrementAndGet();
+    }
+
+    public void dashboardChanged() {
+        dashboard.incrementAndGet();
+    }
+}
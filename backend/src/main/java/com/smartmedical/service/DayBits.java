@@ -0,0 +1,142 @@
+package com.smartmedical.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * One day as a bitset of 5-minute cells (288 bits, five longs). Bit {@code p} covers
+ * minutes {@code [5p, 5p + 5)} after midnight. Used for doctor occupancy and for the
+ * working-hours masks of the availability search.
+ */
+final class DayBits {
+
+    static final int CELL_MINUTES = 5;
+    static final int CELLS = 24 * 60 / CELL_MINUTES;
+    static final int WORDS = (CELLS + 63) / 64;
+
+    static final long[] EMPTY = new long[WORDS];
+
+    private DayBits() {}
+
+    static long[] create() {
+        return new long[WORDS];
+    }
+
+    /** Sets cells {@code [from, to)}; bounds are clamped to the day. */
+    static void set(long[] bits, int from, int to) {
+        from = Math.max(from, 0);
+        to = Math.min(to, CELLS);
+        for (int p = from; p < to; ) {
+            int word = p >>> 6;
+            int lo = p & 63;
+            int hi = Math.min(64, lo + (to - p));
+            long mask = (hi == 64 ? -1L : (1L << hi) - 1) & (-1L << lo);
+            bits[word] |= mask;
+            p += hi - lo;
+        }
+    }
+
+    /** Sets every {@code step}-th cell in {@code [from, to)}. */
+    static void setEvery(long[] bits, int from, int to, int step) {
+        for (int p = Math.max(from, 0); p < Math.min(to, CELLS); p += step) {
+            bits[p >>> 6] |= 1L << (p & 63);
+        }
+    }
+
+    /** Cell that contains the given time (start of a range). */
+    static int cellFloor(LocalDateTime dayStart, LocalDateTime t) {
+        return (int) Math.floorDiv(Duration.between(dayStart, t).toMinutes(), CELL_MINUTES);
+    }
+
+    /** First cell after the given time (end of a range). */
+    static int cellCeil(LocalDateTime dayStart, LocalDateTime t) {
+        long seconds = Duration.between(dayStart, t).getSeconds();
+        return (int) Math.ceilDiv(seconds, CELL_MINUTES * 60L);
+    }
+
+    static int cellCeil(LocalTime t) {
+        return Math.ceilDiv(t.toSecondOfDay(), CELL_MINUTES * 60);
+    }
+
+    static int cellFloor(LocalTime t) {
+        return t.toSecondOfDay() / (CELL_MINUTES * 60);
+    }
+
+    static LocalTime timeOf(int cell) {
+        return LocalTime.MIN.plusMinutes((long) cell * CELL_MINUTES);
+    }
+
+    static boolean isEmpty(long[] bits) {
+        for (long w : bits) {
+            if (w != 0) return false;
+        }
+        return true;
+    }
+
+    /** {@code a & ~b}, into a new array. */
+    static long[] andNot(long[] a, long[] b) {
+        long[] out = new long[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            out[i] = a[i] & ~b[i];
+        }
+        return out;
+    }
+
+    static void and(long[] target, long[] mask) {
+        for (int i = 0; i < WORDS; i++) {
+            target[i] &= mask[i];
+        }
+    }
+
+    /**
+     * Bit {@code p} of the result is set iff cells {@code p .. p+len-1} are all set in
+     * {@code free}: the start positions of every free run of at least {@code len} cells.
+     * Doubling shifts, so O(log len) word passes.
+     */
+    static long[] runStarts(long[] free, int len) {
+        long[] r = free.clone();
+        int covered = 1;
+        while (covered < len) {
+            int s = Math.min(covered, len - covered);
+            long[] shifted = shiftDown(r, s);
+            for (int i = 0; i < WORDS; i++) {
+                r[i] &= shifted[i];
+            }
+            covered += s;
+        }
+        return r;
+    }
+
+    /** Index of the next set bit at or after {@code from}, or -1. */
+    static int nextSetBit(long[] bits, int from) {
+        int word = from >>> 6;
+        if (word >= WORDS) return -1;
+        long w = bits[word] & (-1L << (from & 63));
+        while (true) {
+            if (w != 0) {
+                int p = (word << 6) + Long.numberOfTrailingZeros(w);
+                return p < CELLS ? p : -1;
+            }
+            if (++word == WORDS) return -1;
+            w = bits[word];
+        }
+    }
+
+    // result bit p = input bit p + s; cells past the end of the day read as not free
+    private static long[] shiftDown(long[] in, int s) {
+        long[] out = new long[WORDS];
+        int words = s >>> 6;
+        int bitsShift = s & 63;
+        for (int i = 0; i < WORDS; i++) {
+            int src = i + words;
+            if (src >= WORDS) break;
+            long v = in[src] >>> bitsShift;
+            if (bitsShift != 0 && src + 1 < WORDS) {
+                v |= in[src + 1] << (64 - bitsShift);
+            }
+            out[i] = v;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,93 @@
+package com.smartmedical.service;
+
+import com.smartmedical.model.Doctor;
+import com.smartmedical.repository.DoctorRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Doctor names to {@link Doctor} rows, the dictionary behind {@code appointments.doctor_id}.
+ * All doctors are loaded on startup (a few thousand at most, and rows never change).
+ * A name not seen yet is looked up in the database, since another backend instance may
+ * have added it, and only a write ({@link #resolve}) creates it. Names match ignoring
+ * case and surrounding spaces and come back in the spelling stored first, so "dr. rao"
+ * books into Dr. Rao's diary.
+ */
+@Component
+public class DoctorDirectory {
+
+    private final DoctorRepository doctorRepository;
+    private final TransactionTemplate newTransaction;
+    private final Map<String, Doctor> byKey = new ConcurrentHashMap<>();
+    private final Map<Integer, Doctor> byId = new ConcurrentHashMap<>();
+    // new doctors are rare; one at a time keeps two requests from racing on the same name
+    private final ReentrantLock createLock = new ReentrantLock();
+
+    public DoctorDirectory(DoctorRepository doctorRepository, PlatformTransactionManager transactionManager) {
+        this.doctorRepository = doctorRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        doctorRepository.findAll().forEach(this::remember);
+    }
+
+    /** The doctor with this name, if there is one; never creates it. Blank or null: empty. */
+    public Optional<Doctor> find(String name) {
+        if (name == null || name.isBlank()) return Optional.empty();
+        String key = Doctor.keyOf(name);
+        Doctor known = byKey.get(key);
+        if (known != null) return Optional.of(known);
+        return doctorRepository.findByNameKey(key).map(this::remember);
+    }
+
+    /**
+     * The doctor with this name, created on first use (in its own transaction, so it is
+     * visible to other instances right away). Blank or null: null (no doctor).
+     */
+    public Doctor resolve(String name) {
+        if (name == null || name.isBlank()) return null;
+        Optional<Doctor> known = find(name);
+        if (known.isPresent()) return known.get();
+        createLock.lock();
+        try {
+            Doctor raced = byKey.get(Doctor.keyOf(name));
+            return raced != null ? raced : remember(create(name));
+        } finally {
+            createLock.unlock();
+        }
+    }
+
+    /** Name of the doctor with this id; null for null. */
+    public String nameOf(Integer id) {
+        if (id == null) return null;
+        Doctor known = byId.get(id);
+        if (known != null) return known.getName();
+        return doctorRepository.findById(id).map(this::remember).map(Doctor::getName).orElse(null);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    private Doctor create(String name) {
+        try {
+            return newTransaction.execute(tx -> doctorRepository.saveAndFlush(new Doctor(name)));
+        } catch (DataIntegrityViolationException ex) {
+            // another instance added it between our lookup and the insert
+            return doctorRepository.findByNameKey(Doctor.keyOf(name)).orElseThrow(() -> ex);
+        }
+    }
+
+    private Doctor remember(Doctor doctor) {
+        byKey.putIfAbsent(doctor.getNameKey(), doctor);
+        byId.putIfAbsent(doctor.getId(), doctor);
+        return doctor;
+    }
+}
@@ -0,0 +1,297 @@
+package com.smartmedical.service;
+
+import com.smartmedical.event.AppointmentChangeEvent;
+import com.smartmedical.event.AppointmentSnapshot;
+import com.smartmedical.event.AppointmentsArchivedEvent;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.repository.AppointmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Per-doctor interval index of held appointment slots (everything except CANCELLED),
+ * used to reject double bookings without querying the doctor's schedule.
+ * <p>
+ * Each doctor's slots sit in a tree ordered by start time. Slot length is capped at
+ * {@link Appointment#MAX_DURATION_MINUTES}, so only slots starting inside
+ * {@code (start - longest, end)} can overlap a new booking: an O(log n) seek plus a
+ * scan of the few neighbours in that window.
+ * <p>
+ * Doctors hash onto a fixed set of lock stripes. Writers hold the stripe across
+ * check + save + event, so two bookings for the same doctor cannot both pass the
+ * check; bookings for different doctors rarely share a stripe.
+ * <p>
+ * For free-slot search each schedule also keeps per-day occupancy bitsets
+ * ({@link DayBits}), built lazily from the tree and dropped when a slot on that day
+ * changes.
+ */
+@Component
+public class DoctorScheduleIndex implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(DoctorScheduleIndex.class);
+
+    private static final int STRIPES = 64;
+
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentSnapshotStore snapshotStore;
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private volatile Map<String, Schedule> schedules = new ConcurrentHashMap<>();
+
+    public DoctorScheduleIndex(AppointmentRepository appointmentRepository, AppointmentSnapshotStore snapshotStore) {
+        this.appointmentRepository = appointmentRepository;
+        this.snapshotStore = snapshotStore;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /** A held slot: {@code [start, end)}. */
+    public record Slot(Long appointmentId, LocalDateTime start, LocalDateTime end) {}
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!loadFromSnapshot()) rebuild();
+    }
+
+    // Startup only: the snapshot file + rows changed since, instead of findHeldSlots()
+    private boolean loadFromSnapshot() {
+        long started = System.nanoTime();
+        Map<String, Schedule> fresh = new ConcurrentHashMap<>();
+        long[] slots = {0};
+        boolean loaded = snapshotStore.replay(a -> {
+            if (a.doctorName() == null || a.appointmentTime() == null || a.isCancelled()) return;
+            fresh.computeIfAbsent(doctorKey(a.doctorName()), k -> new Schedule()).put(a);
+            slots[0]++;
+        });
+        if (!loaded) return false;
+        schedules = fresh;
+        log.info("Doctor schedule index loaded from snapshot in {} ms ({} slots, {} doctors)",
+                (System.nanoTime() - started) / 1_000_000, slots[0], fresh.size());
+        return true;
+    }
+
+    public void rebuild() {
+        long started = System.nanoTime();
+        Map<String, Schedule> fresh = new ConcurrentHashMap<>();
+        List<AppointmentSnapshot> held = appointmentRepository.findHeldSlots();
+        for (AppointmentSnapshot a : held) {
+            fresh.computeIfAbsent(doctorKey(a.doctorName()), k -> new Schedule()).put(a);
+        }
+        schedules = fresh;
+        log.info("Doctor schedule index loaded in {} ms ({} slots, {} doctors)",
+                (System.nanoTime() - started) / 1_000_000, held.size(), fresh.size());
+    }
+
+    /**
+     * Runs {@code action} holding the lock stripes of the given doctors, taken in stripe
+     * order so two multi-doctor callers cannot deadlock. Re-entrant.
+     */
+    public <T> T withDoctorsLocked(Collection<String> doctorNames, Supplier<T> action) {
+        int[] order = doctorNames.stream()
+                .filter(Objects::nonNull)
+                .mapToInt(name -> stripeOf(doctorKey(name)))
+                .distinct()
+                .sorted()
+                .toArray();
+        int locked = 0;
+        try {
+            for (int stripe : order) {
+                stripes[stripe].lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[order[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * First held slot of {@code doctorName} overlapping {@code [start, start + minutes)},
+     * ignoring {@code excludeId} (the appointment being moved). Caller must hold the
+     * doctor's stripe via {@link #withDoctorsLocked}, otherwise the answer can be stale
+     * by the time it is acted on.
+     */
+    public Optional<Slot> findConflict(Long excludeId, String doctorName, LocalDateTime start, int minutes) {
+        return findConflictExcluding(excludeId == null ? Set.of() : Set.of(excludeId), doctorName, start, minutes);
+    }
+
+    /** Same, ignoring several appointments (a batch that moves together). */
+    public Optional<Slot> findConflictExcluding(Set<Long> excludeIds, String doctorName, LocalDateTime start, int minutes) {
+        if (!isLocked(doctorName)) {
+            throw new IllegalStateException("Doctor schedule must be locked before checking conflicts");
+        }
+        Schedule schedule = schedules.get(doctorKey(doctorName));
+        return schedule == null
+                ? Optional.empty()
+                : schedule.findOverlap(excludeIds, start, start.plusMinutes(minutes));
+    }
+
+    /** Whether the current thread holds the stripe of {@code doctorName}. */
+    public boolean isLocked(String doctorName) {
+        return stripes[stripeOf(doctorKey(doctorName))].isHeldByCurrentThread();
+    }
+
+    /** Doctors with a diary in the index, as last spelled on an appointment, sorted. */
+    public List<String> doctorNames() {
+        List<String> names = new ArrayList<>();
+        for (Schedule schedule : schedules.values()) {
+            if (schedule.displayName != null) names.add(schedule.displayName);
+        }
+        names.sort(String.CASE_INSENSITIVE_ORDER);
+        return names;
+    }
+
+    /** Occupied 5-minute cells of one doctor's day (a copy; see {@link DayBits}). */
+    long[] occupancy(String doctorName, LocalDate day) {
+        String key = doctorKey(doctorName);
+        return withDoctorsLocked(List.of(doctorName), () -> {
+            Schedule schedule = schedules.get(key);
+            return schedule == null ? DayBits.EMPTY : schedule.occupancy(day).clone();
+        });
+    }
+
+    /** Slots of one doctor starting in {@code [from, to)}, in time order. */
+    public List<Slot> slotsBetween(String doctorName, LocalDateTime from, LocalDateTime to) {
+        String key = doctorKey(doctorName);
+        return withDoctorsLocked(List.of(doctorName), () -> {
+            Schedule schedule = schedules.get(key);
+            return schedule == null ? List.of() : schedule.startingBetween(from, to);
+        });
+    }
+
+    @EventListener
+    public void onAppointmentChange(AppointmentChangeEvent event) {
+        List<String> doctors = new ArrayList<>(2);
+        if (event.before() != null) doctors.add(event.before().doctorName());
+        if (event.after() != null) doctors.add(event.after().doctorName());
+        withDoctorsLocked(doctors, () -> {
+            if (event.before() != null) remove(event.before());
+            if (event.after() != null) put(event.after());
+            return null;
+        });
+    }
+
+    // Archived rows are past and finished: they leave the diary but were never changes to it
+    @EventListener
+    public void onAppointmentsArchived(AppointmentsArchivedEvent event) {
+        Set<String> doctors = new HashSet<>();
+        event.appointments().forEach(a -> doctors.add(a.doctorName()));
+        withDoctorsLocked(doctors, () -> {
+            event.appointments().forEach(this::remove);
+            return null;
+        });
+    }
+
+    /** Adds or moves a slot; idempotent per appointment id. Caller holds the stripe. */
+    void put(AppointmentSnapshot a) {
+        if (a.id() == null || a.doctorName() == null || a.appointmentTime() == null || a.isCancelled()) return;
+        schedules.computeIfAbsent(doctorKey(a.doctorName()), k -> new Schedule()).put(a);
+    }
+
+    /** Caller holds the stripe. */
+    void remove(AppointmentSnapshot a) {
+        if (a.id() == null || a.doctorName() == null) return;
+        Schedule schedule = schedules.get(doctorKey(a.doctorName()));
+        if (schedule != null) schedule.remove(a.id());
+    }
+
+    private int stripeOf(String key) {
+        return Math.floorMod(key.hashCode(), STRIPES);
+    }
+
+    // "Dr. Sharma" and "dr. sharma " are the same diary
+    private static String doctorKey(String doctorName) {
+        return doctorName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // One doctor's diary; only touched under that doctor's stripe
+    private static final class Schedule {
+        // ids are never null for stored slots; null only marks a search probe
+        private static final Comparator<Slot> ORDER = Comparator
+                .comparing(Slot::start)
+                .thenComparing(Slot::appointmentId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+        private final TreeSet<Slot> byStart = new TreeSet<>(ORDER);
+        private final Map<Long, Slot> byId = new HashMap<>();
+        // days with at least one slot; empty days are not cached
+        private final Map<LocalDate, long[]> dayBits = new HashMap<>();
+        volatile String displayName;
+
+        void put(AppointmentSnapshot a) {
+            Slot slot = new Slot(a.id(), a.appointmentTime(), a.endTime());
+            Slot old = byId.put(a.id(), slot);
+            if (old != null) {
+                byStart.remove(old);
+                invalidate(old);
+            }
+            byStart.add(slot);
+            invalidate(slot);
+            displayName = a.doctorName().trim();
+        }
+
+        void remove(Long id) {
+            Slot old = byId.remove(id);
+            if (old != null) {
+                byStart.remove(old);
+                invalidate(old);
+            }
+        }
+
+        long[] occupancy(LocalDate day) {
+            long[] cached = dayBits.get(day);
+            if (cached != null) return cached;
+
+            LocalDateTime dayStart = day.atStartOfDay();
+            long[] bits = DayBits.create();
+            LocalDateTime earliest = dayStart.minusMinutes(Appointment.MAX_DURATION_MINUTES);
+            for (Slot s : byStart.subSet(probe(earliest), true, probe(dayStart.plusDays(1)), true)) {
+                if (s.end().isAfter(dayStart)) {
+                    // partly covered cells count as taken
+                    DayBits.set(bits, DayBits.cellFloor(dayStart, s.start()), DayBits.cellCeil(dayStart, s.end()));
+                }
+            }
+            if (DayBits.isEmpty(bits)) return DayBits.EMPTY;
+            dayBits.put(day, bits);
+            return bits;
+        }
+
+        private void invalidate(Slot s) {
+            LocalDate last = s.end().minusNanos(1).toLocalDate();
+            for (LocalDate d = s.start().toLocalDate(); !d.isAfter(last); d = d.plusDays(1)) {
+                dayBits.remove(d);
+            }
+        }
+
+        Optional<Slot> findOverlap(Set<Long> excludeIds, LocalDateTime start, LocalDateTime end) {
+            // no held slot is longer than MAX_DURATION, so earlier starts cannot reach us
+            LocalDateTime earliest = start.minusMinutes(Appointment.MAX_DURATION_MINUTES);
+            for (Slot s : byStart.subSet(probe(earliest), true, probe(end), true)) {
+                if (s.end().isAfter(start) && !excludeIds.contains(s.appointmentId())) {
+                    return Optional.of(s);
+                }
+            }
+            return Optional.empty();
+        }
+
+        List<Slot> startingBetween(LocalDateTime from, LocalDateTime to) {
+            return new ArrayList<>(byStart.subSet(probe(from), true, probe(to), true));
+        }
+
+        // sorts before every stored slot at the same instant
+        private static Slot probe(LocalDateTime at) {
+            return new Slot(null, at, at);
+        }
+    }
+}
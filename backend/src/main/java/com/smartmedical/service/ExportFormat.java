@@ -0,0 +1,25 @@
+package com.smartmedical.service;
+
+public enum ExportFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() { return contentType; }
+    public String getExtension() { return extension; }
+
+    // "csv" / "ndjson" (any case) -> format, anything else -> null
+    public static ExportFormat from(String value) {
+        for (ExportFormat f : values()) {
+            if (f.extension.equalsIgnoreCase(value)) return f;
+        }
+        return null;
+    }
+}
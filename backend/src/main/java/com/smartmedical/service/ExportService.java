@@ -0,0 +1,11 @@
+package com.smartmedical.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+public interface ExportService {
+    long exportAppointments(LocalDateTime from, LocalDateTime to, String status, String doctorName,
+                            ExportFormat format, OutputStream out) throws IOException;
+    long exportPatients(ExportFormat format, OutputStream out) throws IOException;
+}
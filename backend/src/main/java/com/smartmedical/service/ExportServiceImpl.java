@@ -0,0 +1,158 @@
+package com.smartmedical.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.smartmedical.dto.AppointmentExportRow;
+import com.smartmedical.dto.PatientExportRow;
+import com.smartmedical.model.Doctor;
+import com.smartmedical.repository.AppointmentArchiveRepository;
+import com.smartmedical.repository.AppointmentRepository;
+import com.smartmedical.repository.PatientRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Streams export rows from the database straight into the caller's OutputStream.
+ * Rows are flat projections and are written one at a time, so heap use does not
+ * depend on how many rows match.
+ */
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // never a generated id (they start at 1)
+    private static final int NO_DOCTOR = 0;
+    private static final DateTimeFormatter CSV_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private static final String[] APPOINTMENT_HEADER = {
+            "id", "patientId", "patientName", "doctorName", "appointmentTime", "reason", "status", "createdAt"};
+    private static final String[] PATIENT_HEADER = {
+            "id", "name", "age", "email", "phone", "medicalHistory"};
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private AppointmentArchiveRepository archiveRepository;
+
+    @Autowired
+    private AppointmentArchive archive;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DoctorDirectory doctorDirectory;
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportAppointments(LocalDateTime from, LocalDateTime to, String status, String doctorName,
+                                   ExportFormat format, OutputStream out) throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        Integer doctorId = null;
+        if (blankToNull(doctorName) != null) {
+            // unknown doctor: no id can match, the export is just the header
+            doctorId = doctorDirectory.find(doctorName).map(Doctor::getId).orElse(NO_DOCTOR);
+        }
+        String byStatus = blankToNull(status);
+        // archived rows too when the range starts before the horizon; live stream first, archive second
+        try (Stream<AppointmentExportRow> rows = appointmentRepository.streamForExport(from, to, byStatus, doctorId);
+             Stream<AppointmentExportRow> archived = archive.mayHold(from, byStatus)
+                     ? archiveRepository.streamForExport(from, to, byStatus, doctorId) : Stream.empty()) {
+            // archived rows are COMPLETED or CANCELLED already
+            Iterator<AppointmentExportRow> it = AppointmentArchive.merge(
+                    rows.map(r -> withEffectiveStatus(r, now)).iterator(), archived.iterator(),
+                    AppointmentExportRow::appointmentTime, AppointmentExportRow::id);
+            if (format == ExportFormat.NDJSON) {
+                return writeNdjson(it, out);
+            }
+            return writeCsv(it, APPOINTMENT_HEADER, out, r -> new Object[]{
+                    r.id(), r.patientId(), r.patientName(), r.doctorName(),
+                    r.appointmentTime(), r.reason(), r.status(), r.createdAt()});
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportPatients(ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<PatientExportRow> rows = patientRepository.streamForExport()) {
+            Iterator<PatientExportRow> it = rows.iterator();
+            if (format == ExportFormat.NDJSON) {
+                return writeNdjson(it, out);
+            }
+            return writeCsv(it, PATIENT_HEADER, out, r -> new Object[]{
+                    r.id(), r.name(), r.age(), r.email(), r.phone(), r.medicalHistory()});
+        }
+    }
+
+    private long writeNdjson(Iterator<?> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        long count = 0;
+        SequenceWriter seq = objectMapper.writer().withRootValueSeparator("\n").writeValues(writer);
+        while (rows.hasNext()) {
+            seq.write(rows.next());
+            count++;
+        }
+        seq.flush();
+        writer.write('\n');
+        writer.flush();
+        return count;
+    }
+
+    private static <T> long writeCsv(Iterator<T> rows, String[] header, OutputStream out,
+                                     Function<T, Object[]> columns) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writeCsvLine(writer, header);
+        long count = 0;
+        while (rows.hasNext()) {
+            writeCsvLine(writer, columns.apply(rows.next()));
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static void writeCsvLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) writer.write(',');
+            writer.write(csvField(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    // RFC 4180: quote fields with separators/quotes/newlines, double inner quotes
+    private static String csvField(Object value) {
+        if (value == null) return "";
+        String s = value instanceof LocalDateTime t ? CSV_TIME.format(t) : value.toString();
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return s;
+        }
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    // Same rule as the list endpoints: overdue SCHEDULED is reported as COMPLETED
+    private static AppointmentExportRow withEffectiveStatus(AppointmentExportRow r, LocalDateTime now) {
+        if ("SCHEDULED".equalsIgnoreCase(r.status())
+                && r.appointmentTime() != null && r.appointmentTime().isBefore(now)) {
+            return new AppointmentExportRow(r.id(), r.patientId(), r.patientName(), r.doctorName(),
+                    r.appointmentTime(), r.reason(), "COMPLETED", r.createdAt());
+        }
+        return r;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
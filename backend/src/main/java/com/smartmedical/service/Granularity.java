@@ -0,0 +1,25 @@
+package com.smartmedical.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+// Dashboard trend buckets, each labelled by its first day (weeks start on Monday)
+public enum Granularity {
+    DAY, WEEK, MONTH;
+
+    public LocalDate bucketOf(LocalDate day) {
+        return switch (this) {
+            case DAY -> day;
+            case WEEK -> day.with(DayOfWeek.MONDAY);
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    // "day" / "week" / "month" (any case) -> granularity, anything else -> null
+    public static Granularity from(String value) {
+        for (Granularity g : values()) {
+            if (g.name().equalsIgnoreCase(value)) return g;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,12 @@
+package com.smartmedical.service;
+
+import com.smartmedical.dto.ImportReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ImportService {
+    // Body is a JSON array or NDJSON (one object per line); both are read incrementally
+    ImportReport importPatients(InputStream body) throws IOException;
+    ImportReport importAppointments(InputStream body) throws IOException;
+}
@@ -0,0 +1,259 @@
+package com.smartmedical.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartmedical.dto.ImportReport;
+import com.smartmedical.event.AppointmentChangeEvent;
+import com.smartmedical.event.AppointmentSnapshot;
+import com.smartmedical.event.PatientChangeEvent;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import com.smartmedical.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Bulk ingest: rows are parsed one at a time and written in chunks of
+ * {@code import.batch-size}, one transaction per chunk. Hibernate turns each chunk
+ * into JDBC batches (ids come from the pooled table generator). If a chunk fails,
+ * it is replayed row by row so the report can name the bad rows.
+ */
+@Service
+public class ImportServiceImpl implements ImportService {
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DoctorScheduleIndex scheduleIndex;
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private DoctorDirectory doctorDirectory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    @Override
+    public ImportReport importPatients(InputStream body) throws IOException {
+        return run(body, Patient.class, this::writePatients);
+    }
+
+    @Override
+    public ImportReport importAppointments(InputStream body) throws IOException {
+        return run(body, Appointment.class, this::writeAppointments);
+    }
+
+    private record Row<T>(long row, T value) {}
+
+    private interface ChunkWriter<T> {
+        void write(List<Row<T>> chunk, ImportReport report);
+    }
+
+    private <T> ImportReport run(InputStream body, Class<T> type, ChunkWriter<T> writer) throws IOException {
+        long started = System.nanoTime();
+        ImportReport report = new ImportReport();
+        List<Row<T>> chunk = new ArrayList<>(batchSize);
+        long rowNo = 0;
+
+        // readValues() unwraps a top-level array, and also reads whitespace-separated objects (NDJSON)
+        try (MappingIterator<T> it = objectMapper.readerFor(type).readValues(body)) {
+            while (true) {
+                T value;
+                try {
+                    if (!it.hasNextValue()) break;
+                    rowNo++;
+                    value = it.nextValue();
+                } catch (JsonParseException ex) {
+                    // broken JSON - nothing after this point can be trusted
+                    error(report, Math.max(rowNo, 1), "Malformed JSON: " + ex.getOriginalMessage());
+                    break;
+                } catch (JsonMappingException ex) {
+                    error(report, rowNo, "Invalid row: " + ex.getOriginalMessage());
+                    continue;
+                }
+                chunk.add(new Row<>(rowNo, value));
+                if (chunk.size() == batchSize) {
+                    writer.write(chunk, report);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writer.write(chunk, report);
+        }
+
+        report.setReceived(rowNo);
+        report.setFailed(rowNo - report.getImported());
+        report.setDurationMs((System.nanoTime() - started) / 1_000_000);
+        return report;
+    }
+
+    private void writePatients(List<Row<Patient>> chunk, ImportReport report) {
+        List<Row<Patient>> valid = new ArrayList<>(chunk.size());
+        for (Row<Patient> r : chunk) {
+            Patient p = r.value();
+            if (p.getName() == null || p.getName().isBlank()) {
+                error(report, r.row(), "name is required");
+                continue;
+            }
+            valid.add(r);
+        }
+        persist(valid, report, entityManager::persist, p -> { },
+                p -> {
+                    eventPublisher.publishEvent(new PatientChangeEvent(PatientChangeEvent.ChangeType.CREATED, p));
+                    dataVersions.patientsChanged();
+                });
+    }
+
+    private void writeAppointments(List<Row<Appointment>> chunk, ImportReport report) {
+        // one set-based lookup for every patient referenced by this chunk
+        Set<Long> referenced = new HashSet<>();
+        for (Row<Appointment> r : chunk) {
+            Long pid = patientIdOf(r.value());
+            if (pid != null) referenced.add(pid);
+        }
+        Set<Long> existing = referenced.isEmpty()
+                ? Set.of()
+                : new HashSet<>(patientRepository.findExistingIds(referenced));
+
+        List<Row<Appointment>> valid = new ArrayList<>(chunk.size());
+        for (Row<Appointment> r : chunk) {
+            Appointment a = r.value();
+            Long pid = patientIdOf(a);
+            if (a.getAppointmentTime() == null) {
+                error(report, r.row(), "appointmentTime is required");
+            } else if (a.getDoctorName() == null || a.getDoctorName().isBlank()) {
+                error(report, r.row(), "doctorName is required");
+            } else if (pid != null && !existing.contains(pid)) {
+                error(report, r.row(), "Patient not found with id " + pid);
+            } else if (a.getDurationMinutes() != null
+                    && (a.getDurationMinutes() < 1 || a.getDurationMinutes() > Appointment.MAX_DURATION_MINUTES)) {
+                error(report, r.row(), "durationMinutes must be between 1 and " + Appointment.MAX_DURATION_MINUTES);
+            } else {
+                if (a.getStatus() == null) a.setStatus("SCHEDULED");
+                if (a.getDurationMinutes() == null) a.setDurationMinutes(Appointment.DEFAULT_DURATION_MINUTES);
+                // before the chunk transaction: new doctors are committed on their own
+                a.setDoctor(doctorDirectory.resolve(a.getDoctorName()));
+                valid.add(r);
+            }
+        }
+
+        // Same double-booking rule as the single create: the chunk's doctors stay locked
+        // until commit, and each row is entered into the index as soon as it has an id so
+        // later rows in the same chunk are checked against it too. A conflict fails the
+        // chunk, and the row-by-row replay reports exactly which rows clash.
+        List<String> doctors = valid.stream().map(r -> r.value().getDoctorName()).toList();
+        scheduleIndex.withDoctorsLocked(doctors, () -> {
+            persist(valid, report,
+                    a -> {
+                        // Patient row is known to exist, so a reference is enough (no select per row)
+                        Long pid = patientIdOf(a);
+                        a.setPatient(pid == null ? null : entityManager.getReference(Patient.class, pid));
+                        if (!"CANCELLED".equalsIgnoreCase(a.getStatus())) {
+                            scheduleIndex.findConflict(null, a.getDoctorName(), a.getAppointmentTime(), a.getDurationMinutes())
+                                    .ifPresent(c -> {
+                                        throw new AppointmentConflictException(a.getDoctorName(), c);
+                                    });
+                        }
+                        entityManager.persist(a);
+                        scheduleIndex.put(AppointmentSnapshot.of(a));
+                    },
+                    // rolled back: take the tentative slot out again
+                    a -> scheduleIndex.remove(AppointmentSnapshot.of(a)),
+                    a -> {
+                        eventPublisher.publishEvent(AppointmentChangeEvent.created(AppointmentSnapshot.of(a)));
+                        dataVersions.appointmentsChanged();
+                    });
+            return null;
+        });
+    }
+
+    private <T> void persist(List<Row<T>> rows, ImportReport report,
+                             Consumer<T> write, Consumer<T> undo, Consumer<T> afterCommit) {
+        if (rows.isEmpty()) return;
+        // up front, so undo() never sees an id that came from the payload
+        rows.forEach(r -> resetId(r.value()));
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                for (Row<T> r : rows) {
+                    write.accept(r.value());
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+            rows.forEach(r -> afterCommit.accept(r.value()));
+            report.setImported(report.getImported() + rows.size());
+        } catch (RuntimeException chunkFailure) {
+            rows.forEach(r -> undo.accept(r.value()));
+            // one bad row rolls back the whole chunk - replay singly to find it
+            for (Row<T> r : rows) {
+                try {
+                    transactionTemplate.executeWithoutResult(tx -> {
+                        resetId(r.value());
+                        write.accept(r.value());
+                        entityManager.flush();
+                        entityManager.clear();
+                    });
+                    afterCommit.accept(r.value());
+                    report.setImported(report.getImported() + 1);
+                } catch (RuntimeException ex) {
+                    undo.accept(r.value());
+                    String message = NestedExceptionUtils.getMostSpecificCause(ex).getMessage();
+                    error(report, r.row(), message == null ? ex.toString() : message.lines().findFirst().orElse(message));
+                }
+            }
+        }
+    }
+
+    // ids (and versions) in the payload are ignored; a rolled-back persist also leaves them behind
+    private static void resetId(Object entity) {
+        if (entity instanceof Patient p) p.setId(null);
+        else if (entity instanceof Appointment a) {
+            a.setId(null);
+            a.setVersion(null);
+        }
+    }
+
+    private static Long patientIdOf(Appointment a) {
+        return a.getPatient() != null ? a.getPatient().getId() : null;
+    }
+
+    private void error(ImportReport report, long row, String message) {
+        if (report.getErrors().size() < maxReportedErrors) {
+            report.getErrors().add(new ImportReport.RowError(row, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+}
@@ -0,0 +1,566 @@
+package com.smartmedical.service;
+
+import com.smartmedical.dto.PatientSearchResult;
+import com.smartmedical.event.PatientChangeEvent;
+import com.smartmedical.model.Patient;
+import com.smartmedical.repository.PatientRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory typeahead index over patient name, phone and email, so
+ * {@code /api/patients/search} never touches the database.
+ * <p>
+ * Every field contributes its trigrams, plus a "token start" gram for the first two
+ * characters of each word (so two-letter prefixes work). Posting lists are append-only
+ * int arrays of document numbers, sorted for free because documents are only ever
+ * appended. An update appends a new document and tombstones the old one; deletes only
+ * tombstone. Once a quarter of the documents are dead the whole index is compacted in place.
+ * <p>
+ * A query term of length 3+ matches as a substring and a 2-letter term as a word prefix.
+ * Candidates are the documents in every posting list of the query, newest first and at
+ * most {@value #MAX_CANDIDATES} of them (a broader query is still being typed); each is
+ * verified against the stored fields and ranked. When a longer single term has no exact
+ * hit at all, documents sharing at least half of its trigrams are returned as fuzzy matches.
+ */
+@Component
+public class PatientSearchIndex implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(PatientSearchIndex.class);
+
+    static final int MIN_TERM_LENGTH = 2;
+    // upper bound on documents verified per query ("gmail" would otherwise check everyone)
+    static final int MAX_CANDIDATES = 2_000;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final char TOKEN_START = '\u0000';
+
+    private final PatientRepository patientRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // document tables, doc number -> fields; guarded by lock
+    private long[] ids = new long[1024];
+    private String[] names = new String[1024];
+    private String[] phones = new String[1024];
+    private String[] emails = new String[1024];
+    private int docCount;
+    private final BitSet dead = new BitSet();
+    private int deadCount;
+    private final LongIntMap docOfPatient = new LongIntMap();
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    public PatientSearchIndex(PatientRepository patientRepository, TransactionTemplate transactionTemplate) {
+        this.patientRepository = patientRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long started = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            clear();
+            transactionTemplate.executeWithoutResult(tx -> {
+                try (Stream<PatientSearchResult> rows = patientRepository.streamForSearchIndex()) {
+                    rows.forEach(r -> add(r.id(), r.name(), r.phone(), r.email()));
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Patient search index loaded in {} ms ({} patients, {} grams)",
+                (System.nanoTime() - started) / 1_000_000, docCount, postings.size());
+    }
+
+    @EventListener
+    public void onPatientChange(PatientChangeEvent event) {
+        Patient p = event.patient();
+        if (p == null || p.getId() == null) return;
+        lock.writeLock().lock();
+        try {
+            kill(p.getId());
+            if (event.type() != PatientChangeEvent.ChangeType.DELETED) {
+                add(p.getId(), p.getName(), p.getPhone(), p.getEmail());
+            }
+            if (deadCount > 1024 && deadCount * 4 > docCount) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docCount - deadCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Best {@code limit} patients for a typeahead query, best first. */
+    public List<PatientSearchResult> search(String query, int limit) {
+        List<String> terms = terms(query);
+        if (terms.isEmpty()) return List.of();
+
+        lock.readLock().lock();
+        try {
+            TopHits top = new TopHits(limit);
+            boolean[] phoneLike = new boolean[terms.size()];
+            for (int t = 0; t < phoneLike.length; t++) {
+                phoneLike[t] = isPhoneLike(terms.get(t));
+            }
+            int[] candidates = candidates(terms);
+            for (int i = 0; i < candidates.length; i++) {
+                int doc = candidates[i];
+                int score = 0;
+                for (int t = 0; t < phoneLike.length; t++) {
+                    int s = scoreTerm(doc, terms.get(t), phoneLike[t]);
+                    if (s == 0) {
+                        score = 0;
+                        break;
+                    }
+                    score += s;
+                }
+                if (score > 0) top.offer(doc, score);
+            }
+            if (top.size() == 0 && terms.size() == 1 && terms.get(0).length() >= MIN_FUZZY_LENGTH) {
+                fuzzy(terms.get(0), top);
+            }
+            List<PatientSearchResult> out = new ArrayList<>(top.size());
+            for (int doc : top.docsBestFirst()) {
+                out.add(new PatientSearchResult(ids[doc], names[doc], phones[doc], emails[doc]));
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---- query side --------------------------------------------------------------
+
+    private static List<String> terms(String query) {
+        if (query == null) return List.of();
+        List<String> out = new ArrayList<>();
+        for (String t : query.trim().toLowerCase(Locale.ROOT).split("\\s+")) {
+            // phones are indexed as bare digits
+            if (isPhoneLike(t)) t = digitsOnly(t);
+            if (t != null && t.length() >= MIN_TERM_LENGTH) out.add(t);
+        }
+        return out;
+    }
+
+    /**
+     * Documents holding every gram of every term, newest first, at most
+     * {@value #MAX_CANDIDATES}. A leapfrog join walking downwards: whenever a list lacks the
+     * current doc, its next lower doc becomes the candidate (galloping search), so the cost
+     * follows the number of matches rather than the list sizes, and a broad query stops
+     * as soon as the cap is reached.
+     */
+    private int[] candidates(List<String> terms) {
+        List<Postings> lists = new ArrayList<>();
+        List<Postings> rarestPerTerm = new ArrayList<>();
+        for (String term : terms) {
+            Postings rarest = null;
+            for (long gram : queryGrams(term)) {
+                Postings p = postings.get(gram);
+                if (p == null) return new int[0]; // some gram never occurs: no exact match
+                lists.add(p);
+                if (rarest == null || p.size < rarest.size) rarest = p;
+            }
+            rarestPerTerm.add(rarest);
+        }
+        // grams of one word mostly agree with each other, so right after the rarest list
+        // check the other words: they reject a candidate soonest
+        Comparator<Postings> bySize = Comparator.comparingInt(p -> p.size);
+        rarestPerTerm.sort(bySize);
+        lists.removeAll(rarestPerTerm);
+        lists.sort(bySize);
+        lists.addAll(0, rarestPerTerm);
+        int[] hi = new int[lists.size()]; // per list: everything at or above is past the current doc
+        for (int k = 0; k < hi.length; k++) {
+            hi[k] = lists.get(k).size;
+        }
+        int[] out = new int[Math.min(lists.get(0).size, MAX_CANDIDATES)];
+        int n = 0;
+        int doc = Integer.MAX_VALUE;
+        int agreed = 0;
+        for (int k = 0; n < out.length; k = (k + 1) % hi.length) {
+            Postings p = lists.get(k);
+            int at = seekDown(p, hi[k], doc);
+            if (at >= 0) {
+                hi[k] = at + 1;
+                agreed++;
+            } else {
+                // not in this list: its next lower doc becomes the candidate
+                int below = -at - 1;
+                if (below == 0) break;
+                hi[k] = below;
+                doc = p.docs[below - 1];
+                agreed = 1;
+            }
+            if (agreed == hi.length) {
+                if (!dead.get(doc)) out[n++] = doc;
+                if (doc == 0) break;
+                doc--;
+                agreed = 0;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static long[] queryGrams(String term) {
+        if (term.length() < 3) {
+            return new long[]{gram(TOKEN_START, term.charAt(0), term.charAt(1))};
+        }
+        long[] out = new long[term.length() - 2];
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            out[i] = gram(term.charAt(i), term.charAt(i + 1), term.charAt(i + 2));
+        }
+        return out;
+    }
+
+    // Arrays.binarySearch result for doc within docs[0, hi), galloping down from hi
+    private static int seekDown(Postings p, int hi, int doc) {
+        if (hi == 0) return -1;
+        int lo = hi - 1;
+        int step = 1;
+        while (lo > 0 && p.docs[lo] > doc) {
+            hi = lo;
+            lo = Math.max(0, lo - step);
+            step <<= 1;
+        }
+        return Arrays.binarySearch(p.docs, lo, hi, doc);
+    }
+
+    /**
+     * Best match of one term in one document, 0 if none. Name beats phone beats email;
+     * start of field beats start of a word beats anywhere inside.
+     */
+    private int scoreTerm(int doc, String term, boolean phoneLike) {
+        int best = match(names[doc], term, 100, 80, 60);
+        if (best == 100) return best;
+        if (phoneLike) {
+            best = Math.max(best, match(digitsOnly(phones[doc]), term, 70, 70, 50));
+        }
+        return Math.max(best, match(emails[doc], term, 65, 55, 40));
+    }
+
+    private static int match(String field, String term, int atStart, int atWord, int inside) {
+        if (field == null || field.length() < term.length()) return 0;
+        if (matchesAt(field, 0, term)) return atStart;
+        int best = 0;
+        for (int i = 1; i + term.length() <= field.length(); i++) {
+            if (matchesAt(field, i, term)) {
+                if (!Character.isLetterOrDigit(field.charAt(i - 1))) return atWord;
+                if (term.length() >= 3) best = inside;
+            }
+        }
+        return best;
+    }
+
+    // term is already lower case; ASCII fast path instead of regionMatches(ignoreCase)
+    private static boolean matchesAt(String field, int from, String term) {
+        for (int k = 0; k < term.length(); k++) {
+            char c = field.charAt(from + k);
+            if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            else if (c >= 128) c = Character.toLowerCase(c);
+            if (c != term.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Typo tolerance: documents holding at least half of the term's trigrams ("khushl"
+     * shares khu, hus with "khushal"). Such a document must appear in one of the
+     * {@code G - needed + 1} rarest lists, so only those are walked (newest first, capped)
+     * and each candidate is counted by binary search in the rest.
+     */
+    private void fuzzy(String term, TopHits top) {
+        long[] grams = queryGrams(term);
+        int needed = Math.max(2, (grams.length + 1) / 2);
+        if (grams.length < needed) return;
+        Postings[] lists = new Postings[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings.getOrDefault(grams[i], Postings.NONE);
+        }
+        Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+
+        int budget = MAX_CANDIDATES;
+        for (int seed = 0; seed <= grams.length - needed && budget > 0; seed++) {
+            Postings p = lists[seed];
+            for (int i = p.size - 1; i >= 0 && budget > 0; i--, budget--) {
+                int doc = p.docs[i];
+                if (dead.get(doc) || top.contains(doc)) continue;
+                int count = 0;
+                for (Postings other : lists) {
+                    if (Arrays.binarySearch(other.docs, 0, other.size, doc) >= 0) count++;
+                }
+                if (count >= needed) top.offer(doc, 10 + 20 * count / grams.length);
+            }
+        }
+    }
+
+    // ---- index side --------------------------------------------------------------
+
+    private void add(Long id, String name, String phone, String email) {
+        int doc = docCount++;
+        if (doc == ids.length) {
+            int cap = ids.length * 2;
+            ids = Arrays.copyOf(ids, cap);
+            names = Arrays.copyOf(names, cap);
+            phones = Arrays.copyOf(phones, cap);
+            emails = Arrays.copyOf(emails, cap);
+        }
+        ids[doc] = id;
+        names[doc] = name;
+        phones[doc] = phone;
+        emails[doc] = email;
+        docOfPatient.put(id, doc);
+
+        GramSet grams = new GramSet();
+        addFieldGrams(grams, name);
+        addFieldGrams(grams, email);
+        addFieldGrams(grams, digitsOnly(phone));
+        for (long g : grams.sortedUnique()) {
+            postings.computeIfAbsent(g, k -> new Postings()).add(doc);
+        }
+    }
+
+    private void kill(long id) {
+        int doc = docOfPatient.remove(id);
+        if (doc >= 0 && !dead.get(doc)) {
+            dead.set(doc);
+            deadCount++;
+        }
+    }
+
+    private static void addFieldGrams(GramSet grams, String field) {
+        if (field == null || field.isEmpty()) return;
+        String s = field.toLowerCase(Locale.ROOT);
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            grams.add(gram(s.charAt(i), s.charAt(i + 1), s.charAt(i + 2)));
+        }
+        for (int i = 0; i + 2 <= s.length(); i++) {
+            boolean wordStart = i == 0 || !Character.isLetterOrDigit(s.charAt(i - 1));
+            if (wordStart && Character.isLetterOrDigit(s.charAt(i))) {
+                grams.add(gram(TOKEN_START, s.charAt(i), s.charAt(i + 1)));
+            }
+        }
+    }
+
+    private void compact() {
+        long started = System.nanoTime();
+        long[] oldIds = ids;
+        String[] oldNames = names, oldPhones = phones, oldEmails = emails;
+        int oldCount = docCount;
+        BitSet oldDead = (BitSet) dead.clone();
+        clear();
+        for (int doc = 0; doc < oldCount; doc++) {
+            if (!oldDead.get(doc)) add(oldIds[doc], oldNames[doc], oldPhones[doc], oldEmails[doc]);
+        }
+        log.info("Patient search index compacted in {} ms ({} live of {})",
+                (System.nanoTime() - started) / 1_000_000, docCount, oldCount);
+    }
+
+    private void clear() {
+        ids = new long[1024];
+        names = new String[1024];
+        phones = new String[1024];
+        emails = new String[1024];
+        docCount = 0;
+        dead.clear();
+        deadCount = 0;
+        docOfPatient.clear();
+        postings.clear();
+    }
+
+    // packed chars times an odd constant (still one-to-one) so Long.hashCode spreads them
+    private static long gram(char a, char b, char c) {
+        return (((long) a << 32) | ((long) b << 16) | c) * 0x9E3779B97F4A7C15L;
+    }
+
+    private static boolean isPhoneLike(String term) {
+        boolean digit = false;
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (Character.isDigit(c)) digit = true;
+            else if ("+-().".indexOf(c) < 0) return false;
+        }
+        return digit;
+    }
+
+    // "+91 98765-43210" -> "919876543210"; null if there are no digits
+    private static String digitsOnly(String s) {
+        if (s == null) return null;
+        int digits = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.isDigit(s.charAt(i))) digits++;
+        }
+        if (digits == 0) return null;
+        if (digits == s.length()) return s;
+        StringBuilder sb = new StringBuilder(digits);
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.isDigit(s.charAt(i))) sb.append(s.charAt(i));
+        }
+        return sb.toString();
+    }
+
+    // ---- small primitive collections ---------------------------------------------
+
+    private static final class Postings {
+        static final Postings NONE = new Postings();
+
+        int[] docs = new int[4];
+        int size;
+
+        void add(int doc) {
+            if (size == docs.length) docs = Arrays.copyOf(docs, size * 2);
+            docs[size++] = doc;
+        }
+    }
+
+    private static final class GramSet {
+        long[] grams = new long[64];
+        int size;
+
+        void add(long g) {
+            if (size == grams.length) grams = Arrays.copyOf(grams, size * 2);
+            grams[size++] = g;
+        }
+
+        long[] sortedUnique() {
+            Arrays.sort(grams, 0, size);
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if (n == 0 || grams[n - 1] != grams[i]) grams[n++] = grams[i];
+            }
+            return Arrays.copyOf(grams, n);
+        }
+    }
+
+    // Bounded min-heap on (score, shorter name, lower id)
+    private final class TopHits {
+        private final int limit;
+        private final PriorityQueue<int[]> heap;  // {doc, score}
+        private final Set<Integer> docs = new HashSet<>();
+
+        TopHits(int limit) {
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(limit + 1, this::compare);
+        }
+
+        // < 0 when a ranks below b
+        private int compare(int[] a, int[] b) {
+            if (a[1] != b[1]) return Integer.compare(a[1], b[1]);
+            int la = names[a[0]] == null ? Integer.MAX_VALUE : names[a[0]].length();
+            int lb = names[b[0]] == null ? Integer.MAX_VALUE : names[b[0]].length();
+            if (la != lb) return Integer.compare(lb, la);
+            return Long.compare(ids[b[0]], ids[a[0]]);
+        }
+
+        void offer(int doc, int score) {
+            int[] hit = {doc, score};
+            if (heap.size() < limit) {
+                heap.add(hit);
+                docs.add(doc);
+            } else if (compare(hit, heap.peek()) > 0) {
+                docs.remove(heap.poll()[0]);
+                heap.add(hit);
+                docs.add(doc);
+            }
+        }
+
+        boolean contains(int doc) {
+            return docs.contains(doc);
+        }
+
+        int size() {
+            return heap.size();
+        }
+
+        List<Integer> docsBestFirst() {
+            List<int[]> hits = new ArrayList<>(heap);
+            hits.sort((a, b) -> compare(b, a));
+            List<Integer> out = new ArrayList<>(hits.size());
+            for (int[] h : hits) out.add(h[0]);
+            return out;
+        }
+    }
+
+    // Open-addressing long -> int map (patient id -> doc number); -1 = absent
+    private static final class LongIntMap {
+        private long[] keys = new long[1024];
+        private int[] values = new int[1024];
+        private boolean[] used = new boolean[1024];
+        private int size;
+
+        void put(long key, int value) {
+            if ((size + 1) * 2 > keys.length) resize();
+            int i = slot(key);
+            while (used[i] && keys[i] != key) i = (i + 1) & (keys.length - 1);
+            if (!used[i]) {
+                used[i] = true;
+                keys[i] = key;
+                size++;
+            }
+            values[i] = value;
+        }
+
+        int remove(long key) {
+            int i = slot(key);
+            while (used[i]) {
+                if (keys[i] == key) {
+                    int value = values[i];
+                    used[i] = false;
+                    size--;
+                    // re-insert the rest of the probe run
+                    int j = (i + 1) & (keys.length - 1);
+                    while (used[j]) {
+                        used[j] = false;
+                        size--;
+                        put(keys[j], values[j]);
+                        j = (j + 1) & (keys.length - 1);
+                    }
+                    return value;
+                }
+                i = (i + 1) & (keys.length - 1);
+            }
+            return -1;
+        }
+
+        void clear() {
+            keys = new long[1024];
+            values = new int[1024];
+            used = new boolean[1024];
+            size = 0;
+        }
+
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32) & (keys.length - 1);
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
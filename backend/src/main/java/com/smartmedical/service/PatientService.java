@@ -1,5 +1,7 @@
 package com.smartmedical.service;
 
+import com.smartmedical.dto.PatientCacheStats;
+import com.smartmedical.dto.PatientSearchResult;
 import com.smartmedical.model.Patient;
 import java.util.List;
 import java.util.Optional;
@@ -9,4 +11,6 @@ public interface PatientService {
 	List<Patient> getAllPatients();
 	Optional<Patient> getPatientById(Long id);
 	void deletePatient(Long id);
+	List<PatientSearchResult> searchPatients(String query, int limit);
+	PatientCacheStats getCacheStats();
 }
\ No newline at end of file
@@ -1,10 +1,20 @@
 package com.smartmedical.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.smartmedical.config.PatientCacheConfig;
+import com.smartmedical.config.ReplicaRead;
+import com.smartmedical.dto.PatientCacheStats;
+import com.smartmedical.dto.PatientSearchResult;
+import com.smartmedical.event.PatientChangeEvent;
 import com.smartmedical.model.Patient;
 import com.smartmedical.repository.PatientRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import javax.cache.CacheManager;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,23 +24,75 @@ public class PatientServiceImpl implements PatientService{
     @Autowired
     private PatientRepository patientRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PatientSearchIndex searchIndex;
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private CacheManager patientCacheManager;
+
+    @Value("${patients.cache.max-size:100000}")
+    private long cacheMaxSize;
+
+    @Value("${patients.cache.ttl-seconds:600}")
+    private long cacheTtlSeconds;
+
     // Add new patient
     public Patient savePatient(Patient patient) {
-        return patientRepository.save(patient);
+        // findById instead of existsById: answered from the patient cache, and it warms the merge below
+        boolean created = patient.getId() == null || patientRepository.findById(patient.getId()).isEmpty();
+        Patient saved = patientRepository.save(patient);
+        eventPublisher.publishEvent(new PatientChangeEvent(
+                created ? PatientChangeEvent.ChangeType.CREATED : PatientChangeEvent.ChangeType.UPDATED, saved));
+        // appointment rows carry the patient name, so their tag moves too (it includes this version)
+        dataVersions.patientsChanged();
+        return saved;
     }
 
-    // Get all patients
+    // Get all patients (read replica when configured)
+    @ReplicaRead
     public List<Patient> getAllPatients() {
         return patientRepository.findAll();
     }
 
-    // Get patient by ID
+    // Get patient by ID - primary (edit forms save it back), mostly answered by the patient cache anyway
     public Optional<Patient> getPatientById(Long id) {
         return patientRepository.findById(id);
     }
 
     // Delete patient by ID
     public void deletePatient(Long id) {
-        patientRepository.deleteById(id);
+        patientRepository.findById(id).ifPresent(existing -> {
+            patientRepository.delete(existing);
+            eventPublisher.publishEvent(new PatientChangeEvent(PatientChangeEvent.ChangeType.DELETED, existing));
+            dataVersions.patientsChanged();
+        });
+    }
+
+    // Typeahead: answered from the in-memory index, no DB query per keystroke
+    public List<PatientSearchResult> searchPatients(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    // Hit/miss/eviction counters of the patient cache, for sizing it
+    @SuppressWarnings("unchecked")
+    public PatientCacheStats getCacheStats() {
+        Cache<Object, Object> cache = patientCacheManager.getCache(PatientCacheConfig.PATIENT_REGION)
+                .unwrap(Cache.class);
+        CacheStats stats = cache.stats();
+        PatientCacheStats out = new PatientCacheStats();
+        out.setMaxSize(cacheMaxSize);
+        out.setTtlSeconds(cacheTtlSeconds);
+        out.setSize(cache.estimatedSize());
+        out.setHits(stats.hitCount());
+        out.setMisses(stats.missCount());
+        out.setHitRate(stats.hitRate());
+        out.setEvictions(stats.evictionCount());
+        return out;
     }
-}
\ No newline at end of file
+}
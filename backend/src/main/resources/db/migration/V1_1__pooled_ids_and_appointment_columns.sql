@@ -0,0 +1,19 @@
+-- What the entities gained while ddl-auto=update still managed the schema, before the doctor table.
+
+-- pooled TABLE ids of Patient, Appointment and Doctor (one row per entity, added on first use);
+-- IdGeneratorAligner moves each row past the AUTO_INCREMENT ids already handed out
+create table id_generator (
+    entity_name varchar(255) not null,
+    next_val bigint,
+    primary key (entity_name)
+);
+
+-- slot length; null on older rows means the default
+alter table appointments add column duration_minutes integer;
+
+-- last change, for the warm start replay of the appointment snapshot
+alter table appointments add column updated_at datetime(6);
+create index idx_appointments_updated_at on appointments (updated_at);
+
+-- optimistic locking
+alter table appointments add column version bigint default 0 not null;
@@ -0,0 +1,27 @@
+-- Doctors stored once; appointments point at them. Existing rows are linked by the Java migration
+-- 1.4 (DoctorNameMigration); doctor_name stays, unused, until no older instance writes it.
+-- Also the daily rollup, keyed by doctor_id like the appointments it counts.
+
+create table doctor (
+    id integer not null,
+    name varchar(255) not null,
+    name_key varchar(255) not null,
+    primary key (id),
+    constraint uk_doctor_name_key unique (name_key)
+);
+
+alter table appointments add column doctor_id integer;
+alter table appointments add constraint fk_appointments_doctor foreign key (doctor_id) references doctor (id);
+
+-- a doctor's diary
+create index idx_appointments_doctor_time on appointments (doctor_id, appointment_time);
+
+-- Appointments per (day, doctor id, status) for the dashboard ranges, 0 for no doctor; reads join doctor for the
+-- name. An empty table is backfilled on startup.
+create table appointment_daily_rollup (
+    rollup_day date not null,
+    doctor_id integer not null,
+    status varchar(255) not null,
+    appointment_count bigint not null,
+    primary key (rollup_day, doctor_id, status)
+);
@@ -0,0 +1,25 @@
+-- Schema of the first release, as ddl-auto=update created it from the entities of the time:
+-- AUTO_INCREMENT ids, the doctor as free text. Databases built that way are baselined at this
+-- version and get every migration after it.
+
+create table patient (
+    id bigint not null auto_increment,
+    name varchar(255),
+    age integer not null,
+    email varchar(255),
+    phone varchar(255),
+    medical_history varchar(255),
+    primary key (id)
+);
+
+create table appointments (
+    id bigint not null auto_increment,
+    patient_id bigint,
+    doctor_name varchar(255),
+    appointment_time datetime(6),
+    reason varchar(1000),
+    status varchar(255),
+    created_at datetime(6),
+    primary key (id),
+    constraint fk_appointments_patient foreign key (patient_id) references patient (id)
+);
@@ -0,0 +1,11 @@
+-- Indexes for the AppointmentRepository queries; each one is named in QueryPlanCheck (benchmarks),
+-- which fails when a query stops using the index it is listed with.
+
+-- a patient's appointments, newest first (findSummariesByPatientId)
+create index idx_appointments_patient_time on appointments (patient_id, appointment_time);
+
+-- status lists and ranges, the overdue sweep, counts per status
+create index idx_appointments_status_time on appointments (status, appointment_time);
+
+-- date ranges and cursor pages without a filter, upcoming, first/last appointment
+create index idx_appointments_time on appointments (appointment_time, id);
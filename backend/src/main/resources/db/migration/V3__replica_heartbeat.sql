@@ -0,0 +1,7 @@
+-- Lag guard of the read replicas (ReplicaRouter): one row, the primary's last heartbeat.
+-- Older versions created it themselves when replicas were enabled, hence "if not exists".
+create table if not exists replica_heartbeat (
+    id integer not null,
+    beat_at bigint not null,
+    primary key (id)
+);
@@ -0,0 +1,41 @@
+-- Cold tier (AppointmentArchive): COMPLETED/CANCELLED appointments older than archive.horizon-days,
+-- moved here in batches. Same columns as appointments plus the time of the move; rows are never updated.
+-- Indexes for the AppointmentArchiveRepository queries, named in QueryPlanCheck like those of V2.
+
+create table appointments_archive (
+    id bigint not null,
+    patient_id bigint,
+    doctor_id integer,
+    appointment_time datetime(6),
+    duration_minutes integer,
+    reason varchar(1000),
+    status varchar(255),
+    created_at datetime(6),
+    updated_at datetime(6),
+    version bigint default 0 not null,
+    archived_at datetime(6) not null,
+    primary key (id),
+    constraint fk_appointments_archive_patient foreign key (patient_id) references patient (id),
+    constraint fk_appointments_archive_doctor foreign key (doctor_id) references doctor (id)
+);
+
+-- a patient's history (findSummariesByPatientId)
+create index idx_appointments_archive_patient_time on appointments_archive (patient_id, appointment_time);
+
+-- date ranges, status ranges (two statuses only), export, first/last archived appointment
+create index idx_appointments_archive_time on appointments_archive (appointment_time, id);
+
+-- one doctor's range (findSummariesByStatusAndDoctorBetween)
+create index idx_appointments_archive_doctor_time on appointments_archive (doctor_id, appointment_time);
+
+-- what the archive holds per (day, doctor id, status), 0 for no doctor; written in the transaction of each
+-- archive batch, so the dashboard adds the archive to its totals without reading it. Keyed by doctor_id like the
+-- rows it counts, so one statement adds it to the live table's counts (AppointmentArchive.countsWithArchive) and
+-- a renamed doctor keeps their archived rows
+create table appointment_archive_rollup (
+    rollup_day date not null,
+    doctor_id integer not null,
+    status varchar(255) not null,
+    appointment_count bigint not null,
+    primary key (rollup_day, doctor_id, status)
+);
@@ -0,0 +1,230 @@
+package com.smartmedical.config;
+
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import com.smartmedical.service.AppointmentService;
+import com.smartmedical.service.PatientService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Admission control through the real HTTP stack, with the {@code lists} bulkhead cut down
+ * to one permit and one queue slot and the permit held by the test: a list request waits
+ * in the queue and goes through once the permit comes back, one more is turned away at
+ * once with 503 and Retry-After, a queued one that outwaits the timeout gets the same, and
+ * {@code bulkhead.rejected} / {@code bulkhead.queue.wait} count each case; {@code /paged}
+ * and {@code GET /api/audit} share it, and {@code /paged} refuses unbounded sizes. Reads by
+ * id, writes, the in-memory dashboard and the other bulkheads, bulk changes included, are
+ * not held up meanwhile. The adaptive limit is checked on a limiter of its own.
+ * {@code BulkheadCheck} in the benchmarks runs the burst with a slow database.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "bulkheads.lists.adaptive=false",
+        "bulkheads.lists.limit=1",
+        "bulkheads.lists.max-queue=1",
+        "bulkheads.lists.queue-timeout-ms=1000"})
+@ActiveProfiles("test")
+@DirtiesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BulkheadTest {
+
+    @Autowired private AdmissionControl admissionControl;
+    @Autowired private MeterRegistry registry;
+    @Autowired private AppointmentService appointmentService;
+    @Autowired private PatientService patientService;
+    @LocalServerPort private int port;
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private BulkheadLimiter lists;
+    private long appointmentId;
+
+    @BeforeAll
+    void seed() {
+        lists = admissionControl.limiter("lists");
+        assertNotNull(lists, "no handler behind the lists bulkhead");
+        Patient patient = patientService.savePatient(new Patient("Bulkhead Patient", 52, "bulk@example.com", "9000000005", ""));
+        appointmentId = appointmentService.createAppointment(new Appointment(patient, "Dr Bulkhead",
+                LocalDate.now().plusDays(3).atTime(10, 0), "Check-up", "SCHEDULED")).getId();
+    }
+
+    @Test
+    void queuedRequestGoesThroughOnceThePermitIsBack() throws Exception {
+        long queuedBefore = queueWait().count();
+        lists.acquire();
+        CompletableFuture<HttpResponse<String>> queued;
+        try {
+            queued = sendAsync("/api/appointments/upcoming");
+            awaitQueued(1);
+            assertFalse(queued.isDone(), "went past a held permit");
+        } finally {
+            lists.release(1_000_000);
+        }
+        assertEquals(200, queued.get().statusCode());
+        assertEquals(queuedBefore + 1, queueWait().count());
+    }
+
+    @Test
+    void fullQueueIsTurnedAwayAtOnce() throws Exception {
+        double fullBefore = rejected("queue_full");
+        lists.acquire();
+        CompletableFuture<HttpResponse<String>> queued;
+        try {
+            queued = sendAsync("/api/appointments/upcoming");
+            awaitQueued(1);
+            HttpResponse<String> turnedAway = get("/api/appointments/filter?status=SCHEDULED");
+            assertRejected(turnedAway);
+            assertEquals(fullBefore + 1, rejected("queue_full"));
+        } finally {
+            lists.release(1_000_000);
+        }
+        assertEquals(200, queued.get().statusCode());
+    }
+
+    @Test
+    void queueTimeoutIsTurnedAway() throws Exception {
+        double timeoutBefore = rejected("queue_timeout");
+        lists.acquire();
+        try {
+            long start = System.nanoTime();
+            HttpResponse<String> response = get("/api/appointments/upcoming");
+            assertRejected(response);
+            assertTrue(System.nanoTime() - start >= 900_000_000L, "rejected before the queue timeout");
+            assertEquals(timeoutBefore + 1, rejected("queue_timeout"));
+        } finally {
+            lists.release(1_000_000);
+        }
+    }
+
+    @Test
+    void pagedAndAuditAreLists() throws Exception {
+        lists.acquire();
+        CompletableFuture<HttpResponse<String>> queued;
+        try {
+            queued = sendAsync("/api/appointments/upcoming");
+            awaitQueued(1);
+            assertRejected(get("/api/appointments/paged?page=0&size=10"));
+            assertRejected(get("/api/audit?limit=10"));
+        } finally {
+            lists.release(1_000_000);
+        }
+        assertEquals(200, queued.get().statusCode());
+        assertNotNull(admissionControl.limiter("bulk"), "bulk changes have no bulkhead of their own");
+    }
+
+    @Test
+    void pagedSizeAndPageAreBounded() throws Exception {
+        for (String query : List.of("size=0", "size=501", "page=-1", "page=-1&size=10")) {
+            HttpResponse<String> response = get("/api/appointments/paged?" + query);
+            assertEquals(400, response.statusCode(), query);
+        }
+        assertEquals(200, get("/api/appointments/paged?page=0&size=500").statusCode());
+    }
+
+    @Test
+    void lightCallsAndOtherBulkheadsAreNotHeldUp() throws Exception {
+        lists.acquire();
+        try {
+            assertEquals(200, get("/api/appointments/" + appointmentId).statusCode());
+            assertEquals(200, get("/api/dashboard").statusCode());
+            assertEquals(200, get("/api/dashboard?from=" + LocalDate.now() + "&to=" + LocalDate.now().plusDays(7))
+                    .statusCode());
+            HttpResponse<String> created = http.send(HttpRequest.newBuilder(URI.create(base() + "/api/patients"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"Light Patient\",\"age\":40,"
+                            + "\"email\":\"light@example.com\",\"phone\":\"9800000000\"}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, created.statusCode(), created.body());
+            HttpResponse<String> bulk = http.send(HttpRequest.newBuilder(URI.create(base() + "/api/appointments/bulk/cancel"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"ids\":[" + appointmentId + "]}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, bulk.statusCode(), bulk.body());
+        } finally {
+            lists.release(1_000_000);
+        }
+    }
+
+    @Test
+    void adaptiveLimitFollowsLatency() {
+        BulkheadLimiter limiter = new BulkheadLimiter("adaptive",
+                new BulkheadLimiter.Settings(4, 1, 6, 0, 0, true), new SimpleMeterRegistry());
+
+        // one request at a time uses less than half the limit: nothing moves
+        for (int i = 0; i < 200; i++) {
+            limiter.acquire();
+            limiter.release(1_000_000);
+        }
+        assertEquals(4, limiter.getLimit());
+
+        // full use at steady latency grows it to the maximum
+        for (int i = 0; i < 100; i++) fillAndRelease(limiter, 1_000_000);
+        assertEquals(6, limiter.getLimit());
+
+        // 20 times slower: it shrinks to the minimum
+        for (int i = 0; i < 50; i++) fillAndRelease(limiter, 20_000_000);
+        assertEquals(1, limiter.getLimit());
+    }
+
+    private static void fillAndRelease(BulkheadLimiter limiter, long latencyNanos) {
+        int permits = limiter.getLimit();
+        for (int p = 0; p < permits; p++) limiter.acquire();
+        for (int p = 0; p < permits; p++) limiter.release(latencyNanos);
+    }
+
+    private static void assertRejected(HttpResponse<String> response) {
+        assertEquals(503, response.statusCode(), response.body());
+        String retryAfter = response.headers().firstValue("Retry-After").orElse(null);
+        assertNotNull(retryAfter, "503 without Retry-After");
+        assertTrue(Long.parseLong(retryAfter) >= 1, "Retry-After " + retryAfter);
+    }
+
+    private void awaitQueued(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (registry.get("bulkhead.queued").tag("bulkhead", "lists").gauge().value() < expected) {
+            assertTrue(System.nanoTime() < deadline, "request never queued");
+            Thread.sleep(5);
+        }
+    }
+
+    private double rejected(String reason) {
+        return registry.get("bulkhead.rejected").tags("bulkhead", "lists", "reason", reason).counter().count();
+    }
+
+    private Timer queueWait() {
+        return registry.get("bulkhead.queue.wait").tag("bulkhead", "lists").timer();
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create(base() + path)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private CompletableFuture<HttpResponse<String>> sendAsync(String path) {
+        return http.sendAsync(HttpRequest.newBuilder(URI.create(base() + path)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String base() {
+        return "http://localhost:" + port;
+    }
+}
@@ -0,0 +1,284 @@
+package com.smartmedical.config;
+
+import com.smartmedical.SmartMedicalApplication;
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.dto.CursorPage;
+import com.smartmedical.dto.DashboardConsistencyReport;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.service.AppointmentArchive;
+import com.smartmedical.service.AppointmentService;
+import com.smartmedical.service.DashboardAggregateStore;
+import com.smartmedical.service.DashboardRollupStore;
+import com.smartmedical.service.DoctorScheduleIndex;
+import com.smartmedical.service.Granularity;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Upgrade of a first-release database. Tables in the layout {@code ddl-auto=update} gave
+ * them then (AUTO_INCREMENT ids, free-text {@code doctor_name}, none of the later columns,
+ * no Flyway history) are filled with several spellings per doctor ("Dr X", "dr x",
+ * " Dr X ", "DR X") plus rows without a doctor; then the backend starts on it as it is.
+ * Flyway baselines at V1 and runs the rest, {@link DoctorNameMigration} included: one
+ * doctor per name ignoring case and spaces, named by the most used spelling, every named
+ * row linked, the same per-doctor counts on the dashboard, in the rollup and in the
+ * schedule index, the {@code (doctor_id, appointment_time)} index used for a doctor's
+ * range. Afterwards pages and bookings work by any spelling, the archive runs on the
+ * migrated ids, and a restart changes nothing. The steps share one upgraded database, so
+ * they run in order. {@code DoctorMigrationCheck} in the benchmarks times the upgrade at
+ * full size.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class DoctorMigrationTest {
+
+    private static final int DOCTORS = 12;
+    private static final int APPOINTMENTS = 4_000;
+    // inside the seeded history, which starts about APPOINTMENTS / DOCTORS / 32 days back
+    private static final int ARCHIVE_HORIZON_DAYS = 5;
+    private static final String[] FIRST = {"Asha", "Vikram", "Meena", "Rohit", "Farah", "Kiran", "Sunil", "Lata"};
+    private static final String[] LAST = {"Rao", "Menon", "Kapoor", "Sethi", "Pillai", "Ghosh", "Bhatt"};
+    // as Hibernate's schema update created them from the first release's entities
+    private static final String[] LEGACY_TABLES = {
+            "create table patient (id bigint not null auto_increment, name varchar(255), age integer not null, "
+                    + "email varchar(255), phone varchar(255), medical_history varchar(255), primary key (id))",
+            "create table appointments (id bigint not null auto_increment, patient_id bigint, "
+                    + "doctor_name varchar(255), appointment_time datetime(6), reason varchar(1000), "
+                    + "status varchar(255), created_at datetime(6), primary key (id))",
+            "alter table appointments add constraint FKdbgt40x24ctsjc6pr0fbx4bj0 foreign key (patient_id) "
+                    + "references patient (id)"};
+
+    private final String url = "jdbc:h2:mem:legacy_" + UUID.randomUUID().toString().replace("-", "")
+            + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    // rows per doctor key, and the spelling each key should end up with
+    private final Map<String, Long> perKey = new HashMap<>();
+    private final Map<String, String> majority = new HashMap<>();
+    private final LocalDate firstDay = LocalDate.now().minusDays(APPOINTMENTS / DOCTORS / 16 / 2 + 1);
+    private final LocalDate lastDay = firstDay.plusDays((long) (APPOINTMENTS - 1) / DOCTORS / 16);
+    private long withoutDoctor;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbc;
+    private Fingerprint migrated;
+
+    /** What a restart must leave as it is. */
+    private record Fingerprint(List<String> history, long doctors, long versions, long linked) {
+
+        static Fingerprint of(JdbcTemplate jdbc) {
+            return new Fingerprint(jdbc.queryForList("select concat(version, ' ', type) from flyway_schema_history"
+                            + " where success and version is not null order by installed_rank", String.class),
+                    jdbc.queryForObject("select count(*) from doctor", Long.class),
+                    jdbc.queryForObject("select coalesce(sum(version), 0) from appointments", Long.class),
+                    jdbc.queryForObject("select count(*) from appointments where doctor_id is not null", Long.class));
+        }
+    }
+
+    @BeforeAll
+    void upgrade() throws SQLException {
+        fillLegacy();
+        context = boot();
+        jdbc = context.getBean(JdbcTemplate.class);
+    }
+
+    @AfterAll
+    void close() {
+        if (context != null) context.close();
+    }
+
+    @Test
+    @Order(1)
+    void baselineThenEveryMigration() {
+        List<String> history = Fingerprint.of(jdbc).history();
+        assertEquals(List.of("1 BASELINE", "1.1 SQL", "1.3 SQL", "1.4 JDBC", "2 SQL"),
+                history.subList(0, 5), () -> "schema history " + history);
+        assertEquals(0, context.getBean(Flyway.class).info().pending().length);
+    }
+
+    @Test
+    @Order(2)
+    void oneDoctorPerNameUnderItsCommonSpelling() {
+        Map<String, String> stored = new HashMap<>();
+        jdbc.query("select name_key, name from doctor", rs -> {
+            stored.put(rs.getString(1), rs.getString(2));
+        });
+        assertEquals(majority, stored);
+        assertEquals(0, jdbc.queryForObject("select count(*) from appointments where doctor_id is null "
+                + "and doctor_name is not null and trim(doctor_name) <> ''", Long.class), "named rows left unlinked");
+    }
+
+    @Test
+    @Order(3)
+    void perDoctorCountsMatchEverywhere() {
+        Map<String, Long> expected = new HashMap<>();
+        perKey.forEach((key, n) -> expected.put(majority.get(key), n));
+        expected.put("Unknown", withoutDoctor);
+        assertEquals(expected, context.getBean(DashboardAggregateStore.class).snapshot().getAppointmentsPerDoctor());
+        assertEquals(expected, context.getBean(DashboardRollupStore.class)
+                .rangeStats(firstDay, lastDay, Granularity.DAY).getAppointmentsPerDoctor());
+        List<String> indexed = context.getBean(DoctorScheduleIndex.class).doctorNames();
+        assertEquals(majority.size(), indexed.size());
+        assertTrue(majority.values().containsAll(indexed), () -> "schedule index doctors " + indexed);
+    }
+
+    @Test
+    @Order(4)
+    void doctorRangeUsesTheCompositeIndex() {
+        String plan = String.join(" ", jdbc.queryForList("explain select id from appointments where doctor_id = 1 "
+                + "and appointment_time >= current_timestamp order by appointment_time", String.class));
+        assertTrue(plan.toLowerCase(Locale.ROOT).contains("idx_appointments_doctor_time"), plan);
+    }
+
+    @Test
+    @Order(5)
+    void doctorPagesByAnotherSpelling() {
+        String key = majority.keySet().iterator().next();
+        String canonical = majority.get(key);
+        long rows = 0;
+        String cursor = null;
+        do {
+            CursorPage<AppointmentSummary> page = context.getBean(AppointmentService.class)
+                    .getAppointmentsPage(cursor, 500, null, " " + key.toUpperCase(Locale.ROOT) + " ");
+            for (AppointmentSummary a : page.getItems()) assertEquals(canonical, a.doctorName());
+            rows += page.getItems().size();
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(perKey.get(key), rows);
+    }
+
+    @Test
+    @Order(6)
+    void bookingsReuseDoctorsAndContinueIds() {
+        AppointmentService service = context.getBean(AppointmentService.class);
+        String key = majority.keySet().iterator().next();
+        long doctors = jdbc.queryForObject("select count(*) from doctor", Long.class);
+        Appointment known = service.createAppointment(new Appointment(null, key.toUpperCase(Locale.ROOT),
+                lastDay.plusDays(30).atTime(10, 0), "After migration", null));
+        assertEquals(majority.get(key), known.getDoctorName());
+        assertTrue(known.getId() > APPOINTMENTS, "new appointment id " + known.getId() + " not past the old ones");
+
+        Appointment fresh = service.createAppointment(new Appointment(null, "Dr Brand New",
+                lastDay.plusDays(30).atTime(10, 0), "New doctor", null));
+        Integer maxMigrated = jdbc.queryForObject("select max(id) from doctor where name <> 'Dr Brand New'", Integer.class);
+        assertEquals(doctors + 1, jdbc.queryForObject("select count(*) from doctor", Long.class));
+        assertNotNull(fresh.getDoctor());
+        assertTrue(fresh.getDoctor().getId() > maxMigrated, "new doctor id not past the migrated ones");
+    }
+
+    @Test
+    @Order(7)
+    void archiveKeepsEveryFigure() {
+        DashboardAggregateStore dashboard = context.getBean(DashboardAggregateStore.class);
+        DashboardRollupStore rollup = context.getBean(DashboardRollupStore.class);
+        LocalDate to = lastDay.plusDays(30);
+        Map<String, Long> perDoctor = dashboard.snapshot().getAppointmentsPerDoctor();
+        Map<String, Long> rolledUp = rollup.rangeStats(firstDay, to, Granularity.DAY).getAppointmentsPerDoctor();
+
+        AppointmentArchive archive = context.getBean(AppointmentArchive.class);
+        archive.archiveOld();
+        long moved = archive.getStats().getLastRunRows();
+        assertTrue(moved > 0);
+        assertEquals(moved, jdbc.queryForObject("select count(*) from appointments_archive", Long.class));
+        assertEquals(moved, jdbc.queryForObject(
+                "select coalesce(sum(appointment_count), 0) from appointment_archive_rollup", Long.class));
+
+        DashboardConsistencyReport report = dashboard.checkConsistency(false);
+        assertTrue(report.isConsistent(), () -> "dashboard recount " + report.getDifferences());
+        assertEquals(perDoctor, dashboard.snapshot().getAppointmentsPerDoctor());
+        rollup.backfill(firstDay, to);
+        assertEquals(rolledUp, rollup.rangeStats(firstDay, to, Granularity.DAY).getAppointmentsPerDoctor());
+        migrated = Fingerprint.of(jdbc);
+    }
+
+    @Test
+    @Order(8)
+    void restartChangesNothing() {
+        context.close();
+        context = boot();
+        assertEquals(migrated, Fingerprint.of(context.getBean(JdbcTemplate.class)));
+    }
+
+    private ConfigurableApplicationContext boot() {
+        return new SpringApplicationBuilder(SmartMedicalApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--spring.datasource.url=" + url, "--archive.horizon-days=" + ARCHIVE_HORIZON_DAYS);
+    }
+
+    private void fillLegacy() throws SQLException {
+        Map<String, Map<String, Long>> spellings = new HashMap<>();
+        Random rnd = new Random(23);
+        try (Connection c = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement st = c.createStatement()) {
+                for (String ddl : LEGACY_TABLES) st.execute(ddl);
+                st.execute("insert into patient (name, age, email) values ('Legacy Patient', 50, 'legacy@example.com')");
+            }
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement("insert into appointments (patient_id, doctor_name, "
+                    + "appointment_time, reason, status, created_at) values (1, ?, ?, 'Legacy', ?, ?)")) {
+                for (int i = 0; i < APPOINTMENTS; i++) {
+                    int d = i % DOCTORS;
+                    String name = "Dr " + FIRST[d % FIRST.length] + " " + LAST[d / FIRST.length % LAST.length];
+                    int roll = rnd.nextInt(100);
+                    String spelling;
+                    if (roll < 2) {
+                        spelling = roll == 0 ? null : "   ";
+                    } else if (d == 1) {
+                        // lower case is the common spelling of this doctor, so it names the row
+                        spelling = roll < 70 ? name.toLowerCase(Locale.ROOT) : name;
+                    } else {
+                        spelling = roll < 70 ? name : roll < 80 ? name.toLowerCase(Locale.ROOT)
+                                : roll < 90 ? " " + name + " " : name.toUpperCase(Locale.ROOT);
+                    }
+                    if (spelling == null || spelling.isBlank()) {
+                        withoutDoctor++;
+                    } else {
+                        String key = spelling.trim().toLowerCase(Locale.ROOT);
+                        perKey.merge(key, 1L, Long::sum);
+                        spellings.computeIfAbsent(key, k -> new HashMap<>()).merge(spelling.trim(), 1L, Long::sum);
+                    }
+                    // slot i / DOCTORS of doctor d: never two rows of one doctor at the same time
+                    long slot = i / DOCTORS;
+                    LocalDateTime time = firstDay.plusDays(slot / 16).atTime(9, 0).plusMinutes(30 * (slot % 16));
+                    ps.setString(1, spelling);
+                    ps.setTimestamp(2, Timestamp.valueOf(time));
+                    ps.setString(3, time.isBefore(LocalDateTime.now()) ? "COMPLETED" : "SCHEDULED");
+                    ps.setTimestamp(4, Timestamp.valueOf(time.minusDays(7)));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            c.commit();
+        }
+        spellings.forEach((key, counts) -> majority.put(key, counts.entrySet().stream()
+                .max(Map.Entry.comparingByValue()).orElseThrow().getKey()));
+    }
+}
@@ -0,0 +1,426 @@
+package com.smartmedical.config;
+
+import com.smartmedical.dto.ImportReport;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import com.smartmedical.repository.AppointmentRepository;
+import com.smartmedical.service.AppointmentService;
+import com.smartmedical.service.ImportService;
+import com.smartmedical.service.PatientService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.interceptor.DefaultTransactionAttribute;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Read/write routing with two embedded H2 databases: the primary, and a replica served
+ * over H2's TCP server (so it can be taken down) that a background thread keeps in sync
+ * by copying every table from the primary, heartbeat first. {@code @ReplicaRead} lists go
+ * to the replica, by-id reads and writes to the primary; isolation levels are applied and
+ * reset; a thread reads its own write while the replica is behind, but a request is not
+ * held to an earlier request's write or ETag on the same Tomcat thread; a replica past
+ * {@code max-lag-ms} or down is skipped without errors. The steps pause and resume
+ * replication, so they run in order.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "datasource.replicas.enabled=true",
+        "datasource.replicas.max-lag-ms=" + ReplicaRoutingTest.MAX_LAG_MS,
+        "datasource.replicas.probe-interval-ms=" + ReplicaRoutingTest.PROBE_MS,
+        // every request on the same thread, to see that a write does not stick to it
+        "server.tomcat.threads.max=1"})
+@ActiveProfiles("test")
+@DirtiesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ReplicaRoutingTest {
+
+    static final long MAX_LAG_MS = 1500;
+    static final long PROBE_MS = 100;
+    private static final int PATIENTS = 50;
+    private static final int APPOINTMENTS = 500;
+
+    private static final String SETTINGS = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final String SUFFIX = UUID.randomUUID().toString().replace("-", "");
+    private static final String PRIMARY_URL = "jdbc:h2:mem:primary_" + SUFFIX + SETTINGS;
+    private static final String REPLICA_DB = "mem:replica_" + SUFFIX;
+
+    private static Server server;
+    private static Replicator replicator;
+
+    @Autowired private AppointmentService appointmentService;
+    @Autowired private PatientService patientService;
+    @Autowired private ImportService importService;
+    @Autowired private AppointmentRepository appointmentRepository;
+    @Autowired private PlatformTransactionManager transactions;
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private MeterRegistry registry;
+    @LocalServerPort private int port;
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    // reads from a thread that wrote nothing itself
+    private final ExecutorService reader = Executors.newSingleThreadExecutor();
+    private long[] patientIds;
+
+    @DynamicPropertySource
+    static void databases(DynamicPropertyRegistry properties) throws Exception {
+        int tcpPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            tcpPort = socket.getLocalPort();
+        }
+        // the replica database exists before the application connects (-ifExists)
+        replicator = new Replicator(PRIMARY_URL, "jdbc:h2:" + REPLICA_DB + SETTINGS);
+        server = Server.createTcpServer("-tcpPort", String.valueOf(tcpPort), "-ifExists").start();
+        properties.add("spring.datasource.url", () -> PRIMARY_URL);
+        properties.add("datasource.replicas.urls[0]", () -> "jdbc:h2:tcp://localhost:" + tcpPort + "/" + REPLICA_DB);
+    }
+
+    @BeforeAll
+    void seed() throws Exception {
+        StringBuilder patients = new StringBuilder();
+        for (int i = 0; i < PATIENTS; i++) {
+            patients.append("{\"name\":\"Replica Patient ").append(i).append("\",\"age\":").append(20 + i)
+                    .append(",\"email\":\"replica").append(i).append("@example.com\"}\n");
+        }
+        assertEquals(PATIENTS, importService.importPatients(body(patients)).getImported());
+        patientIds = patientService.getAllPatients().stream().mapToLong(Patient::getId).sorted().toArray();
+
+        LocalDateTime start = LocalDate.now().minusDays(10).atTime(8, 0);
+        StringBuilder appointments = new StringBuilder();
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            int slot = i / 10;
+            appointments.append("{\"patient\":{\"id\":").append(patientIds[i % PATIENTS])
+                    .append("},\"doctorName\":\"Dr Replica ").append(i % 10).append("\",\"appointmentTime\":\"")
+                    .append(start.plusDays(slot / 8).plusHours(slot % 8).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                    .append("\",\"durationMinutes\":30}\n");
+        }
+        ImportReport report = importService.importAppointments(body(appointments));
+        assertEquals(APPOINTMENTS, report.getImported());
+
+        replicator.start();
+        Thread.sleep(MAX_LAG_MS);
+    }
+
+    @AfterAll
+    void stop() throws Exception {
+        reader.shutdown();
+        replicator.close();
+        server.stop();
+    }
+
+    @Test
+    @Order(1)
+    void listsInSyncReadTheReplica() throws Exception {
+        Routing before = Routing.of(registry);
+        int listed = onReader(() -> appointmentService.getAllAppointments().size());
+        onReader(() -> patientService.getAllPatients().size());
+        onReader(() -> appointmentService.getAppointmentById(1L));
+        Routing after = Routing.of(registry);
+        assertEquals(APPOINTMENTS, listed);
+        assertEquals(2, after.replica - before.replica, "lists read from the replica");
+    }
+
+    @Test
+    @Order(2)
+    void isolationLevelIsAppliedAndReset() throws Exception {
+        // read-only: a write would hold the reader thread to the primary for its own writes
+        TransactionTemplate repeatableRead = new TransactionTemplate(transactions);
+        repeatableRead.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        repeatableRead.setReadOnly(true);
+        TransactionTemplate defaultIsolation = new TransactionTemplate(transactions);
+        defaultIsolation.setReadOnly(true);
+        String isolation = "select isolation_level from information_schema.sessions where session_id = session_id()";
+        assertEquals("REPEATABLE READ", onReader(() -> repeatableRead.execute(
+                status -> jdbc.queryForObject(isolation, String.class))));
+        assertFalse("REPEATABLE READ".equals(onReader(() -> defaultIsolation.execute(
+                status -> jdbc.queryForObject(isolation, String.class)))), "isolation level not reset");
+    }
+
+    @Test
+    @Order(3)
+    void replicaTransactionKeepsItsRoutingAfterRequiresNew() throws Exception {
+        // a TransactionTemplate would copy the definition without its label
+        DefaultTransactionAttribute replicaRead = new DefaultTransactionAttribute();
+        replicaRead.setReadOnly(true);
+        replicaRead.setLabels(List.of(ReplicaRead.LABEL));
+        TransactionTemplate requiresNew = new TransactionTemplate(transactions);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        requiresNew.setReadOnly(true);
+        Routing before = Routing.of(registry);
+        onReader(() -> {
+            TransactionStatus outer = transactions.getTransaction(replicaRead);
+            try {
+                requiresNew.execute(inner -> jdbc.queryForObject("select count(*) from patient", Long.class));
+                return jdbc.queryForObject("select count(*) from appointments", Long.class);
+            } finally {
+                transactions.commit(outer);
+            }
+        });
+        assertEquals(1, Routing.of(registry).replica - before.replica);
+    }
+
+    @Test
+    @Order(4)
+    void ownWriteIsReadFromThePrimaryWhileTheReplicaIsBehind() throws Exception {
+        // replication paused: the replica is behind, but still within the lag limit
+        replicator.paused = true;
+        Thread.sleep(2 * PROBE_MS);
+        Routing before = Routing.of(registry);
+        Appointment created = appointmentService.createAppointment(appointment(LocalDateTime.now().plusYears(2)));
+        boolean ownWriteSeen = appointmentService.getAppointmentsByPatient(patientIds[0]).stream()
+                .anyMatch(a -> a.id().equals(created.getId()));
+        boolean otherThreadSeen = onReader(() -> appointmentService.getAppointmentsByPatient(patientIds[0]))
+                .stream().anyMatch(a -> a.id().equals(created.getId()));
+        Routing after = Routing.of(registry);
+        assertTrue(ownWriteSeen, "the writing thread did not read its own appointment");
+        assertTrue(after.readYourWrites > before.readYourWrites, "own-write read was not sent to the primary");
+        assertTrue(after.replica > before.replica && !otherThreadSeen,
+                "a thread without writes did not read the (behind) replica");
+    }
+
+    @Test
+    @Order(5)
+    void listAfterAWriteHasTheNewRowUnderTheNewTag() throws Exception {
+        Appointment created = appointmentService.createAppointment(
+                appointment(LocalDateTime.now().plusYears(2).plusHours(1)));
+        HttpResponse<String> list = get("/api/appointments");
+        assertEquals(200, list.statusCode());
+        assertTrue(list.body().matches("(?s).*\"id\":" + created.getId() + "\\D.*"), "new row missing");
+    }
+
+    @Test
+    @Order(6)
+    void laggingReplicaIsNotRead() throws Exception {
+        Thread.sleep(MAX_LAG_MS + 3 * PROBE_MS);
+        Routing before = Routing.of(registry);
+        int listed = onReader(() -> appointmentService.getAllAppointments().size());
+        Routing after = Routing.of(registry);
+        assertEquals(before.replica, after.replica, "a lagging replica was still read");
+        assertTrue(after.noReplica > before.noReplica);
+        assertEquals(appointmentRepository.count(), listed);
+    }
+
+    @Test
+    @Order(7)
+    void replicaIsReadAgainOnceCaughtUp() throws Exception {
+        replicator.paused = false;
+        Thread.sleep(3 * PROBE_MS + Replicator.INTERVAL_MS);
+        Routing before = Routing.of(registry);
+        int listed = onReader(() -> appointmentService.getAllAppointments().size());
+        assertTrue(Routing.of(registry).replica > before.replica);
+        assertEquals(appointmentRepository.count(), listed);
+    }
+
+    @Test
+    @Order(8)
+    void requestIsNotHeldToAnEarlierRequestsWrite() throws Exception {
+        replicator.paused = true;
+        Thread.sleep(2 * PROBE_MS);
+        HttpResponse<String> posted = http.send(HttpRequest.newBuilder(URI.create(base() + "/api/patients"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"Replica Test\",\"age\":40}")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, posted.statusCode());
+        // same (single) Tomcat thread as the write
+        Routing before = Routing.of(registry);
+        assertEquals(200, get("/api/appointments/patient/" + patientIds[1]).statusCode());
+        Routing after = Routing.of(registry);
+        assertTrue(after.replica > before.replica, "read after another request's write left the replica");
+        assertEquals(before.readYourWrites, after.readYourWrites);
+    }
+
+    @Test
+    @Order(9)
+    void notModifiedAnswerDoesNotHoldTheNextRequestToThePrimary() throws Exception {
+        // still paused, with a write of this instance the replica has not applied
+        String etag = get("/api/appointments").headers().firstValue("ETag").orElseThrow();
+        HttpResponse<String> cached = http.send(HttpRequest.newBuilder(URI.create(base() + "/api/appointments"))
+                .header("If-None-Match", etag).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, cached.statusCode());
+        Routing before = Routing.of(registry);
+        assertEquals(200, get("/api/appointments/patient/" + patientIds[2]).statusCode());
+        Routing after = Routing.of(registry);
+        assertTrue(after.replica > before.replica, "the 304's tag left the next request on the primary");
+        assertEquals(before.readYourWrites, after.readYourWrites);
+    }
+
+    @Test
+    @Order(10)
+    void replicaDownReadsFromThePrimary() throws Exception {
+        server.stop();
+        replicator.close();
+        Thread.sleep(3 * PROBE_MS);
+        Routing before = Routing.of(registry);
+        int listed = onReader(() -> appointmentService.getAllAppointments().size());
+        assertEquals(before.replica, Routing.of(registry).replica);
+        assertEquals(appointmentRepository.count(), listed);
+    }
+
+    private Appointment appointment(LocalDateTime time) {
+        return new Appointment(patientService.getPatientById(patientIds[0]).orElseThrow(), "Dr Replica",
+                time.withSecond(0).withNano(0), "Replica routing", "SCHEDULED");
+    }
+
+    private <T> T onReader(Callable<T> task) throws Exception {
+        return reader.submit(task).get();
+    }
+
+    private String base() {
+        return "http://localhost:" + port;
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return http.send(HttpRequest.newBuilder(URI.create(base() + path)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static ByteArrayInputStream body(StringBuilder ndjson) {
+        return new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** datasource.routing counters at one moment. */
+    private record Routing(double replica, double primary, double readYourWrites, double noReplica) {
+
+        static Routing of(MeterRegistry registry) {
+            return new Routing(count(registry, "replica-0", "read"), count(registry, "primary", "default"),
+                    count(registry, "primary", "read_your_writes"), count(registry, "primary", "no_replica"));
+        }
+
+        private static double count(MeterRegistry registry, String target, String reason) {
+            Counter counter = registry.find("datasource.routing").tags("target", target, "reason", reason).counter();
+            return counter == null ? 0 : counter.count();
+        }
+    }
+
+    /**
+     * Stand-in for replication: every {@link #INTERVAL_MS} replaces each replica table with
+     * the primary's rows (through H2 linked tables), heartbeat first so the beat the replica
+     * reports never claims rows it has not copied.
+     */
+    private static final class Replicator implements AutoCloseable {
+
+        static final long INTERVAL_MS = 50;
+
+        private final String primaryUrl;
+        private final Connection replica;
+        private final List<String> tables = new ArrayList<>();
+        private final Thread thread;
+        volatile boolean paused;
+        private volatile boolean running = true;
+
+        Replicator(String primaryUrl, String replicaUrl) throws SQLException {
+            this.primaryUrl = primaryUrl;
+            this.replica = DriverManager.getConnection(replicaUrl, "sa", "");
+            this.thread = new Thread(this::loop, "replicator");
+            this.thread.setDaemon(true);
+        }
+
+        // after the application created the primary's schema
+        void start() throws SQLException {
+            try (Connection primary = DriverManager.getConnection(primaryUrl, "sa", "");
+                 Statement s = primary.createStatement();
+                 ResultSet rs = s.executeQuery("select table_name from information_schema.tables"
+                         + " where table_schema = 'public' and table_type = 'BASE TABLE'"
+                         + " order by case when table_name = 'replica_heartbeat' then 0 else 1 end, table_name")) {
+                while (rs.next()) tables.add(rs.getString(1));
+            }
+            try (Statement s = replica.createStatement()) {
+                for (String table : tables) {
+                    s.execute("create linked table src_" + table + "('org.h2.Driver', '" + primaryUrl
+                            + "', 'sa', '', 'public', '" + table + "')");
+                    s.execute("create table " + table + " as (select * from src_" + table + ") with no data");
+                }
+            }
+            copy();
+            thread.start();
+        }
+
+        private void loop() {
+            while (running) {
+                try {
+                    if (!paused) copy();
+                    Thread.sleep(INTERVAL_MS);
+                } catch (InterruptedException ex) {
+                    return;
+                } catch (SQLException ex) {
+                    // the next round copies again
+                }
+            }
+        }
+
+        private synchronized void copy() throws SQLException {
+            replica.setAutoCommit(false);
+            try (Statement s = replica.createStatement()) {
+                for (String table : tables) {
+                    s.execute("delete from " + table);
+                    s.execute("insert into " + table + " select * from src_" + table);
+                }
+                replica.commit();
+            } catch (SQLException ex) {
+                replica.rollback();
+                throw ex;
+            }
+        }
+
+        // safe to call twice: the last step takes the replica down early
+        @Override
+        public void close() throws Exception {
+            running = false;
+            thread.interrupt();
+            thread.join();
+            synchronized (this) {
+                if (replica.isClosed()) return;
+                try (Statement s = replica.createStatement()) {
+                    s.execute("shutdown");
+                } catch (SQLException ignored) {
+                    // already down
+                }
+                replica.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.smartmedical.controller;
+
+import com.smartmedical.dto.ImportReport;
+import com.smartmedical.repository.AppointmentRepository;
+import com.smartmedical.repository.PatientRepository;
+import com.smartmedical.service.AppointmentService;
+import com.smartmedical.service.ImportService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SQL statements per appointment read, counted with Hibernate statistics. Every list
+ * endpoint answers with one projection query (plus a count for {@code /paged}, plus the
+ * cached patient check for {@code /patient/{id}}, plus one on the archive for the patient
+ * history and for ranges that reach before the archive horizon), however many distinct
+ * patients the rows reference. The second-level cache is emptied before each call, so an
+ * N+1 on patients shows up here rather than hiding behind cache hits.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@DirtiesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AppointmentQueryCountTest {
+
+    private static final int PATIENTS = 100;
+    private static final int APPOINTMENTS = 1_000;
+    private static final int DOCTORS = 10;
+    private static final String DOCTOR = "Dr Count 3";
+
+    private record Case(String name, long maxStatements, Supplier<?> call) {}
+
+    @Autowired private AppointmentController controller;
+    @Autowired private AppointmentService service;
+    @Autowired private AppointmentRepository repository;
+    @Autowired private PatientRepository patientRepository;
+    @Autowired private ImportService importService;
+    @Autowired private EntityManagerFactory emf;
+
+    private SessionFactory sessionFactory;
+    private Statistics stats;
+    private long firstPatientId;
+    private long firstAppointmentId;
+
+    @BeforeAll
+    void seed() throws IOException {
+        sessionFactory = emf.unwrap(SessionFactory.class);
+        stats = sessionFactory.getStatistics();
+        StringBuilder patients = new StringBuilder();
+        for (int i = 0; i < PATIENTS; i++) {
+            patients.append("{\"name\":\"Count Patient ").append(i).append("\",\"age\":").append(20 + i % 60)
+                    .append(",\"email\":\"count").append(i).append("@example.com\",\"phone\":\"")
+                    .append(7_000_000_000L + i).append("\"}\n");
+        }
+        imported(importService.importPatients(body(patients)), PATIENTS);
+        long[] patientIds = patientRepository.findAll(PageRequest.of(0, PATIENTS, Sort.by("id"))).stream()
+                .mapToLong(p -> p.getId()).toArray();
+        firstPatientId = patientIds[0];
+
+        // every row a different patient than its neighbours, half of them in the past
+        LocalDateTime start = LocalDate.now().minusDays(APPOINTMENTS / DOCTORS / 16).atTime(9, 0);
+        StringBuilder appointments = new StringBuilder();
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            int slot = i / DOCTORS;
+            LocalDateTime time = start.plusDays(slot / 8).plusMinutes(60L * (slot % 8));
+            appointments.append("{\"patient\":{\"id\":").append(patientIds[i % PATIENTS])
+                    .append("},\"doctorName\":\"Dr Count ").append(i % DOCTORS)
+                    .append("\",\"appointmentTime\":\"").append(time.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                    .append("\",\"durationMinutes\":30,\"status\":\"").append(i % 7 == 0 ? "CANCELLED" : "SCHEDULED")
+                    .append("\"}\n");
+        }
+        imported(importService.importAppointments(body(appointments)), APPOINTMENTS);
+        firstAppointmentId = repository.findSummaries(PageRequest.of(0, 1)).getContent().get(0).id();
+    }
+
+    @Test
+    void entityListsStillCostAStatementPerPatient() {
+        // the old list path, so a counter that misses the N+1 fails here first
+        assertTrue(statements(repository::findAll) > PATIENTS / 2);
+    }
+
+    @Test
+    void streamedListIsOneStatement() {
+        AtomicInteger streamed = new AtomicInteger();
+        assertEquals(1, statements(() -> {
+            service.streamAllAppointments(row -> streamed.incrementAndGet());
+            return null;
+        }));
+        assertEquals(APPOINTMENTS, streamed.get());
+    }
+
+    @TestFactory
+    Stream<DynamicTest> listEndpointsDoNotLoadPatientsOneByOne() {
+        LocalDateTime from = LocalDateTime.now().minusYears(1);
+        LocalDateTime to = from.plusYears(2);
+        return Stream.of(
+                new Case("GET /cursor", 1, () -> controller.getCursorPage(null, 500, null, null)),
+                new Case("GET /cursor?status&doctorName", 1,
+                        () -> controller.getCursorPage(null, 50, "SCHEDULED", DOCTOR)),
+                new Case("GET /upcoming", 1, controller::upcoming),
+                new Case("GET /latest", 1, () -> controller.latest(5)),
+                new Case("GET /range (live + archive)", 2, () -> controller.range(from, to)),
+                new Case("GET /filter", 1, () -> controller.filterAppointments("SCHEDULED")),
+                new Case("GET /filterByStatusAndDate", 1,
+                        () -> controller.filterByStatusAndDate("SCHEDULED", from, to, null)),
+                new Case("GET /filterByStatusAndDate&doctorName", 1,
+                        () -> controller.filterByStatusAndDate("SCHEDULED", from, to, DOCTOR)),
+                new Case("GET /paged (select + count)", 2,
+                        () -> controller.getPagedAppointments(1, 100, "appointmentTime", "asc", null)),
+                new Case("GET /paged?status (select + count)", 2,
+                        () -> controller.getPagedAppointments(1, 100, "doctorName", "desc", "SCHEDULED")),
+                new Case("GET /patient/{id} (patient check + live + archived rows)", 3,
+                        () -> controller.getByPatient(firstPatientId)),
+                new Case("GET /{id} (full entity)", 1, () -> controller.getById(firstAppointmentId))
+        ).map(c -> DynamicTest.dynamicTest(c.name(), () -> {
+            long statements = statements(c.call());
+            assertTrue(statements <= c.maxStatements(),
+                    () -> statements + " statements, expected at most " + c.maxStatements());
+        }));
+    }
+
+    private long statements(Supplier<?> call) {
+        sessionFactory.getCache().evictAllRegions();
+        stats.clear();
+        call.get();
+        return stats.getPrepareStatementCount();
+    }
+
+    private static ByteArrayInputStream body(StringBuilder ndjson) {
+        return new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void imported(ImportReport report, int expected) {
+        assertEquals(expected, report.getImported(), () -> "seed import failed: " + report.getErrors().size()
+                + " errors, first: " + (report.getErrors().isEmpty() ? "-" : report.getErrors().get(0).getMessage()));
+    }
+}
@@ -0,0 +1,262 @@
+package com.smartmedical.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.smartmedical.dto.BulkStatusResult;
+import com.smartmedical.dto.BulkStatusResult.Result;
+import com.smartmedical.dto.DashboardConsistencyReport;
+import com.smartmedical.dto.ImportReport;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import com.smartmedical.repository.AppointmentRepository;
+import com.smartmedical.service.AppointmentService;
+import com.smartmedical.service.DashboardAggregateStore;
+import com.smartmedical.service.DoctorDirectory;
+import com.smartmedical.service.DoctorScheduleIndex;
+import com.smartmedical.service.ImportService;
+import com.smartmedical.service.PatientService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@code POST /api/appointments/bulk/{action}} through the real HTTP stack: a filter
+ * cancels a doctor's week in far fewer statements than rows; an id list gets one outcome
+ * per id (updated with its new version, unchanged, not found, rejected, version conflict);
+ * a copy read before a bulk reschedule is refused with 409; a day rescheduled into its own
+ * old slots all moves, a row whose target is booked reports a slot conflict and stays; bad
+ * requests and filters over {@code appointments.bulk.max-rows} get 400 and change nothing.
+ * Each step works on its own doctor; the last one checks the dashboard counters and doctor
+ * schedules against a fresh load. {@code BulkStatusCheck} in the benchmarks times bulk
+ * against row by row at full size.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "dashboard.rollup.flush-interval-ms=3600000",
+        "appointments.bulk.max-rows=100"})
+@ActiveProfiles("test")
+@DirtiesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class BulkStatusTest {
+
+    private static final int DOCTORS = 6;
+    private static final int DAYS = 7;
+    private static final int SLOTS = 8;
+
+    @Autowired private AppointmentRepository repository;
+    @Autowired private AppointmentService appointmentService;
+    @Autowired private PatientService patientService;
+    @Autowired private ImportService importService;
+    @Autowired private DoctorDirectory doctors;
+    @Autowired private DashboardAggregateStore aggregateStore;
+    @Autowired private DoctorScheduleIndex scheduleIndex;
+    @Autowired private EntityManagerFactory emf;
+    @Autowired private ObjectMapper mapper;
+    @LocalServerPort private int port;
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final LocalDate day = LocalDate.now().plusDays(2);
+    private Patient patient;
+
+    @BeforeAll
+    void seed() throws Exception {
+        patient = patientService.savePatient(new Patient("Bulk Patient", 45, "bulk@example.com", "9000000004", ""));
+        // a week of half-hour slots per doctor from 09:00, and some finished rows last month
+        StringBuilder body = new StringBuilder();
+        for (int d = 0; d < DOCTORS; d++) {
+            for (int k = 0; k < DAYS; k++) {
+                for (int s = 0; s < SLOTS; s++) {
+                    row(body, doctor(d), day.plusDays(k).atTime(9, 0).plusMinutes(30L * s), "SCHEDULED");
+                }
+            }
+        }
+        LocalDateTime past = LocalDate.now().minusDays(30).atTime(9, 0);
+        for (int i = 0; i < 10; i++) {
+            row(body, doctor(5), past.plusHours(i), i % 2 == 0 ? "COMPLETED" : "CANCELLED");
+        }
+        ImportReport report = importService.importAppointments(
+                new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+        assertEquals(DOCTORS * DAYS * SLOTS + 10, report.getImported());
+    }
+
+    @Test
+    @Order(1)
+    void filterCancelsAWeekInFewStatements() throws Exception {
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = from.plusDays(DAYS);
+        int rows = scheduledIds(doctor(1), from, to).size();
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        long before = statistics.getPrepareStatementCount();
+        BulkStatusResult week = bulk("cancel", Map.of("doctorName", doctor(1),
+                "from", from.toString(), "to", to.toString(), "status", "SCHEDULED"));
+        long statements = statistics.getPrepareStatementCount() - before;
+
+        assertEquals(DAYS * SLOTS, rows);
+        assertEquals(rows, week.getUpdated());
+        assertTrue(scheduledIds(doctor(1), from, to).isEmpty());
+        assertTrue(statements < rows / 2, () -> statements + " statements for " + rows + " rows");
+    }
+
+    @Test
+    @Order(2)
+    void idListGetsAnOutcomePerId() throws Exception {
+        Appointment completed = firstWithStatus("COMPLETED");
+        Appointment cancelled = firstWithStatus("CANCELLED");
+        List<Long> open = scheduledIds(doctor(5), day.atStartOfDay(), day.plusDays(DAYS).atStartOfDay());
+        BulkStatusResult mixed = bulk("cancel", Map.of(
+                "ids", List.of(completed.getId(), cancelled.getId(), Long.MAX_VALUE, open.get(0), open.get(1)),
+                "versions", Map.of(String.valueOf(open.get(1)), 99)));
+
+        assertEquals(List.of(Result.REJECTED, Result.UNCHANGED, Result.NOT_FOUND, Result.UPDATED,
+                Result.VERSION_CONFLICT), results(mixed));
+        assertEquals(repository.findById(open.get(0)).orElseThrow().getVersion(),
+                mixed.getOutcomes().get(3).getVersion());
+        assertEquals("SCHEDULED", repository.findById(open.get(1)).orElseThrow().getStatus());
+    }
+
+    @Test
+    @Order(3)
+    void copyReadBeforeABulkRescheduleIsAConflict() throws Exception {
+        List<Long> rows = scheduledIds(doctor(2), day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        ObjectNode copy = (ObjectNode) mapper.readTree(send("GET", "/api/appointments/" + rows.get(0), null).body());
+        BulkStatusResult moved = bulk("reschedule", Map.of("doctorName", doctor(2),
+                "from", day.atStartOfDay().toString(), "to", day.plusDays(1).atStartOfDay().toString(),
+                "status", "SCHEDULED", "offsetMinutes", 8 * 60));
+        assertEquals(rows.size(), moved.getUpdated());
+
+        assertEquals(409, send("PUT", "/api/appointments/" + rows.get(0), copy.toString()).statusCode());
+        // without a version the caller asks to overwrite
+        copy.remove("version");
+        assertEquals(200, send("PUT", "/api/appointments/" + rows.get(0), copy.toString()).statusCode());
+    }
+
+    @Test
+    @Order(4)
+    void dayMovedByOneSlotMovesIntoItsOwnOldSlots() throws Exception {
+        List<Long> rows = scheduledIds(doctor(4), day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        BulkStatusResult shifted = bulk("reschedule", Map.of("ids", rows, "offsetMinutes", 30));
+        assertEquals(rows.size(), shifted.getUpdated());
+    }
+
+    @Test
+    @Order(5)
+    void rowWhoseTargetIsBookedStays() throws Exception {
+        List<Long> rows = scheduledIds(doctor(3), day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        Appointment first = repository.findById(rows.get(0)).orElseThrow();
+        appointmentService.createAppointment(new Appointment(patient, doctor(3),
+                first.getAppointmentTime().plusHours(8), "Blocks a reschedule", "SCHEDULED"));
+        BulkStatusResult blocked = bulk("reschedule", Map.of("ids", rows, "offsetMinutes", 8 * 60));
+
+        List<Result> expected = new ArrayList<>();
+        expected.add(Result.SLOT_CONFLICT);
+        for (int i = 1; i < rows.size(); i++) expected.add(Result.UPDATED);
+        assertEquals(expected, results(blocked));
+        assertEquals(first.getAppointmentTime(), repository.findById(first.getId()).orElseThrow().getAppointmentTime());
+    }
+
+    @Test
+    @Order(6)
+    void badRequestsChangeNothing() throws Exception {
+        int cancelled = repository.findSummariesByStatus("CANCELLED").size();
+        String[][] bad = {
+                {"archive", "{\"ids\":[1]}"},
+                {"cancel", "{\"ids\":[1],\"doctorName\":\"x\"}"},
+                {"reschedule", "{\"ids\":[1]}"},
+                {"cancel", "{\"status\":\"SCHEDULED\"}"},
+                // every doctor's week: more rows than max-rows
+                {"cancel", "{\"from\":\"2000-01-01T00:00:00\",\"to\":\"2100-01-01T00:00:00\"}"}};
+        for (String[] request : bad) {
+            assertEquals(400, send("POST", "/api/appointments/bulk/" + request[0], request[1]).statusCode(),
+                    request[0] + " " + request[1]);
+        }
+        assertEquals(cancelled, repository.findSummariesByStatus("CANCELLED").size());
+    }
+
+    @Test
+    @Order(7)
+    void dashboardAndSchedulesMatchAFreshLoad() {
+        DashboardConsistencyReport report = aggregateStore.checkConsistency(false);
+        assertTrue(report.isConsistent(), () -> "dashboard " + report.getDifferences());
+        Map<String, List<DoctorScheduleIndex.Slot>> live = schedules();
+        scheduleIndex.rebuild();
+        assertEquals(schedules(), live);
+    }
+
+    private static String doctor(int d) {
+        return "Dr Bulk " + d;
+    }
+
+    private void row(StringBuilder body, String doctor, LocalDateTime time, String status) {
+        body.append("{\"patient\":{\"id\":").append(patient.getId()).append("},\"doctorName\":\"").append(doctor)
+                .append("\",\"appointmentTime\":\"").append(time.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .append("\",\"durationMinutes\":30,\"status\":\"").append(status).append("\"}\n");
+    }
+
+    private List<Long> scheduledIds(String doctor, LocalDateTime from, LocalDateTime to) {
+        Integer doctorId = doctors.find(doctor).orElseThrow().getId();
+        return repository.findSummariesByStatusAndDoctorBetween("SCHEDULED", doctorId, from, to.minusNanos(1))
+                .stream().map(a -> a.id()).toList();
+    }
+
+    private Appointment firstWithStatus(String status) {
+        return repository.findById(repository.findSummariesByStatus(status).get(0).id()).orElseThrow();
+    }
+
+    private static List<Result> results(BulkStatusResult result) {
+        return result.getOutcomes().stream().map(BulkStatusResult.Outcome::getResult).toList();
+    }
+
+    private Map<String, List<DoctorScheduleIndex.Slot>> schedules() {
+        Map<String, List<DoctorScheduleIndex.Slot>> all = new TreeMap<>();
+        LocalDateTime from = LocalDateTime.of(1900, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2200, 1, 1, 0, 0);
+        // a doctor whose every row was cancelled stays known to the live index, with no slots
+        for (String doctor : scheduleIndex.doctorNames()) {
+            List<DoctorScheduleIndex.Slot> slots = scheduleIndex.slotsBetween(doctor, from, to);
+            if (!slots.isEmpty()) all.put(doctor, slots);
+        }
+        return all;
+    }
+
+    private BulkStatusResult bulk(String action, Map<String, Object> body) throws Exception {
+        HttpResponse<String> response = send("POST", "/api/appointments/bulk/" + action, mapper.writeValueAsString(body));
+        assertEquals(200, response.statusCode(), response::body);
+        return mapper.readValue(response.body(), BulkStatusResult.class);
+    }
+
+    private HttpResponse<String> send(String method, String path, String json) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .method(method, json == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(json));
+        if (json != null) request.header("Content-Type", "application/json");
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,133 @@
+package com.smartmedical.controller;
+
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import com.smartmedical.service.AppointmentService;
+import com.smartmedical.service.PatientService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * ETags on {@code /api/appointments}, {@code /api/patients} and {@code /api/dashboard}
+ * through the real HTTP stack: a GET with the tag it was given is 304 with no body and no
+ * SQL, and the tags move when what they cover changes, including a SCHEDULED row passing
+ * its start time without any write. {@code ConditionalGetCheck} in the benchmarks times the
+ * 304 path against a full 200.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        // no rollup flush in the background, so a statement counted during a 304 is the endpoint's own
+        properties = "dashboard.rollup.flush-interval-ms=3600000")
+@ActiveProfiles("test")
+@DirtiesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ConditionalGetTest {
+
+    private static final List<String> ENDPOINTS = List.of("/api/appointments", "/api/patients", "/api/dashboard");
+
+    @Autowired private AppointmentService appointmentService;
+    @Autowired private PatientService patientService;
+    @Autowired private EntityManagerFactory emf;
+    @LocalServerPort private int port;
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final Map<String, String> tags = new LinkedHashMap<>();
+    private Patient patient;
+
+    @BeforeAll
+    void seed() {
+        patient = patientService.savePatient(new Patient("Etag Patient", 33, "etag@example.com", "9000000002", ""));
+        LocalDateTime day = LocalDate.now().plusDays(2).atTime(9, 0);
+        for (int i = 0; i < 20; i++) {
+            appointmentService.createAppointment(new Appointment(patient, "Dr Etag " + i % 4,
+                    day.plusHours(i / 4), "Check-up", "SCHEDULED"));
+        }
+    }
+
+    @BeforeEach
+    void currentTags() throws Exception {
+        for (String endpoint : ENDPOINTS) {
+            HttpResponse<byte[]> full = get(endpoint, null);
+            assertEquals(200, full.statusCode(), endpoint);
+            assertEquals("no-cache", full.headers().firstValue("Cache-Control").orElse(null), endpoint);
+            tags.put(endpoint, full.headers().firstValue("ETag").orElse(null));
+            assertNotNull(tags.get(endpoint), endpoint + " has no ETag");
+        }
+    }
+
+    @Test
+    void unchangedTagIsNotModifiedWithoutSql() throws Exception {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        for (String endpoint : ENDPOINTS) {
+            long before = statistics.getPrepareStatementCount();
+            HttpResponse<byte[]> cached = get(endpoint, tags.get(endpoint));
+            assertEquals(304, cached.statusCode(), endpoint);
+            assertEquals(0, cached.body().length, endpoint);
+            assertEquals(tags.get(endpoint), cached.headers().firstValue("ETag").orElse(null), endpoint);
+            assertEquals(before, statistics.getPrepareStatementCount(), endpoint + " ran SQL for a 304");
+        }
+    }
+
+    @Test
+    void appointmentWriteChangesAppointmentsAndDashboard() throws Exception {
+        appointmentService.createAppointment(new Appointment(patient, "Dr Etag Write",
+                LocalDate.now().plusDays(5).atTime(11, 0), "New", "SCHEDULED"));
+        assertModified("/api/appointments");
+        assertModified("/api/dashboard");
+    }
+
+    @Test
+    void patientRenameChangesEveryTag() throws Exception {
+        Patient renamed = patientService.getPatientById(patient.getId()).orElseThrow();
+        renamed.setName(renamed.getName() + " Jr");
+        patientService.savePatient(renamed);
+        for (String endpoint : ENDPOINTS) assertModified(endpoint);
+    }
+
+    @Test
+    void passingStartTimeChangesAppointmentsWithoutAWrite() throws Exception {
+        appointmentService.createAppointment(new Appointment(patient, "Dr Etag Soon",
+                LocalDateTime.now().plusSeconds(2), "Starts in two seconds", "SCHEDULED"));
+        currentTags();
+        Thread.sleep(2_500);
+        // the row now shows as COMPLETED, so the cached list is stale
+        assertModified("/api/appointments");
+        assertModified("/api/dashboard");
+    }
+
+    private void assertModified(String endpoint) throws Exception {
+        HttpResponse<byte[]> response = get(endpoint, tags.get(endpoint));
+        assertEquals(200, response.statusCode(), endpoint + " still 304");
+        assertNotEquals(tags.get(endpoint), response.headers().firstValue("ETag").orElse(null), endpoint);
+    }
+
+    private HttpResponse<byte[]> get(String endpoint, String ifNoneMatch) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + endpoint));
+        if (ifNoneMatch != null) request.header("If-None-Match", ifNoneMatch);
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
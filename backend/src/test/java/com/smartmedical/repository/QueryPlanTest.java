@@ -0,0 +1,522 @@
+package com.smartmedical.repository;
+
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.dto.ImportReport;
+import com.smartmedical.service.AppointmentArchive;
+import com.smartmedical.service.DoctorDirectory;
+import com.smartmedical.service.ImportService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Query plans of the repository queries on the schema the Flyway migrations build. Every
+ * query method of {@link AppointmentRepository}, {@link AppointmentArchiveRepository},
+ * {@link PatientRepository} and {@link DoctorRepository} is called once against seeded
+ * data, the rows older than a week archived first; the SQL Hibernate sends is recorded
+ * with its bound values and run through {@code EXPLAIN} with the values written in as
+ * literals (what MySQL Connector/J sends by default, so {@code :status is null} filters
+ * fold away as they do on MySQL). Each query is listed with the one index it must read its
+ * table through, by exact name; the few whole-table reads are listed as table scans, so a
+ * scan that appears anywhere else fails.
+ * <p>
+ * The stand-in is H2 in MySQL mode, like the benchmarks. A repository that gains a query
+ * method without a listed plan fails too.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:queryplan;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "spring.main.banner-mode=off",
+        "logging.level.root=WARN",
+        "logging.level.org.flywaydb.core.internal.database.base.Database=ERROR",
+        "appointments.sweeper.initial-delay-ms=86400000",
+        "archive.initial-delay-ms=86400000",
+        "archive.horizon-days=7",
+        "archive.max-batches-per-run=1000",
+        "snapshot.enabled=false",
+        "audit.enabled=false"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+
+    private static final int PATIENTS = 500;
+    private static final int APPOINTMENTS = 20_000;
+    private static final int DOCTORS = 40;
+    private static final int SLOTS_PER_DAY = 16;
+
+    // "public.appointments a1_0 /* public.idx_appointments_time: ..." -> idx_appointments_time
+    private static final Pattern ACCESS =
+            Pattern.compile("public\\.(appointments_archive|appointments|patient|doctor)\\s+\\w+\\s*/\\*\\s*public\\.([\\w.]+)");
+    // "select max(a1_0.appointment_time) ... /* direct lookup */" -> appointment_time
+    private static final Pattern MIN_MAX = Pattern.compile("\\b(?:min|max)\\((?:\\w+\\.)?(\\w+)\\)");
+
+    private static final String PRIMARY_KEY = "primary key";
+    private static final String TABLE_SCAN = "table scan";
+    // count(*) with no filter: H2 answers it from the row count it keeps, no index read
+    private static final String ROW_COUNT = "row count";
+
+    /**
+     * A repository call and how it must read its table: an index or unique constraint by name,
+     * {@link #PRIMARY_KEY}, {@link #TABLE_SCAN} or {@link #ROW_COUNT}; more than one where the
+     * call sends more than one statement, or where either is fine.
+     */
+    private record Case(Class<?> repository, String method, String table, List<String> expected, Runnable call) {
+
+        Case(Class<?> repository, String method, String table, String expected, Runnable call) {
+            this(repository, method, table, List.of(expected), call);
+        }
+
+        String label() {
+            return repository.getSimpleName().replace("Repository", "") + "." + method;
+        }
+    }
+
+    @Autowired private ImportService importService;
+    @Autowired private AppointmentArchive archive;
+    @Autowired private AppointmentRepository repository;
+    @Autowired private AppointmentArchiveRepository archiveRepository;
+    @Autowired private PatientRepository patientRepository;
+    @Autowired private DoctorRepository doctorRepository;
+    @Autowired private DoctorDirectory doctorDirectory;
+    @Autowired private EntityManagerFactory emf;
+    @Autowired private EntityManager entityManager;
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private List<Case> cases;
+    private final Map<Case, List<Recorder.Statement>> recorded = new LinkedHashMap<>();
+
+    @BeforeAll
+    void seedAndRecord() throws IOException {
+        long firstPatientId = seed();
+        // both tiers hold rows: finished ones older than a week go to the archive
+        archive.archiveOld();
+        // H2 keeps an index of its own behind each foreign key; MySQL drops the one it made as soon as
+        // another index starts with the column (V2). Without the keys H2 has MySQL's indexes, and plans
+        // do not depend on them
+        jdbc.execute("alter table appointments drop constraint fk_appointments_patient");
+        jdbc.execute("alter table appointments drop constraint fk_appointments_doctor");
+        jdbc.execute("alter table appointments_archive drop constraint fk_appointments_archive_patient");
+        jdbc.execute("alter table appointments_archive drop constraint fk_appointments_archive_doctor");
+        // row counts and selectivity for the optimizer, as InnoDB keeps them
+        jdbc.execute("analyze");
+
+        cases = cases(firstPatientId);
+        // calls run in one transaction that is rolled back, so the writes among them change nothing
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            for (Case c : cases) recorded.put(c, Recorder.record(c.call()));
+        });
+    }
+
+    @TestFactory
+    Stream<DynamicTest> everyQueryReadsItsTableThroughItsIndex() {
+        return recorded.entrySet().stream().map(e -> DynamicTest.dynamicTest(e.getKey().label(), () -> {
+            Case c = e.getKey();
+            List<String> expected = c.expected().stream().map(name -> indexName(c.table(), name)).toList();
+            assertFalse(e.getValue().isEmpty(), "no SQL recorded");
+            for (Recorder.Statement statement : e.getValue()) {
+                String plan = String.join(" ", jdbc.queryForList("explain " + statement.inlined(), String.class))
+                        .toLowerCase(Locale.ROOT).replace("\"", "");
+                List<String> access = accessPaths(plan, c.table());
+                assertFalse(access.isEmpty(), () -> c.table() + " not read: " + plan);
+                for (String path : access) {
+                    assertTrue(expected.contains(path), () -> c.table() + " read through " + path
+                            + ", expected " + String.join(" or ", expected) + ": " + plan.replaceAll("\\s+", " "));
+                }
+            }
+        }));
+    }
+
+    @Test
+    void everyQueryMethodHasAnExpectedPlan() {
+        for (Class<?> type : List.of(AppointmentRepository.class, AppointmentArchiveRepository.class,
+                PatientRepository.class, DoctorRepository.class)) {
+            Set<String> listed = cases.stream().filter(c -> c.repository() == type)
+                    .map(c -> c.method().split(" ")[0]).collect(Collectors.toSet());
+            Set<String> missing = Arrays.stream(type.getDeclaredMethods())
+                    .filter(m -> !m.isDefault() && !Modifier.isStatic(m.getModifiers()))
+                    .map(Method::getName).collect(Collectors.toCollection(TreeSet::new));
+            missing.removeAll(listed);
+            assertEquals(Set.of(), missing, type.getSimpleName() + " query methods without an expected plan");
+        }
+    }
+
+    private List<Case> cases(long firstPatientId) {
+        Integer doctorId = doctorDirectory.find(doctorName(3)).orElseThrow().getId();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = now.minusDays(14);
+        LocalDateTime to = now.plusDays(14);
+        LocalDateTime archivedFrom = now.minusDays(30);
+        LocalDateTime archivedTo = now.minusDays(10);
+        Long archivedId = jdbc.queryForObject("select min(id) from appointments_archive", Long.class);
+        List<Long> ids = repository.findSummaries(PageRequest.of(3, 50, Sort.by("id"))).getContent().stream()
+                .map(AppointmentSummary::id).toList();
+        List<Long> patientIds = List.of(firstPatientId, firstPatientId + 1, firstPatientId + 2);
+        AppointmentSummary middle = repository.findSummariesBetween(now, to).get(0);
+        Limit page = Limit.of(501);
+
+        String time = "idx_appointments_time";
+        String statusTime = "idx_appointments_status_time";
+        String doctorTime = "idx_appointments_doctor_time";
+        String archiveTime = "idx_appointments_archive_time";
+        String archiveDoctorTime = "idx_appointments_archive_doctor_time";
+        Class<?> a = AppointmentRepository.class;
+        Class<?> r = AppointmentArchiveRepository.class;
+        return List.of(
+                new Case(a, "findSummariesByPatientId", "appointments", "idx_appointments_patient_time",
+                        () -> repository.findSummariesByPatientId(firstPatientId)),
+                new Case(a, "findSummariesByIdIn", "appointments", PRIMARY_KEY, () -> repository.findSummariesByIdIn(ids)),
+                new Case(a, "findSummariesBetween", "appointments", time, () -> repository.findSummariesBetween(from, to)),
+                new Case(a, "findSummariesByStatus", "appointments", statusTime,
+                        () -> repository.findSummariesByStatus("CANCELLED")),
+                new Case(a, "findSummariesByStatusBetween", "appointments", statusTime,
+                        () -> repository.findSummariesByStatusBetween("SCHEDULED", from, to)),
+                new Case(a, "findSummariesByStatusAndDoctorBetween", "appointments", doctorTime,
+                        () -> repository.findSummariesByStatusAndDoctorBetween("SCHEDULED", doctorId, from, to)),
+                new Case(a, "findUpcomingSummaries", "appointments", time, () -> repository.findUpcomingSummaries(to)),
+                // H2 cannot walk an index backwards and sorts the table; MySQL reads idx_appointments_time from its end
+                new Case(a, "findLatestSummaries", "appointments", TABLE_SCAN,
+                        () -> repository.findLatestSummaries(Limit.of(5))),
+                new Case(a, "findSummaries (page by time)", "appointments", List.of(time, ROW_COUNT),
+                        () -> repository.findSummaries(PageRequest.of(2, 50, Sort.by("appointmentTime")))),
+                new Case(a, "findSummariesByStatus (page)", "appointments", statusTime,
+                        () -> repository.findSummariesByStatus("CANCELLED", PageRequest.of(0, 50))),
+                new Case(a, "findSummaryPage (first page)", "appointments", time,
+                        () -> repository.findSummaryPage(null, null, null, page)),
+                new Case(a, "findSummaryPage (after a row)", "appointments", time,
+                        () -> repository.findSummaryPage(null, middle.appointmentTime(), middle.id(), page)),
+                new Case(a, "findSummaryPage (status, after a row)", "appointments", statusTime,
+                        () -> repository.findSummaryPage("SCHEDULED", middle.appointmentTime(), middle.id(), page)),
+                new Case(a, "findDoctorSummaryPage (first page)", "appointments", doctorTime,
+                        () -> repository.findDoctorSummaryPage(doctorId, null, null, 0L, page)),
+                new Case(a, "findDoctorSummaryPage (after a row)", "appointments", doctorTime,
+                        () -> repository.findDoctorSummaryPage(doctorId, null, middle.appointmentTime(), middle.id(), page)),
+                // the whole list for the warm cache: every row, in no order
+                new Case(a, "streamSummaries", "appointments", TABLE_SCAN, () -> consume(repository.streamSummaries())),
+                new Case(a, "streamForExport (range)", "appointments", time,
+                        () -> consume(repository.streamForExport(from, to, null, null))),
+                new Case(a, "streamForExport (status)", "appointments", statusTime,
+                        () -> consume(repository.streamForExport(null, null, "CANCELLED", null))),
+                new Case(a, "streamForExport (doctor)", "appointments", doctorTime,
+                        () -> consume(repository.streamForExport(null, null, null, doctorId))),
+                new Case(a, "streamForExport (everything)", "appointments", time,
+                        () -> consume(repository.streamForExport(null, null, null, null))),
+                new Case(a, "findFirstAppointmentTime", "appointments", time, repository::findFirstAppointmentTime),
+                new Case(a, "findLastAppointmentTime", "appointments", time, repository::findLastAppointmentTime),
+                new Case(a, "findScheduledTimesAfter", "appointments", time, () -> repository.findScheduledTimesAfter(to)),
+                new Case(a, "findOverdueScheduled", "appointments", statusTime,
+                        () -> repository.findOverdueScheduled(now, PageRequest.of(0, 500))),
+                new Case(a, "markCompleted", "appointments", PRIMARY_KEY, () -> repository.markCompleted(ids, now)),
+                new Case(a, "findOldestOverdueScheduledTime", "appointments", statusTime,
+                        () -> repository.findOldestOverdueScheduledTime(now)),
+                new Case(a, "lockArchivable", "appointments", time,
+                        () -> repository.lockArchivable(now.minusDays(7), Limit.of(1000))),
+                new Case(a, "findDoctorNamesByIdIn", "appointments", PRIMARY_KEY, () -> repository.findDoctorNamesByIdIn(ids)),
+                new Case(a, "findDoctorNamesByFilter (doctor)", "appointments", doctorTime,
+                        () -> repository.findDoctorNamesByFilter(doctorId, from, to, null)),
+                // a few dozen doctors: H2 may walk the doctor table and range-scan each one's diary
+                new Case(a, "findDoctorNamesByFilter (range)", "appointments", List.of(time, doctorTime),
+                        () -> repository.findDoctorNamesByFilter(null, from, to, null)),
+                new Case(a, "lockByIdIn", "appointments", PRIMARY_KEY, () -> repository.lockByIdIn(ids)),
+                new Case(a, "lockByFilter (doctor)", "appointments", doctorTime,
+                        () -> repository.lockByFilter(doctorId, from, to, null, page)),
+                new Case(a, "lockByFilter (status)", "appointments", statusTime,
+                        () -> repository.lockByFilter(null, null, null, "CANCELLED", page)),
+                new Case(a, "updateStatus", "appointments", PRIMARY_KEY, () -> repository.updateStatus(ids, "CANCELLED", now)),
+                new Case(a, "shiftTime", "appointments", PRIMARY_KEY, () -> repository.shiftTime(ids, 30, now)),
+                new Case(a, "findHeldSlots", "appointments", doctorTime, repository::findHeldSlots),
+                new Case(a, "streamSnapshots", "appointments", PRIMARY_KEY, () -> consume(repository.streamSnapshots())),
+                new Case(a, "findSnapshotsChangedSince", "appointments", "idx_appointments_updated_at",
+                        () -> repository.findSnapshotsChangedSince(now.plusMinutes(5))),
+                new Case(a, "streamIds", "appointments", PRIMARY_KEY, () -> consume(repository.streamIds())),
+                new Case(a, "findById", "appointments", PRIMARY_KEY, () -> repository.findById(ids.get(0))),
+                new Case(r, "findSummariesByPatientId", "appointments_archive", "idx_appointments_archive_patient_time",
+                        () -> archiveRepository.findSummariesByPatientId(firstPatientId)),
+                new Case(r, "findSummariesBetween", "appointments_archive", archiveTime,
+                        () -> archiveRepository.findSummariesBetween(archivedFrom, archivedTo)),
+                new Case(r, "findSummariesByStatusBetween", "appointments_archive", archiveTime,
+                        () -> archiveRepository.findSummariesByStatusBetween("CANCELLED", archivedFrom, archivedTo)),
+                new Case(r, "findSummariesByStatusAndDoctorBetween", "appointments_archive", archiveDoctorTime,
+                        () -> archiveRepository.findSummariesByStatusAndDoctorBetween("COMPLETED", doctorId,
+                                archivedFrom, archivedTo)),
+                new Case(r, "streamForExport (range)", "appointments_archive", archiveTime,
+                        () -> consume(archiveRepository.streamForExport(archivedFrom, archivedTo, null, null))),
+                new Case(r, "streamForExport (doctor)", "appointments_archive", archiveDoctorTime,
+                        () -> consume(archiveRepository.streamForExport(null, null, null, doctorId))),
+                // two statuses in the archive: either is about half of it, so the export walks it in time order
+                new Case(r, "streamForExport (status)", "appointments_archive", archiveTime,
+                        () -> consume(archiveRepository.streamForExport(null, null, "CANCELLED", null))),
+                new Case(r, "streamForExport (everything)", "appointments_archive", archiveTime,
+                        () -> consume(archiveRepository.streamForExport(null, null, null, null))),
+                new Case(r, "findWithPatientAndDoctorById", "appointments_archive", PRIMARY_KEY,
+                        () -> archiveRepository.findWithPatientAndDoctorById(archivedId)),
+                new Case(r, "findFirstAppointmentTime", "appointments_archive", archiveTime,
+                        archiveRepository::findFirstAppointmentTime),
+                new Case(r, "findLastAppointmentTime", "appointments_archive", archiveTime,
+                        archiveRepository::findLastAppointmentTime),
+                new Case(PatientRepository.class, "streamForExport", "patient", PRIMARY_KEY,
+                        () -> consume(patientRepository.streamForExport())),
+                new Case(PatientRepository.class, "findExistingIds", "patient", PRIMARY_KEY,
+                        () -> patientRepository.findExistingIds(patientIds)),
+                new Case(PatientRepository.class, "streamForSearchIndex", "patient", PRIMARY_KEY,
+                        () -> consume(patientRepository.streamForSearchIndex())),
+                new Case(PatientRepository.class, "findById", "patient", PRIMARY_KEY, () -> {
+                    // the exports above left every patient in the session and the second-level cache
+                    entityManager.clear();
+                    emf.getCache().evictAll();
+                    patientRepository.findById(firstPatientId);
+                }),
+                new Case(DoctorRepository.class, "findByNameKey", "doctor", "uk_doctor_name_key",
+                        () -> doctorRepository.findByNameKey("dr nobody")));
+    }
+
+    // H2's own name for an expected index: the primary key and unique constraints get generated ones
+    private String indexName(String table, String expected) {
+        if (expected.equals(TABLE_SCAN) || expected.equals(ROW_COUNT)) return expected;
+        if (expected.equals(PRIMARY_KEY)) {
+            return lower(jdbc.queryForObject("select index_name from information_schema.indexes"
+                    + " where table_schema = 'public' and table_name = ? and index_type_name = 'PRIMARY KEY'",
+                    String.class, table));
+        }
+        List<String> backing = jdbc.queryForList("select index_name from information_schema.table_constraints"
+                + " where table_schema = 'public' and table_name = ? and constraint_name = ?", String.class, table, expected);
+        return backing.isEmpty() ? expected : lower(backing.get(0));
+    }
+
+    private static String lower(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    // index (or table scan) per occurrence of the table in the plan
+    private List<String> accessPaths(String plan, String table) {
+        List<String> paths = new ArrayList<>();
+        Matcher m = ACCESS.matcher(plan);
+        while (m.find()) {
+            if (m.group(1).equals(table)) paths.add(m.group(2).equals(table + ".tablescan") ? TABLE_SCAN : m.group(2));
+        }
+        if (!plan.contains("/* direct lookup */")) return paths;
+        // "direct lookup": min/max read off one end of an index, count(*) from the row count. EXPLAIN names
+        // the index a scan would have used; H2 reads the shortest index that starts with the min/max
+        // column (Table.getIndexForColumn)
+        Matcher minMax = MIN_MAX.matcher(plan);
+        if (!minMax.find()) return List.of(ROW_COUNT);
+        return List.of(lower(jdbc.queryForObject("""
+                select c.index_name from information_schema.index_columns c
+                where c.table_schema = 'public' and c.table_name = ? and c.column_name = ? and c.ordinal_position = 1
+                order by (select count(*) from information_schema.index_columns o where o.table_schema = c.table_schema
+                          and o.table_name = c.table_name and o.index_name = c.index_name), c.index_name
+                fetch first row only""", String.class, table, minMax.group(1))));
+    }
+
+    private static void consume(Stream<?> rows) {
+        try (rows) {
+            rows.forEach(r -> {});
+        }
+    }
+
+    // Returns the id of the first patient
+    private long seed() throws IOException {
+        StringBuilder patients = new StringBuilder();
+        for (int i = 0; i < PATIENTS; i++) {
+            patients.append("{\"name\":\"Patient ").append(i).append("\",\"age\":").append(1 + i % 90)
+                    .append(",\"email\":\"patient").append(i).append("@example.com\",\"phone\":\"")
+                    .append(6_000_000_000L + i).append("\",\"medicalHistory\":\"None reported\"}\n");
+        }
+        imported(importService.importPatients(body(patients)), PATIENTS);
+        long[] patientIds = patientRepository.findAll(PageRequest.of(0, PATIENTS, Sort.by("id"))).stream()
+                .mapToLong(p -> p.getId()).toArray();
+
+        // one doctor per slot column, 30-minute slots 09:00-17:00, half the rows before today and half after
+        LocalDate today = LocalDate.now();
+        StringBuilder appointments = new StringBuilder();
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            Random rnd = new Random(i);
+            long slot = i / DOCTORS - (long) (APPOINTMENTS / DOCTORS) / 2;
+            LocalDateTime time = today.plusDays(Math.floorDiv(slot, SLOTS_PER_DAY))
+                    .atTime(9, 0).plusMinutes(30L * Math.floorMod(slot, SLOTS_PER_DAY));
+            int roll = rnd.nextInt(100);
+            String status = slot < 0
+                    ? (roll < 70 ? "COMPLETED" : roll < 90 ? "SCHEDULED" : "CANCELLED")
+                    : (roll < 90 ? "SCHEDULED" : "CANCELLED");
+            appointments.append("{\"patient\":{\"id\":").append(patientIds[i % patientIds.length])
+                    .append("},\"doctorName\":\"").append(doctorName(i % DOCTORS))
+                    .append("\",\"appointmentTime\":\"").append(time.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                    .append("\",\"durationMinutes\":30,\"reason\":\"Follow-up\",\"status\":\"").append(status)
+                    .append("\"}\n");
+        }
+        imported(importService.importAppointments(body(appointments)), APPOINTMENTS);
+        return patientIds[0];
+    }
+
+    private static String doctorName(int d) {
+        return "Dr Doctor " + d;
+    }
+
+    private static ByteArrayInputStream body(StringBuilder ndjson) {
+        return new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void imported(ImportReport report, int expected) {
+        assertEquals(expected, report.getImported(), () -> "seed import failed: " + report.getErrors().size()
+                + " errors, first: " + (report.getErrors().isEmpty() ? "-" : report.getErrors().get(0).getMessage()));
+    }
+
+    /**
+     * Records the prepared statements, with their bound values, that the calling thread
+     * executes inside {@link #record}.
+     */
+    @TestConfiguration(proxyBeanMethods = false)
+    static class Recorder {
+
+        record Statement(String sql, Map<Integer, Object> values) {
+
+            /** The SQL with every {@code ?} replaced by its value as a literal. */
+            String inlined() {
+                StringBuilder out = new StringBuilder();
+                boolean quoted = false;
+                int index = 0;
+                for (char ch : sql.toCharArray()) {
+                    if (ch == '\'') quoted = !quoted;
+                    if (ch == '?' && !quoted) {
+                        out.append(literal(values.get(++index)));
+                    } else {
+                        out.append(ch);
+                    }
+                }
+                return out.toString();
+            }
+
+            private static String literal(Object value) {
+                if (value == null) return "null";
+                if (value instanceof Number || value instanceof Boolean) return value.toString();
+                if (value instanceof Timestamp t) return literal(t.toLocalDateTime());
+                if (value instanceof LocalDateTime t) return "timestamp '" + t.toString().replace('T', ' ') + "'";
+                if (value instanceof java.sql.Date d) return "date '" + d + "'";
+                if (value instanceof LocalDate d) return "date '" + d + "'";
+                return "'" + value.toString().replace("'", "''") + "'";
+            }
+        }
+
+        private static final ThreadLocal<List<Statement>> RECORDING = new ThreadLocal<>();
+
+        static List<Statement> record(Runnable call) {
+            List<Statement> statements = new ArrayList<>();
+            RECORDING.set(statements);
+            try {
+                call.run();
+            } finally {
+                RECORDING.remove();
+            }
+            return statements;
+        }
+
+        @Bean
+        static BeanPostProcessor recordingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ds ? proxy(DataSource.class, ds, Recorder::onDataSource) : bean;
+                }
+            };
+        }
+
+        private static Object onDataSource(Object target, Method method, Object[] args) throws Throwable {
+            Object result = call(target, method, args);
+            return result instanceof Connection c ? proxy(Connection.class, c, Recorder::onConnection) : result;
+        }
+
+        private static Object onConnection(Object target, Method method, Object[] args) throws Throwable {
+            Object result = call(target, method, args);
+            if (!method.getName().equals("prepareStatement")) return result;
+            String sql = (String) args[0];
+            Map<Integer, Object> values = new TreeMap<>();
+            return proxy(PreparedStatement.class, result, (statement, m, a) -> {
+                String name = m.getName();
+                if (name.equals("setNull")) {
+                    values.put((Integer) a[0], null);
+                } else if (name.startsWith("set") && a != null && a.length >= 2 && a[0] instanceof Integer i) {
+                    values.put(i, a[1]);
+                } else if (name.equals("clearParameters")) {
+                    values.clear();
+                } else if (name.startsWith("execute") && RECORDING.get() != null) {
+                    RECORDING.get().add(new Statement(sql, new TreeMap<>(values)));
+                }
+                return call(statement, m, a);
+            });
+        }
+
+        private interface Handler {
+            Object handle(Object target, Method method, Object[] args) throws Throwable;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, Object target, Handler handler) {
+            return (T) Proxy.newProxyInstance(Recorder.class.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "equals" -> args != null && args.length == 1 ? proxy == args[0] : handler.handle(target, method, args);
+                        case "hashCode" -> args == null ? System.identityHashCode(proxy) : handler.handle(target, method, args);
+                        default -> handler.handle(target, method, args);
+                    });
+        }
+
+        private static Object call(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.smartmedical.service;
+
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.dto.CursorPage;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Cursor pages ({@code GET /api/appointments/cursor}) over a diary with undated rows: undated
+ * rows come first, by id, then the dated ones by (time, id); every row shows up exactly once,
+ * with and without the doctor and status filters. The dashboard's latest rows are the same
+ * order backwards.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@DirtiesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AppointmentPagingTest {
+
+    private static final String DOCTOR = "Dr Paging One";
+    private static final String OTHER_DOCTOR = "Dr Paging Two";
+
+    @Autowired private AppointmentService appointmentService;
+    @Autowired private PatientService patientService;
+
+    private final List<AppointmentSummary> created = new ArrayList<>();
+
+    @BeforeAll
+    void seed() {
+        Patient patient = patientService.savePatient(new Patient("Paging Patient", 40, "paging@example.com",
+                "9000000000", ""));
+        LocalDateTime day = LocalDate.now().plusDays(3).atTime(9, 0);
+        // undated rows between the dated ones, so their ids interleave; both doctors share some times
+        for (int i = 0; i < 12; i++) {
+            String doctor = i % 2 == 0 ? DOCTOR : OTHER_DOCTOR;
+            LocalDateTime time = i % 3 == 1 ? null : day.plusMinutes(30L * (i / 2));
+            String status = i % 5 == 0 ? "CANCELLED" : "SCHEDULED";
+            Appointment saved = appointmentService.createAppointment(new Appointment(patient, doctor, time,
+                    "Follow-up", status));
+            created.add(new AppointmentSummary(saved.getId(), patient.getId(), patient.getName(), doctor,
+                    time, saved.getDurationMinutes(), "Follow-up", status, saved.getCreatedAt()));
+        }
+    }
+
+    @Test
+    void pagesEveryRowOnceWithUndatedFirst() {
+        assertEquals(ids(expected(null, null)), ids(pageThrough(null, null)));
+    }
+
+    @Test
+    void doctorPagesIncludeUndatedRows() {
+        assertEquals(ids(expected(DOCTOR, null)), ids(pageThrough(DOCTOR, null)));
+        assertEquals(ids(expected(OTHER_DOCTOR, null)), ids(pageThrough(OTHER_DOCTOR, null)));
+    }
+
+    @Test
+    void statusFilterKeepsUndatedRows() {
+        assertEquals(ids(expected(null, "SCHEDULED")), ids(pageThrough(null, "SCHEDULED")));
+        assertEquals(ids(expected(DOCTOR, "CANCELLED")), ids(pageThrough(DOCTOR, "CANCELLED")));
+    }
+
+    @Test
+    void latestReturnsTheNewestRowsOnly() {
+        List<AppointmentSummary> newestFirst = expected(null, null).reversed();
+        assertEquals(ids(newestFirst.subList(0, 5)), ids(appointmentService.getLatestAppointments(5)));
+    }
+
+    // two rows a page, so pages end on undated rows, dated rows and the boundary between them
+    private List<AppointmentSummary> pageThrough(String doctor, String status) {
+        List<AppointmentSummary> rows = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<AppointmentSummary> page = appointmentService.getAppointmentsPage(cursor, 2, status, doctor);
+            rows.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return rows;
+    }
+
+    private List<AppointmentSummary> expected(String doctor, String status) {
+        return created.stream()
+                .filter(a -> doctor == null || a.doctorName().equals(doctor))
+                .filter(a -> status == null || a.status().equals(status))
+                .sorted(Comparator.comparing(AppointmentSummary::appointmentTime,
+                        Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(AppointmentSummary::id))
+                .toList();
+    }
+
+    private static List<Long> ids(List<AppointmentSummary> rows) {
+        return rows.stream().map(AppointmentSummary::id).toList();
+    }
+}
@@ -0,0 +1,312 @@
+package com.smartmedical.service;
+
+import com.smartmedical.SmartMedicalApplication;
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.dto.ArchiveStats;
+import com.smartmedical.dto.DashboardConsistencyReport;
+import com.smartmedical.dto.DashboardStats;
+import com.smartmedical.dto.ImportReport;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import com.smartmedical.repository.AppointmentArchiveRepository;
+import com.smartmedical.repository.AppointmentRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hot/cold tiering ({@link AppointmentArchive}) over three boots of one database. The
+ * first records every read that must stay complete: patient histories, ranges before,
+ * across and after the horizon, status and doctor filters, CSV exports, dashboard
+ * counters and the daily rollup. The second archives in runs of at most
+ * {@code archive.max-batches-per-run} batches while a reader checks patient histories for
+ * missing or doubled rows; afterwards every recorded read comes back the same, the live
+ * table has lost exactly the archived rows, the dashboard matches a recount, a rollup
+ * backfill gives the same figures, and an archived appointment is read by id, refuses
+ * every write and is out of the schedule index. The third boots from the snapshot written
+ * after archiving and the dashboard still adds up. The steps share the database, so they
+ * run in order. {@code ArchiveCheck} in the benchmarks times the archive and the reads at
+ * full size.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ArchiveTest {
+
+    private static final int PATIENTS = 12;
+    private static final int DOCTORS = 4;
+    // history from DAYS back to ten days ahead, SLOTS rows per doctor and day
+    private static final int DAYS = 90;
+    private static final int SLOTS = 3;
+    private static final int HORIZON_DAYS = 30;
+    private static final int BATCH_SIZE = 50;
+    private static final int MAX_BATCHES_PER_RUN = 2;
+
+    // shared by the steps: the second boot starts warm from the first one's file
+    @TempDir static Path dir;
+    private final String db = "archive_" + UUID.randomUUID().toString().replace("-", "");
+    private final List<Long> patientIds = new ArrayList<>();
+    private final LocalDateTime now = LocalDateTime.now();
+    private Map<String, Object> before;
+    private long liveBefore;
+    private LocalDateTime cutoff;
+    // the second boot, kept for the archived-row step
+    private ConfigurableApplicationContext archived;
+
+    @AfterAll
+    void close() {
+        if (archived != null) archived.close();
+    }
+
+    @Test
+    @Order(1)
+    void recordReadsBeforeArchiving() throws IOException {
+        try (ConfigurableApplicationContext context = boot()) {
+            seed(context);
+            AppointmentStatusSweeper sweeper = context.getBean(AppointmentStatusSweeper.class);
+            do {
+                sweeper.sweep();
+            } while (sweeper.getStats().getLagSeconds() > 0);
+            before = record(context);
+            liveBefore = context.getBean(AppointmentRepository.class).count();
+        }
+    }
+
+    @Test
+    @Order(2)
+    void archiveKeepsEveryRead() throws Exception {
+        archived = boot();
+        AppointmentArchive archive = archived.getBean(AppointmentArchive.class);
+        AppointmentRepository repository = archived.getBean(AppointmentRepository.class);
+        cutoff = archive.cutoff(LocalDateTime.now());
+        long eligible = repository.findSummariesBetween(LocalDateTime.of(1900, 1, 1, 0, 0), cutoff).stream()
+                .filter(r -> r.appointmentTime().isBefore(cutoff))
+                .filter(r -> Set.of("COMPLETED", "CANCELLED").contains(r.status().toUpperCase())).count();
+
+        // a reader keeps checking patient histories while rows move between the tiers
+        AppointmentService service = archived.getBean(AppointmentService.class);
+        @SuppressWarnings("unchecked")
+        Map<Long, List<Long>> histories = (Map<Long, List<Long>>) before.get("history ids");
+        AtomicBoolean archiving = new AtomicBoolean(true);
+        List<String> readerFailures = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            while (archiving.get()) {
+                histories.forEach((patientId, expected) -> {
+                    List<Long> ids = settled(service.getAppointmentsByPatient(patientId)).stream()
+                            .map(AppointmentSummary::id).toList();
+                    if (!ids.equals(expected)) {
+                        synchronized (readerFailures) {
+                            readerFailures.add("patient " + patientId + ": " + ids.size() + " of " + expected.size());
+                        }
+                    }
+                });
+            }
+        }, "history-reader");
+        reader.start();
+
+        long moved = 0;
+        int runs = 0;
+        ArchiveStats stats;
+        try {
+            do {
+                archive.archiveOld();
+                stats = archive.getStats();
+                runs++;
+                moved += stats.getLastRunRows();
+                assertTrue(stats.getLastRunBatches() <= MAX_BATCHES_PER_RUN
+                                && stats.getLastRunRows() <= (long) MAX_BATCHES_PER_RUN * BATCH_SIZE,
+                        "run " + runs + " moved " + stats.getLastRunRows() + " rows in " + stats.getLastRunBatches() + " batches");
+            } while (!stats.isCaughtUp());
+        } finally {
+            archiving.set(false);
+            reader.join();
+        }
+        assertTrue(readerFailures.isEmpty(), () -> "histories read mid-archive: " + readerFailures.subList(0,
+                Math.min(10, readerFailures.size())));
+        assertTrue(runs > 1, "everything moved in one run");
+
+        long liveAfter = repository.count();
+        assertTrue(moved > 0, "nothing archived");
+        assertEquals(eligible, moved);
+        assertEquals(moved, archived.getBean(AppointmentArchiveRepository.class).count());
+        assertEquals(liveBefore - moved, liveAfter);
+
+        Map<String, Object> after = record(archived);
+        for (String key : before.keySet()) {
+            assertEquals(before.get(key), after.get(key), key + " after archiving");
+        }
+        DashboardConsistencyReport report = archived.getBean(DashboardAggregateStore.class).checkConsistency(false);
+        assertTrue(report.isConsistent(), () -> "dashboard after archiving " + report.getDifferences());
+        DashboardRollupStore rollup = archived.getBean(DashboardRollupStore.class);
+        rollup.backfill(null, null);
+        assertEquals(before.get("rollup"), rollup(rollup), "rollup after a backfill");
+
+        List<AppointmentSummary> unranged = new ArrayList<>();
+        service.streamAllAppointments(unranged::add);
+        assertEquals(liveAfter, unranged.size(), "GET /api/appointments");
+    }
+
+    @Test
+    @Order(3)
+    void archivedAppointmentIsReadOnly() {
+        JdbcTemplate jdbc = archived.getBean(JdbcTemplate.class);
+        AppointmentService service = archived.getBean(AppointmentService.class);
+        Long id = jdbc.queryForObject("select min(id) from appointments_archive where status = 'COMPLETED' "
+                + "and doctor_id is not null", Long.class);
+        Appointment appointment = service.getAppointmentById(id).orElseThrow();
+        assertTrue(appointment.getDoctorName() != null && appointment.getPatient() != null, "read by id: " + appointment);
+
+        assertThrows(AppointmentArchivedException.class, () -> service.updateAppointment(id, appointment));
+        assertThrows(AppointmentArchivedException.class, () -> service.cancelAppointment(id));
+        assertThrows(AppointmentArchivedException.class, () -> service.deleteAppointment(id));
+        assertEquals(1L, jdbc.queryForObject("select count(*) from appointments_archive where id = ? "
+                + "and status = 'COMPLETED'", Long.class, id));
+
+        String doctor = appointment.getDoctorName();
+        Set<Long> archivedIds = new HashSet<>(jdbc.queryForList("select a.id from appointments_archive a "
+                + "join doctor d on d.id = a.doctor_id where d.name = ?", Long.class, doctor));
+        long indexed = archived.getBean(DoctorScheduleIndex.class)
+                .slotsBetween(doctor, LocalDateTime.of(1900, 1, 1, 0, 0), cutoff).stream()
+                .filter(slot -> archivedIds.contains(slot.appointmentId())).count();
+        assertEquals(0, indexed, "archived appointments of " + doctor + " in the schedule index");
+        archived.close();
+        archived = null;
+    }
+
+    @Test
+    @Order(4)
+    void warmBootAfterArchivingAddsUp() {
+        try (ConfigurableApplicationContext context = boot()) {
+            assertTrue(context.getBean(AppointmentSnapshotStore.class).warmStarted(), "warm start");
+            DashboardAggregateStore dashboard = context.getBean(DashboardAggregateStore.class);
+            DashboardConsistencyReport report = dashboard.checkConsistency(false);
+            assertTrue(report.isConsistent(), () -> "dashboard after a warm boot " + report.getDifferences());
+            assertEquals(before.get("dashboard"), dashboard(dashboard.snapshot()));
+        }
+    }
+
+    private ConfigurableApplicationContext boot() {
+        return new SpringApplicationBuilder(SmartMedicalApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run(
+                        // one database for every boot, like WarmStartTest
+                        "--spring.datasource.url=jdbc:h2:mem:" + db + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--snapshot.enabled=true",
+                        "--snapshot.path=" + dir.resolve("appointments.snapshot"),
+                        "--snapshot.initial-delay-ms=86400000",
+                        "--snapshot.replay-margin-seconds=0",
+                        "--dashboard.rollup.flush-interval-ms=3600000",
+                        // the job is run by hand here
+                        "--archive.initial-delay-ms=86400000",
+                        "--archive.horizon-days=" + HORIZON_DAYS,
+                        "--archive.batch-size=" + BATCH_SIZE,
+                        "--archive.max-batches-per-run=" + MAX_BATCHES_PER_RUN);
+    }
+
+    private void seed(ConfigurableApplicationContext context) throws IOException {
+        PatientService patients = context.getBean(PatientService.class);
+        for (int p = 0; p < PATIENTS; p++) {
+            patientIds.add(patients.savePatient(new Patient("Archive Patient " + p, 30 + p, "archive" + p + "@example.com",
+                    "90000001" + (10 + p), "")).getId());
+        }
+        // SCHEDULED rows in the past are swept to COMPLETED before anything is recorded
+        StringBuilder body = new StringBuilder();
+        LocalDate first = LocalDate.now().minusDays(DAYS);
+        int rows = 0;
+        for (int d = 0; d < DAYS + 10; d++) {
+            for (int doctor = 0; doctor < DOCTORS; doctor++) {
+                for (int s = 0; s < SLOTS; s++, rows++) {
+                    String status = rows % 4 == 0 ? "CANCELLED" : rows % 7 == 0 ? "COMPLETED" : "SCHEDULED";
+                    body.append("{\"patient\":{\"id\":").append(patientIds.get(rows % PATIENTS))
+                            .append("},\"doctorName\":\"Dr Archive ").append(doctor).append("\",\"appointmentTime\":\"")
+                            .append(first.plusDays(d).atTime(9 + 2 * s, 0).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                            .append("\",\"durationMinutes\":30,\"status\":\"").append(status).append("\"}\n");
+                }
+            }
+        }
+        ImportReport report = context.getBean(ImportService.class).importAppointments(
+                new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+        assertEquals(rows, report.getImported());
+    }
+
+    // the reads that must not change when rows move to the archive, all ending before the seeding time
+    private Map<String, Object> record(ConfigurableApplicationContext context) throws IOException {
+        AppointmentService service = context.getBean(AppointmentService.class);
+        ExportService export = context.getBean(ExportService.class);
+        LocalDateTime horizon = now.minusDays(HORIZON_DAYS);
+        Map<String, Object> out = new LinkedHashMap<>();
+
+        Map<Long, List<Long>> historyIds = new LinkedHashMap<>();
+        List<List<AppointmentSummary>> histories = new ArrayList<>();
+        for (long id : patientIds) {
+            List<AppointmentSummary> rows = settled(service.getAppointmentsByPatient(id));
+            histories.add(rows);
+            historyIds.put(id, rows.stream().map(AppointmentSummary::id).toList());
+        }
+        out.put("history ids", historyIds);
+        out.put("histories", histories);
+        out.put("range before the horizon", service.getAppointmentsBetween(horizon.minusDays(30), horizon.minusDays(1)));
+        out.put("range across the horizon", service.getAppointmentsBetween(horizon.minusDays(10), horizon.plusDays(10)));
+        out.put("range after the horizon", service.getAppointmentsBetween(horizon.plusDays(1), now.minusHours(1)));
+        out.put("COMPLETED across the horizon",
+                service.getAppointmentsByStatusBetween("COMPLETED", null, horizon.minusDays(20), horizon.plusDays(5)));
+        Integer doctorId = context.getBean(DoctorDirectory.class).find("Dr Archive 1").orElseThrow().getId();
+        out.put("CANCELLED of one doctor", service.getAppointmentsByStatusBetween("CANCELLED", doctorId,
+                horizon.minusDays(40), now.minusHours(1)));
+        out.put("export until an hour ago", exportCsv(export, null, now.minusHours(1)));
+        out.put("export across the horizon", exportCsv(export, horizon.minusDays(3), horizon.plusDays(3)));
+        out.put("dashboard", dashboard(context.getBean(DashboardAggregateStore.class).snapshot()));
+        out.put("rollup", rollup(context.getBean(DashboardRollupStore.class)));
+        return out;
+    }
+
+    // the list endpoints relabel overdue rows by the clock; compare only what was already past at seeding
+    private List<AppointmentSummary> settled(List<AppointmentSummary> rows) {
+        return rows.stream().filter(r -> r.appointmentTime() != null && r.appointmentTime().isBefore(now)).toList();
+    }
+
+    private static String exportCsv(ExportService export, LocalDateTime from, LocalDateTime to) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        export.exportAppointments(from, to, null, null, ExportFormat.CSV, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    // everything but the upcoming count, which moves with the clock
+    private static List<Object> dashboard(DashboardStats stats) {
+        return List.of(stats.getTotalAppointments(), stats.getStatusBreakdown(), stats.getAppointmentsPerDoctor(),
+                stats.getAppointmentsPerDay());
+    }
+
+    private List<Object> rollup(DashboardRollupStore rollup) {
+        return dashboard(rollup.rangeStats(LocalDate.of(2000, 1, 1), now.toLocalDate().plusYears(2), Granularity.DAY));
+    }
+}
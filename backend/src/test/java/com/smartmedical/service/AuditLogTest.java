@@ -0,0 +1,324 @@
+package com.smartmedical.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartmedical.SmartMedicalApplication;
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.dto.AuditRecord;
+import com.smartmedical.event.AppointmentChangeEvent;
+import com.smartmedical.event.AppointmentSnapshot;
+import com.smartmedical.event.PatientChangeEvent;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import com.smartmedical.repository.AppointmentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The audit log over several boots of one database and one audit directory, with small
+ * segments (rotation) and a small queue (appenders wait for the writer): every change
+ * made before an immediate shutdown is in the log, seqs 1..n without gaps, none dropped;
+ * HTTP entries carry method and URI, appointment entries the row before and after,
+ * patient entries no medical history; {@code /api/audit} pages through everything; a torn
+ * record at the end is cut off at startup and numbering continues; a damaged byte in an
+ * old segment is caught by its checksum and the later segments still read. Every step
+ * boots its own application, so the steps run in order. {@code AuditLogCheck} in the
+ * benchmarks runs the same writes at full size.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class AuditLogTest {
+
+    private static final int PATIENTS = 50;
+    private static final int APPOINTMENTS = 400;
+    private static final int THREADS = 4;
+
+    // shared by the steps: each boot reads the segments the one before wrote
+    @TempDir static Path dir;
+    private final String db = "audit_" + UUID.randomUUID().toString().replace("-", "");
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final AtomicLong appointmentEvents = new AtomicLong();
+    private final AtomicLong patientEvents = new AtomicLong();
+    private long httpCancelled;
+    private long httpDeleted;
+
+    @Test
+    @Order(1)
+    void everyChangeBeforeShutdownIsLogged() throws Exception {
+        try (ConfigurableApplicationContext context = boot()) {
+            context.addApplicationListener((ApplicationListener<ApplicationEvent>) e -> {
+                if (!(e instanceof PayloadApplicationEvent<?> payload)) return;
+                if (payload.getPayload() instanceof AppointmentChangeEvent) appointmentEvents.incrementAndGet();
+                if (payload.getPayload() instanceof PatientChangeEvent) patientEvents.incrementAndGet();
+            });
+            seed(context);
+            mutate(context);
+
+            httpCancelled = someScheduled(context);
+            assertEquals(200, send(context, "PUT", "/api/appointments/" + httpCancelled + "/cancel").statusCode());
+            httpDeleted = context.getBean(PatientService.class).savePatient(new Patient("Audit Test", 40,
+                    "audit.test@example.org", "9000000005", "Allergic to penicillin")).getId();
+            assertEquals(200, send(context, "DELETE", "/api/patients/" + httpDeleted).statusCode());
+
+            // handed straight to the audit log, faster than it writes them; closed right after
+            appointmentEvents.addAndGet(burst(context.getBean(AuditLog.class), 1_000));
+        }
+        assertTrue(segments().size() > 1, "no rotation");
+
+        try (ConfigurableApplicationContext context = boot()) {
+            AuditLog auditLog = context.getBean(AuditLog.class);
+            assertEquals(expected(), auditLog.lastSeq());
+            long[] seen = new long[2];
+            long[] previous = {0};
+            auditLog.replay(0, r -> {
+                assertEquals(previous[0] + 1, r.seq(), "gap");
+                previous[0] = r.seq();
+                seen["appointment".equals(r.entity()) ? 0 : 1]++;
+            });
+            assertEquals(appointmentEvents.get(), seen[0], "appointment entries");
+            assertEquals(patientEvents.get(), seen[1], "patient entries");
+            assertEquals(0, context.getBean(MeterRegistry.class).get("audit.dropped").counter().count());
+        }
+    }
+
+    @Test
+    @Order(2)
+    void entriesCarryTheRequestAndTheRows() throws Exception {
+        try (ConfigurableApplicationContext context = boot()) {
+            AuditLog auditLog = context.getBean(AuditLog.class);
+            List<AuditRecord> cancel = auditLog.query("appointment", httpCancelled, null, null, 0, 1000);
+            AuditRecord cancelled = cancel.get(cancel.size() - 1);
+            assertEquals("CANCELLED", cancelled.action());
+            assertEquals("PUT /api/appointments/" + httpCancelled + "/cancel", cancelled.source());
+            assertEquals("SCHEDULED", cancelled.before().path("status").asText());
+            assertEquals("CANCELLED", cancelled.after().path("status").asText());
+
+            List<AuditRecord> patient = auditLog.query("patient", httpDeleted, null, null, 0, 1000);
+            assertEquals(2, patient.size());
+            assertTrue(patient.get(0).source().startsWith("thread "), patient.get(0).source());
+            AuditRecord deleted = patient.get(1);
+            assertEquals("DELETED", deleted.action());
+            assertNull(deleted.after());
+            assertEquals("Audit Test", deleted.before().path("name").asText());
+            assertFalse(deleted.before().has("medicalHistory"));
+            assertTrue(deleted.source().startsWith("DELETE /api/patients/"), deleted.source());
+
+            // time filter: nothing before "from"
+            AuditRecord middle = auditLog.query(null, null, null, null, expected() / 2, 1).get(0);
+            List<AuditRecord> later = auditLog.query(null, null, middle.at(), null, 0, 1000);
+            assertFalse(later.isEmpty());
+            assertTrue(later.stream().noneMatch(r -> r.at().isBefore(middle.at())));
+
+            ObjectMapper mapper = context.getBean(ObjectMapper.class);
+            long paged = 0;
+            String cursor = null;
+            do {
+                HttpResponse<String> response = send(context, "GET",
+                        "/api/audit?limit=1000" + (cursor == null ? "" : "&cursor=" + cursor));
+                assertEquals(200, response.statusCode(), response::body);
+                JsonNode page = mapper.readTree(response.body());
+                paged += page.path("items").size();
+                cursor = page.path("hasNext").asBoolean() ? page.path("nextCursor").asText() : null;
+            } while (cursor != null);
+            assertEquals(expected(), paged);
+            assertEquals(400, send(context, "GET", "/api/audit?entity=doctor").statusCode());
+        }
+    }
+
+    @Test
+    @Order(3)
+    void tornTailIsCutOffAndNumberingContinues() throws Exception {
+        List<Path> segments = segments();
+        try (FileChannel channel = FileChannel.open(segments.get(segments.size() - 1),
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 200, 0, 0, 0, 1, 2, 3, 4, 5, 6, 7}));
+        }
+        try (ConfigurableApplicationContext context = boot()) {
+            assertEquals(expected(), context.getBean(AuditLog.class).lastSeq());
+            context.getBean(AppointmentService.class).cancelAppointment(someScheduled(context));
+        }
+        try (ConfigurableApplicationContext context = boot()) {
+            assertEquals(expected() + 1, context.getBean(AuditLog.class).lastSeq());
+        }
+    }
+
+    @Test
+    @Order(4)
+    void damagedSegmentIsDetectedAndLaterOnesStillRead() throws Exception {
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long at = channel.size() / 2;
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, at);
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) (b.get(0) ^ 0x10)}), at);
+        }
+        try (ConfigurableApplicationContext context = boot()) {
+            long[] readable = {0};
+            long lastSeq = context.getBean(AuditLog.class).replay(0, r -> readable[0]++);
+            assertTrue(context.getBean(MeterRegistry.class).get("audit.corrupt").counter().count() >= 1,
+                    "damaged byte not detected");
+            assertEquals(expected() + 1, lastSeq, "entries after the damaged segment lost");
+            assertTrue(readable[0] < expected() + 1, "damaged segment read in full");
+        }
+    }
+
+    private long expected() {
+        return appointmentEvents.get() + patientEvents.get();
+    }
+
+    private ConfigurableApplicationContext boot() {
+        return new SpringApplicationBuilder(SmartMedicalApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        // one database for every boot: kept open across contexts, schema created only once
+                        "--spring.datasource.url=jdbc:h2:mem:" + db + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--audit.enabled=true",
+                        "--audit.dir=" + dir,
+                        "--audit.segment-bytes=65536",
+                        "--audit.queue-capacity=16",
+                        "--audit.batch-size=32",
+                        "--audit.fsync=false");
+    }
+
+    private static void seed(ConfigurableApplicationContext context) throws IOException {
+        ImportService importService = context.getBean(ImportService.class);
+        StringBuilder patients = new StringBuilder();
+        for (int i = 0; i < PATIENTS; i++) {
+            patients.append("{\"name\":\"Audit Patient ").append(i).append("\",\"age\":").append(20 + i)
+                    .append(",\"email\":\"audit").append(i).append("@example.com\"}\n");
+        }
+        assertEquals(PATIENTS, importService.importPatients(body(patients)).getImported());
+        long[] patientIds = context.getBean(PatientService.class).getAllPatients().stream()
+                .mapToLong(Patient::getId).sorted().toArray();
+
+        LocalDateTime start = LocalDate.now().minusDays(5).atTime(8, 0);
+        StringBuilder appointments = new StringBuilder();
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            int slot = i / 8;
+            appointments.append("{\"patient\":{\"id\":").append(patientIds[i % PATIENTS])
+                    .append("},\"doctorName\":\"Dr Audit ").append(i % 8).append("\",\"appointmentTime\":\"")
+                    .append(start.plusDays(slot / 8).plusHours(slot % 8).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                    .append("\",\"durationMinutes\":30}\n");
+        }
+        assertEquals(APPOINTMENTS, importService.importAppointments(body(appointments)).getImported());
+    }
+
+    // cancels, moves and patient create/delete pairs from several threads
+    private static void mutate(ConfigurableApplicationContext context) throws Exception {
+        AppointmentService appointments = context.getBean(AppointmentService.class);
+        PatientService patients = context.getBean(PatientService.class);
+        List<AppointmentSummary> rows = context.getBean(AppointmentRepository.class)
+                .findSummaries(PageRequest.of(0, 200, Sort.by("id"))).getContent();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                for (int i = thread; i < rows.size(); i += THREADS) {
+                    AppointmentSummary row = rows.get(i);
+                    switch (i % 3) {
+                        case 0 -> {
+                            if (!"COMPLETED".equalsIgnoreCase(row.status())) appointments.cancelAppointment(row.id());
+                        }
+                        case 1 -> {
+                            Appointment moved = appointments.getAppointmentById(row.id()).orElseThrow();
+                            moved.setDoctorName("Dr Moved " + thread);
+                            moved.setAppointmentTime(LocalDate.now().plusYears(5).atTime(8, 0).plusMinutes(30L * i));
+                            appointments.updateAppointment(row.id(), moved);
+                        }
+                        default -> {
+                            Patient p = patients.savePatient(new Patient("Temp " + i, 30, "temp" + i + "@example.org",
+                                    "9" + i, ""));
+                            if (i % 2 == 0) patients.deletePatient(p.getId());
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+    }
+
+    private static long burst(AuditLog auditLog, int perThread) throws Exception {
+        AppointmentSnapshot row = new AppointmentSnapshot(1L, 1L, "Dr Audit 0",
+                LocalDate.now().plusYears(1).atTime(9, 0), 30, "SCHEDULED");
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) auditLog.onAppointmentChange(AppointmentChangeEvent.updated(row, row));
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+        return (long) THREADS * perThread;
+    }
+
+    private static long someScheduled(ConfigurableApplicationContext context) {
+        AppointmentSummary row = context.getBean(AppointmentRepository.class)
+                .findSummaries(PageRequest.of(0, APPOINTMENTS, Sort.by(Sort.Direction.DESC, "id"))).getContent().stream()
+                .filter(a -> "SCHEDULED".equals(a.status()))
+                .findFirst().orElse(null);
+        assertNotNull(row, "no scheduled appointment left");
+        return row.id();
+    }
+
+    private static List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static ByteArrayInputStream body(StringBuilder ndjson) {
+        return new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private HttpResponse<String> send(ConfigurableApplicationContext context, String method, String path)
+            throws IOException, InterruptedException {
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        return http.send(HttpRequest.newBuilder(URI.create(base + path))
+                .method(method, HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,77 @@
+package com.smartmedical.service;
+
+import com.smartmedical.SmartMedicalApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Shutdown with open {@code /api/changes} streams: every stream gets a proper end of
+ * response instead of a dropped connection, shutdown does not wait out the lifecycle
+ * timeout, and nothing fails while the context closes. Closes the application, so it
+ * starts one of its own instead of sharing the test context.
+ */
+@ExtendWith(OutputCaptureExtension.class)
+class ChangeFeedShutdownTest {
+
+    private static final int SUBSCRIBERS = 5;
+
+    @Test
+    void shutdownEndsEveryStream(CapturedOutput output) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SmartMedicalApplication.class)
+                .profiles("test")
+                .run("--server.port=0");
+        ChangeFeed changeFeed = context.getBean(ChangeFeed.class);
+        URI uri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                + "/api/changes");
+
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        List<CompletableFuture<HttpResponse<Stream<String>>>> responses = new ArrayList<>();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            responses.add(http.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofLines()));
+        }
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (changeFeed.subscriberCount() < SUBSCRIBERS && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(SUBSCRIBERS, changeFeed.subscriberCount());
+        // headers go out with the first event; once they are here every stream is live
+        changeFeed.heartbeat();
+        List<CompletableFuture<List<String>>> bodies = new ArrayList<>();
+        for (CompletableFuture<HttpResponse<Stream<String>>> response : responses) {
+            HttpResponse<Stream<String>> stream = response.get(10, TimeUnit.SECONDS);
+            assertEquals(200, stream.statusCode());
+            bodies.add(CompletableFuture.supplyAsync(() -> stream.body().toList()));
+        }
+
+        long started = System.nanoTime();
+        context.close();
+        long shutdownMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        for (CompletableFuture<List<String>> body : bodies) {
+            assertTrue(body.get(10, TimeUnit.SECONDS).contains(":ping"));
+        }
+        assertTrue(shutdownMs < 10_000, "shutdown took " + shutdownMs + " ms");
+        assertEquals(0, changeFeed.subscriberCount());
+        assertNull(changeFeed.subscribe(), "no new streams once stopped");
+        assertFalse(output.getAll().contains("destroy method failed"), output::getAll);
+    }
+}
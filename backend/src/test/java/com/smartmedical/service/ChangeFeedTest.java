@@ -0,0 +1,153 @@
+package com.smartmedical.service;
+
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@code GET /api/changes} against a real server: an appointment write reaches every open
+ * stream as one {@code appointment} event with its row (or without one once deleted), the
+ * resulting dashboard change follows as a {@code dashboard} delta, and a bulk import larger
+ * than {@code changefeed.max-pending} turns into one {@code resync} per stream instead of
+ * an event per row. {@code ChangeFeedCheck} in the benchmarks holds thousands of streams.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "changefeed.max-pending=20",
+        "changefeed.dashboard-interval-ms=200"})
+@ActiveProfiles("test")
+@DirtiesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ChangeFeedTest {
+
+    private static final int STREAMS = 10;
+    private static final int BULK_ROWS = 200;
+    private static final long WAIT_MS = 10_000;
+
+    @Autowired private ChangeFeed changeFeed;
+    @Autowired private AppointmentService appointmentService;
+    @Autowired private PatientService patientService;
+    @Autowired private ImportService importService;
+    @LocalServerPort private int port;
+
+    private final List<Recorder> streams = new ArrayList<>();
+    private Patient patient;
+
+    @BeforeAll
+    void subscribe() throws InterruptedException {
+        patient = patientService.savePatient(new Patient("Feed Patient", 50, "feed@example.com", "9000000001", ""));
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/changes")).build();
+        for (int i = 0; i < STREAMS; i++) {
+            Recorder recorder = new Recorder();
+            streams.add(recorder);
+            http.sendAsync(request, HttpResponse.BodyHandlers.fromLineSubscriber(recorder));
+        }
+        await(() -> changeFeed.subscriberCount() == STREAMS, "streams open");
+    }
+
+    @Test
+    void writesReachEveryStream() throws InterruptedException {
+        Appointment created = appointmentService.createAppointment(new Appointment(patient, "Dr Feed",
+                LocalDate.now().plusDays(3).atTime(10, 0), "Change feed", "SCHEDULED"));
+        String createdEvent = "\"type\":\"CREATED\",\"id\":" + created.getId() + ",\"appointment\":{";
+        awaitEveryStream(r -> r.has("appointment", createdEvent), "created row");
+        awaitEveryStream(r -> r.has("dashboard", "\"totalAppointments\""), "dashboard delta");
+
+        appointmentService.deleteAppointment(created.getId());
+        String deletedEvent = "\"type\":\"DELETED\",\"id\":" + created.getId() + ",\"appointment\":null";
+        awaitEveryStream(r -> r.has("appointment", deletedEvent), "deleted row");
+    }
+
+    @Test
+    void bulkImportIsOneResync() throws IOException, InterruptedException {
+        int before = streams.get(0).count("appointment");
+        StringBuilder body = new StringBuilder();
+        LocalDateTime start = LocalDate.now().plusDays(30).atTime(8, 0);
+        for (int i = 0; i < BULK_ROWS; i++) {
+            body.append("{\"patient\":{\"id\":").append(patient.getId()).append("},\"doctorName\":\"Dr Bulk ")
+                    .append(i % 10).append("\",\"appointmentTime\":\"")
+                    .append(start.plusMinutes(30L * (i / 10)).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                    .append("\",\"durationMinutes\":30}\n");
+        }
+        assertEquals(BULK_ROWS, importService.importAppointments(
+                new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8))).getImported());
+
+        awaitEveryStream(r -> r.count("resync") > 0, "resync");
+        for (Recorder r : streams) {
+            assertTrue(r.count("appointment") - before < BULK_ROWS, "bulk import sent row by row");
+        }
+    }
+
+    private void awaitEveryStream(Predicate<Recorder> condition, String what) throws InterruptedException {
+        await(() -> streams.stream().allMatch(condition), what + " on every stream");
+    }
+
+    private static void await(BooleanSupplier condition, String what) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting for " + what);
+            Thread.sleep(20);
+        }
+    }
+
+    // every event of one stream as (name, data); lines arrive without a thread per stream
+    private static final class Recorder implements Flow.Subscriber<String> {
+        private final List<String[]> events = new ArrayList<>();
+        private String name;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public synchronized void onNext(String line) {
+            if (line.startsWith("event:")) {
+                name = line.substring("event:".length());
+            } else if (line.startsWith("data:") && name != null) {
+                events.add(new String[]{name, line.substring("data:".length())});
+                name = null;
+            }
+        }
+
+        synchronized boolean has(String event, String dataPart) {
+            return events.stream().anyMatch(e -> e[0].equals(event) && e[1].contains(dataPart));
+        }
+
+        synchronized int count(String event) {
+            return (int) events.stream().filter(e -> e[0].equals(event)).count();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {}
+
+        @Override
+        public void onComplete() {}
+    }
+}
@@ -0,0 +1,164 @@
+package com.smartmedical.service;
+
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.dto.DashboardConsistencyReport;
+import com.smartmedical.dto.DashboardStats;
+import com.smartmedical.dto.ImportReport;
+import com.smartmedical.model.Patient;
+import com.smartmedical.repository.AppointmentRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The daily rollup against the live dashboard counters: over the whole history
+ * {@link DashboardRollupStore#rangeStats} gives the same per-day, per-doctor and per-status
+ * counts as {@code /api/dashboard}, before and after each flush, after cancels and deletes,
+ * after a backfill and after deletes racing consistency repairs; week and month buckets add
+ * up to the same total. The steps build on each other, so they run in order.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        // flushed by the test only
+        properties = "dashboard.rollup.flush-interval-ms=3600000")
+@ActiveProfiles("test")
+@DirtiesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class DashboardRollupTest {
+
+    private static final int APPOINTMENTS = 600;
+    private static final int DOCTORS = 6;
+    private static final String[] STATUSES = {"SCHEDULED", "SCHEDULED", "COMPLETED", "CANCELLED"};
+
+    @Autowired private DashboardAggregateStore live;
+    @Autowired private DashboardRollupStore rollup;
+    @Autowired private AppointmentService appointmentService;
+    @Autowired private AppointmentRepository appointmentRepository;
+    @Autowired private PatientService patientService;
+    @Autowired private ImportService importService;
+
+    @BeforeAll
+    void seed() throws IOException {
+        List<Long> patientIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            patientIds.add(patientService.savePatient(new Patient("Rollup Patient " + i, 20 + i, "rollup" + i
+                    + "@example.com", "90000001" + String.format("%02d", i), "")).getId());
+        }
+        // two months either side of today, several doctors and statuses a day
+        LocalDateTime start = LocalDate.now().minusDays(60).atTime(8, 0);
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            int slot = i / DOCTORS;
+            LocalDateTime time = start.plusDays(slot / 5).plusHours(slot % 5);
+            body.append("{\"patient\":{\"id\":").append(patientIds.get(i % patientIds.size()))
+                    .append("},\"doctorName\":\"Dr Rollup ").append(i % DOCTORS)
+                    .append("\",\"appointmentTime\":\"").append(time.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                    .append("\",\"durationMinutes\":30,\"status\":\"").append(STATUSES[i % STATUSES.length])
+                    .append("\"}\n");
+        }
+        ImportReport report = importService.importAppointments(
+                new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+        assertEquals(APPOINTMENTS, report.getImported());
+    }
+
+    @Test
+    @Order(1)
+    void matchesLiveCountersBeforeAndAfterFlush() {
+        assertSameAsLive();
+        rollup.flush();
+        assertSameAsLive();
+    }
+
+    @Test
+    @Order(2)
+    void matchesAfterCancelsAndDeletes() {
+        List<AppointmentSummary> some = page(0, 100);
+        for (int i = 0; i < some.size(); i++) {
+            AppointmentSummary a = some.get(i);
+            if (i % 2 == 0) appointmentService.deleteAppointment(a.id());
+            else if (!"COMPLETED".equalsIgnoreCase(a.status())) appointmentService.cancelAppointment(a.id());
+        }
+        assertSameAsLive();
+        rollup.flush();
+        assertSameAsLive();
+    }
+
+    @Test
+    @Order(3)
+    void matchesAfterBackfill() {
+        rollup.backfill(null, null);
+        assertSameAsLive();
+    }
+
+    @Test
+    @Order(4)
+    void deletesRacingRepairsAreCountedOnce() throws Exception {
+        List<AppointmentSummary> racing = page(1, 150);
+        ExecutorService writers = Executors.newFixedThreadPool(2);
+        List<Future<?>> done = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            int offset = w;
+            done.add(writers.submit(() -> {
+                for (int i = offset; i < racing.size(); i += 2) appointmentService.deleteAppointment(racing.get(i).id());
+            }));
+        }
+        int repairs = 0;
+        while (!done.stream().allMatch(Future::isDone)) {
+            live.checkConsistency(true);
+            repairs++;
+        }
+        for (Future<?> f : done) f.get(1, TimeUnit.MINUTES);
+        writers.shutdown();
+
+        assertTrue(repairs > 0);
+        DashboardConsistencyReport consistency = live.checkConsistency(false);
+        assertTrue(consistency.isConsistent(), () -> "live counters differ from a recompute: "
+                + consistency.getDifferences());
+        assertSameAsLive();
+    }
+
+    private List<AppointmentSummary> page(int page, int size) {
+        return appointmentRepository.findSummaries(PageRequest.of(page, size, Sort.by("id"))).getContent();
+    }
+
+    private void assertSameAsLive() {
+        DashboardStats expected = live.snapshot();
+        LocalDate from = LocalDate.now().minusYears(20);
+        LocalDate to = LocalDate.now().plusYears(20);
+        DashboardStats actual = rollup.rangeStats(from, to, Granularity.DAY);
+        assertEquals(expected.getTotalAppointments(), actual.getTotalAppointments(), "totalAppointments");
+        assertEquals(expected.getAppointmentsPerDay(), actual.getAppointmentsPerDay(), "appointmentsPerDay");
+        assertEquals(expected.getAppointmentsPerDoctor(), actual.getAppointmentsPerDoctor(), "appointmentsPerDoctor");
+        assertEquals(expected.getStatusBreakdown(), actual.getStatusBreakdown(), "statusBreakdown");
+        for (Granularity g : List.of(Granularity.WEEK, Granularity.MONTH)) {
+            long sum = rollup.rangeStats(from, to, g).getAppointmentsPerDay().values().stream()
+                    .mapToLong(Long::longValue).sum();
+            assertEquals(expected.getTotalAppointments(), sum, g + " buckets total");
+        }
+    }
+}
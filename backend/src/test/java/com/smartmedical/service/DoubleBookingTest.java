@@ -0,0 +1,198 @@
+package com.smartmedical.service;
+
+import com.smartmedical.dto.ImportReport;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import com.smartmedical.repository.AppointmentRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Double-booking detection through {@link DoctorScheduleIndex}: overlaps are refused
+ * whatever the spelling of the doctor, touching slots and cancelled ones are not, and
+ * concurrent creates, moves, cancels and imports leave no overlap in the database and an
+ * index that matches it. {@code ScheduleStressCheck} in the benchmarks runs the same mix
+ * at a larger scale.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@DirtiesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DoubleBookingTest {
+
+    // same diary spelled differently on purpose (index keys are case/space-insensitive)
+    private static final String[] DOCTORS = {"Dr A", "dr a ", "Dr B", "DR B"};
+    private static final int[] DURATIONS = {15, 30, 45, 60};
+    private static final LocalDateTime WINDOW_START = LocalDateTime.of(2031, 3, 1, 8, 0);
+    private static final int WINDOW_QUARTERS = 4 * 12; // twelve hours in 15-minute steps, so most attempts collide
+    private static final int THREADS = 8;
+    private static final int OPS_PER_THREAD = 150;
+
+    @Autowired private AppointmentService appointmentService;
+    @Autowired private ImportService importService;
+    @Autowired private PatientService patientService;
+    @Autowired private AppointmentRepository appointmentRepository;
+    @Autowired private DoctorScheduleIndex scheduleIndex;
+
+    private Patient patient;
+
+    @BeforeAll
+    void seed() {
+        patient = patientService.savePatient(new Patient("Booking Patient", 30, "booking@example.com", "9000000000", ""));
+    }
+
+    @Test
+    void overlapIsRefusedWhateverTheSpelling() {
+        LocalDateTime nine = LocalDateTime.of(2031, 4, 1, 9, 0);
+        appointmentService.createAppointment(appointment("Dr Overlap", nine, 30));
+
+        assertThrows(AppointmentConflictException.class,
+                () -> appointmentService.createAppointment(appointment("  dr OVERLAP", nine.plusMinutes(15), 30)));
+        assertThrows(AppointmentConflictException.class,
+                () -> appointmentService.createAppointment(appointment("Dr Overlap", nine.minusMinutes(15), 30)));
+        // back to back is fine
+        assertDoesNotThrow(() -> appointmentService.createAppointment(appointment("Dr Overlap", nine.plusMinutes(30), 15)));
+        assertDoesNotThrow(() -> appointmentService.createAppointment(appointment("Dr Overlap", nine.minusMinutes(15), 15)));
+        // another doctor's diary
+        assertDoesNotThrow(() -> appointmentService.createAppointment(appointment("Dr Elsewhere", nine, 30)));
+    }
+
+    @Test
+    void movingOntoAnotherSlotIsRefusedAndCancelledSlotsAreFree() {
+        LocalDateTime ten = LocalDateTime.of(2031, 4, 2, 10, 0);
+        Appointment first = appointmentService.createAppointment(appointment("Dr Move", ten, 30));
+        Appointment second = appointmentService.createAppointment(appointment("Dr Move", ten.plusHours(1), 30));
+
+        assertThrows(AppointmentConflictException.class,
+                () -> appointmentService.updateAppointment(second.getId(), appointment("Dr Move", ten.plusMinutes(15), 30)));
+        // a row never conflicts with itself
+        assertDoesNotThrow(() -> appointmentService.updateAppointment(first.getId(), appointment("Dr Move", ten.plusMinutes(10), 30)));
+
+        appointmentService.cancelAppointment(first.getId());
+        assertDoesNotThrow(() -> appointmentService.updateAppointment(second.getId(), appointment("Dr Move", ten, 30)));
+    }
+
+    @Test
+    void concurrentWritesNeverDoubleBook() throws Exception {
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        Queue<Long> ids = new ConcurrentLinkedQueue<>();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                go.await();
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    int op = rnd.nextInt(100);
+                    try {
+                        if (op < 70) {
+                            ids.add(appointmentService.createAppointment(randomAppointment(rnd)).getId());
+                        } else if (op < 85) {
+                            Long id = ids.peek();
+                            if (id == null) continue;
+                            appointmentService.updateAppointment(id, randomAppointment(rnd));
+                        } else if (op < 95) {
+                            Long id = ids.poll();
+                            if (id == null) continue;
+                            appointmentService.cancelAppointment(id);
+                        } else {
+                            ImportReport report = importService.importAppointments(randomImport(rnd));
+                            rejected.addAndGet(report.getFailed());
+                        }
+                        accepted.incrementAndGet();
+                    } catch (AppointmentConflictException ex) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        for (Future<?> w : workers) {
+            w.get(2, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        assertTrue(accepted.get() > 0 && rejected.get() > 0, "the mix must both book and collide");
+        assertEquals(List.of(), violations());
+    }
+
+    private Appointment appointment(String doctor, LocalDateTime time, int minutes) {
+        Appointment a = new Appointment(patient, doctor, time, "booking", "SCHEDULED");
+        a.setDurationMinutes(minutes);
+        return a;
+    }
+
+    private Appointment randomAppointment(ThreadLocalRandom rnd) {
+        return appointment(DOCTORS[rnd.nextInt(DOCTORS.length)],
+                WINDOW_START.plusMinutes(15L * rnd.nextInt(WINDOW_QUARTERS)), DURATIONS[rnd.nextInt(DURATIONS.length)]);
+    }
+
+    // small NDJSON batch; overlaps inside the batch itself are likely too
+    private ByteArrayInputStream randomImport(ThreadLocalRandom rnd) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            Appointment a = randomAppointment(rnd);
+            body.append("{\"patient\":{\"id\":").append(patient.getId()).append("},\"doctorName\":\"")
+                    .append(a.getDoctorName()).append("\",\"appointmentTime\":\"")
+                    .append(a.getAppointmentTime().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                    .append("\",\"durationMinutes\":").append(a.getDurationMinutes()).append("}\n");
+        }
+        return new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // overlapping live rows per doctor, and any difference between the index and the database
+    private List<String> violations() {
+        Map<String, List<Appointment>> held = new TreeMap<>();
+        Map<String, String> spelling = new HashMap<>();
+        for (Appointment a : appointmentRepository.findAll()) {
+            if ("CANCELLED".equalsIgnoreCase(a.getStatus())) continue;
+            String key = a.getDoctorName().trim().toLowerCase(Locale.ROOT);
+            held.computeIfAbsent(key, k -> new ArrayList<>()).add(a);
+            spelling.putIfAbsent(key, a.getDoctorName());
+        }
+
+        List<String> violations = new ArrayList<>();
+        for (Map.Entry<String, List<Appointment>> e : held.entrySet()) {
+            List<Appointment> rows = e.getValue();
+            rows.sort(Comparator.comparing(Appointment::getAppointmentTime));
+            for (int i = 1; i < rows.size(); i++) {
+                Appointment prev = rows.get(i - 1);
+                Appointment cur = rows.get(i);
+                if (prev.getAppointmentTime().plusMinutes(prev.getDurationMinutes()).isAfter(cur.getAppointmentTime())) {
+                    violations.add(e.getKey() + ": appointment " + prev.getId() + " overlaps " + cur.getId());
+                }
+            }
+
+            Set<Long> inDb = new TreeSet<>();
+            rows.forEach(a -> inDb.add(a.getId()));
+            Set<Long> inIndex = new TreeSet<>();
+            scheduleIndex.slotsBetween(spelling.get(e.getKey()), LocalDateTime.of(2031, 1, 1, 0, 0),
+                    LocalDateTime.of(2032, 1, 1, 0, 0)).forEach(s -> inIndex.add(s.appointmentId()));
+            if (!inDb.equals(inIndex)) {
+                violations.add(e.getKey() + ": index " + inIndex + " vs database " + inDb);
+            }
+        }
+        return violations;
+    }
+}
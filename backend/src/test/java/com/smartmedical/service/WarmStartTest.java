@@ -0,0 +1,192 @@
+package com.smartmedical.service;
+
+import com.smartmedical.SmartMedicalApplication;
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.dto.DashboardConsistencyReport;
+import com.smartmedical.dto.ImportReport;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import com.smartmedical.repository.AppointmentRepository;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Warm start from the appointment snapshot file over several boots of one database: the
+ * first shutdown writes the file; a boot from it loads dashboard counters and doctor
+ * schedules equal to a fresh load from the database, before and after creates, moves,
+ * cancels, deletes and a sweep; changes made by an instance that wrote no file (as after a
+ * crash) are replayed; a corrupted file is ignored. Every step boots its own application,
+ * so the steps run in order. {@code WarmStartCheck} in the benchmarks times the boots at
+ * full size.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class WarmStartTest {
+
+    private static final int APPOINTMENTS = 600;
+
+    // shared by the steps: the file one boot writes is the one the next boot reads
+    @TempDir static Path dir;
+    private final String db = "warm_" + UUID.randomUUID().toString().replace("-", "");
+
+    @Test
+    @Order(1)
+    void firstShutdownWritesTheFile() throws IOException {
+        try (ConfigurableApplicationContext context = boot(true)) {
+            seed(context);
+        }
+        assertTrue(Files.size(snapshot()) > 0);
+    }
+
+    @Test
+    @Order(2)
+    void warmBootMatchesTheDatabase() {
+        try (ConfigurableApplicationContext context = boot(true)) {
+            assertLoadedLikeTheDatabase(context, true);
+            mutate(context, 0);
+            context.getBean(AppointmentStatusSweeper.class).sweep();
+            assertLoadedLikeTheDatabase(context, true);
+        }
+    }
+
+    @Test
+    @Order(3)
+    void changesMadeWithoutTheFileAreReplayed() {
+        // an instance without snapshots changes rows and stops: the file knows nothing of it
+        try (ConfigurableApplicationContext context = boot(false)) {
+            mutate(context, 1);
+        }
+        try (ConfigurableApplicationContext context = boot(true)) {
+            assertLoadedLikeTheDatabase(context, true);
+        }
+    }
+
+    @Test
+    @Order(4)
+    void corruptFileIsIgnored() throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), 100);
+        }
+        try (ConfigurableApplicationContext context = boot(true)) {
+            assertLoadedLikeTheDatabase(context, false);
+        }
+    }
+
+    private Path snapshot() {
+        return dir.resolve("appointments.snapshot");
+    }
+
+    private ConfigurableApplicationContext boot(boolean snapshots) {
+        return new SpringApplicationBuilder(SmartMedicalApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run(
+                        // one database for every boot: kept open across contexts, schema created only once
+                        "--spring.datasource.url=jdbc:h2:mem:" + db + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--snapshot.enabled=" + snapshots,
+                        "--snapshot.path=" + snapshot(),
+                        "--snapshot.initial-delay-ms=86400000",
+                        // everything here happens within a minute: without this every row would count as changed
+                        "--snapshot.replay-margin-seconds=0",
+                        "--dashboard.rollup.flush-interval-ms=3600000");
+    }
+
+    private static void seed(ConfigurableApplicationContext context) throws IOException {
+        long patientId = context.getBean(PatientService.class)
+                .savePatient(new Patient("Warm Patient", 61, "warm@example.com", "9000000003", "")).getId();
+        LocalDateTime start = LocalDate.now().minusDays(30).atTime(8, 0);
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            int slot = i / 6;
+            body.append("{\"patient\":{\"id\":").append(patientId).append("},\"doctorName\":\"Dr Warm ")
+                    .append(i % 6).append("\",\"appointmentTime\":\"")
+                    .append(start.plusDays(slot / 8).plusHours(slot % 8).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                    .append("\",\"durationMinutes\":30,\"status\":\"").append(i % 5 == 0 ? "CANCELLED" : "SCHEDULED")
+                    .append("\"}\n");
+        }
+        ImportReport report = context.getBean(ImportService.class).importAppointments(
+                new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+        assertEquals(APPOINTMENTS, report.getImported());
+    }
+
+    // creates, moves, cancels and deletes a hundred rows; round keeps names and times apart
+    private static void mutate(ConfigurableApplicationContext context, int round) {
+        AppointmentService service = context.getBean(AppointmentService.class);
+        List<AppointmentSummary> rows = context.getBean(AppointmentRepository.class)
+                .findSummaries(PageRequest.of(round, 100, Sort.by("id"))).getContent();
+        LocalDateTime base = LocalDate.now().plusYears(3 + round).atTime(8, 0);
+        for (int i = 0; i < rows.size(); i++) {
+            AppointmentSummary a = rows.get(i);
+            switch (i % 4) {
+                case 0 -> service.deleteAppointment(a.id());
+                case 1 -> {
+                    if (!"COMPLETED".equalsIgnoreCase(a.status())) service.cancelAppointment(a.id());
+                }
+                case 2 -> {
+                    Appointment moved = service.getAppointmentById(a.id()).orElseThrow();
+                    moved.setDoctorName("Dr Moved " + round + "-" + i);
+                    moved.setAppointmentTime(base.plusMinutes(i));
+                    service.updateAppointment(a.id(), moved);
+                }
+                default -> {
+                    Appointment copy = service.getAppointmentById(a.id()).orElseThrow();
+                    // a past sub-second start: the sweeper completes it, the file must keep the nanos
+                    LocalDateTime time = i % 8 == 3 ? LocalDateTime.now().minusHours(1).withNano(123_456_000)
+                            : base.plusDays(1).plusMinutes(i);
+                    service.createAppointment(new Appointment(copy.getPatient(), "Dr New " + round + "-" + i, time,
+                            "Warm start", "SCHEDULED"));
+                }
+            }
+        }
+    }
+
+    private static void assertLoadedLikeTheDatabase(ConfigurableApplicationContext context, boolean warm) {
+        assertEquals(warm, context.getBean(AppointmentSnapshotStore.class).warmStarted(), "warm start");
+
+        DashboardConsistencyReport report = context.getBean(DashboardAggregateStore.class).checkConsistency(false);
+        assertTrue(report.isConsistent(), () -> "dashboard " + report.getDifferences());
+
+        DoctorScheduleIndex index = context.getBean(DoctorScheduleIndex.class);
+        Map<String, List<DoctorScheduleIndex.Slot>> loaded = schedules(index);
+        index.rebuild();
+        assertEquals(schedules(index), loaded, "doctor schedules");
+    }
+
+    private static Map<String, List<DoctorScheduleIndex.Slot>> schedules(DoctorScheduleIndex index) {
+        Map<String, List<DoctorScheduleIndex.Slot>> all = new TreeMap<>();
+        LocalDateTime from = LocalDateTime.of(1900, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2200, 1, 1, 0, 0);
+        for (String doctor : index.doctorNames()) {
+            all.put(doctor, index.slotsBetween(doctor, from, to));
+        }
+        return all;
+    }
+}
@@ -0,0 +1,126 @@
+package com.smartmedical.bench;
+
+import com.smartmedical.dto.ArchiveStats;
+import com.smartmedical.repository.AppointmentRepository;
+import com.smartmedical.service.AppointmentArchive;
+import com.smartmedical.service.AppointmentService;
+import com.smartmedical.service.AppointmentStatusSweeper;
+import com.smartmedical.service.DashboardAggregateStore;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Hot/cold tiering ({@link AppointmentArchive}) at full size over two boots of one
+ * database: seeded history, the overdue rows swept to COMPLETED, the unranged list, a
+ * recent range and a dashboard recount timed; then the archive runs in batches of
+ * {@value #BATCH_SIZE}, at most {@value #MAX_BATCHES_PER_RUN} per run, until it has caught
+ * up, and the same reads are timed again. Exits non-zero if nothing was archived or the
+ * live table did not shrink by exactly the archived rows. {@code ArchiveTest} checks that
+ * every read stays complete across the move.
+ * Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbench.main=com.smartmedical.bench.ArchiveCheck -Dbench.args="2000 100000 60"}
+ * (patients, appointments, archive horizon in days).
+ */
+public final class ArchiveCheck {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_BATCHES_PER_RUN = 10;
+
+    private ArchiveCheck() {}
+
+    public static void main(String[] args) throws Exception {
+        int patients = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int appointments = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int horizonDays = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+
+        String db = "archive_" + UUID.randomUUID().toString().replace("-", "");
+        String[] props = {
+                // one database for both boots, like WarmStartCheck
+                "spring.datasource.url=jdbc:h2:mem:" + db + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "dashboard.rollup.flush-interval-ms=3600000",
+                "archive.horizon-days=" + horizonDays,
+                "archive.batch-size=" + BATCH_SIZE,
+                "archive.max-batches-per-run=" + MAX_BATCHES_PER_RUN};
+        List<String> failures = new ArrayList<>();
+
+        ConfigurableApplicationContext context = BenchmarkApp.start(props);
+        new SyntheticData(23).load(context, patients, appointments);
+        AppointmentStatusSweeper sweeper = context.getBean(AppointmentStatusSweeper.class);
+        do {
+            sweeper.sweep();
+        } while (sweeper.getStats().getLagSeconds() > 0);
+        LocalDateTime now = LocalDateTime.now();
+        Timings beforeTimings = Timings.measure(context, now);
+        long liveBefore = context.getBean(AppointmentRepository.class).count();
+        context.close();
+
+        context = BenchmarkApp.start(props);
+        AppointmentArchive archive = context.getBean(AppointmentArchive.class);
+        AppointmentRepository repository = context.getBean(AppointmentRepository.class);
+        LocalDateTime cutoff = archive.cutoff(LocalDateTime.now());
+        long started = System.nanoTime();
+        long moved = 0;
+        int runs = 0;
+        ArchiveStats stats;
+        do {
+            archive.archiveOld();
+            stats = archive.getStats();
+            runs++;
+            moved += stats.getLastRunRows();
+        } while (!stats.isCaughtUp());
+        long archiveMs = (System.nanoTime() - started) / 1_000_000;
+
+        long liveAfter = repository.count();
+        System.out.printf("archived %d of %d appointments (older than %s) in %d runs of at most %d x %d rows, %d ms%n",
+                moved, liveBefore, cutoff.toLocalDate(), runs, MAX_BATCHES_PER_RUN, BATCH_SIZE, archiveMs);
+        if (moved == 0) failures.add("nothing archived; use a horizon inside the seeded history");
+        if (liveAfter != liveBefore - moved) failures.add("moved " + moved + ", live " + liveBefore + " -> " + liveAfter);
+
+        Timings afterTimings = Timings.measure(context, now);
+        System.out.printf("%-34s %10s %10s%n", "", "before", "after");
+        System.out.printf("%-34s %10d %10d%n", "live rows", liveBefore, liveAfter);
+        System.out.printf("%-34s %8d ms %7d ms%n", "GET /api/appointments (stream)", beforeTimings.listMs, afterTimings.listMs);
+        System.out.printf("%-34s %8d ms %7d ms%n", "GET /range (last 7 days)", beforeTimings.recentRangeMs, afterTimings.recentRangeMs);
+        System.out.printf("%-34s %8d ms %7d ms%n", "dashboard recount", beforeTimings.recountMs, afterTimings.recountMs);
+        context.close();
+
+        failures.forEach(f -> System.out.println("FAIL: " + f));
+        System.out.println(failures.isEmpty() ? "OK" : failures.size() + " failure(s)");
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    // best of five, ms
+    private record Timings(long listMs, long recentRangeMs, long recountMs) {
+
+        static Timings measure(ConfigurableApplicationContext context, LocalDateTime now) {
+            AppointmentService service = context.getBean(AppointmentService.class);
+            DashboardAggregateStore dashboard = context.getBean(DashboardAggregateStore.class);
+            Set<Long> sink = new HashSet<>();
+            return new Timings(
+                    best(() -> {
+                        sink.clear();
+                        service.streamAllAppointments(r -> sink.add(r.id()));
+                        return sink.size();
+                    }),
+                    best(() -> service.getAppointmentsBetween(now.minusDays(7), now).size()),
+                    best(() -> dashboard.checkConsistency(false).isConsistent()));
+        }
+
+        private static long best(Supplier<?> call) {
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < 5; i++) {
+                long t0 = System.nanoTime();
+                call.get();
+                best = Math.min(best, (System.nanoTime() - t0) / 1_000_000);
+            }
+            return best;
+        }
+    }
+}
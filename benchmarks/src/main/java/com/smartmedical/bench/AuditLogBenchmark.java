@@ -0,0 +1,106 @@
+package com.smartmedical.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartmedical.event.AppointmentChangeEvent;
+import com.smartmedical.event.AppointmentSnapshot;
+import com.smartmedical.service.AuditLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Cost of auditing one appointment change for the thread that made it, 8 threads at
+ * once: {@code queued} hands the event to {@link AuditLog} (queue, batched writes by its
+ * writer thread); {@code synchronous} is the obvious alternative, serializing and
+ * writing each entry on the calling thread under a lock. With {@code fsync=true} both
+ * force every entry to disk before it counts, per batch vs per entry. The producers run
+ * faster than any disk, so the queue stays full and {@code queued} measures what the
+ * writer sustains; the counts it wrote are printed after each trial. Files go to a temp
+ * directory, which should be on the disk being measured ({@code -Djava.io.tmpdir}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(8)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class AuditLogBenchmark {
+
+    @Param({"true", "false"})
+    public boolean fsync;
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    private final AtomicLong ids = new AtomicLong();
+    private final LocalDateTime start = LocalDateTime.of(2030, 1, 7, 9, 0);
+    private Path dir;
+    private MeterRegistry meters;
+    private AuditLog auditLog;
+    private FileChannel syncFile;
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("audit-bench");
+        meters = new SimpleMeterRegistry();
+        auditLog = new AuditLog(mapper, meters, true, dir.resolve("queued").toString(),
+                65_536, 1024, 64L << 20, fsync, 0, 60_000);
+        syncFile = FileChannel.open(dir.resolve("synchronous.log"), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        long started = System.nanoTime();
+        auditLog.destroy();
+        System.out.printf("%nqueued: %d entries written (queue full %d times, dropped %d), shutdown drained in %d ms; "
+                        + "synchronous: %d MB%n",
+                (long) meters.get("audit.records").counter().count(),
+                (long) meters.get("audit.queue.full").counter().count(),
+                (long) meters.get("audit.dropped").counter().count(),
+                (System.nanoTime() - started) / 1_000_000, syncFile.size() >> 20);
+        syncFile.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.delete(p);
+        }
+    }
+
+    @Benchmark
+    public void queued() {
+        auditLog.onAppointmentChange(nextChange());
+    }
+
+    @Benchmark
+    public void synchronous() throws IOException {
+        AppointmentChangeEvent change = nextChange();
+        byte[] json = mapper.writeValueAsBytes(change);
+        ByteBuffer entry = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+        syncLock.lock();
+        try {
+            while (entry.hasRemaining()) syncFile.write(entry);
+            if (fsync) syncFile.force(false);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private AppointmentChangeEvent nextChange() {
+        long id = ids.incrementAndGet();
+        AppointmentSnapshot before = new AppointmentSnapshot(id, id % 5000, SyntheticData.doctorName((int) (id % 40)),
+                start.plusMinutes(30 * (id % 10_000)), 30, "SCHEDULED");
+        return AppointmentChangeEvent.cancelled(before, before.withStatus("CANCELLED"));
+    }
+}
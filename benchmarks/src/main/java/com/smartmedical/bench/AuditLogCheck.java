@@ -0,0 +1,250 @@
+package com.smartmedical.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.event.AppointmentChangeEvent;
+import com.smartmedical.event.AppointmentSnapshot;
+import com.smartmedical.event.PatientChangeEvent;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import com.smartmedical.repository.AppointmentRepository;
+import com.smartmedical.service.AppointmentService;
+import com.smartmedical.service.AuditLog;
+import com.smartmedical.service.ImportService;
+import com.smartmedical.service.PatientService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Audit log cost at full size, with small segments (rotation) and a small queue
+ * (appenders wait for the writer): a bulk import, concurrent cancels, moves, patient
+ * creates and deletes, another import and a burst of appends, then an immediate shutdown;
+ * after a restart the whole log is replayed and paged through {@code /api/audit}. Prints
+ * the time of each; exits non-zero if an entry was dropped or is missing after the
+ * restart. {@code AuditLogTest} checks the entries, torn tails and damaged segments. Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbench.main=com.smartmedical.bench.AuditLogCheck -Dbench.args="2000 50000 8"}
+ * (patients, appointments, writer threads).
+ */
+public final class AuditLogCheck {
+
+    private AuditLogCheck() {}
+
+    public static void main(String[] args) throws Exception {
+        int patients = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int appointments = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        Path dir = Files.createTempDirectory("audit-check");
+        String db = "audit_" + UUID.randomUUID().toString().replace("-", "");
+        List<String> common = List.of(
+                "spring.datasource.url=jdbc:h2:mem:" + db + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "audit.enabled=true",
+                "audit.dir=" + dir,
+                "audit.segment-bytes=1048576",
+                "audit.queue-capacity=64",
+                "audit.batch-size=256",
+                "logging.level.com.smartmedical.service.AuditLog=INFO");
+        List<String> failures = new ArrayList<>();
+
+        // 1. writes from everywhere, then shutdown straight away
+        ConfigurableApplicationContext context = boot(common);
+        AtomicLong appointmentEvents = new AtomicLong();
+        AtomicLong patientEvents = new AtomicLong();
+        context.addApplicationListener((ApplicationListener<ApplicationEvent>) e -> {
+            if (!(e instanceof PayloadApplicationEvent<?> payload)) return;
+            if (payload.getPayload() instanceof AppointmentChangeEvent) appointmentEvents.incrementAndGet();
+            if (payload.getPayload() instanceof PatientChangeEvent) patientEvents.incrementAndGet();
+        });
+        MeterRegistry meters = context.getBean(MeterRegistry.class);
+        Counter queueFull = meters.get("audit.queue.full").counter();
+        Counter dropped = meters.get("audit.dropped").counter();
+
+        long t0 = System.nanoTime();
+        long[] patientIds = new SyntheticData(23).load(context, patients, appointments);
+        System.out.printf("import of %d patients + %d appointments with auditing: %d ms%n",
+                patients, appointments, (System.nanoTime() - t0) / 1_000_000);
+        t0 = System.nanoTime();
+        long changes = mutate(context, threads, appointments / 50);
+        System.out.printf("%d concurrent changes on %d threads: %d ms%n",
+                changes, threads, (System.nanoTime() - t0) / 1_000_000);
+
+        // a last import burst, and shutdown without waiting for the writer to catch up
+        SyntheticData data = new SyntheticData(29);
+        context.getBean(ImportService.class).importAppointments(
+                new ByteArrayInputStream(data.appointmentsNdjson(patientIds, appointments / 5)));
+        // and changes handed straight to the audit log, faster than it writes them
+        long burst = burst(context.getBean(AuditLog.class), threads, 20_000);
+        long queuedAtClose = context.getBean(AuditLog.class).lastSeq();
+        t0 = System.nanoTime();
+        context.close();
+        appointmentEvents.addAndGet(burst);
+        long expected = appointmentEvents.get() + patientEvents.get();
+        System.out.printf("shutdown: %d ms (%d of %d entries were readable before it), queue full %d times, dropped %d%n",
+                (System.nanoTime() - t0) / 1_000_000, queuedAtClose, expected, (long) queueFull.count(),
+                (long) dropped.count());
+        if (dropped.count() != 0) failures.add("entries dropped: " + (long) dropped.count());
+        List<Path> segments = segments(dir);
+        System.out.printf("%d segments, %d bytes%n", segments.size(), totalBytes(segments));
+        if (segments.size() < 2) failures.add("no rotation: " + segments.size() + " segment(s)");
+
+        // 2. a restart: replay and page through everything
+        context = boot(common);
+        AuditLog auditLog = context.getBean(AuditLog.class);
+        if (auditLog.lastSeq() != expected) failures.add("last seq " + auditLog.lastSeq() + ", expected " + expected);
+        long[] seen = new long[3];
+        long[] previous = {0};
+        t0 = System.nanoTime();
+        auditLog.replay(0, r -> {
+            if (r.seq() != previous[0] + 1 && seen[2]++ < 5) failures.add("gap: seq " + r.seq() + " after " + previous[0]);
+            previous[0] = r.seq();
+            if ("appointment".equals(r.entity())) seen[0]++;
+            else seen[1]++;
+        });
+        System.out.printf("replay of %d entries: %d ms%n", seen[0] + seen[1], (System.nanoTime() - t0) / 1_000_000);
+        if (seen[0] != appointmentEvents.get() || seen[1] != patientEvents.get()) {
+            failures.add("replayed " + seen[0] + " appointment / " + seen[1] + " patient entries, published "
+                    + appointmentEvents.get() + " / " + patientEvents.get());
+        }
+
+        Http http = new Http(context);
+        t0 = System.nanoTime();
+        long paged = 0;
+        int pages = 0;
+        String cursor = null;
+        do {
+            HttpResponse<String> response = http.send("GET", "/api/audit?limit=1000" + (cursor == null ? "" : "&cursor=" + cursor));
+            if (response.statusCode() != 200) {
+                failures.add("GET /api/audit: " + response.statusCode() + " " + response.body());
+                break;
+            }
+            JsonNode page = http.mapper.readTree(response.body());
+            paged += page.path("items").size();
+            cursor = page.path("hasNext").asBoolean() ? page.path("nextCursor").asText() : null;
+            pages++;
+        } while (cursor != null);
+        System.out.printf("GET /api/audit: %d entries in %d pages, %d ms%n", paged, pages, (System.nanoTime() - t0) / 1_000_000);
+        if (paged != expected) failures.add("paged through " + paged + " entries, expected " + expected);
+        context.close();
+
+        failures.forEach(f -> System.out.println("FAIL: " + f));
+        System.out.println(failures.isEmpty() ? "OK" : failures.size() + " failure(s)");
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext boot(List<String> common) {
+        return BenchmarkApp.startWeb(new Class<?>[0], common.toArray(String[]::new));
+    }
+
+    // cancels, moves and patient create/delete pairs from several threads; returns how many ran
+    private static long mutate(ConfigurableApplicationContext context, int threads, int perThread) throws Exception {
+        AppointmentService appointments = context.getBean(AppointmentService.class);
+        PatientService patients = context.getBean(PatientService.class);
+        List<AppointmentSummary> rows = context.getBean(AppointmentRepository.class)
+                .findSummaries(PageRequest.of(0, threads * perThread, Sort.by("id"))).getContent();
+        AtomicLong done = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                Random rnd = new Random(thread);
+                for (int i = thread; i < rows.size(); i += threads) {
+                    AppointmentSummary row = rows.get(i);
+                    try {
+                        switch (rnd.nextInt(4)) {
+                            case 0 -> appointments.cancelAppointment(row.id());
+                            case 1 -> {
+                                Appointment moved = appointments.getAppointmentById(row.id()).orElseThrow();
+                                moved.setDoctorName("Dr Audit " + thread);
+                                moved.setAppointmentTime(LocalDateTime.now().plusYears(5).withNano(0).plusMinutes(30L * i));
+                                appointments.updateAppointment(row.id(), moved);
+                            }
+                            default -> {
+                                Patient p = patients.savePatient(new Patient("Temp " + thread + "-" + i, 30,
+                                        "temp" + thread + "-" + i + "@example.org", "9" + i, ""));
+                                if (rnd.nextBoolean()) patients.deletePatient(p.getId());
+                            }
+                        }
+                        done.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        // completed rows cannot be cancelled: no change, no event
+                    }
+                }
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+        return done.get();
+    }
+
+    private static long burst(AuditLog auditLog, int threads, int perThread) throws Exception {
+        AppointmentSnapshot row = new AppointmentSnapshot(1L, 1L, SyntheticData.doctorName(0),
+                LocalDateTime.now().plusYears(1).withNano(0), 30, "SCHEDULED");
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    auditLog.onAppointmentChange(AppointmentChangeEvent.updated(row, row));
+                }
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+        return (long) threads * perThread;
+    }
+
+    private static List<Path> segments(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static long totalBytes(List<Path> files) throws Exception {
+        long total = 0;
+        for (Path p : files) total += Files.size(p);
+        return total;
+    }
+
+    private static final class Http {
+        private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        private final String base;
+        private final ObjectMapper mapper;
+
+        Http(ConfigurableApplicationContext context) {
+            this.base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            this.mapper = context.getBean(ObjectMapper.class);
+        }
+
+        HttpResponse<String> send(String method, String path) throws Exception {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base + path))
+                    .method(method, HttpRequest.BodyPublishers.noBody()).build();
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.smartmedical.bench;
+
+import com.smartmedical.dto.AvailabilityQuery;
+import com.smartmedical.dto.AvailabilityResult;
+import com.smartmedical.dto.ImportReport;
+import com.smartmedical.model.Patient;
+import com.smartmedical.service.AvailabilityService;
+import com.smartmedical.service.DoctorScheduleIndex;
+import com.smartmedical.service.ImportService;
+import com.smartmedical.service.PatientService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Month-wide free-slot search over {@value #DOCTORS} doctors whose diaries are nearly
+ * full for the first three weeks (about 70k booked appointments), so most searches
+ * have to walk deep into the month. "Cold" rebuilds the index first, so every day
+ * bitset is recomputed from the interval trees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class AvailabilityBenchmark {
+
+    static final int DOCTORS = 300;
+    static final LocalDate MONTH = LocalDate.of(2031, 3, 1);
+    private static final Set<DayOfWeek> WEEKDAYS = EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY);
+
+    private ConfigurableApplicationContext context;
+    private AvailabilityService availabilityService;
+    DoctorScheduleIndex scheduleIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkApp.start();
+        availabilityService = context.getBean(AvailabilityService.class);
+        scheduleIndex = context.getBean(DoctorScheduleIndex.class);
+        ImportService importService = context.getBean(ImportService.class);
+        long patientId = context.getBean(PatientService.class)
+                .savePatient(new Patient("Seed", 40, "seed@example.com", "9000000000", "")).getId();
+
+        // 09:00-17:00 in 30-minute slots: 95% booked until the 24th, 50% after
+        Random rnd = new Random(42);
+        StringBuilder body = new StringBuilder();
+        long rows = 0;
+        for (int d = 0; d < DOCTORS; d++) {
+            for (LocalDate day = MONTH; day.getMonth() == MONTH.getMonth(); day = day.plusDays(1)) {
+                if (!WEEKDAYS.contains(day.getDayOfWeek())) continue;
+                double booked = day.getDayOfMonth() <= 24 ? 0.95 : 0.5;
+                for (int slot = 0; slot < 16; slot++) {
+                    if (rnd.nextDouble() >= booked) continue;
+                    LocalDateTime start = day.atTime(9, 0).plusMinutes(30L * slot);
+                    body.append("{\"patient\":{\"id\":").append(patientId).append("},\"doctorName\":\"Dr ").append(d)
+                            .append("\",\"appointmentTime\":\"").append(start.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                            .append("\",\"durationMinutes\":30}\n");
+                    rows++;
+                }
+            }
+        }
+        ImportReport report = importService.importAppointments(
+                new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+        if (report.getImported() != rows) {
+            throw new IllegalStateException("seed import failed: " + report.getErrors());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Benchmark)
+    public static class ColdIndex {
+        @Setup(Level.Invocation)
+        public void dropBitsets(AvailabilityBenchmark bench) {
+            bench.scheduleIndex.rebuild();
+        }
+    }
+
+    private static AvailabilityQuery query(String doctorName, boolean perDoctor, int limit) {
+        return new AvailabilityQuery(MONTH, MONTH.plusMonths(1).minusDays(1), WEEKDAYS,
+                LocalTime.of(9, 0), LocalTime.of(17, 0), LocalTime.of(13, 0), LocalTime.of(14, 0),
+                30, 30, limit, doctorName, perDoctor);
+    }
+
+    // next 5 free slots for every doctor
+    @Benchmark
+    public AvailabilityResult allDoctorsNext5() {
+        return availabilityService.findFreeSlots(query(null, true, 5));
+    }
+
+    // worst case: limit never reached, every doctor-day of the month is evaluated
+    @Benchmark
+    public AvailabilityResult allDoctorsWholeMonth() {
+        return availabilityService.findFreeSlots(query(null, true, 100));
+    }
+
+    // earliest 20 slots across all doctors (merged day by day)
+    @Benchmark
+    public AvailabilityResult earliestAcrossDoctors() {
+        return availabilityService.findFreeSlots(query(null, false, 20));
+    }
+
+    @Benchmark
+    public AvailabilityResult singleDoctorNext10() {
+        return availabilityService.findFreeSlots(query("Dr 7", true, 10));
+    }
+
+    // same as allDoctorsWholeMonth with every day bitset rebuilt from the interval trees
+    @Benchmark
+    public AvailabilityResult allDoctorsWholeMonthCold(ColdIndex cold) {
+        return availabilityService.findFreeSlots(query(null, true, 100));
+    }
+}
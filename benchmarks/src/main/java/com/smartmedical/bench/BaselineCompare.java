@@ -0,0 +1,87 @@
+package com.smartmedical.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file against the committed baseline and prints the change
+ * per benchmark (and parameter set). A result counts as a regression when it is worse by
+ * more than the threshold and by more than both runs' error bars together.
+ * <p>
+ * Exits non-zero on any regression. Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbench.main=com.smartmedical.bench.BaselineCompare
+ * -Dbench.args="baseline/jmh-baseline.json target/jmh-result.json 10"} (threshold in percent).
+ */
+public final class BaselineCompare {
+
+    private BaselineCompare() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BaselineCompare <baseline.json> <result.json> [threshold %]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, JsonNode> baseline = load(new File(args[0]));
+        Map<String, JsonNode> current = load(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s%n", "benchmark", "baseline", "current", "change");
+        for (Map.Entry<String, JsonNode> e : new TreeMap<>(current).entrySet()) {
+            JsonNode now = e.getValue().get("primaryMetric");
+            JsonNode base = baseline.containsKey(e.getKey()) ? baseline.get(e.getKey()).get("primaryMetric") : null;
+            String unit = now.get("scoreUnit").asText();
+            if (base == null) {
+                System.out.printf("%-70s %14s %14s %9s%n", e.getKey(), "-", format(now.get("score").asDouble(), unit), "new");
+                continue;
+            }
+            double before = base.get("score").asDouble();
+            double after = now.get("score").asDouble();
+            // ops/time: higher is better; time/op: lower is better
+            boolean higherIsBetter = unit.startsWith("ops/");
+            double worse = higherIsBetter ? before - after : after - before;
+            double change = 100 * (after - before) / before;
+            double noise = error(base) + error(now);
+            boolean regressed = worse > 0 && 100 * worse / before > threshold && worse > noise;
+            if (regressed) regressions++;
+            System.out.printf("%-70s %14s %14s %+8.1f%%%s%n", e.getKey(), format(before, unit), format(after, unit),
+                    change, regressed ? "  REGRESSION" : "");
+        }
+
+        System.out.println(regressions == 0 ? "No regressions over " + threshold + "%"
+                : regressions + " regression(s) over " + threshold + "%");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    // "Class.method" plus its @Param values, e.g. "DashboardBenchmark.liveSnapshot [appointments=10000]"
+    private static Map<String, JsonNode> load(File file) throws IOException {
+        Map<String, JsonNode> out = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            String name = run.get("benchmark").asText();
+            StringBuilder key = new StringBuilder(name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1));
+            JsonNode params = run.get("params");
+            if (params != null) {
+                key.append(" [");
+                params.fields().forEachRemaining(p -> key.append(p.getKey()).append('=').append(p.getValue().asText()).append(','));
+                key.setCharAt(key.length() - 1, ']');
+            }
+            out.put(key.toString(), run);
+        }
+        return out;
+    }
+
+    private static double error(JsonNode metric) {
+        double err = metric.path("scoreError").asDouble(0);
+        return Double.isNaN(err) ? 0 : err;
+    }
+
+    private static String format(double score, String unit) {
+        return String.format(score >= 100 ? "%.0f %s" : "%.2f %s", score, unit);
+    }
+}
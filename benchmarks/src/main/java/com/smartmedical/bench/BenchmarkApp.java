@@ -0,0 +1,74 @@
+package com.smartmedical.bench;
+
+import com.smartmedical.SmartMedicalApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Boots the real backend context (services, repositories, listeners) against a fresh
+ * in-memory H2 database in MySQL mode, schema from the backend's Flyway migrations. No
+ * background sweeper or archive run, no snapshot file; no web server unless started with {@link #startWeb}.
+ */
+public final class BenchmarkApp {
+
+    private BenchmarkApp() {}
+
+    public static ConfigurableApplicationContext start(String... extraProperties) {
+        return builder(WebApplicationType.NONE).run(args(List.of(extraProperties)));
+    }
+
+    /** {@link #start} with extra sources, registered explicitly like in {@link #startWeb}. */
+    public static ConfigurableApplicationContext start(Class<?>[] extraSources, String... extraProperties) {
+        return builder(WebApplicationType.NONE).sources(extraSources).run(args(List.of(extraProperties)));
+    }
+
+    /**
+     * Same context plus the embedded Tomcat on a random port ({@code local.server.port}),
+     * for load tests that go through the real HTTP stack. Extra sources (beans only the
+     * harness needs) are registered explicitly, never component-scanned.
+     */
+    public static ConfigurableApplicationContext startWeb(Class<?>[] extraSources, String... extraProperties) {
+        List<String> props = new ArrayList<>(List.of("server.port=0"));
+        props.addAll(List.of(extraProperties));
+        return builder(WebApplicationType.SERVLET).sources(extraSources).run(args(props));
+    }
+
+    private static SpringApplicationBuilder builder(WebApplicationType type) {
+        return new SpringApplicationBuilder(SmartMedicalApplication.class)
+                .web(type)
+                .logStartupInfo(false);
+    }
+
+    private static String[] args(List<String> extraProperties) {
+        String db = "bench_" + UUID.randomUUID().toString().replace("-", "");
+        List<String> args = new ArrayList<>(List.of(
+                "spring.datasource.url=jdbc:h2:mem:" + db + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "spring.jpa.hibernate.ddl-auto=validate",
+                "spring.jpa.show-sql=false",
+                "spring.main.banner-mode=off",
+                "logging.level.root=WARN",
+                // "H2 ... is newer than this version of Flyway" on every boot
+                "logging.level.org.flywaydb.core.internal.database.base.Database=ERROR",
+                "appointments.sweeper.initial-delay-ms=86400000",
+                "archive.initial-delay-ms=86400000",
+                "snapshot.enabled=false",
+                "audit.enabled=false"));
+        // an extra property replaces the default with the same key (a repeated --key would be joined with a comma)
+        for (String extra : extraProperties) {
+            String key = extra.substring(0, extra.indexOf('=') + 1);
+            args.removeIf(a -> a.startsWith(key));
+            args.add(extra);
+        }
+        // passed as command-line args so they win over the backend's application.properties
+        return args.stream().map(a -> "--" + a).toArray(String[]::new);
+    }
+}
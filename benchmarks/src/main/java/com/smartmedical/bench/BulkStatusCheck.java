@@ -0,0 +1,102 @@
+package com.smartmedical.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartmedical.dto.BulkStatusResult;
+import com.smartmedical.repository.AppointmentRepository;
+import com.smartmedical.service.DoctorDirectory;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A doctor's week cancelled row by row ({@code PUT /{id}/cancel}) vs with one
+ * {@code POST /bulk/cancel} filter, through the real HTTP stack: time and SQL statements.
+ * {@code BulkStatusTest} checks the outcomes, versioning and validation. Exits non-zero if
+ * a cancel fails. Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbench.main=com.smartmedical.bench.BulkStatusCheck -Dbench.args="2000 64000"}
+ * (patients, appointments).
+ */
+public final class BulkStatusCheck {
+
+    private BulkStatusCheck() {}
+
+    public static void main(String[] args) throws Exception {
+        int patients = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int appointments = args.length > 1 ? Integer.parseInt(args[1]) : 64_000;
+
+        ConfigurableApplicationContext context = BenchmarkApp.startWeb(new Class<?>[0],
+                "dashboard.rollup.flush-interval-ms=3600000");
+        int exitCode;
+        try {
+            exitCode = run(context, patients, appointments);
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private static int run(ConfigurableApplicationContext context, int patients, int appointments) throws Exception {
+        new SyntheticData(19).load(context, patients, appointments);
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        ObjectMapper mapper = context.getBean(ObjectMapper.class);
+        AppointmentRepository repository = context.getBean(AppointmentRepository.class);
+        DoctorDirectory doctors = context.getBean(DoctorDirectory.class);
+        Statistics statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        List<String> failures = new ArrayList<>();
+
+        // a week of doctor 0 one by one, the same week of doctor 1 in one request
+        LocalDateTime weekFrom = LocalDate.now().plusDays(2).atStartOfDay();
+        LocalDateTime weekTo = weekFrom.plusDays(7);
+        List<Long> single = scheduledIds(repository, doctors, SyntheticData.doctorName(0), weekFrom, weekTo);
+        long statements = statistics.getPrepareStatementCount();
+        long t0 = System.nanoTime();
+        for (Long id : single) {
+            HttpResponse<String> r = http.send(HttpRequest.newBuilder(URI.create(base + "/api/appointments/" + id
+                    + "/cancel")).PUT(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+            if (r.statusCode() != 200) failures.add("single cancel " + id + ": " + r.statusCode());
+        }
+        long singleMs = (System.nanoTime() - t0) / 1_000_000;
+        long singleStatements = statistics.getPrepareStatementCount() - statements;
+
+        int bulkRows = scheduledIds(repository, doctors, SyntheticData.doctorName(1), weekFrom, weekTo).size();
+        String filter = mapper.writeValueAsString(Map.of("doctorName", SyntheticData.doctorName(1),
+                "from", weekFrom.toString(), "to", weekTo.toString(), "status", "SCHEDULED"));
+        statements = statistics.getPrepareStatementCount();
+        t0 = System.nanoTime();
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(base + "/api/appointments/bulk/cancel"))
+                .header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(filter)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        long bulkMs = (System.nanoTime() - t0) / 1_000_000;
+        long bulkStatements = statistics.getPrepareStatementCount() - statements;
+        System.out.printf("cancel a doctor's week: %d rows one by one in %d ms (%d statements), "
+                        + "%d rows in one bulk request in %d ms (%d statements)%n",
+                single.size(), singleMs, singleStatements, bulkRows, bulkMs, bulkStatements);
+        if (response.statusCode() != 200
+                || mapper.readValue(response.body(), BulkStatusResult.class).getUpdated() != bulkRows) {
+            failures.add("bulk cancel of the week: " + response.statusCode() + " " + response.body());
+        }
+
+        failures.forEach(f -> System.out.println("FAIL: " + f));
+        System.out.println(failures.isEmpty() ? "OK" : failures.size() + " failure(s)");
+        return failures.isEmpty() ? 0 : 1;
+    }
+
+    private static List<Long> scheduledIds(AppointmentRepository repository, DoctorDirectory doctors, String doctor,
+                                           LocalDateTime from, LocalDateTime to) {
+        Integer doctorId = doctors.find(doctor).orElseThrow().getId();
+        return repository.findSummariesByStatusAndDoctorBetween("SCHEDULED", doctorId, from, to.minusNanos(1))
+                .stream().map(a -> a.id()).toList();
+    }
+}
@@ -0,0 +1,252 @@
+package com.smartmedical.bench;
+
+import com.smartmedical.repository.AppointmentRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Burst check for the bulkheads. Boots the backend twice, with {@code bulkheads.enabled}
+ * false and true, and {@link SlowDatabase} adding {@value #STATEMENT_LATENCY_MS} ms per
+ * statement. In each run a crowd of closed-loop clients hammers the heavy endpoints
+ * (unpaged {@code GET /api/appointments}, {@code /api/dashboard?from&to}) while a few
+ * light clients mix {@code GET /api/appointments/{id}}, {@code POST /api/patients} and the
+ * in-memory {@code GET /api/dashboard},
+ * and the light latency and errors are compared. Halfway through, statements get
+ * {@value #SLOWDOWN} times slower.
+ * <p>
+ * With bulkheads on it fails unless
+ * <ul>
+ *   <li>no light request failed (no 503 from the connection pool, no timeout);</li>
+ *   <li>heavy requests were rejected with 503, every one carrying Retry-After;</li>
+ *   <li>{@code bulkhead.rejected} matches the 503s seen, {@code bulkhead.queue.wait} saw
+ *       queued requests, and {@code bulkhead.inflight} never went above max-limit;</li>
+ *   <li>the adaptive dashboard limit came down after the slowdown.</li>
+ * </ul>
+ * Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbench.main=com.smartmedical.bench.BulkheadCheck -Dbench.args="2000 5000 300 10"}
+ * (patients, appointments, heavy clients, seconds per run).
+ */
+public final class BulkheadCheck {
+
+    private static final long STATEMENT_LATENCY_MS = 20;
+    private static final int LIGHT_CLIENTS = 8;
+    private static final int SLOWDOWN = 25;
+    private static final List<String> BULKHEADS = List.of("lists", "dashboard");
+
+    private BulkheadCheck() {}
+
+    private record Run(long[] light, long lightErrors, long heavyOk, long heavyRejected, long missingRetryAfter,
+                       long heavyErrors, double rejectedMetric, long queuedMetric, int[] maxInFlight, int[] maxLimit,
+                       int[] limitAtSlowdown, int[] lowestLimitSlow) {}
+
+    public static void main(String[] args) throws Exception {
+        int patients = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int appointments = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        int heavyClients = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        Run without = run(false, patients, appointments, heavyClients, seconds);
+        Run with = run(true, patients, appointments, heavyClients, seconds);
+
+        System.out.printf("%n%d heavy + %d light clients, %d s, %d ms per statement%n",
+                heavyClients, LIGHT_CLIENTS, seconds, STATEMENT_LATENCY_MS);
+        System.out.printf("%-10s %9s %9s %9s %8s %9s %9s %9s%n", "bulkheads", "light n", "p50 ms", "p99 ms",
+                "errors", "heavy ok", "heavy 503", "other");
+        for (Run r : List.of(without, with)) {
+            System.out.printf("%-10s %9d %9.1f %9.1f %8d %9d %9d %9d%n", r == with ? "on" : "off", r.light().length,
+                    ms(r.light(), 0.50), ms(r.light(), 0.99), r.lightErrors(), r.heavyOk(), r.heavyRejected(),
+                    r.heavyErrors());
+        }
+        System.out.printf("metrics: rejected %.0f, queued %d%n", with.rejectedMetric(), with.queuedMetric());
+
+        List<String> failures = new ArrayList<>();
+        if (with.lightErrors() > 0) failures.add(with.lightErrors() + " light requests failed with bulkheads on");
+        if (with.heavyRejected() == 0) failures.add("no heavy request was rejected");
+        if (with.missingRetryAfter() > 0) failures.add(with.missingRetryAfter() + " 503s without Retry-After");
+        if (with.heavyErrors() > 0) failures.add(with.heavyErrors() + " heavy requests failed other than 503");
+        if ((long) with.rejectedMetric() != with.heavyRejected()) {
+            failures.add("bulkhead.rejected " + with.rejectedMetric() + " vs " + with.heavyRejected() + " 503s");
+        }
+        if (with.queuedMetric() == 0) failures.add("bulkhead.queue.wait recorded no queued request");
+        for (int b = 0; b < BULKHEADS.size(); b++) {
+            System.out.printf("%-10s max in flight %d, max-limit %d, limit %d at the slowdown, lowest after %d%n",
+                    BULKHEADS.get(b), with.maxInFlight()[b], with.maxLimit()[b], with.limitAtSlowdown()[b],
+                    with.lowestLimitSlow()[b]);
+            if (with.maxInFlight()[b] > with.maxLimit()[b]) {
+                failures.add(BULKHEADS.get(b) + ": bulkhead.inflight reached " + with.maxInFlight()[b]);
+            }
+        }
+        int dashboard = BULKHEADS.indexOf("dashboard");
+        if (with.lowestLimitSlow()[dashboard] >= with.limitAtSlowdown()[dashboard]) {
+            failures.add("dashboard limit did not come down when the database slowed down");
+        }
+        failures.forEach(f -> System.out.println("FAIL " + f));
+        System.out.println(failures.isEmpty() ? "OK" : failures.size() + " failure(s)");
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    private static Run run(boolean bulkheads, int patients, int appointments, int heavyClients, int seconds)
+            throws Exception {
+        SlowDatabase.latencyMs = 0;
+        ConfigurableApplicationContext context = BenchmarkApp.startWeb(new Class<?>[]{SlowDatabase.class},
+                "bulkheads.enabled=" + bulkheads,
+                "logging.level.com.smartmedical.controller.DatabaseBusyHandler=ERROR");
+        try {
+            new SyntheticData(17).load(context, patients, appointments);
+            long firstId = context.getBean(AppointmentRepository.class)
+                    .findSummaries(PageRequest.of(0, 1, Sort.by("id"))).getContent().get(0).id();
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            String range = "/api/dashboard?from=" + LocalDate.now().minusDays(60) + "&to=" + LocalDate.now().plusDays(60);
+            MeterRegistry registry = context.getBean(MeterRegistry.class);
+            int[] maxLimit = BULKHEADS.stream().mapToInt(b -> context.getEnvironment()
+                    .getProperty("bulkheads." + b + ".max-limit", Integer.class, 0)).toArray();
+            SlowDatabase.latencyMs = STATEMENT_LATENCY_MS;
+            System.out.printf("bulkheads %s: %d heavy clients for %d s%n", bulkheads ? "on" : "off", heavyClients, seconds);
+
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            List<long[]> light = Collections.synchronizedList(new ArrayList<>());
+            LongAdder lightErrors = new LongAdder();
+            LongAdder heavyOk = new LongAdder();
+            LongAdder heavyRejected = new LongAdder();
+            LongAdder missingRetryAfter = new LongAdder();
+            LongAdder heavyErrors = new LongAdder();
+            int[] maxInFlight = new int[BULKHEADS.size()];
+            int[] limitAtSlowdown = new int[BULKHEADS.size()];
+            int[] minLimitSlow = new int[BULKHEADS.size()];
+            Arrays.fill(minLimitSlow, Integer.MAX_VALUE);
+            try (HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                         .connectTimeout(Duration.ofSeconds(5)).build();
+                 ExecutorService loops = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int c = 0; c < heavyClients; c++) {
+                    loops.submit(() -> {
+                        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                        while (System.nanoTime() < deadline) {
+                            String path = rnd.nextInt(3) < 2 ? "/api/appointments" : range;
+                            try {
+                                HttpResponse<Void> response = http.send(HttpRequest.newBuilder(URI.create(base + path))
+                                        .timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.discarding());
+                                if (response.statusCode() == 200) {
+                                    heavyOk.increment();
+                                } else if (response.statusCode() == 503) {
+                                    heavyRejected.increment();
+                                    // a well-behaved client backs off for Retry-After (jittered), not spinning on 503s
+                                    Optional<String> retryAfter = response.headers().firstValue("Retry-After");
+                                    if (retryAfter.isEmpty()) missingRetryAfter.increment();
+                                    else Thread.sleep(Math.min(rnd.nextLong(1, 1000 * Long.parseLong(retryAfter.get()) + 1),
+                                            Math.max(1, (deadline - System.nanoTime()) / 1_000_000)));
+                                } else {
+                                    heavyErrors.increment();
+                                    System.out.println("heavy " + path + ": " + response.statusCode());
+                                }
+                            } catch (InterruptedException ex) {
+                                return null;
+                            } catch (Exception ex) {
+                                heavyErrors.increment();
+                                System.out.println("heavy " + path + ": " + ex);
+                            }
+                        }
+                        return null;
+                    });
+                }
+                for (int c = 0; c < LIGHT_CLIENTS; c++) {
+                    loops.submit(() -> {
+                        long[] samples = new long[1024];
+                        int n = 0;
+                        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                        while (System.nanoTime() < deadline) {
+                            HttpRequest request = switch (rnd.nextInt(3)) {
+                                case 0 -> HttpRequest.newBuilder(URI.create(base + "/api/appointments/"
+                                        + (firstId + rnd.nextInt(appointments)))).timeout(Duration.ofSeconds(30)).build();
+                                case 1 -> HttpRequest.newBuilder(URI.create(base + "/api/patients"))
+                                        .header("Content-Type", "application/json")
+                                        .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"Burst Patient\",\"age\":40,"
+                                                + "\"email\":\"burst@example.com\",\"phone\":\"9800000000\"}"))
+                                        .timeout(Duration.ofSeconds(30)).build();
+                                // the dashboard's in-memory counters share a path with the ranged read, not its bulkhead
+                                default -> HttpRequest.newBuilder(URI.create(base + "/api/dashboard"))
+                                        .timeout(Duration.ofSeconds(30)).build();
+                            };
+                            long start = System.nanoTime();
+                            try {
+                                HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                                if (response.statusCode() != 200) lightErrors.increment();
+                            } catch (Exception ex) {
+                                lightErrors.increment();
+                            }
+                            if (n == samples.length) samples = Arrays.copyOf(samples, n * 2);
+                            samples[n++] = System.nanoTime() - start;
+                        }
+                        light.add(Arrays.copyOf(samples, n));
+                        return null;
+                    });
+                }
+                // second half: the database gets SLOWDOWN times slower
+                long slowFrom = deadline - seconds * 500_000_000L;
+                while (System.nanoTime() < deadline) {
+                    boolean slow = System.nanoTime() >= slowFrom;
+                    if (slow && SlowDatabase.latencyMs == STATEMENT_LATENCY_MS) {
+                        SlowDatabase.latencyMs = STATEMENT_LATENCY_MS * SLOWDOWN;
+                        for (int b = 0; b < BULKHEADS.size(); b++) {
+                            limitAtSlowdown[b] = (int) gauge(registry, "bulkhead.limit", BULKHEADS.get(b));
+                        }
+                    }
+                    for (int b = 0; b < BULKHEADS.size() && bulkheads; b++) {
+                        maxInFlight[b] = Math.max(maxInFlight[b],
+                                (int) gauge(registry, "bulkhead.inflight", BULKHEADS.get(b)));
+                        if (slow) minLimitSlow[b] = Math.min(minLimitSlow[b],
+                                (int) gauge(registry, "bulkhead.limit", BULKHEADS.get(b)));
+                    }
+                    Thread.sleep(5);
+                }
+            }
+            SlowDatabase.latencyMs = 0;
+
+            double rejectedMetric = 0;
+            long queuedMetric = 0;
+            if (bulkheads) {
+                for (String b : BULKHEADS) {
+                    rejectedMetric += registry.find("bulkhead.rejected").tag("bulkhead", b).counters().stream()
+                            .mapToDouble(c -> c.count()).sum();
+                    Timer wait = registry.find("bulkhead.queue.wait").tag("bulkhead", b).timer();
+                    queuedMetric += wait == null ? 0 : wait.count();
+                }
+            }
+            long[] lightAll = light.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            return new Run(lightAll, lightErrors.sum(), heavyOk.sum(), heavyRejected.sum(), missingRetryAfter.sum(),
+                    heavyErrors.sum(), rejectedMetric, queuedMetric, maxInFlight, maxLimit, limitAtSlowdown, minLimitSlow);
+        } finally {
+            SlowDatabase.latencyMs = 0;
+            context.close();
+        }
+    }
+
+    private static double gauge(MeterRegistry registry, String name, String bulkhead) {
+        Gauge gauge = registry.find(name).tag("bulkhead", bulkhead).gauge();
+        return gauge == null ? Double.NaN : gauge.value();
+    }
+
+    private static double ms(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) return Double.NaN;
+        return sortedNanos[(int) Math.min(sortedNanos.length - 1, Math.ceil(quantile * sortedNanos.length) - 1)] / 1e6;
+    }
+}
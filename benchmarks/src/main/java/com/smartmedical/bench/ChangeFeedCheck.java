@@ -0,0 +1,185 @@
+package com.smartmedical.bench;
+
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import com.smartmedical.service.AppointmentService;
+import com.smartmedical.service.ChangeFeed;
+import com.smartmedical.service.ImportService;
+import com.smartmedical.service.PatientService;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Fan-out check for {@code GET /api/changes}. Opens many SSE connections against the
+ * real server and leaves them idle, then checks:
+ * <ul>
+ *   <li>the JVM's thread count stays within the request pool, whatever the number of
+ *       subscribers (run with more subscribers than {@code server.tomcat.threads.max});</li>
+ *   <li>one appointment write reaches every subscriber;</li>
+ *   <li>the resulting dashboard delta reaches every subscriber;</li>
+ *   <li>a bulk import larger than {@code changefeed.max-pending} turns into one
+ *       {@code resync} per subscriber instead of thousands of events.</li>
+ * </ul>
+ * Exits non-zero on any failure. Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbench.main=com.smartmedical.bench.ChangeFeedCheck -Dbench.args="2000"}
+ * (subscribers).
+ */
+public final class ChangeFeedCheck {
+
+    private static final int MAX_EXTRA_THREADS = 50;
+    private static final int BULK_ROWS = 1_000;
+
+    private ChangeFeedCheck() {}
+
+    public static void main(String[] args) throws Exception {
+        int subscribers = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+
+        ConfigurableApplicationContext context = BenchmarkApp.startWeb(new Class<?>[0],
+                "changefeed.max-pending=200",
+                "changefeed.dashboard-interval-ms=500");
+        int exitCode;
+        try {
+            exitCode = run(context, subscribers);
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private static int run(ConfigurableApplicationContext context, int subscribers) throws Exception {
+        ChangeFeed feed = context.getBean(ChangeFeed.class);
+        Patient patient = context.getBean(PatientService.class).savePatient(new SyntheticData(5).patient(0));
+        URI uri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                + "/api/changes");
+
+        CountDownLatch appointmentSeen = new CountDownLatch(subscribers);
+        CountDownLatch dashboardSeen = new CountDownLatch(subscribers);
+        CountDownLatch resyncSeen = new CountDownLatch(subscribers);
+        AtomicInteger failedStreams = new AtomicInteger();
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        ExecutorService clientThreads = Executors.newFixedThreadPool(2);
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clientThreads).build();
+        long started = System.nanoTime();
+        for (int opened = 0; opened < subscribers; ) {
+            // a few hundred at a time, so the accept queue never overflows
+            int next = Math.min(subscribers, opened + 200);
+            for (; opened < next; opened++) {
+                http.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.fromLineSubscriber(
+                                new Listener(appointmentSeen, dashboardSeen, resyncSeen)))
+                        .exceptionally(ex -> {
+                            failedStreams.incrementAndGet();
+                            return null;
+                        });
+            }
+            if (!await(() -> feed.subscriberCount() + failedStreams.get() >= next, 30)) break;
+        }
+        int threadsIdle = ManagementFactory.getThreadMXBean().getThreadCount();
+        System.out.printf("%d subscribers connected in %d ms (%d failed), threads %d -> %d%n",
+                feed.subscriberCount(), (System.nanoTime() - started) / 1_000_000, failedStreams.get(),
+                threadsBefore, threadsIdle);
+
+        int failures = 0;
+        if (feed.subscriberCount() != subscribers) {
+            System.out.println("FAIL: only " + feed.subscriberCount() + " of " + subscribers + " subscribed");
+            failures++;
+        }
+        // the request pool may fill up while connections open, but never past its max
+        int allowed = context.getEnvironment().getProperty("server.tomcat.threads.max", Integer.class, 200)
+                + MAX_EXTRA_THREADS;
+        if (threadsIdle - threadsBefore > allowed) {
+            System.out.println("FAIL: " + (threadsIdle - threadsBefore) + " extra threads for idle subscribers, "
+                    + "more than the request pool plus " + MAX_EXTRA_THREADS);
+            failures++;
+        }
+
+        Appointment a = new Appointment();
+        a.setPatient(patient);
+        a.setDoctorName("Dr Feed");
+        a.setAppointmentTime(LocalDateTime.now().plusDays(3).withHour(10).withMinute(0).withSecond(0).withNano(0));
+        a.setReason("Change feed check");
+        long write = System.nanoTime();
+        context.getBean(AppointmentService.class).createAppointment(a);
+        failures += expect("appointment event", appointmentSeen, write);
+        failures += expect("dashboard delta", dashboardSeen, write);
+
+        long bulk = System.nanoTime();
+        context.getBean(ImportService.class).importAppointments(new ByteArrayInputStream(
+                new SyntheticData(6).appointmentsNdjson(new long[]{patient.getId()}, BULK_ROWS)));
+        failures += expect("resync after " + BULK_ROWS + "-row import", resyncSeen, bulk);
+
+        System.out.println(failures == 0 ? "OK" : failures + " failure(s)");
+        clientThreads.shutdownNow();
+        return failures == 0 ? 0 : 1;
+    }
+
+    private static int expect(String what, CountDownLatch latch, long since) throws InterruptedException {
+        boolean all = latch.await(30, TimeUnit.SECONDS);
+        System.out.printf("%-32s %s, %d ms after the write%n", what,
+                all ? "reached all subscribers" : "MISSING for " + latch.getCount(),
+                (System.nanoTime() - since) / 1_000_000);
+        return all ? 0 : 1;
+    }
+
+    private static boolean await(BooleanSupplier condition, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) return false;
+            Thread.sleep(20);
+        }
+        return true;
+    }
+
+    // counts the first event of each kind on one stream; lines arrive without a thread per stream
+    private static final class Listener implements Flow.Subscriber<String> {
+        private final CountDownLatch appointment;
+        private final CountDownLatch dashboard;
+        private final CountDownLatch resync;
+        private boolean sawAppointment, sawDashboard, sawResync;
+
+        Listener(CountDownLatch appointment, CountDownLatch dashboard, CountDownLatch resync) {
+            this.appointment = appointment;
+            this.dashboard = dashboard;
+            this.resync = resync;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.equals("event:appointment") && !sawAppointment) {
+                sawAppointment = true;
+                appointment.countDown();
+            } else if (line.equals("event:dashboard") && !sawDashboard) {
+                sawDashboard = true;
+                dashboard.countDown();
+            } else if (line.equals("event:resync") && !sawResync) {
+                sawResync = true;
+                resync.countDown();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {}
+
+        @Override
+        public void onComplete() {}
+    }
+}
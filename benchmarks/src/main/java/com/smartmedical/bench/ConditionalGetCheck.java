@@ -0,0 +1,116 @@
+package com.smartmedical.bench;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ETag revalidation cost for {@code /api/appointments}, {@code /api/patients} and
+ * {@code /api/dashboard} through the real HTTP stack at full size: latency of the 304 path
+ * vs a full 200, SQL statements per 304 and the {@code http.conditional.hit.ratio} gauges.
+ * When the tags move is covered by {@code ConditionalGetTest} in the backend.
+ * <p>
+ * Exits non-zero if a revalidation is not a bodiless 304 without SQL. Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbench.main=com.smartmedical.bench.ConditionalGetCheck -Dbench.args="2000 20000 200"}
+ * (patients, appointments, timed requests per endpoint).
+ */
+public final class ConditionalGetCheck {
+
+    private static final List<String> ENDPOINTS = List.of("/api/appointments", "/api/patients", "/api/dashboard");
+
+    private ConditionalGetCheck() {}
+
+    public static void main(String[] args) throws Exception {
+        int patients = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int appointments = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        // no rollup flush in the background, so any statement counted during the 304s is the endpoint's own
+        ConfigurableApplicationContext context = BenchmarkApp.startWeb(new Class<?>[0],
+                "dashboard.rollup.flush-interval-ms=3600000");
+        int exitCode;
+        try {
+            exitCode = run(context, patients, appointments, requests);
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private static int run(ConfigurableApplicationContext context, int patients, int appointments, int requests)
+            throws Exception {
+        new SyntheticData(15).load(context, patients, appointments);
+        Statistics statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        List<String> failures = new ArrayList<>();
+
+        String[] tags = new String[ENDPOINTS.size()];
+        for (int i = 0; i < ENDPOINTS.size(); i++) {
+            String uri = base + ENDPOINTS.get(i);
+            HttpResponse<byte[]> full = get(http, uri, null);
+            tags[i] = full.headers().firstValue("ETag").orElse(null);
+            if (full.statusCode() != 200 || tags[i] == null) {
+                failures.add(ENDPOINTS.get(i) + ": first GET " + full.statusCode() + ", ETag " + tags[i]);
+                continue;
+            }
+
+            long statementsBefore = statistics.getPrepareStatementCount();
+            long[] hit = new long[requests];
+            long[] miss = new long[requests];
+            for (int r = 0; r < requests; r++) {
+                long t0 = System.nanoTime();
+                HttpResponse<byte[]> cached = get(http, uri, tags[i]);
+                hit[r] = System.nanoTime() - t0;
+                if (cached.statusCode() != 304 || cached.body().length != 0) {
+                    failures.add(ENDPOINTS.get(i) + ": revalidation got " + cached.statusCode()
+                            + " with " + cached.body().length + " bytes");
+                    break;
+                }
+            }
+            long statements = statistics.getPrepareStatementCount() - statementsBefore;
+            if (statements != 0) {
+                failures.add(ENDPOINTS.get(i) + ": " + statements + " SQL statements for " + requests + " 304s");
+            }
+            for (int r = 0; r < requests; r++) {
+                long t0 = System.nanoTime();
+                get(http, uri, null);
+                miss[r] = System.nanoTime() - t0;
+            }
+            System.out.printf("%-20s %8d bytes   200 p50 %7.2f ms   304 p50 %7.3f ms   statements per 304: %d%n",
+                    ENDPOINTS.get(i), full.body().length, p50(miss), p50(hit), statements);
+        }
+
+        MeterRegistry registry = context.getBean(MeterRegistry.class);
+        for (String resource : List.of("appointments", "patients", "dashboard")) {
+            System.out.printf("hit ratio %-13s %.3f%n", resource,
+                    registry.get("http.conditional.hit.ratio").tag("resource", resource).gauge().value());
+        }
+
+        failures.forEach(f -> System.out.println("FAIL: " + f));
+        System.out.println(failures.isEmpty() ? "OK" : failures.size() + " failure(s)");
+        return failures.isEmpty() ? 0 : 1;
+    }
+
+    private static HttpResponse<byte[]> get(HttpClient http, String uri, String ifNoneMatch) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(uri));
+        if (ifNoneMatch != null) request.header("If-None-Match", ifNoneMatch);
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static double p50(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1e6;
+    }
+}
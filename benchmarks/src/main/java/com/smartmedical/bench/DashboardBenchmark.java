@@ -0,0 +1,130 @@
+package com.smartmedical.bench;
+
+import com.smartmedical.dto.DashboardConsistencyReport;
+import com.smartmedical.dto.DashboardStats;
+import com.smartmedical.event.AppointmentChangeEvent;
+import com.smartmedical.event.AppointmentSnapshot;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.service.DashboardAggregateStore;
+import com.smartmedical.service.DashboardRollupStore;
+import com.smartmedical.service.Granularity;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * {@code /api/dashboard} over N synthetic appointments: the live counters the endpoint
+ * serves, the per-write delta that keeps them current, the grouped-query recompute used
+ * at startup and by the consistency check, and (as reference) the original in-memory
+ * stream aggregation over every row, without the database load it also needed.
+ * {@code yearRangeFromRollup} is {@code ?from=&to=} over the last year, from the daily rollup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class DashboardBenchmark {
+
+    @Param({"10000", "100000"})
+    public int appointments;
+
+    private ConfigurableApplicationContext context;
+    private DashboardAggregateStore aggregateStore;
+    private DashboardRollupStore rollupStore;
+    private List<Appointment> rows;
+    private AppointmentChangeEvent toCancelled;
+    private AppointmentChangeEvent toScheduled;
+    private boolean flip;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkApp.start();
+        aggregateStore = context.getBean(DashboardAggregateStore.class);
+        SyntheticData data = new SyntheticData(11);
+        // loaded on another thread: events after a commit the rebuild already counted are
+        // dropped, and the deltas below are published on this one
+        ExecutorService loader = Executors.newSingleThreadExecutor();
+        try {
+            loader.submit(() -> data.load(context, appointments / 10, appointments)).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            loader.shutdown();
+        }
+        aggregateStore.rebuild();
+        rollupStore = context.getBean(DashboardRollupStore.class);
+        rollupStore.flush();
+        rows = data.appointments(data.patients(appointments / 10), appointments);
+
+        // a future appointment flipping between SCHEDULED and CANCELLED, as a cancel/reinstate would
+        Appointment future = rows.get(rows.size() - 1);
+        future.setStatus("SCHEDULED");
+        AppointmentSnapshot scheduled = AppointmentSnapshot.of(future);
+        AppointmentSnapshot cancelled = scheduled.withStatus("CANCELLED");
+        toCancelled = AppointmentChangeEvent.updated(scheduled, cancelled);
+        toScheduled = AppointmentChangeEvent.updated(cancelled, scheduled);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // what GET /api/dashboard does now
+    @Benchmark
+    public DashboardStats liveSnapshot() {
+        return aggregateStore.snapshot();
+    }
+
+    // GET /api/dashboard?from=<a year ago>&to=<today>&granularity=day
+    @Benchmark
+    public DashboardStats yearRangeFromRollup() {
+        LocalDate today = LocalDate.now();
+        return rollupStore.rangeStats(today.minusYears(1), today, Granularity.DAY);
+    }
+
+    // cost added to every appointment write
+    @Benchmark
+    public void applyWriteDelta() {
+        aggregateStore.onAppointmentChange((flip = !flip) ? toCancelled : toScheduled);
+    }
+
+    // grouped queries in the database (startup rebuild, /dashboard/consistency)
+    @Benchmark
+    public DashboardConsistencyReport recomputeFromDatabase() {
+        return aggregateStore.checkConsistency(false);
+    }
+
+    // the original controller's groupingBy passes over the loaded entity list
+    @Benchmark
+    public DashboardStats streamAggregationInMemory() {
+        LocalDateTime now = LocalDateTime.now();
+        DashboardStats out = new DashboardStats();
+        out.setTotalAppointments(rows.size());
+        out.setUpcomingAppointments(rows.stream()
+                .filter(a -> a.getAppointmentTime() != null
+                        && a.getAppointmentTime().isAfter(now)
+                        && "SCHEDULED".equalsIgnoreCase(a.getStatus()))
+                .count());
+        out.setStatusBreakdown(new TreeMap<>(rows.stream().collect(Collectors.groupingBy(
+                a -> Optional.ofNullable(a.getStatus()).orElse("UNKNOWN"), Collectors.counting()))));
+        out.setAppointmentsPerDoctor(rows.stream().collect(Collectors.groupingBy(
+                a -> Optional.ofNullable(a.getDoctorName()).orElse("Unknown"), Collectors.counting())));
+        out.setAppointmentsPerDay(new TreeMap<>(rows.stream()
+                .filter(a -> a.getAppointmentTime() != null)
+                .collect(Collectors.groupingBy(a -> a.getAppointmentTime().toLocalDate().toString(),
+                        Collectors.counting()))));
+        return out;
+    }
+}
@@ -0,0 +1,165 @@
+package com.smartmedical.bench;
+
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.dto.CursorPage;
+import com.smartmedical.service.AppointmentService;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Upgrade of a first-release database at full size. Tables in the layout
+ * {@code ddl-auto=update} gave them then (free-text {@code doctor_name}, no Flyway history)
+ * are filled with several spellings per doctor; then the backend starts on it as it is and
+ * Flyway baselines and runs every migration, the doctor dedupe included. Prints the time
+ * of the upgrade and of one doctor's cursor pages by another spelling; exits non-zero if a
+ * named row is left without a doctor or a page misses rows. {@code DoctorMigrationTest}
+ * checks the upgraded database in detail. Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbench.main=com.smartmedical.bench.DoctorMigrationCheck -Dbench.args="40 200000"}
+ * (doctors, appointments).
+ */
+public final class DoctorMigrationCheck {
+
+    private static final String[] FIRST = {"Asha", "Vikram", "Meena", "Rohit", "Farah", "Kiran", "Sunil", "Lata"};
+    private static final String[] LAST = {"Rao", "Menon", "Kapoor", "Sethi", "Pillai", "Ghosh", "Bhatt"};
+    // as Hibernate's schema update created them from the first release's entities
+    private static final String[] LEGACY_TABLES = {
+            "create table patient (id bigint not null auto_increment, name varchar(255), age integer not null, "
+                    + "email varchar(255), phone varchar(255), medical_history varchar(255), primary key (id))",
+            "create table appointments (id bigint not null auto_increment, patient_id bigint, "
+                    + "doctor_name varchar(255), appointment_time datetime(6), reason varchar(1000), "
+                    + "status varchar(255), created_at datetime(6), primary key (id))",
+            "alter table appointments add constraint FKdbgt40x24ctsjc6pr0fbx4bj0 foreign key (patient_id) "
+                    + "references patient (id)"};
+
+    private DoctorMigrationCheck() {}
+
+    public static void main(String[] args) throws Exception {
+        int doctors = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+        int appointments = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        String url = "jdbc:h2:mem:legacy_" + UUID.randomUUID().toString().replace("-", "")
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+        Legacy legacy = fillLegacy(url, doctors, appointments);
+        long started = System.nanoTime();
+        ConfigurableApplicationContext context = BenchmarkApp.start("spring.datasource.url=" + url,
+                "logging.level.com.smartmedical=INFO", "logging.level.org.flywaydb=INFO");
+        System.out.printf("backend started on the first-release schema (baseline + migrations) in %d ms%n",
+                (System.nanoTime() - started) / 1_000_000);
+        List<String> failures = new ArrayList<>();
+        try {
+            run(context, legacy, failures);
+        } finally {
+            context.close();
+        }
+
+        failures.forEach(f -> System.out.println("FAIL: " + f));
+        System.out.println(failures.isEmpty() ? "OK" : failures.size() + " failure(s)");
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    /** What the old rows hold: rows per doctor key, the spelling each key should end up with. */
+    private record Legacy(Map<String, Long> perKey, Map<String, String> majority) {}
+
+    private static Legacy fillLegacy(String url, int doctors, int appointments) throws Exception {
+        Map<String, Long> perKey = new HashMap<>();
+        Map<String, String> majority = new HashMap<>();
+        Map<String, Map<String, Long>> spellings = new HashMap<>();
+        long withoutDoctor = 0;
+        LocalDate firstDay = LocalDate.now().minusDays(appointments / doctors / 16 / 2 + 1);
+        Random rnd = new Random(23);
+        long started = System.nanoTime();
+        try (Connection c = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement st = c.createStatement()) {
+                for (String ddl : LEGACY_TABLES) st.execute(ddl);
+                st.execute("insert into patient (name, age, email) values ('Legacy Patient', 50, 'legacy@example.com')");
+            }
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement("insert into appointments (patient_id, doctor_name, "
+                    + "appointment_time, reason, status, created_at) values (1, ?, ?, 'Legacy', ?, ?)")) {
+                for (int i = 0; i < appointments; i++) {
+                    int d = i % doctors;
+                    String name = "Dr " + FIRST[d % FIRST.length] + " " + LAST[d / FIRST.length % LAST.length]
+                            + (d >= FIRST.length * LAST.length ? " " + d : "");
+                    int roll = rnd.nextInt(100);
+                    String spelling;
+                    if (roll < 2) {
+                        spelling = roll == 0 ? null : "   ";
+                    } else if (d == 1) {
+                        // lower case is the common spelling of this doctor, so it names the row
+                        spelling = roll < 70 ? name.toLowerCase(Locale.ROOT) : name;
+                    } else {
+                        spelling = roll < 70 ? name : roll < 80 ? name.toLowerCase(Locale.ROOT)
+                                : roll < 90 ? " " + name + " " : name.toUpperCase(Locale.ROOT);
+                    }
+                    if (spelling == null || spelling.isBlank()) {
+                        withoutDoctor++;
+                    } else {
+                        String key = spelling.trim().toLowerCase(Locale.ROOT);
+                        perKey.merge(key, 1L, Long::sum);
+                        spellings.computeIfAbsent(key, k -> new HashMap<>()).merge(spelling.trim(), 1L, Long::sum);
+                    }
+                    // slot i / doctors of doctor d: never two rows of one doctor at the same time
+                    long slot = i / doctors;
+                    LocalDateTime time = firstDay.plusDays(slot / 16).atTime(9, 0).plusMinutes(30 * (slot % 16));
+                    ps.setString(1, spelling);
+                    ps.setTimestamp(2, Timestamp.valueOf(time));
+                    ps.setString(3, time.isBefore(LocalDateTime.now()) ? "COMPLETED" : "SCHEDULED");
+                    ps.setTimestamp(4, Timestamp.valueOf(time.minusDays(7)));
+                    ps.addBatch();
+                    if (i % 1000 == 999) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+            c.commit();
+        }
+        spellings.forEach((key, counts) -> majority.put(key, counts.entrySet().stream()
+                .max(Map.Entry.comparingByValue()).orElseThrow().getKey()));
+        System.out.printf("old schema: %,d appointments, %d doctors in %d trimmed spellings, %d without a doctor (%d ms)%n",
+                appointments, perKey.size(), spellings.values().stream().mapToInt(Map::size).sum(), withoutDoctor,
+                (System.nanoTime() - started) / 1_000_000);
+        return new Legacy(perKey, majority);
+    }
+
+    private static void run(ConfigurableApplicationContext context, Legacy legacy, List<String> failures) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        Long doctors = jdbc.queryForObject("select count(*) from doctor", Long.class);
+        Long unlinked = jdbc.queryForObject("select count(*) from appointments where doctor_id is null "
+                + "and doctor_name is not null and trim(doctor_name) <> ''", Long.class);
+        if (doctors != legacy.majority().size()) failures.add(doctors + " doctors for " + legacy.majority().size() + " keys");
+        if (unlinked != 0) failures.add(unlinked + " named appointments without doctor_id");
+        System.out.printf("doctor table: %d rows for %d keys, %d appointments left unlinked%n",
+                doctors, legacy.majority().size(), unlinked);
+
+        // one doctor's pages by another spelling
+        String key = legacy.majority().keySet().iterator().next();
+        long rows = 0;
+        long pageStarted = System.nanoTime();
+        int pages = 0;
+        String cursor = null;
+        do {
+            CursorPage<AppointmentSummary> page = context.getBean(AppointmentService.class).getAppointmentsPage(cursor,
+                    500, null, " " + key.toUpperCase(Locale.ROOT) + " ");
+            rows += page.getItems().size();
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+        if (rows != legacy.perKey().get(key)) failures.add(key + ": paged " + rows + " of " + legacy.perKey().get(key));
+        System.out.printf("%s: %d rows in %d cursor pages, %.2f ms/page%n", legacy.majority().get(key), rows, pages,
+                (System.nanoTime() - pageStarted) / 1e6 / pages);
+    }
+}
@@ -0,0 +1,117 @@
+package com.smartmedical.bench;
+
+import com.smartmedical.dto.ImportReport;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import com.smartmedical.service.AppointmentService;
+import com.smartmedical.service.ImportService;
+import com.smartmedical.service.PatientService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows/second: bulk import endpoint path vs one service call per row
+ * (what POST /api/patients and POST /api/appointments do per HTTP request).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class ImportBenchmark {
+
+    private static final int ROWS = 1000;
+    private static final int DOCTORS = 20;
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 1, 8, 0);
+
+    private ConfigurableApplicationContext context;
+    private PatientService patientService;
+    private AppointmentService appointmentService;
+    private ImportService importService;
+    private byte[] patientsNdjson;
+    private byte[] appointmentsNdjson;
+    private long patientId;
+    // every invocation books fresh 30-minute slots, otherwise the conflict check rejects repeats
+    private long nextSlot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApp.start();
+        patientService = context.getBean(PatientService.class);
+        appointmentService = context.getBean(AppointmentService.class);
+        importService = context.getBean(ImportService.class);
+        patientId = patientService.savePatient(new Patient("Seed", 40, "seed@example.com", "9000000000", "")).getId();
+
+        StringBuilder patients = new StringBuilder();
+        for (int i = 0; i < ROWS; i++) {
+            patients.append("{\"name\":\"Patient ").append(i).append("\",\"age\":").append(20 + i % 60)
+                    .append(",\"email\":\"p").append(i).append("@example.com\",\"phone\":\"90000").append(i)
+                    .append("\",\"medicalHistory\":\"none\"}\n");
+        }
+        patientsNdjson = patients.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Invocation)
+    public void nextAppointmentsPayload() {
+        StringBuilder appointments = new StringBuilder();
+        long first = nextSlot;
+        for (int i = 0; i < ROWS; i++) {
+            appointments.append("{\"patient\":{\"id\":").append(patientId).append("},\"doctorName\":\"Dr ")
+                    .append(i % DOCTORS).append("\",\"appointmentTime\":\"").append(slotTime(first + i).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                    .append("\",\"reason\":\"checkup\"}\n");
+        }
+        appointmentsNdjson = appointments.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void patientsSingleInsert() {
+        for (int i = 0; i < ROWS; i++) {
+            patientService.savePatient(new Patient("Patient " + i, 20 + i % 60, "p" + i + "@example.com", "90000" + i, "none"));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ImportReport patientsBulkImport() throws IOException {
+        return importService.importPatients(new ByteArrayInputStream(patientsNdjson));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void appointmentsSingleInsert() {
+        long first = nextSlot;
+        for (int i = 0; i < ROWS; i++) {
+            Patient ref = new Patient();
+            ref.setId(patientId);
+            appointmentService.createAppointment(new Appointment(ref, "Dr " + (i % DOCTORS),
+                    slotTime(first + i), "checkup", null));
+        }
+        nextSlot += ROWS;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ImportReport appointmentsBulkImport() throws IOException {
+        nextSlot += ROWS;
+        return importService.importAppointments(new ByteArrayInputStream(appointmentsNdjson));
+    }
+
+    // row n -> doctor n % DOCTORS, that doctor's (n / DOCTORS)-th half hour
+    private static LocalDateTime slotTime(long n) {
+        return START.plusMinutes(30 * (n / DOCTORS));
+    }
+}
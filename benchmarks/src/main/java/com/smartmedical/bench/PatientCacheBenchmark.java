@@ -0,0 +1,62 @@
+package com.smartmedical.bench;
+
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.dto.CursorPage;
+import com.smartmedical.model.Patient;
+import com.smartmedical.service.AppointmentService;
+import com.smartmedical.service.PatientService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Patient lookups with the second-level cache on and off: a lookup by id (what every
+ * appointment create/update does) and, for reference, a 50-row appointment page (a
+ * projection that joins the patient, so it should not care about the cache).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class PatientCacheBenchmark {
+
+    static final int PATIENTS = 10_000;
+    static final int APPOINTMENTS = 20_000;
+
+    @Param({"true", "false"})
+    public boolean cache;
+
+    private ConfigurableApplicationContext context;
+    private PatientService patientService;
+    private AppointmentService appointmentService;
+    private long[] patientIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkApp.start("spring.jpa.properties.hibernate.cache.use_second_level_cache=" + cache);
+        patientService = context.getBean(PatientService.class);
+        appointmentService = context.getBean(AppointmentService.class);
+        patientIds = new SyntheticData(9).load(context, PATIENTS, APPOINTMENTS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Patient> patientById() {
+        return patientService.getPatientById(patientIds[ThreadLocalRandom.current().nextInt(PATIENTS)]);
+    }
+
+    @Benchmark
+    public CursorPage<AppointmentSummary> appointmentPage() {
+        return appointmentService.getAppointmentsPage(null, 50, null, null);
+    }
+}
@@ -0,0 +1,101 @@
+package com.smartmedical.bench;
+
+import com.smartmedical.dto.PatientSearchResult;
+import com.smartmedical.event.PatientChangeEvent;
+import com.smartmedical.model.Patient;
+import com.smartmedical.service.PatientSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typeahead latency at {@value #PATIENTS} patients. The index is fed through the same
+ * change events the services publish (no database needed for this one), then queried
+ * with the keystroke sequences a front desk would type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g"})
+public class PatientSearchBenchmark {
+
+    static final int PATIENTS = 1_000_000;
+
+    private static final String[] FIRST = {"Aarav", "Vivaan", "Aditya", "Vihaan", "Arjun", "Sai", "Reyansh", "Ayaan",
+            "Krishna", "Ishaan", "Rahul", "Rohan", "Karan", "Aman", "Nikhil", "Saanvi", "Ananya", "Diya", "Aadhya",
+            "Pari", "Anika", "Navya", "Riya", "Priya", "Neha", "Pooja", "Sneha", "Kavya", "Meera", "Tanvi", "Mann",
+            "Khushal", "Bruce", "Tony", "Stephen", "Elon", "Natasha", "Wanda", "Peter", "Clint"};
+    private static final String[] LAST = {"Sharma", "Verma", "Gupta", "Singh", "Kumar", "Patel", "Shah", "Mehta",
+            "Joshi", "Iyer", "Nair", "Reddy", "Rao", "Das", "Bose", "Banerjee", "Chatterjee", "Mukherjee", "Kapoor",
+            "Malhotra", "Khanna", "Agarwal", "Jain", "Bansal", "Mishra", "Pandey", "Tiwari", "Yadav", "Chauhan",
+            "Rathore", "Stark", "Banner", "Strange", "Musk", "Romanoff", "Parker", "Barton"};
+    private static final String[] DOMAINS = {"gmail.com", "yahoo.com", "outlook.com", "hospital.org", "rediffmail.com"};
+
+    private PatientSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new PatientSearchIndex(null, null);
+        Random rnd = new Random(7);
+        for (long id = 1; id <= PATIENTS; id++) {
+            String first = FIRST[rnd.nextInt(FIRST.length)];
+            String last = LAST[rnd.nextInt(LAST.length)];
+            Patient p = new Patient(first + " " + last, 1 + rnd.nextInt(90),
+                    (first + "." + last + rnd.nextInt(1000)).toLowerCase() + "@" + DOMAINS[rnd.nextInt(DOMAINS.length)],
+                    String.valueOf(6_000_000_000L + (long) (rnd.nextDouble() * 3_999_999_999L)), "");
+            p.setId(id);
+            index.onPatientChange(new PatientChangeEvent(PatientChangeEvent.ChangeType.CREATED, p));
+        }
+        System.gc();
+        Runtime rt = Runtime.getRuntime();
+        System.out.printf("%n%d patients indexed, heap used %d MB%n",
+                index.size(), (rt.totalMemory() - rt.freeMemory()) >> 20);
+    }
+
+    // "ra" is the widest prefix: a few hundred thousand candidates, capped
+    @Benchmark
+    public List<PatientSearchResult> twoLetterPrefix() {
+        return index.search("ra", 10);
+    }
+
+    @Benchmark
+    public List<PatientSearchResult> namePrefix() {
+        return index.search("khush", 10);
+    }
+
+    @Benchmark
+    public List<PatientSearchResult> firstAndLastName() {
+        return index.search("rahul sha", 10);
+    }
+
+    @Benchmark
+    public List<PatientSearchResult> phoneDigits() {
+        return index.search("98765", 10);
+    }
+
+    @Benchmark
+    public List<PatientSearchResult> emailFragment() {
+        return index.search("meera.iyer12", 10);
+    }
+
+    // typo: no exact hit, answered by the trigram fallback
+    @Benchmark
+    public List<PatientSearchResult> fuzzyTypo() {
+        return index.search("khushl", 10);
+    }
+
+    // every keystroke of one lookup, as the typeahead would send them
+    @Benchmark
+    @OperationsPerInvocation(6)
+    public int typingSession() {
+        int found = 0;
+        for (String q : new String[]{"ri", "riy", "riya", "riya ", "riya k", "riya ka"}) {
+            found += index.search(q, 10).size();
+        }
+        return found;
+    }
+}
@@ -0,0 +1,109 @@
+package com.smartmedical.bench;
+
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.repository.AppointmentRepository;
+import com.smartmedical.service.AppointmentArchive;
+import com.smartmedical.service.DoctorDirectory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appointment repository queries behind the read endpoints, against H2 in MySQL mode
+ * holding {@value #APPOINTMENTS} synthetic appointments for {@value #PATIENTS} patients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class RepositoryBenchmark {
+
+    static final int PATIENTS = 5_000;
+    static final int APPOINTMENTS = 50_000;
+
+    private ConfigurableApplicationContext context;
+    private AppointmentRepository repository;
+    private AppointmentArchive archive;
+    private long[] patientIds;
+    private long firstAppointmentId;
+    private AppointmentSummary middle;
+    private Integer doctorId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkApp.start();
+        repository = context.getBean(AppointmentRepository.class);
+        archive = context.getBean(AppointmentArchive.class);
+        patientIds = new SyntheticData(3).load(context, PATIENTS, APPOINTMENTS);
+        Page<AppointmentSummary> first = repository.findSummaries(PageRequest.of(0, 1, Sort.by("id")));
+        firstAppointmentId = first.getContent().get(0).id();
+        doctorId = context.getBean(DoctorDirectory.class).find(SyntheticData.doctorName(7)).orElseThrow().getId();
+        middle = repository.findSummaries(PageRequest.of(APPOINTMENTS / 2, 1, Sort.by("appointmentTime", "id")))
+                .getContent().get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<AppointmentSummary> cursorFirstPage() {
+        return repository.findSummaryPage(null, null, null, Limit.of(51));
+    }
+
+    // halfway through the table: keyset pages cost the same wherever they start
+    @Benchmark
+    public List<AppointmentSummary> cursorMiddlePage() {
+        return repository.findSummaryPage(null, middle.appointmentTime(), middle.id(), Limit.of(51));
+    }
+
+    @Benchmark
+    public List<AppointmentSummary> cursorStatusAndDoctor() {
+        return repository.findDoctorSummaryPage(doctorId, "SCHEDULED",
+                middle.appointmentTime(), middle.id(), Limit.of(51));
+    }
+
+    // /paged at the same depth: offset scan plus count(*)
+    @Benchmark
+    public Page<AppointmentSummary> offsetMiddlePage() {
+        return repository.findSummaries(PageRequest.of(APPOINTMENTS / 100, 50, Sort.by("appointmentTime")));
+    }
+
+    @Benchmark
+    public List<AppointmentSummary> nextWeekRange() {
+        LocalDateTime from = LocalDate.now().atStartOfDay();
+        return repository.findSummariesBetween(from, from.plusDays(7));
+    }
+
+    @Benchmark
+    public List<AppointmentSummary> byPatient() {
+        return repository.findSummariesByPatientId(patientIds[ThreadLocalRandom.current().nextInt(PATIENTS)]);
+    }
+
+    // GET /{id}: the full entity, patient from the second-level cache once warm
+    @Benchmark
+    public Optional<Appointment> byIdEntity() {
+        return repository.findById(firstAppointmentId + ThreadLocalRandom.current().nextInt(APPOINTMENTS));
+    }
+
+    // dashboard recount: live rows and archive rollup grouped in one statement
+    @Benchmark
+    public List<Object[]> countsWithArchive() {
+        return archive.countsWithArchive(null, null);
+    }
+}
@@ -0,0 +1,182 @@
+package com.smartmedical.bench;
+
+import com.smartmedical.dto.ImportReport;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import com.smartmedical.repository.AppointmentRepository;
+import com.smartmedical.service.AppointmentConflictException;
+import com.smartmedical.service.AppointmentService;
+import com.smartmedical.service.DoctorScheduleIndex;
+import com.smartmedical.service.ImportService;
+import com.smartmedical.service.PatientService;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency stress check for double-booking detection. Many threads create, move,
+ * cancel and bulk-import appointments for a handful of doctors within one week, so
+ * most attempts collide. Afterwards the database must hold no overlapping slots for
+ * any doctor, and the in-memory index must match the database exactly.
+ * <p>
+ * Exits non-zero on any violation. Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbench.main=com.smartmedical.bench.ScheduleStressCheck -Dbench.args="32 400"}
+ * (threads, operations per thread).
+ */
+public final class ScheduleStressCheck {
+
+    // same diary spelled differently on purpose (index keys are case/space-insensitive)
+    private static final String[] DOCTORS = {"Dr A", "dr a ", "Dr B", "Dr C", "DR C", "Dr D"};
+    private static final int[] DURATIONS = {15, 30, 45, 60};
+    private static final LocalDateTime WINDOW_START = LocalDateTime.of(2031, 3, 1, 8, 0);
+    private static final int WINDOW_QUARTERS = 4 * 24 * 7; // one week in 15-minute steps
+
+    private ScheduleStressCheck() {}
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int opsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+
+        ConfigurableApplicationContext context = BenchmarkApp.start();
+        int exitCode;
+        try {
+            exitCode = run(context, threads, opsPerThread);
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private static int run(ConfigurableApplicationContext context, int threads, int opsPerThread) throws Exception {
+        AppointmentService appointments = context.getBean(AppointmentService.class);
+        ImportService imports = context.getBean(ImportService.class);
+        long patientId = context.getBean(PatientService.class)
+                .savePatient(new Patient("Stress", 30, "stress@example.com", "9000000000", "")).getId();
+
+        AtomicLong created = new AtomicLong();
+        AtomicLong moved = new AtomicLong();
+        AtomicLong cancelled = new AtomicLong();
+        AtomicLong imported = new AtomicLong();
+        AtomicLong conflicts = new AtomicLong();
+        Queue<Long> ids = new ConcurrentLinkedQueue<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        long started = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                go.await();
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                for (int i = 0; i < opsPerThread; i++) {
+                    int op = rnd.nextInt(100);
+                    try {
+                        if (op < 70) {
+                            Appointment a = randomAppointment(rnd, patientId);
+                            ids.add(appointments.createAppointment(a).getId());
+                            created.incrementAndGet();
+                        } else if (op < 85) {
+                            Long id = ids.peek();
+                            if (id == null) continue;
+                            appointments.updateAppointment(id, randomAppointment(rnd, patientId));
+                            moved.incrementAndGet();
+                        } else if (op < 95) {
+                            Long id = ids.poll();
+                            if (id == null) continue;
+                            appointments.cancelAppointment(id);
+                            cancelled.incrementAndGet();
+                        } else {
+                            ImportReport report = imports.importAppointments(randomImport(rnd, patientId));
+                            imported.addAndGet(report.getImported());
+                            conflicts.addAndGet(report.getFailed());
+                        }
+                    } catch (AppointmentConflictException ex) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        for (Future<?> w : workers) {
+            w.get();
+        }
+        pool.shutdown();
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        System.out.printf("%d threads x %d ops in %d ms: created=%d moved=%d cancelled=%d imported=%d rejected=%d%n",
+                threads, opsPerThread, elapsedMs, created.get(), moved.get(), cancelled.get(),
+                imported.get(), conflicts.get());
+
+        List<String> violations = verify(context.getBean(AppointmentRepository.class),
+                context.getBean(DoctorScheduleIndex.class));
+        violations.stream().limit(20).forEach(v -> System.out.println("VIOLATION: " + v));
+        System.out.println(violations.isEmpty() ? "OK: no double bookings, index matches database"
+                : "FAILED: " + violations.size() + " violations");
+        return violations.isEmpty() ? 0 : 1;
+    }
+
+    private static Appointment randomAppointment(ThreadLocalRandom rnd, long patientId) {
+        Patient ref = new Patient();
+        ref.setId(patientId);
+        Appointment a = new Appointment(ref, DOCTORS[rnd.nextInt(DOCTORS.length)],
+                WINDOW_START.plusMinutes(15L * rnd.nextInt(WINDOW_QUARTERS)), "stress", "SCHEDULED");
+        a.setDurationMinutes(DURATIONS[rnd.nextInt(DURATIONS.length)]);
+        return a;
+    }
+
+    // small NDJSON batch; overlaps inside the batch itself are likely too
+    private static ByteArrayInputStream randomImport(ThreadLocalRandom rnd, long patientId) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            Appointment a = randomAppointment(rnd, patientId);
+            body.append("{\"patient\":{\"id\":").append(patientId).append("},\"doctorName\":\"")
+                    .append(a.getDoctorName()).append("\",\"appointmentTime\":\"")
+                    .append(a.getAppointmentTime().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                    .append("\",\"durationMinutes\":").append(a.getDurationMinutes()).append("}\n");
+        }
+        return new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> verify(AppointmentRepository repository, DoctorScheduleIndex index) {
+        Map<String, List<Appointment>> held = new TreeMap<>();
+        Map<String, String> spelling = new HashMap<>();
+        for (Appointment a : repository.findAll()) {
+            if ("CANCELLED".equalsIgnoreCase(a.getStatus())) continue;
+            String key = a.getDoctorName().trim().toLowerCase(Locale.ROOT);
+            held.computeIfAbsent(key, k -> new ArrayList<>()).add(a);
+            spelling.putIfAbsent(key, a.getDoctorName());
+        }
+
+        List<String> violations = new ArrayList<>();
+        LocalDateTime to = WINDOW_START.plusDays(8);
+        for (Map.Entry<String, List<Appointment>> e : held.entrySet()) {
+            List<Appointment> rows = e.getValue();
+            rows.sort(Comparator.comparing(Appointment::getAppointmentTime));
+            for (int i = 1; i < rows.size(); i++) {
+                Appointment prev = rows.get(i - 1);
+                Appointment cur = rows.get(i);
+                LocalDateTime prevEnd = prev.getAppointmentTime().plusMinutes(prev.getDurationMinutes());
+                if (prevEnd.isAfter(cur.getAppointmentTime())) {
+                    violations.add(e.getKey() + ": appointment " + prev.getId() + " overlaps " + cur.getId());
+                }
+            }
+
+            Set<Long> inDb = new TreeSet<>();
+            rows.forEach(a -> inDb.add(a.getId()));
+            Set<Long> inIndex = new TreeSet<>();
+            index.slotsBetween(spelling.get(e.getKey()), WINDOW_START.minusDays(1), to)
+                    .forEach(s -> inIndex.add(s.appointmentId()));
+            if (!inDb.equals(inIndex)) {
+                violations.add(e.getKey() + ": index " + inIndex.size() + " slots vs database " + inDb.size());
+            }
+        }
+        return violations;
+    }
+}
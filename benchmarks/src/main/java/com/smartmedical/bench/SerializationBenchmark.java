@@ -0,0 +1,81 @@
+package com.smartmedical.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of appointment lists, configured like the backend's own
+ * ObjectMapper: entities with the embedded Patient (what the list endpoints wrote
+ * before, and what GET /{id} still writes) versus the AppointmentSummary rows the
+ * list endpoints write now. No database; bytes go to a counting sink.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class SerializationBenchmark {
+
+    @Param({"100", "10000"})
+    public int rows;
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    private List<Appointment> entities;
+    private List<AppointmentSummary> summaries;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SyntheticData data = new SyntheticData(5);
+        List<Patient> patients = data.patients(Math.max(1, rows / 4));
+        for (int i = 0; i < patients.size(); i++) {
+            patients.get(i).setId(i + 1L);
+        }
+        entities = data.appointments(patients, rows);
+        summaries = entities.stream().map(a -> new AppointmentSummary(a.getId(), a.getPatient().getId(),
+                a.getPatient().getName(), a.getDoctorName(), a.getAppointmentTime(), a.getDurationMinutes(),
+                a.getReason(), a.getStatus(), null)).toList();
+
+        System.out.printf("%nbytes per row: entity %d, summary %d%n",
+                write(entities) / rows, write(summaries) / rows);
+    }
+
+    @Benchmark
+    public long entitiesWithPatient() throws IOException {
+        return write(entities);
+    }
+
+    @Benchmark
+    public long summaryRows() throws IOException {
+        return write(summaries);
+    }
+
+    private long write(Object value) throws IOException {
+        CountingSink sink = new CountingSink();
+        mapper.writeValue(sink, value);
+        return sink.count;
+    }
+
+    private static final class CountingSink extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
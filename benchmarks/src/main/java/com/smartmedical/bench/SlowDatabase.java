@@ -0,0 +1,77 @@
+package com.smartmedical.bench;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Makes in-memory H2 answer like a database across the network: every statement
+ * execution sleeps {@link #latencyMs} first, on the request thread and while it holds a
+ * pooled connection. Off (0) by default so seeding stays fast.
+ * <p>
+ * Not a {@code @Configuration}: pass it to {@link BenchmarkApp#startWeb} explicitly, so
+ * the backend's component scan never picks it up.
+ */
+public class SlowDatabase {
+
+    static volatile long latencyMs;
+
+    @Bean
+    public static BeanPostProcessor slowDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ds ? proxy(DataSource.class, ds, SlowDatabase::onDataSource) : bean;
+            }
+        };
+    }
+
+    private static Object onDataSource(Object target, Method method, Object[] args) throws Throwable {
+        Object result = call(target, method, args);
+        return result instanceof Connection c ? proxy(Connection.class, c, SlowDatabase::onConnection) : result;
+    }
+
+    private static Object onConnection(Object target, Method method, Object[] args) throws Throwable {
+        Object result = call(target, method, args);
+        return switch (method.getName()) {
+            case "prepareStatement" -> proxy(PreparedStatement.class, result, SlowDatabase::onStatement);
+            case "createStatement" -> proxy(Statement.class, result, SlowDatabase::onStatement);
+            default -> result;
+        };
+    }
+
+    private static Object onStatement(Object target, Method method, Object[] args) throws Throwable {
+        long delay = latencyMs;
+        if (delay > 0 && method.getName().startsWith("execute")) Thread.sleep(delay);
+        return call(target, method, args);
+    }
+
+    private interface Handler {
+        Object handle(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, Handler handler) {
+        return (T) Proxy.newProxyInstance(SlowDatabase.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> args != null && args.length == 1 ? proxy == args[0] : handler.handle(target, method, args);
+                    case "hashCode" -> args == null ? System.identityHashCode(proxy) : handler.handle(target, method, args);
+                    default -> handler.handle(target, method, args);
+                });
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.smartmedical.bench;
+
+import com.smartmedical.dto.AppointmentSummary;
+import com.smartmedical.service.AppointmentService;
+import com.smartmedical.service.AppointmentStatusSweeper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The auto-complete status rule (overdue SCHEDULED is shown, and eventually stored, as
+ * COMPLETED) over N synthetic appointments, about a tenth of them overdue. The read
+ * paths relabel rows in memory; the sweeper does the bulk UPDATE in batches and
+ * publishes a change event per row. Each sweep starts from the same overdue rows,
+ * put back to SCHEDULED before the iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class StatusLoopBenchmark {
+
+    @Param({"10000", "100000"})
+    public int appointments;
+
+    private ConfigurableApplicationContext context;
+    private AppointmentService appointmentService;
+    private AppointmentStatusSweeper sweeper;
+    private JdbcTemplate jdbc;
+    private int overdue;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // batch cap high enough for one run to finish the whole backlog
+        context = BenchmarkApp.start("appointments.sweeper.max-batches-per-run=1000");
+        appointmentService = context.getBean(AppointmentService.class);
+        sweeper = context.getBean(AppointmentStatusSweeper.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+        new SyntheticData(23).load(context, appointments / 10, appointments);
+
+        jdbc.execute("create table bench_overdue as select id from appointments "
+                + "where status = 'SCHEDULED' and appointment_time < current_timestamp");
+        overdue = jdbc.queryForObject("select count(*) from bench_overdue", Integer.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Benchmark)
+    public static class OverdueBacklog {
+        @Setup(Level.Iteration)
+        public void reset(StatusLoopBenchmark bench) {
+            bench.jdbc.update("update appointments set status = 'SCHEDULED' where id in (select id from bench_overdue)");
+        }
+    }
+
+    // GET /api/appointments: every row streamed, overdue ones relabelled on the way out
+    @Benchmark
+    public void streamAllWithRelabel(Blackhole bh) {
+        appointmentService.streamAllAppointments(bh::consume);
+    }
+
+    // GET /range over the last week (mostly past rows, so the relabel is hot)
+    @Benchmark
+    public List<AppointmentSummary> lastWeekWithRelabel() {
+        LocalDateTime now = LocalDateTime.now();
+        return appointmentService.getAppointmentsBetween(now.minusDays(7), now);
+    }
+
+    // one sweeper run completing the whole overdue backlog
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2, batchSize = 1)
+    @Measurement(iterations = 5, batchSize = 1)
+    public long sweepOverdueBacklog(OverdueBacklog backlog) {
+        sweeper.sweep();
+        long left = jdbc.queryForObject("select count(*) from appointments where status = 'SCHEDULED' "
+                + "and appointment_time < current_timestamp", Long.class);
+        if (left != 0) {
+            throw new IllegalStateException(left + " of " + overdue + " overdue rows left after a sweep");
+        }
+        return left;
+    }
+}
@@ -0,0 +1,162 @@
+package com.smartmedical.bench;
+
+import com.smartmedical.dto.ImportReport;
+import com.smartmedical.model.Appointment;
+import com.smartmedical.model.Patient;
+import com.smartmedical.repository.PatientRepository;
+import com.smartmedical.service.ImportService;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic patients and appointments for the benchmarks. The same seed
+ * always gives the same rows, so runs (and the committed baselines) stay comparable.
+ * <p>
+ * Appointments are spread over {@link #DOCTORS} doctors in 30-minute slots, 09:00-17:00,
+ * centred on today: half lie in the past (mostly COMPLETED, some still SCHEDULED and so
+ * overdue, some CANCELLED), half in the future (mostly SCHEDULED). No two rows of one
+ * doctor overlap, so everything passes the double-booking check on import.
+ */
+public final class SyntheticData {
+
+    public static final int DOCTORS = 40;
+    private static final int SLOTS_PER_DAY = 16;
+
+    private static final String[] FIRST = {"Aarav", "Vivaan", "Aditya", "Vihaan", "Arjun", "Sai", "Reyansh", "Ayaan",
+            "Krishna", "Ishaan", "Rahul", "Rohan", "Karan", "Aman", "Nikhil", "Saanvi", "Ananya", "Diya", "Aadhya",
+            "Pari", "Anika", "Navya", "Riya", "Priya", "Neha", "Pooja", "Sneha", "Kavya", "Meera", "Tanvi"};
+    private static final String[] LAST = {"Sharma", "Verma", "Gupta", "Singh", "Kumar", "Patel", "Shah", "Mehta",
+            "Joshi", "Iyer", "Nair", "Reddy", "Rao", "Das", "Bose", "Banerjee", "Kapoor", "Malhotra", "Khanna",
+            "Agarwal", "Jain", "Mishra", "Pandey", "Tiwari", "Yadav"};
+    private static final String[] REASONS = {"General checkup", "Follow-up", "Fever and cold", "Blood pressure review",
+            "Diabetes review", "Vaccination", "Back pain", "Skin allergy", "Lab report discussion", "Migraine"};
+    private static final String[] HISTORY = {"Hypertension", "Type 2 diabetes", "Asthma", "Penicillin allergy",
+            "Appendectomy (2015)", "Thyroid", "Migraine", "High cholesterol", "None reported"};
+
+    private final long seed;
+    private final LocalDate today;
+
+    public SyntheticData(long seed) {
+        this(seed, LocalDate.now());
+    }
+
+    public SyntheticData(long seed, LocalDate today) {
+        this.seed = seed;
+        this.today = today;
+    }
+
+    public static String doctorName(int d) {
+        return "Dr " + FIRST[d % FIRST.length] + " " + LAST[(d / FIRST.length + d) % LAST.length];
+    }
+
+    // Patient i (no id); medicalHistory up to ~200 chars, the column is varchar(255)
+    public Patient patient(int i) {
+        Random rnd = new Random(seed * 31 + i);
+        String first = FIRST[rnd.nextInt(FIRST.length)];
+        String last = LAST[rnd.nextInt(LAST.length)];
+        StringBuilder history = new StringBuilder();
+        for (int k = rnd.nextInt(6); k > 0; k--) {
+            if (!history.isEmpty()) history.append("; ");
+            history.append(HISTORY[rnd.nextInt(HISTORY.length)]);
+        }
+        return new Patient(first + " " + last, 1 + rnd.nextInt(90),
+                (first + "." + last + i).toLowerCase() + "@example.com",
+                String.valueOf(6_000_000_000L + Math.floorMod(rnd.nextLong(), 3_999_999_999L)), history.toString());
+    }
+
+    public List<Patient> patients(int n) {
+        List<Patient> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(patient(i));
+        return out;
+    }
+
+    /**
+     * Appointment i of {@code total}, for the given patient (may be a bare id reference).
+     * Slot i belongs to doctor {@code i % DOCTORS}; slots run from {@code total / 2} before
+     * today's first slot to as many after it.
+     */
+    public Appointment appointment(int i, int total, Patient patient) {
+        Random rnd = new Random(seed * 17 + i);
+        long slot = i / DOCTORS - (long) (total / DOCTORS) / 2;
+        LocalDateTime time = today.plusDays(Math.floorDiv(slot, SLOTS_PER_DAY))
+                .atTime(9, 0).plusMinutes(30L * Math.floorMod(slot, SLOTS_PER_DAY));
+        int roll = rnd.nextInt(100);
+        String status = slot < 0
+                ? (roll < 70 ? "COMPLETED" : roll < 90 ? "SCHEDULED" : "CANCELLED")
+                : (roll < 90 ? "SCHEDULED" : "CANCELLED");
+        Appointment a = new Appointment(patient, doctorName(i % DOCTORS), time,
+                REASONS[rnd.nextInt(REASONS.length)], status);
+        a.setDurationMinutes(rnd.nextBoolean() ? 15 : 30);
+        return a;
+    }
+
+    // In-memory rows with ids (no database), patients assigned round-robin
+    public List<Appointment> appointments(List<Patient> patients, int n) {
+        List<Appointment> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Appointment a = appointment(i, n, patients.get(i % patients.size()));
+            a.setId(i + 1L);
+            out.add(a);
+        }
+        return out;
+    }
+
+    public byte[] patientsNdjson(int n) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            Patient p = patient(i);
+            out.append("{\"name\":\"").append(p.getName()).append("\",\"age\":").append(p.getAge())
+                    .append(",\"email\":\"").append(p.getEmail()).append("\",\"phone\":\"").append(p.getPhone())
+                    .append("\",\"medicalHistory\":\"").append(p.getMedicalHistory()).append("\"}\n");
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // patient of row i is patientIds[i % length]
+    public byte[] appointmentsNdjson(long[] patientIds, int n) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            Appointment a = appointment(i, n, null);
+            out.append("{\"patient\":{\"id\":").append(patientIds[i % patientIds.length])
+                    .append("},\"doctorName\":\"").append(a.getDoctorName())
+                    .append("\",\"appointmentTime\":\"").append(a.getAppointmentTime().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                    .append("\",\"durationMinutes\":").append(a.getDurationMinutes())
+                    .append(",\"reason\":\"").append(a.getReason())
+                    .append("\",\"status\":\"").append(a.getStatus()).append("\"}\n");
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Imports {@code patients} patients and {@code appointments} appointments through the
+     * bulk import service, every patient referenced round-robin. Returns the patient ids.
+     */
+    public long[] load(ConfigurableApplicationContext context, int patients, int appointments) throws IOException {
+        ImportService importService = context.getBean(ImportService.class);
+        check(importService.importPatients(new ByteArrayInputStream(patientsNdjson(patients))), patients);
+        long[] ids = context.getBean(PatientRepository.class)
+                .findAll(PageRequest.of(0, patients, Sort.by("id"))).stream()
+                .mapToLong(Patient::getId).toArray();
+        check(importService.importAppointments(new ByteArrayInputStream(appointmentsNdjson(ids, appointments))),
+                appointments);
+        return ids;
+    }
+
+    private static void check(ImportReport report, long expected) {
+        if (report.getImported() != expected) {
+            throw new IllegalStateException("seed import failed: " + report.getErrors().size() + " errors, first: "
+                    + (report.getErrors().isEmpty() ? "-" : report.getErrors().get(0).getMessage()));
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.smartmedical.bench;
+
+import com.smartmedical.repository.AppointmentRepository;
+import com.smartmedical.service.AppointmentService;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP load test comparing platform-thread and virtual-thread request handling. Boots
+ * the backend on a random port three times (platform threads with the pool at 20,
+ * virtual threads with the pool at 20 and at 40), seeds it, then runs closed-loop
+ * clients for a fixed time against a read mix: 40% GET /api/appointments/{id}, 20%
+ * /api/appointments/cursor, 20% /api/dashboard, 20% /api/patients/search. The first two
+ * hit the database, the last two are served from memory. {@link SlowDatabase} adds a
+ * fixed delay to every statement, like a database over the network.
+ * <p>
+ * Prints throughput, p50 and p99 latency (overall, database-backed and in-memory) and
+ * errors per mode. While virtual threads run, a JFR stream records
+ * {@code jdk.VirtualThreadPinned} events (a virtual thread blocked while stuck to its
+ * carrier, e.g. inside {@code synchronized}) and prints the hottest application frames.
+ * <p>
+ * Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbench.main=com.smartmedical.bench.VirtualThreadLoadTest -Dbench.args="400 20 5"}
+ * (clients, seconds per mode, statement latency in ms).
+ */
+public final class VirtualThreadLoadTest {
+
+    private static final int PATIENTS = 2_000;
+    private static final int APPOINTMENTS = 20_000;
+    private static final int WARMUP_SECONDS = 5;
+    private static final String[] SEARCHES = {"aar", "rah", "pri", "sharma", "kap", "ne", "iyer", "98", "6", "mee"};
+
+    private VirtualThreadLoadTest() {}
+
+    private record Mode(String name, boolean virtual, int pool) {}
+
+    private record Run(double throughput, long[] all, long[] db, long[] memory, long errors, long busy) {}
+
+    private record Result(Mode mode, Run run, long pinned, Map<String, Long> pinnedAt) {}
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        long latencyMs = args.length > 2 ? Long.parseLong(args[2]) : 5;
+
+        List<Result> results = new ArrayList<>();
+        for (Mode mode : List.of(new Mode("platform", false, 20), new Mode("virtual", true, 20),
+                new Mode("virtual", true, 40))) {
+            results.add(run(mode, clients, seconds, latencyMs));
+        }
+
+        System.out.printf("%n%d clients, %d s per mode, %d ms per statement%n", clients, seconds, latencyMs);
+        System.out.printf("%-9s %5s %9s %9s %9s %9s %9s %8s %8s %7s%n", "threads", "pool", "req/s", "p50 ms",
+                "p99 ms", "db p99", "mem p99", "errors", "503s", "pinned");
+        for (Result r : results) {
+            Run run = r.run();
+            System.out.printf("%-9s %5d %9.0f %9.1f %9.1f %9.1f %9.1f %8d %8d %7s%n", r.mode().name(), r.mode().pool(),
+                    run.throughput(), ms(run.all(), 0.50), ms(run.all(), 0.99), ms(run.db(), 0.99),
+                    ms(run.memory(), 0.99), run.errors(), run.busy(), r.mode().virtual() ? String.valueOf(r.pinned()) : "-");
+        }
+        for (Result r : results) {
+            if (r.pinnedAt().isEmpty()) continue;
+            System.out.printf("%nPinned virtual threads (%s, pool %d), by first application frame:%n",
+                    r.mode().name(), r.mode().pool());
+            r.pinnedAt().entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .limit(10)
+                    .forEach(e -> System.out.printf("%8d  %s%n", e.getValue(), e.getKey()));
+        }
+        System.exit(0);
+    }
+
+    private static Result run(Mode mode, int clients, int seconds, long latencyMs) throws Exception {
+        SlowDatabase.latencyMs = 0;
+        ConfigurableApplicationContext context = BenchmarkApp.startWeb(new Class<?>[]{SlowDatabase.class},
+                "spring.threads.virtual.enabled=" + mode.virtual(),
+                "spring.datasource.hikari.maximum-pool-size=" + mode.pool(),
+                "spring.datasource.hikari.minimum-idle=" + mode.pool(),
+                "logging.level.com.smartmedical.controller.DatabaseBusyHandler=ERROR");
+        LongAdder pinned = new LongAdder();
+        Map<String, Long> pinnedAt = new ConcurrentHashMap<>();
+        try (RecordingStream jfr = new RecordingStream()) {
+            jfr.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(1)).withStackTrace();
+            jfr.onEvent("jdk.VirtualThreadPinned", event -> {
+                pinned.increment();
+                pinnedAt.merge(applicationFrame(event.getStackTrace() == null ? List.of()
+                        : event.getStackTrace().getFrames()), 1L, Long::sum);
+            });
+            jfr.startAsync();
+
+            new SyntheticData(13).load(context, PATIENTS, APPOINTMENTS);
+            long firstId = context.getBean(AppointmentRepository.class)
+                    .findSummaries(PageRequest.of(0, 1, Sort.by("id"))).getContent().get(0).id();
+            // a cursor halfway through the table, as a client paging along would send it
+            String cursor = URLEncoder.encode(context.getBean(AppointmentService.class)
+                    .getAppointmentsPage(null, APPOINTMENTS / 2, null, null).getNextCursor(), StandardCharsets.UTF_8);
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            SlowDatabase.latencyMs = latencyMs;
+
+            System.out.printf("%s threads, pool %d: warming up%n", mode.name(), mode.pool());
+            drive(base, firstId, cursor, clients, WARMUP_SECONDS);
+            pinned.reset();
+            pinnedAt.clear();
+            System.out.printf("%s threads, pool %d: measuring %d s%n", mode.name(), mode.pool(), seconds);
+            Run run = drive(base, firstId, cursor, clients, seconds);
+            jfr.stop(); // drains events still buffered
+            return new Result(mode, run, pinned.sum(), new HashMap<>(pinnedAt));
+        } finally {
+            SlowDatabase.latencyMs = 0;
+            context.close();
+        }
+    }
+
+    // closed loop: every client sends its next request as soon as the previous one answers
+    private static Run drive(String base, long firstId, String cursor, int clients, int seconds) throws Exception {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<long[]> db = Collections.synchronizedList(new ArrayList<>());
+        List<long[]> memory = Collections.synchronizedList(new ArrayList<>());
+        LongAdder errors = new LongAdder();
+        LongAdder busy = new LongAdder();
+        // clients close first (waiting for their last request), then the HTTP client
+        try (HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                     .connectTimeout(Duration.ofSeconds(5)).build();
+             ExecutorService loops = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                loops.submit(() -> {
+                    Samples dbSamples = new Samples();
+                    Samples memorySamples = new Samples();
+                    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        int pick = rnd.nextInt(10);
+                        boolean hitsDatabase = pick < 6;
+                        String path = switch (pick) {
+                            case 0, 1, 2, 3 -> "/api/appointments/" + (firstId + rnd.nextInt(APPOINTMENTS));
+                            case 4, 5 -> "/api/appointments/cursor?limit=50&cursor=" + cursor;
+                            case 6, 7 -> "/api/dashboard";
+                            default -> "/api/patients/search?q=" + SEARCHES[rnd.nextInt(SEARCHES.length)];
+                        };
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = http.send(
+                                    HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(30)).build(),
+                                    HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 503) busy.increment();
+                            else if (response.statusCode() != 200) errors.increment();
+                        } catch (Exception ex) {
+                            errors.increment();
+                        }
+                        (hitsDatabase ? dbSamples : memorySamples).add(System.nanoTime() - start);
+                    }
+                    db.add(dbSamples.toArray());
+                    memory.add(memorySamples.toArray());
+                    return null;
+                });
+            }
+        }
+        long[] dbAll = merge(db);
+        long[] memoryAll = merge(memory);
+        long[] all = merge(List.of(dbAll, memoryAll));
+        return new Run(all.length / (double) seconds, all, dbAll, memoryAll, errors.sum(), busy.sum());
+    }
+
+    // first frame outside the JDK, i.e. the library or application code that held the monitor
+    private static String applicationFrame(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")
+                    && !type.startsWith(VirtualThreadLoadTest.class.getPackageName())) {
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        return frames.isEmpty() ? "(no stack)" : "(JDK only)";
+    }
+
+    private static long[] merge(List<long[]> parts) {
+        long[] out = new long[parts.stream().mapToInt(p -> p.length).sum()];
+        int at = 0;
+        for (long[] p : parts) {
+            System.arraycopy(p, 0, out, at, p.length);
+            at += p.length;
+        }
+        Arrays.sort(out);
+        return out;
+    }
+
+    private static double ms(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) return Double.NaN;
+        return sortedNanos[(int) Math.min(sortedNanos.length - 1, Math.ceil(quantile * sortedNanos.length) - 1)] / 1e6;
+    }
+
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
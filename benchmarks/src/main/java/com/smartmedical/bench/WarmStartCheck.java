@@ -0,0 +1,70 @@
+package com.smartmedical.bench;
+
+import com.smartmedical.service.AppointmentSnapshotStore;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Startup time with the appointment snapshot file against a load from the database, on
+ * one database at full size: the first shutdown writes the file, then one boot without it
+ * and one boot from it are timed. {@code WarmStartTest} checks that what a warm boot loads
+ * matches the database. Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbench.main=com.smartmedical.bench.WarmStartCheck -Dbench.args="5000 200000"}
+ * (patients, appointments).
+ */
+public final class WarmStartCheck {
+
+    private WarmStartCheck() {}
+
+    public static void main(String[] args) throws Exception {
+        int patients = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int appointments = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        Path dir = Files.createTempDirectory("warm-start");
+        Path file = dir.resolve("appointments.snapshot");
+        String db = "warm_" + UUID.randomUUID().toString().replace("-", "");
+        List<String> common = List.of(
+                // one database for every boot: kept open across contexts, schema created only once
+                "spring.datasource.url=jdbc:h2:mem:" + db + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "snapshot.path=" + file,
+                "snapshot.initial-delay-ms=86400000",
+                "dashboard.rollup.flush-interval-ms=3600000",
+                // the load/write timings of the read models and the snapshot
+                "logging.level.com.smartmedical.service=INFO");
+
+        ConfigurableApplicationContext context = boot(common, true);
+        new SyntheticData(17).load(context, patients, appointments);
+        context.close();
+        if (!Files.exists(file)) {
+            System.out.println("FAIL: no snapshot written on shutdown");
+            System.exit(1);
+        }
+        System.out.printf("snapshot: %d bytes%n", Files.size(file));
+
+        long t0 = System.nanoTime();
+        context = boot(common, false);
+        long coldMs = (System.nanoTime() - t0) / 1_000_000;
+        context.close();
+
+        t0 = System.nanoTime();
+        context = boot(common, true);
+        long warmMs = (System.nanoTime() - t0) / 1_000_000;
+        boolean warm = context.getBean(AppointmentSnapshotStore.class).warmStarted();
+        context.close();
+
+        System.out.printf("startup with %d appointments: %d ms from the database, %d ms from the snapshot (warm %s)%n",
+                appointments, coldMs, warmMs, warm);
+        System.exit(warm ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext boot(List<String> common, boolean snapshots) {
+        List<String> props = new ArrayList<>(common);
+        props.add("snapshot.enabled=" + snapshots);
+        return BenchmarkApp.start(props.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,82 @@
+// Shared connection to the backend change feed (server-sent events).
+// One EventSource per tab, however many components listen.
+const FEED_URL = "http://localhost:8080/api/changes";
+
+const listeners = new Set();
+let source = null;
+let connectedBefore = false;
+let retryTimer = null;
+
+const emit = (kind, data) => {
+  listeners.forEach((l) => l[kind] && l[kind](data));
+};
+
+const connect = () => {
+  source = new EventSource(FEED_URL);
+
+  source.onopen = () => {
+    // events sent while we were disconnected are lost -> reload once
+    if (connectedBefore) emit("onResync");
+    connectedBefore = true;
+  };
+
+  source.addEventListener("appointment", (e) => emit("onAppointment", JSON.parse(e.data)));
+  source.addEventListener("dashboard", (e) => emit("onDashboard", JSON.parse(e.data)));
+  source.addEventListener("resync", () => emit("onResync"));
+
+  source.onerror = () => {
+    // the browser retries by itself unless the server refused us (e.g. 503 when full)
+    if (source.readyState === EventSource.CLOSED) {
+      source = null;
+      retryTimer = setTimeout(() => {
+        retryTimer = null;
+        if (listeners.size > 0) connect();
+      }, 30000);
+    }
+  };
+};
+
+// handlers: { onAppointment, onDashboard, onResync }; returns the unsubscribe function
+export function subscribeChanges(handlers) {
+  listeners.add(handlers);
+  if (!source && !retryTimer) connect();
+
+  return () => {
+    listeners.delete(handlers);
+    if (listeners.size === 0 && source) {
+      source.close();
+      source = null;
+      connectedBefore = false;
+    }
+  };
+}
+
+// Apply an "appointment" event to a list of summary rows (upsert, or remove on DELETED)
+export function applyAppointmentChange(list, change) {
+  if (change.type === "DELETED" || !change.appointment) {
+    return list.filter((a) => a.id !== change.id);
+  }
+  const exists = list.some((a) => a.id === change.id);
+  return exists
+    ? list.map((a) => (a.id === change.id ? change.appointment : a))
+    : [...list, change.appointment];
+}
+
+// Apply a "dashboard" delta: changed fields carry new values, null map entries are removed
+export function applyDashboardDelta(stats, delta) {
+  if (!stats) return stats;
+  const next = { ...stats };
+  Object.entries(delta).forEach(([field, value]) => {
+    if (value && typeof value === "object") {
+      const merged = { ...(stats[field] || {}) };
+      Object.entries(value).forEach(([key, n]) => {
+        if (n === null) delete merged[key];
+        else merged[key] = n;
+      });
+      next[field] = merged;
+    } else {
+      next[field] = value;
+    }
+  });
+  return next;
+}
@@ -3,24 +3,44 @@ import { useNavigate } from "react-router-dom";
 import { motion } from "framer-motion";
 
 function AddAppointment() {
-  const [patients, setPatients] = useState([]);
+  const [patientQuery, setPatientQuery] = useState("");
+  const [patientMatches, setPatientMatches] = useState([]);
   const [newAppt, setNewAppt] = useState({
     patientId: "",
     doctorName: "",
     appointmentTime: "",
+    durationMinutes: 30,
     reason: "",
   });
   const [suggestedDoctor, setSuggestedDoctor] = useState(""); // ⭐ new
+  const [freeSlots, setFreeSlots] = useState([]);
 
   const navigate = useNavigate();
 
-  // Load patients for dropdown
+  // Patient typeahead: server-side search, debounced, stale responses dropped
   useEffect(() => {
-    fetch("http://localhost:8080/api/patients")
-      .then((res) => res.json())
-      .then((data) => setPatients(data))
-      .catch((err) => console.error("Error fetching patients:", err));
-  }, []);
+    const q = patientQuery.trim();
+    if (q.length < 2 || newAppt.patientId) {
+      setPatientMatches([]);
+      return;
+    }
+    const controller = new AbortController();
+    const timer = setTimeout(() => {
+      const params = new URLSearchParams({ q, limit: 8 });
+      fetch("http://localhost:8080/api/patients/search?" + params, {
+        signal: controller.signal,
+      })
+        .then((res) => res.json())
+        .then((data) => setPatientMatches(data))
+        .catch((err) => {
+          if (err.name !== "AbortError") console.error("Error searching patients:", err);
+        });
+    }, 150);
+    return () => {
+      clearTimeout(timer);
+      controller.abort();
+    };
+  }, [patientQuery, newAppt.patientId]);
 
   // Simple specialization mapping
   const doctorSuggestions = [
@@ -32,14 +52,25 @@ function AddAppointment() {
     { keyword: "skin", doctor: "Dermatologist - Dr. Tony Stark" },
   ];
 
-  const handlePatientChange = (e) => {
-    const selectedId = e.target.value;
-    setNewAppt({ ...newAppt, patientId: selectedId });
+  const handlePatientQuery = (e) => {
+    setPatientQuery(e.target.value);
+    setNewAppt({ ...newAppt, patientId: "" }); // typing again clears the choice
+  };
+
+  const handlePatientSelect = (match) => {
+    setPatientQuery(`${match.name} (ID: ${match.id})`);
+    setPatientMatches([]);
+    setNewAppt({ ...newAppt, patientId: String(match.id) });
 
-    const selectedPatient = patients.find((p) => p.id.toString() === selectedId);
+    // search results are slim; medical history comes from the full record
+    fetch(`http://localhost:8080/api/patients/${match.id}`)
+      .then((res) => res.json())
+      .then((patient) => applyHistory(patient.medicalHistory))
+      .catch((err) => console.error("Error fetching patient:", err));
+  };
 
-    if (selectedPatient && selectedPatient.medicalHistory) {
-      const history = selectedPatient.medicalHistory;
+  const applyHistory = (history) => {
+    if (history) {
       setNewAppt((prev) => ({ ...prev, reason: history }));
 
       let matchedDoctor = "";
@@ -58,6 +89,20 @@ function AddAppointment() {
     }
   };
 
+  // Next free slots for the chosen doctor (server checks the doctor's whole diary)
+  const findFreeSlots = () => {
+    if (!newAppt.doctorName) return;
+    const params = new URLSearchParams({
+      doctorName: newAppt.doctorName,
+      slotMinutes: newAppt.durationMinutes,
+      limit: 6,
+    });
+    fetch("http://localhost:8080/api/availability?" + params)
+      .then((res) => res.json())
+      .then((data) => setFreeSlots(Object.values(data.byDoctor || {})[0] || []))
+      .catch((err) => console.error("Error fetching free slots:", err));
+  };
+
   const handleAdd = () => {
     fetch("http://localhost:8080/api/appointments", {
       method: "POST",
@@ -66,12 +111,17 @@ function AddAppointment() {
         patient: { id: newAppt.patientId },
         doctorName: newAppt.doctorName,
         appointmentTime: newAppt.appointmentTime + ":00",
+        durationMinutes: Number(newAppt.durationMinutes),
         reason: newAppt.reason,
         status: "SCHEDULED",
       }),
     })
       .then((res) => {
-        if (!res.ok) throw new Error("Failed to save appointment");
+        // 409 = doctor already booked in that slot; server sends the clash details
+        if (!res.ok)
+          return res.text().then((msg) => {
+            throw new Error(msg || "Failed to save appointment");
+          });
         return res.json();
       })
       .then(() => {
@@ -90,21 +140,34 @@ function AddAppointment() {
     >
       <h3 className="mb-3">➤ Add Appointment</h3>
 
-      {/* Patient Dropdown */}
-      <motion.select
-        className="form-control mb-2 w-[8000px]"
-        value={newAppt.patientId}
-        onChange={handlePatientChange}
+      {/* Patient Typeahead */}
+      <motion.input
+        type="text"
+        className="form-control mb-1"
+        placeholder="Search patient by name, phone or email"
+        value={patientQuery}
+        onChange={handlePatientQuery}
         required
         whileFocus={{ scale: 1.03, boxShadow: "0px 0px 8px #28a745" }}
-      >
-        <option value="">-- Select Patient --</option>
-        {patients.map((p) => (
-          <option key={p.id} value={p.id}>
-            {p.name} (ID: {p.id})
-          </option>
-        ))}
-      </motion.select>
+      />
+
+      {patientMatches.length > 0 && (
+        <div className="list-group mb-2">
+          {patientMatches.map((p) => (
+            <button
+              key={p.id}
+              type="button"
+              className="list-group-item list-group-item-action"
+              onClick={() => handlePatientSelect(p)}
+            >
+              <b>{p.name}</b> (ID: {p.id})
+              <small className="text-muted ms-2">
+                {[p.phone, p.email].filter(Boolean).join(" · ")}
+              </small>
+            </button>
+          ))}
+        </div>
+      )}
 
       {/* Suggested Doctor Info */}
       {suggestedDoctor && (
@@ -129,6 +192,33 @@ function AddAppointment() {
         whileFocus={{ scale: 1.03, boxShadow: "0px 0px 8px #28a745" }}
       />
 
+      <motion.button
+        type="button"
+        className="btn btn-outline-primary btn-sm mb-2"
+        onClick={findFreeSlots}
+        whileHover={{ scale: 1.05 }}
+        whileTap={{ scale: 0.95 }}
+      >
+        Find free slots
+      </motion.button>
+
+      {freeSlots.length > 0 && (
+        <div className="mb-2">
+          {freeSlots.map((slot) => (
+            <button
+              key={slot.start}
+              type="button"
+              className="btn btn-light btn-sm me-2 mb-1"
+              onClick={() =>
+                setNewAppt({ ...newAppt, appointmentTime: slot.start.slice(0, 16) })
+              }
+            >
+              {slot.start.replace("T", " ").slice(0, 16)}
+            </button>
+          ))}
+        </div>
+      )}
+
       <motion.input
         type="datetime-local"
         className="form-control mb-2"
@@ -140,6 +230,21 @@ function AddAppointment() {
         whileFocus={{ scale: 1.03, boxShadow: "0px 0px 8px #28a745" }}
       />
 
+      <motion.select
+        className="form-control mb-2"
+        value={newAppt.durationMinutes}
+        onChange={(e) =>
+          setNewAppt({ ...newAppt, durationMinutes: e.target.value })
+        }
+        whileFocus={{ scale: 1.03, boxShadow: "0px 0px 8px #28a745" }}
+      >
+        {[15, 30, 45, 60, 90].map((m) => (
+          <option key={m} value={m}>
+            {m} minutes
+          </option>
+        ))}
+      </motion.select>
+
       <motion.input
         type="text"
         className="form-control mb-2"
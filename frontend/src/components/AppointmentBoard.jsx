@@ -1,6 +1,7 @@
 import React, { useEffect, useState } from "react";
 import "bootstrap/dist/css/bootstrap.min.css";
 import { FaUserInjured, FaUserMd, FaClock, FaEdit, FaTrash } from "react-icons/fa";
+import { subscribeChanges, applyAppointmentChange } from "../changeFeed";
 
 function AppointmentBoard() {
   const [appointments, setAppointments] = useState([]);
@@ -9,11 +10,21 @@ function AppointmentBoard() {
   const [currentAppt, setCurrentAppt] = useState(null);
 
   // Fetch appointments from backend
-  useEffect(() => {
+  const loadAppointments = () => {
     fetch("http://localhost:8080/api/appointments")
       .then((res) => res.json())
       .then((data) => setAppointments(data))
       .catch((err) => console.error("Error fetching appointments:", err));
+  };
+
+  // Subscribe first, then load: changes made in between arrive as events, nothing is missed
+  useEffect(() => {
+    const unsubscribe = subscribeChanges({
+      onAppointment: (change) => setAppointments((prev) => applyAppointmentChange(prev, change)),
+      onResync: loadAppointments,
+    });
+    loadAppointments();
+    return unsubscribe;
   }, []);
 
   // Format time
@@ -30,6 +41,13 @@ function AppointmentBoard() {
     });
   };
 
+  // Past SCHEDULED rows count as COMPLETED (same rule as the backend); the change feed
+  // doesn't send the background status sweep, so the badge flips here
+  const effectiveStatus = (appt) =>
+    appt.status?.toUpperCase() === "SCHEDULED" && new Date(appt.appointmentTime) < new Date()
+      ? "COMPLETED"
+      : appt.status;
+
   // Status badge style
   const getStatusBadge = (status) => {
     switch (status) {
@@ -189,7 +207,7 @@ function AppointmentBoard() {
                     {formatDate(appt.appointmentTime)}
                   </td>
                   <td>{appt.reason}</td>
-                  <td>{getStatusBadge(appt.status)}</td>
+                  <td>{getStatusBadge(effectiveStatus(appt))}</td>
                   <td>
                     <button
                       className="btn btn-sm btn-outline-primary me-2"
@@ -203,15 +221,14 @@ function AppointmentBoard() {
                     >
                       <FaTrash />
                     </button>
-                    {appt.status &&
-                      appt.status.toUpperCase() === "SCHEDULED" && (
-                        <button
-                          className="btn btn-sm btn-danger"
-                          onClick={() => handleCancel(appt.id)}
-                        >
-                          Cancel
-                        </button>
-                      )}
+                    {effectiveStatus(appt)?.toUpperCase() === "SCHEDULED" && (
+                      <button
+                        className="btn btn-sm btn-danger"
+                        onClick={() => handleCancel(appt.id)}
+                      >
+                        Cancel
+                      </button>
+                    )}
                   </td>
                 </tr>
               ))}
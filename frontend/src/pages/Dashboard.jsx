@@ -1,5 +1,5 @@
 // dashboard.jsx
-import React, { useEffect, useState } from "react";
+import React, { useEffect, useRef, useState } from "react";
 import "bootstrap/dist/css/bootstrap.min.css";
 import jsPDF from "jspdf";
 import autoTable from "jspdf-autotable";
@@ -20,6 +20,7 @@ import {
 } from "recharts";
 import { motion } from "framer-motion";
 import { Table } from "react-bootstrap";
+import { subscribeChanges, applyAppointmentChange, applyDashboardDelta } from "../changeFeed";
 
 function Dashboard() {
   const [stats, setStats] = useState(null);
@@ -27,23 +28,54 @@ function Dashboard() {
   const [appointments, setAppointments] = useState([]);
   const [filteredAppointments, setFilteredAppointments] = useState([]);
 
-  useEffect(() => {
+  const recentRef = useRef([]);
+
+  const latestFirst = (list) =>
+    [...list].sort((a, b) => new Date(b.appointmentTime) - new Date(a.appointmentTime));
+
+  const showRecent = (list) => {
+    recentRef.current = list;
+    setAppointments(list);
+    setFilteredAppointments(list);
+  };
+
+  const loadStats = () =>
     fetch("http://localhost:8080/api/dashboard")
       .then((r) => r.json())
       .then((data) => setStats(data))
       .catch((e) => console.error("Dashboard load error:", e))
       .finally(() => setLoading(false));
 
-    fetch("http://localhost:8080/api/appointments")
+  // only the 5 rows shown, latest first from the server - never the whole table
+  const loadRecent = () =>
+    fetch("http://localhost:8080/api/appointments/latest?limit=5")
       .then((r) => r.json())
-      .then((data) => {
-        const sorted = data.sort(
-          (a, b) => new Date(b.appointmentTime) - new Date(a.appointmentTime)
-        );
-        setAppointments(sorted.slice(0, 5));
-        setFilteredAppointments(sorted.slice(0, 5));
-      })
+      .then((data) => showRecent(data))
       .catch((e) => console.error("Appointments load error:", e));
+
+  // Live updates from the change feed instead of refetching; full reload only on "resync"
+  useEffect(() => {
+    const unsubscribe = subscribeChanges({
+      onDashboard: (delta) => setStats((prev) => applyDashboardDelta(prev, delta)),
+      onAppointment: (change) => {
+        const prev = recentRef.current;
+        const next = latestFirst(applyAppointmentChange(prev, change));
+        // a row leaving the top 5 (deleted, or moved earlier) makes room for one we don't have
+        const wasShown = prev.some((a) => a.id === change.id);
+        if (wasShown && (next.length < prev.length || next[next.length - 1].id === change.id)) {
+          loadRecent();
+        } else {
+          showRecent(next.slice(0, 5));
+        }
+      },
+      onResync: () => {
+        loadStats();
+        loadRecent();
+      },
+    });
+    loadStats();
+    loadRecent();
+    return unsubscribe;
   }, []);
 
   if (loading) return <div className="container mt-4">⏳ Loading dashboard...</div>;
@@ -318,6 +350,26 @@ function Dashboard() {
                 Export as PDF
               </button>
             </li>
+            <li>
+              <hr className="dropdown-divider" />
+            </li>
+            {/* Full exports are streamed by the backend, nothing is built in the browser */}
+            <li>
+              <a
+                className="dropdown-item"
+                href="http://localhost:8080/api/export/appointments?format=csv&gzip=true"
+              >
+                All Appointments (CSV.gz)
+              </a>
+            </li>
+            <li>
+              <a
+                className="dropdown-item"
+                href="http://localhost:8080/api/export/patients?format=csv&gzip=true"
+              >
+                All Patients (CSV.gz)
+              </a>
+            </li>
           </ul>
         </div>
       </div>
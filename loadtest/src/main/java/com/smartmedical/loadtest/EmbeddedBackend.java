@@ -0,0 +1,72 @@
+package com.smartmedical.loadtest;
+
+import com.smartmedical.SmartMedicalApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The real backend, in this JVM, against the load-test database: the seeder boots it
+ * without a web server to let Flyway create the schema, {@code run --embedded} boots
+ * it with one. Everything else is the backend's own application.properties; any
+ * {@code --set.<property>=<value>} option overrides one of them (pool size, virtual
+ * threads, snapshot, audit...).
+ */
+final class EmbeddedBackend {
+
+    private EmbeddedBackend() {}
+
+    static ConfigurableApplicationContext start(Database db, boolean web, int port, Map<String, String> overrides) {
+        Map<String, String> props = new LinkedHashMap<>();
+        props.put("spring.datasource.url", db.url());
+        props.put("spring.datasource.username", db.user());
+        props.put("spring.datasource.password", db.password());
+        if (db.isH2()) {
+            props.put("spring.datasource.driver-class-name", "org.h2.Driver");
+            props.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        }
+        props.put("spring.jpa.show-sql", "false");
+        props.put("spring.main.banner-mode", "off");
+        props.put("logging.level.root", "WARN");
+        // snapshot and audit files next to the database, not in the backend's data/
+        props.put("snapshot.path", db.workDir().resolve("appointments.snapshot").toString());
+        props.put("audit.dir", db.workDir().resolve("audit").toString());
+        if (web) props.put("server.port", String.valueOf(port));
+        props.putAll(overrides);
+
+        List<String> args = new ArrayList<>();
+        props.forEach((key, value) -> args.add("--" + key + "=" + value));
+        return new SpringApplicationBuilder(SmartMedicalApplication.class)
+                .web(web ? WebApplicationType.SERVLET : WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(args.toArray(String[]::new));
+    }
+
+    /** Where the seeder writes and the embedded backend reads. */
+    record Database(String url, String user, String password, Path workDir) {
+
+        static final String DEFAULT_URL =
+                "jdbc:h2:file:./target/loadtest-db/smart_medical;MODE=MySQL;DATABASE_TO_LOWER=TRUE;AUTO_SERVER=TRUE";
+
+        static Database from(Options options) {
+            String url = options.get("jdbc-url", DEFAULT_URL);
+            if (url.startsWith("jdbc:mysql:") && !url.contains("rewriteBatchedStatements")) {
+                // one multi-row INSERT per batch instead of a round trip per row
+                url += (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+            }
+            boolean h2 = url.startsWith("jdbc:h2:");
+            return new Database(url, options.get("user", h2 ? "sa" : "root"), options.get("password", h2 ? "" : "1234"),
+                    Path.of(options.get("work-dir", "target/loadtest-db")));
+        }
+
+        boolean isH2() {
+            return url.startsWith("jdbc:h2:");
+        }
+    }
+}
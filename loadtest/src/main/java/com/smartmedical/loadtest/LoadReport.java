@@ -0,0 +1,158 @@
+package com.smartmedical.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What a run measured, per endpoint template ({@code GET /api/patients/{id}}) and per
+ * flow: counts, outcomes and latency percentiles from HdrHistograms (microseconds, 3
+ * significant digits). 2xx and 304 are ok, 409 is a conflict (two desks after the same
+ * slot, a stale version: expected under load, not an error), anything else - including
+ * timeouts and refused connections - is an error.
+ */
+final class LoadReport {
+
+    private static final int ERROR_SAMPLES = 5;
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, Endpoint> flows = new ConcurrentHashMap<>();
+    private final LongAdder droppedArrivals = new LongAdder();
+
+    static final class Endpoint {
+        final Histogram latency = new ConcurrentHistogram(3);
+        final LongAdder ok = new LongAdder();
+        final LongAdder conflicts = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        final Set<String> errorSamples = new ConcurrentSkipListSet<>();
+
+        void record(long micros, int status, String error) {
+            latency.recordValue(Math.max(1, micros));
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+            if (status == 409) {
+                conflicts.increment();
+            } else if (error == null && (status / 100 == 2 || status == 304)) {
+                ok.increment();
+            } else {
+                errors.increment();
+                if (errorSamples.size() < ERROR_SAMPLES) {
+                    String sample = error != null ? error : status + "";
+                    errorSamples.add(sample.length() > 200 ? sample.substring(0, 200) : sample);
+                }
+            }
+        }
+
+        long count() {
+            return latency.getTotalCount();
+        }
+    }
+
+    /** status 0 means no response (error says why). */
+    void request(String template, long micros, int status, String error) {
+        endpoints.computeIfAbsent(template, t -> new Endpoint()).record(micros, status, error);
+    }
+
+    void flow(String name, long micros, boolean failed) {
+        flows.computeIfAbsent(name, n -> new Endpoint()).record(micros, failed ? 0 : 200, failed ? "failed" : null);
+    }
+
+    void droppedArrival() {
+        droppedArrivals.increment();
+    }
+
+    // ---- results ----
+
+    record Row(String name, long count, double perSecond, long ok, long conflicts, long errors,
+               double p50Ms, double p90Ms, double p99Ms, double p999Ms, double maxMs,
+               Map<Integer, Long> statuses, List<String> errorSamples) {}
+
+    record Summary(double seconds, long requests, double requestsPerSecond, long errors, double errorRate,
+                   long droppedArrivals, List<Row> endpoints, List<Row> flows, List<String> sloViolations) {}
+
+    Summary summarize(double seconds, double sloP99Ms, double sloErrorRate) {
+        List<Row> endpointRows = rows(endpoints, seconds);
+        List<Row> flowRows = rows(flows, seconds);
+        long requests = endpointRows.stream().mapToLong(Row::count).sum();
+        long errors = endpointRows.stream().mapToLong(Row::errors).sum();
+        double errorRate = requests == 0 ? 0 : (double) errors / requests;
+        List<String> violations = new ArrayList<>();
+        if (sloP99Ms > 0) {
+            for (Row r : endpointRows) {
+                if (r.p99Ms() > sloP99Ms) {
+                    violations.add(String.format("%s p99 %.1f ms > %.1f ms", r.name(), r.p99Ms(), sloP99Ms));
+                }
+            }
+        }
+        if (sloErrorRate >= 0 && errorRate > sloErrorRate) {
+            violations.add(String.format("error rate %.4f > %.4f", errorRate, sloErrorRate));
+        }
+        if (requests == 0) violations.add("no requests completed");
+        return new Summary(seconds, requests, requests / seconds, errors, errorRate, droppedArrivals.sum(),
+                endpointRows, flowRows, violations);
+    }
+
+    private static List<Row> rows(Map<String, Endpoint> source, double seconds) {
+        List<Row> rows = new ArrayList<>();
+        new TreeMap<>(source).forEach((name, e) -> {
+            Histogram h = e.latency.copy();
+            Map<Integer, Long> statuses = new TreeMap<>();
+            e.statuses.forEach((status, n) -> statuses.put(status, n.sum()));
+            rows.add(new Row(name, h.getTotalCount(), h.getTotalCount() / seconds, e.ok.sum(), e.conflicts.sum(),
+                    e.errors.sum(), ms(h, 50), ms(h, 90), ms(h, 99), ms(h, 99.9), h.getMaxValue() / 1000.0,
+                    statuses, List.copyOf(e.errorSamples)));
+        });
+        return rows;
+    }
+
+    private static double ms(Histogram h, double percentile) {
+        return h.getTotalCount() == 0 ? 0 : h.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    static void print(Summary s) {
+        System.out.printf("%n%.0f s measured: %,d requests (%.1f/s), %,d errors (%.2f%%), %,d arrivals dropped%n",
+                s.seconds(), s.requests(), s.requestsPerSecond(), s.errors(), 100 * s.errorRate(), s.droppedArrivals());
+        table("endpoint", s.endpoints());
+        table("flow (end to end)", s.flows());
+        for (Row r : s.endpoints()) {
+            if (!r.errorSamples().isEmpty()) System.out.printf("errors on %s: %s%n", r.name(), r.errorSamples());
+        }
+        if (s.sloViolations().isEmpty()) {
+            System.out.println("SLOs met");
+        } else {
+            s.sloViolations().forEach(v -> System.out.println("SLO violated: " + v));
+        }
+    }
+
+    private static void table(String title, List<Row> rows) {
+        System.out.printf("%n%-42s %9s %8s %7s %6s %9s %9s %9s %9s %9s%n", title, "count", "per s", "409s",
+                "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Row r : rows) {
+            System.out.printf("%-42s %9d %8.1f %7d %6d %9.1f %9.1f %9.1f %9.1f %9.1f%n", r.name(), r.count(),
+                    r.perSecond(), r.conflicts(), r.errors(), r.p50Ms(), r.p90Ms(), r.p99Ms(), r.p999Ms(), r.maxMs());
+        }
+    }
+
+    static void write(Summary s, Map<String, Object> settings, Path file) throws IOException {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("settings", settings);
+        json.put("summary", s);
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), json);
+        System.out.println("report written to " + file.toAbsolutePath());
+    }
+}
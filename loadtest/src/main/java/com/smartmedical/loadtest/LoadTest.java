@@ -0,0 +1,108 @@
+package com.smartmedical.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * End-to-end load test against a production-sized database.
+ * <pre>
+ * seed  [--patients=1m] [--appointments=20m] [--doctors=auto] [--past-days=730] [--future-days=60]
+ *       [--seed=42] [--threads=4] [--batch=1000] [--reset]
+ * run   [--embedded | --target=http://localhost:8080] [--rate.frontdesk=50] [--rate.dashboard=20]
+ *       [--warmup=30] [--duration=120] [--ramp=10] [--think-ms=300] [--timeout-ms=10000]
+ *       [--max-in-flight=2000] [--report=target/loadtest-report.json]
+ *       [--slo-p99-ms=0] [--slo-error-rate=0.01]
+ * both  [--jdbc-url=...] [--user=...] [--password=...] [--work-dir=target/loadtest-db] [--set.<property>=<value>]
+ * </pre>
+ * The database defaults to an H2 file in MySQL mode under {@code target/loadtest-db};
+ * {@code --jdbc-url=jdbc:mysql://...} seeds (and, with {@code --embedded}, serves) a
+ * real MySQL instead. {@code run} exits with 1 when an SLO is missed, so it can gate a
+ * build.
+ */
+public final class LoadTest {
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || !(args[0].equals("seed") || args[0].equals("run"))) {
+            System.err.println("usage: LoadTest seed|run [--option=value ...] (see LoadTest javadoc)");
+            System.exit(2);
+        }
+        Options options = Options.parse(args, 1);
+        int exit = args[0].equals("seed") ? seed(options) : run(options);
+        System.exit(exit);
+    }
+
+    private static int seed(Options options) throws Exception {
+        long patients = options.getLong("patients", 1_000_000);
+        long appointments = options.getLong("appointments", 20_000_000);
+        SyntheticClinic clinic = new SyntheticClinic(options.getLong("seed", 42), patients, appointments,
+                options.getInt("doctors", 0), options.getInt("past-days", 730), options.getInt("future-days", 60),
+                LocalDateTime.now());
+        Seeder seeder = new Seeder(EmbeddedBackend.Database.from(options), clinic, options.getInt("threads", 4),
+                options.getInt("batch", 1000), options.getBoolean("reset"), options.withPrefix("set."));
+        options.requireAllRead();
+        seeder.seed(patients, appointments);
+        return 0;
+    }
+
+    private static int run(Options options) throws Exception {
+        boolean embedded = options.getBoolean("embedded");
+        EmbeddedBackend.Database db = EmbeddedBackend.Database.from(options);
+        Map<String, String> overrides = options.withPrefix("set.");
+        String target = options.get("target", "http://localhost:8080");
+        double frontDesk = options.getDouble("rate.frontdesk", 50);
+        double dashboard = options.getDouble("rate.dashboard", 20);
+        Duration warmup = Duration.ofSeconds(options.getLong("warmup", 30));
+        Duration duration = Duration.ofSeconds(options.getLong("duration", 120));
+        Duration ramp = Duration.ofSeconds(options.getLong("ramp", 10));
+        long thinkMillis = options.getLong("think-ms", 300);
+        Duration timeout = Duration.ofMillis(options.getLong("timeout-ms", 10_000));
+        int maxInFlight = options.getInt("max-in-flight", 2000);
+        Path reportFile = Path.of(options.get("report", "target/loadtest-report.json"));
+        double sloP99Ms = options.getDouble("slo-p99-ms", 0);
+        double sloErrorRate = options.getDouble("slo-error-rate", 0.01);
+        options.requireAllRead();
+
+        ConfigurableApplicationContext backend = null;
+        if (embedded) {
+            long started = System.nanoTime();
+            backend = EmbeddedBackend.start(db, true, 0, overrides);
+            target = "http://localhost:" + backend.getEnvironment().getProperty("local.server.port");
+            System.out.printf("backend started in %.1f s at %s%n", (System.nanoTime() - started) / 1e9, target);
+        }
+        try (HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5)).executor(Executors.newVirtualThreadPerTaskExecutor()).build()) {
+            ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+            OpenModelRunner runner = new OpenModelRunner(target, http, mapper, timeout, thinkMillis, maxInFlight);
+            Scenarios scenarios = new Scenarios();
+            scenarios.discover(runner.unmeasured());
+            System.out.printf("open model: %.1f front-desk + %.1f dashboard arrivals/s, %d s warmup, %d s measured%n",
+                    frontDesk, dashboard, warmup.toSeconds(), duration.toSeconds());
+            LoadReport report = runner.run(scenarios.groups(frontDesk, dashboard), warmup, duration, ramp);
+
+            LoadReport.Summary summary = report.summarize(duration.toSeconds(), sloP99Ms, sloErrorRate);
+            LoadReport.print(summary);
+            Map<String, Object> settings = new LinkedHashMap<>();
+            settings.put("target", embedded ? "embedded " + db.url() : target);
+            settings.put("frontDeskPerSecond", frontDesk);
+            settings.put("dashboardPerSecond", dashboard);
+            settings.put("warmupSeconds", warmup.toSeconds());
+            settings.put("durationSeconds", duration.toSeconds());
+            settings.put("thinkMillis", thinkMillis);
+            settings.put("overrides", overrides);
+            LoadReport.write(summary, settings, reportFile);
+            return summary.sloViolations().isEmpty() ? 0 : 1;
+        } finally {
+            if (backend != null) backend.close();
+        }
+    }
+}
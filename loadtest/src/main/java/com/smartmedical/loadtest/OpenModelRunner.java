@@ -0,0 +1,243 @@
+package com.smartmedical.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load: users arrive at a fixed average rate (Poisson arrivals) whether or
+ * not the server keeps up, the way patients turn up at a front desk. A closed loop of N
+ * clients slows down with the server and hides queueing; here a slow server means more
+ * flows in flight, and the latency of the first request of each flow is measured from
+ * when it was due to start, so time spent behind a stalled generator or a backlog is
+ * counted (no coordinated omission).
+ * <p>
+ * Each arrival runs one {@link Flow} on its own virtual thread. Arrivals during the warmup
+ * run but are not recorded; the rate ramps up linearly over the first seconds. Past
+ * {@code maxInFlight} concurrent flows an arrival is dropped and counted, so a server
+ * that has stopped answering does not exhaust the load generator.
+ */
+final class OpenModelRunner {
+
+    /** One user's visit: a few requests with think time in between. */
+    interface Flow {
+        void run(Session session) throws Exception;
+    }
+
+    record WeightedFlow(String name, double weight, Flow flow) {}
+
+    /** A traffic source: arrivals per second, split over flows by weight. */
+    record Group(String name, double perSecond, List<WeightedFlow> flows) {
+
+        WeightedFlow pick(double r) {
+            double total = flows.stream().mapToDouble(WeightedFlow::weight).sum();
+            double x = r * total;
+            for (WeightedFlow f : flows) {
+                x -= f.weight();
+                if (x < 0) return f;
+            }
+            return flows.get(flows.size() - 1);
+        }
+    }
+
+    static final class FlowFailed extends RuntimeException {
+        FlowFailed(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    record Response(int status, HttpHeaders headers, String body, JsonNode json) {
+        boolean ok() {
+            return status / 100 == 2;
+        }
+    }
+
+    private final String baseUrl;
+    private final HttpClient http;
+    private final ObjectMapper mapper;
+    private final Duration timeout;
+    private final long thinkMillis;
+    private final int maxInFlight;
+    private final LoadReport report = new LoadReport();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OpenModelRunner(String baseUrl, HttpClient http, ObjectMapper mapper, Duration timeout, long thinkMillis,
+                    int maxInFlight) {
+        this.baseUrl = baseUrl;
+        this.http = http;
+        this.mapper = mapper;
+        this.timeout = timeout;
+        this.thinkMillis = thinkMillis;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /** Calls the server outside any measurement (catalog discovery). */
+    Session unmeasured() {
+        return new Session(System.nanoTime(), false);
+    }
+
+    LoadReport run(List<Group> groups, Duration warmup, Duration duration, Duration ramp) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        List<Thread> generators = new ArrayList<>();
+        try (ExecutorService flows = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Group group : groups) {
+                if (group.perSecond() <= 0) continue;
+                generators.add(Thread.ofPlatform().name("arrivals-" + group.name()).start(
+                        () -> arrivals(group, flows, start, measureFrom, end, ramp.toNanos())));
+            }
+            Thread progress = Thread.ofPlatform().daemon().start(() -> progress(start, measureFrom, end));
+            for (Thread g : generators) g.join();
+            progress.interrupt();
+            // flows still running finish (or time out) before the numbers are read
+            flows.shutdown();
+            if (!flows.awaitTermination(timeout.toMillis() * 4, TimeUnit.MILLISECONDS)) {
+                System.out.println("some flows still running after the run, not waiting for them");
+            }
+        }
+        return report;
+    }
+
+    private void arrivals(Group group, ExecutorService flows, long start, long measureFrom, long end, long ramp) {
+        SplittableRandom rnd = new SplittableRandom(group.name().hashCode());
+        long due = start;
+        while (true) {
+            double rate = group.perSecond();
+            if (ramp > 0 && due - start < ramp) rate *= Math.max(0.05, (double) (due - start) / ramp);
+            due += (long) (-Math.log(1 - rnd.nextDouble()) / rate * 1e9);
+            if (due >= end) return;
+            long wait = due - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            boolean measured = due >= measureFrom;
+            if (inFlight.get() >= maxInFlight) {
+                if (measured) report.droppedArrival();
+                continue;
+            }
+            WeightedFlow flow = group.pick(rnd.nextDouble());
+            long intended = due;
+            inFlight.incrementAndGet();
+            flows.execute(() -> {
+                Session session = new Session(intended, measured);
+                boolean failed = false;
+                try {
+                    flow.flow().run(session);
+                } catch (Exception ex) {
+                    failed = true;
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                if (measured) report.flow(group.name() + "/" + flow.name(), (System.nanoTime() - intended) / 1000, failed);
+            });
+        }
+    }
+
+    private void progress(long start, long measureFrom, long end) {
+        try {
+            while (true) {
+                Thread.sleep(10_000);
+                long now = System.nanoTime();
+                System.out.printf("  %s %.0f s, %d flows in flight%n", now < measureFrom ? "warmup" : "measuring",
+                        (now - (now < measureFrom ? start : measureFrom)) / 1e9, inFlight.get());
+                if (now >= end) return;
+            }
+        } catch (InterruptedException ex) {
+            // run over
+        }
+    }
+
+    /** One flow's view of the server: requests are recorded under their endpoint template. */
+    final class Session {
+
+        private final long arrived;
+        private final boolean measured;
+        private boolean first = true;
+
+        private Session(long arrived, boolean measured) {
+            this.arrived = arrived;
+            this.measured = measured;
+        }
+
+        ThreadLocalRandom random() {
+            return ThreadLocalRandom.current();
+        }
+
+        Response get(String template, String path) {
+            return exchange(template, HttpRequest.newBuilder(URI.create(baseUrl + path)).GET());
+        }
+
+        Response get(String template, String path, Map<String, String> headers) {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET();
+            headers.forEach(request::header);
+            return exchange(template, request);
+        }
+
+        Response post(String template, String path, Object body) {
+            return withBody(template, HttpRequest.newBuilder(URI.create(baseUrl + path)), "POST", body);
+        }
+
+        Response put(String template, String path, Object body) {
+            return withBody(template, HttpRequest.newBuilder(URI.create(baseUrl + path)), "PUT", body);
+        }
+
+        /** The user reads the screen before the next click. */
+        void think() throws InterruptedException {
+            if (thinkMillis > 0) {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(thinkMillis / 2, thinkMillis * 3 / 2 + 1));
+            }
+        }
+
+        private Response withBody(String template, HttpRequest.Builder request, String method, Object body) {
+            try {
+                byte[] json = body == null ? new byte[0] : mapper.writeValueAsBytes(body);
+                request.method(method, HttpRequest.BodyPublishers.ofByteArray(json))
+                        .header("Content-Type", "application/json");
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            return exchange(template, request);
+        }
+
+        private Response exchange(String template, HttpRequest.Builder request) {
+            // the first request of a flow counts from when the user arrived, not from when we got round to it
+            long started = first ? arrived : System.nanoTime();
+            first = false;
+            int status = 0;
+            String error = null;
+            Response response = null;
+            try {
+                HttpResponse<String> r = http.send(request.timeout(timeout).build(), HttpResponse.BodyHandlers.ofString());
+                status = r.statusCode();
+                String contentType = r.headers().firstValue("Content-Type").orElse("");
+                JsonNode json = contentType.contains("json") && !r.body().isEmpty() ? mapper.readTree(r.body()) : null;
+                response = new Response(status, r.headers(), r.body(), json);
+                if (status >= 400 && status != 409) error = status + " " + r.body();
+            } catch (IOException ex) {
+                error = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                error = "interrupted";
+            }
+            if (measured) report.request(template, (System.nanoTime() - started) / 1000, status, error);
+            if (response == null) throw new FlowFailed(error);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.smartmedical.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/** {@code --name=value} command-line options; a bare {@code --flag} means true. */
+final class Options {
+
+    private final Map<String, String> values = new LinkedHashMap<>();
+    private final Set<String> read = new LinkedHashSet<>();
+
+    private Options() {}
+
+    static Options parse(String[] args, int from) {
+        Options options = new Options();
+        for (int i = from; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("expected --name=value, got " + arg);
+            int eq = arg.indexOf('=');
+            if (eq < 0) options.values.put(arg.substring(2), "true");
+            else options.values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    String get(String name, String defaultValue) {
+        read.add(name);
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    long getLong(String name, long defaultValue) {
+        String value = get(name, null);
+        if (value == null) return defaultValue;
+        // 1m, 20M, 500k
+        long scale = switch (Character.toLowerCase(value.charAt(value.length() - 1))) {
+            case 'k' -> 1_000L;
+            case 'm' -> 1_000_000L;
+            default -> 1L;
+        };
+        String digits = scale == 1 ? value : value.substring(0, value.length() - 1);
+        try {
+            return Long.parseLong(digits.replace("_", "")) * scale;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("--" + name + " must be a number, got " + value);
+        }
+    }
+
+    int getInt(String name, int defaultValue) {
+        return Math.toIntExact(getLong(name, defaultValue));
+    }
+
+    double getDouble(String name, double defaultValue) {
+        String value = get(name, null);
+        if (value == null) return defaultValue;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("--" + name + " must be a number, got " + value);
+        }
+    }
+
+    boolean getBoolean(String name) {
+        return Boolean.parseBoolean(get(name, "false"));
+    }
+
+    /** Every {@code --<prefix>key=value}, as key to value. */
+    Map<String, String> withPrefix(String prefix) {
+        Map<String, String> matching = new LinkedHashMap<>();
+        values.forEach((name, value) -> {
+            if (name.startsWith(prefix)) {
+                read.add(name);
+                matching.put(name.substring(prefix.length()), value);
+            }
+        });
+        return matching;
+    }
+
+    boolean has(String name) {
+        return values.containsKey(name);
+    }
+
+    /** Fails on options no one asked for (typos). Call after everything was read. */
+    void requireAllRead() {
+        Set<String> unknown = new LinkedHashSet<>(values.keySet());
+        unknown.removeAll(read);
+        if (!unknown.isEmpty()) throw new IllegalArgumentException("unknown option(s): --" + String.join(", --", unknown));
+    }
+}
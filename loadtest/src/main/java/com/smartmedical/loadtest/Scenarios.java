@@ -0,0 +1,237 @@
+package com.smartmedical.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.smartmedical.loadtest.OpenModelRunner.FlowFailed;
+import com.smartmedical.loadtest.OpenModelRunner.Group;
+import com.smartmedical.loadtest.OpenModelRunner.Response;
+import com.smartmedical.loadtest.OpenModelRunner.Session;
+import com.smartmedical.loadtest.OpenModelRunner.WeightedFlow;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The traffic: what a front desk and a wall of dashboards do all day.
+ * <p>
+ * Front desk (per arrival, one of):
+ * <ul>
+ *   <li>lookup 45% - type a name into the typeahead (a request per keystroke), open the
+ *       patient, list their appointments;</li>
+ *   <li>board 20% - page through a doctor's upcoming appointments;</li>
+ *   <li>book 20% - find the patient, ask for a doctor's free slots, book one (a 409 means
+ *       another desk got it first: ask again and retry once);</li>
+ *   <li>reschedule 10% - open an upcoming appointment and move it to a free slot, sending
+ *       its version back (409 if someone else changed it meanwhile);</li>
+ *   <li>cancel 5% - cancel an upcoming appointment.</li>
+ * </ul>
+ * Dashboard: 80% a screen polling the summary with its last ETag (mostly 304s), 20% a
+ * range query (last 30 days by day, 12 weeks by week, 12 months by month).
+ * <p>
+ * Doctors are picked in proportion to their appointment counts from the dashboard, so
+ * popular doctors get popular traffic, whatever database the run points at.
+ */
+final class Scenarios {
+
+    private static final int DASHBOARD_SCREENS = 50;
+
+    private final List<String> doctors = new ArrayList<>();
+    private long[] cumulativeWeight;
+    private final AtomicReferenceArray<String> screenEtags = new AtomicReferenceArray<>(DASHBOARD_SCREENS);
+
+    /** Doctor names and their weights, from the dashboard. */
+    void discover(Session session) {
+        Response dashboard = session.get("GET /api/dashboard", "/api/dashboard");
+        if (!dashboard.ok() || dashboard.json() == null) {
+            throw new IllegalStateException("GET /api/dashboard answered " + dashboard.status() + ": " + dashboard.body());
+        }
+        JsonNode perDoctor = dashboard.json().path("appointmentsPerDoctor");
+        List<Long> weights = new ArrayList<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = perDoctor.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> e = it.next();
+            doctors.add(e.getKey());
+            weights.add(Math.max(1, e.getValue().asLong()));
+        }
+        if (doctors.isEmpty()) {
+            throw new IllegalStateException("no appointments in the database; run seed first");
+        }
+        cumulativeWeight = new long[weights.size()];
+        long sum = 0;
+        for (int i = 0; i < weights.size(); i++) cumulativeWeight[i] = sum += weights.get(i);
+        System.out.printf("target has %,d patients, %,d appointments, %,d doctors%n",
+                dashboard.json().path("totalPatients").asLong(), dashboard.json().path("totalAppointments").asLong(),
+                doctors.size());
+    }
+
+    List<Group> groups(double frontDeskPerSecond, double dashboardPerSecond) {
+        return List.of(
+                new Group("frontdesk", frontDeskPerSecond, List.of(
+                        new WeightedFlow("lookup", 45, this::lookup),
+                        new WeightedFlow("board", 20, this::board),
+                        new WeightedFlow("book", 20, this::book),
+                        new WeightedFlow("reschedule", 10, this::reschedule),
+                        new WeightedFlow("cancel", 5, this::cancel))),
+                new Group("dashboard", dashboardPerSecond, List.of(
+                        new WeightedFlow("poll", 80, this::poll),
+                        new WeightedFlow("range", 20, this::range))));
+    }
+
+    // ---- front desk ----
+
+    private void lookup(Session s) throws InterruptedException {
+        long patientId = findPatient(s, 2 + s.random().nextInt(3));
+        s.think();
+        require(s.get("GET /api/patients/{id}", "/api/patients/" + patientId));
+        require(s.get("GET /api/appointments/patient/{id}", "/api/appointments/patient/" + patientId));
+    }
+
+    private void board(Session s) throws InterruptedException {
+        String doctor = doctor(s.random());
+        String cursor = null;
+        int pages = 1 + s.random().nextInt(3);
+        for (int page = 0; page < pages; page++) {
+            JsonNode body = require(s.get("GET /api/appointments/cursor", "/api/appointments/cursor?limit=50&status=SCHEDULED"
+                    + "&doctorName=" + encode(doctor) + (cursor == null ? "" : "&cursor=" + encode(cursor))));
+            cursor = body.path("nextCursor").isTextual() ? body.path("nextCursor").asText() : null;
+            if (cursor == null) return;
+            s.think();
+        }
+    }
+
+    private void book(Session s) throws InterruptedException {
+        long patientId = findPatient(s, 1);
+        s.think();
+        String doctor = doctor(s.random());
+        for (int attempt = 0; attempt < 2; attempt++) {
+            JsonNode slot = freeSlot(s, doctor);
+            if (slot == null) return;
+            s.think();
+            Map<String, Object> appointment = new LinkedHashMap<>();
+            appointment.put("patient", Map.of("id", patientId));
+            appointment.put("doctorName", doctor);
+            appointment.put("appointmentTime", slot.path("start").asText());
+            appointment.put("durationMinutes", 30);
+            appointment.put("reason", SyntheticClinic.REASONS[s.random().nextInt(SyntheticClinic.REASONS.length)]);
+            appointment.put("status", "SCHEDULED");
+            Response created = s.post("POST /api/appointments", "/api/appointments", appointment);
+            if (created.status() != 409) {
+                require(created);
+                return;
+            }
+        }
+    }
+
+    private void reschedule(Session s) throws InterruptedException {
+        String doctor = doctor(s.random());
+        Long id = upcoming(s, doctor);
+        if (id == null) return;
+        s.think();
+        JsonNode appointment = require(s.get("GET /api/appointments/{id}", "/api/appointments/" + id));
+        JsonNode slot = freeSlot(s, doctor);
+        if (slot == null) return;
+        s.think();
+        ObjectNode moved = appointment.deepCopy();
+        moved.put("appointmentTime", slot.path("start").asText());
+        Response updated = s.put("PUT /api/appointments/{id}", "/api/appointments/" + id, moved);
+        if (updated.status() != 409) require(updated);
+    }
+
+    private void cancel(Session s) throws InterruptedException {
+        Long id = upcoming(s, doctor(s.random()));
+        if (id == null) return;
+        s.think();
+        require(s.put("PUT /api/appointments/{id}/cancel", "/api/appointments/" + id + "/cancel", null));
+    }
+
+    // typeahead: one request per keystroke of a first or last name, then pick a match
+    private long findPatient(Session s, int keystrokes) throws InterruptedException {
+        ThreadLocalRandom rnd = s.random();
+        String name = rnd.nextBoolean() ? SyntheticClinic.FIRST[rnd.nextInt(SyntheticClinic.FIRST.length)]
+                : SyntheticClinic.LAST[rnd.nextInt(SyntheticClinic.LAST.length)];
+        // the index wants two characters before it answers
+        int last = Math.min(name.length(), 1 + keystrokes);
+        JsonNode matches = null;
+        for (int typed = 2; typed <= last; typed++) {
+            if (typed > 2) s.think();
+            matches = require(s.get("GET /api/patients/search",
+                    "/api/patients/search?limit=10&q=" + encode(name.substring(0, typed).toLowerCase())));
+        }
+        if (matches == null || !matches.isArray() || matches.isEmpty()) throw new FlowFailed("no patient matches " + name);
+        return matches.get(rnd.nextInt(matches.size())).path("id").asLong();
+    }
+
+    private JsonNode freeSlot(Session s, String doctor) {
+        LocalDate from = LocalDate.now().plusDays(1 + s.random().nextInt(7));
+        JsonNode result = require(s.get("GET /api/availability", "/api/availability?limit=5&doctorName=" + encode(doctor)
+                + "&from=" + from + "&to=" + from.plusDays(14)));
+        JsonNode slots = result.path("byDoctor").path(doctor);
+        return slots.isArray() && !slots.isEmpty() ? slots.get(s.random().nextInt(slots.size())) : null;
+    }
+
+    // one of the doctor's next SCHEDULED appointments still in the future
+    private Long upcoming(Session s, String doctor) {
+        JsonNode page = require(s.get("GET /api/appointments/cursor",
+                "/api/appointments/cursor?limit=20&status=SCHEDULED&doctorName=" + encode(doctor)));
+        String now = LocalDateTime.now().toString();
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode item : page.path("items")) {
+            if (item.path("appointmentTime").asText().compareTo(now) > 0) ids.add(item.path("id").asLong());
+        }
+        return ids.isEmpty() ? null : ids.get(s.random().nextInt(ids.size()));
+    }
+
+    // ---- dashboard ----
+
+    private void poll(Session s) {
+        int screen = s.random().nextInt(DASHBOARD_SCREENS);
+        String etag = screenEtags.get(screen);
+        Response r = etag == null ? s.get("GET /api/dashboard", "/api/dashboard")
+                : s.get("GET /api/dashboard", "/api/dashboard", Map.of("If-None-Match", etag));
+        if (r.status() == 304) return;
+        require(r);
+        r.headers().firstValue("ETag").ifPresent(tag -> screenEtags.set(screen, tag));
+    }
+
+    private void range(Session s) {
+        LocalDate today = LocalDate.now();
+        String query = switch (s.random().nextInt(3)) {
+            case 0 -> "from=" + today.minusDays(30) + "&to=" + today + "&granularity=day";
+            case 1 -> "from=" + today.minusWeeks(12) + "&to=" + today + "&granularity=week";
+            default -> "from=" + today.minusMonths(12) + "&to=" + today + "&granularity=month";
+        };
+        require(s.get("GET /api/dashboard?from&to", "/api/dashboard?" + query));
+    }
+
+    // ---- helpers ----
+
+    private String doctor(ThreadLocalRandom rnd) {
+        long x = rnd.nextLong(cumulativeWeight[cumulativeWeight.length - 1]);
+        int lo = 0;
+        int hi = cumulativeWeight.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulativeWeight[mid] > x) hi = mid;
+            else lo = mid + 1;
+        }
+        return doctors.get(lo);
+    }
+
+    // errors are already counted per request; the flow stops there and counts as failed
+    private static JsonNode require(Response r) {
+        if (!r.ok()) throw new FlowFailed(r.status() + " " + r.body());
+        return r.json();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,249 @@
+package com.smartmedical.loadtest;
+
+import com.smartmedical.loadtest.SyntheticClinic.AppointmentRow;
+import com.smartmedical.loadtest.SyntheticClinic.DoctorRow;
+import com.smartmedical.loadtest.SyntheticClinic.PatientRow;
+import com.smartmedical.model.Doctor;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Fills the load-test database with a {@link SyntheticClinic}. The schema is the
+ * backend's own (it is booted once, without a web server, to create or update it); rows
+ * then go in with plain JDBC batches from several writer threads, which is an order of
+ * magnitude faster than going through JPA. Refuses a database that already has rows
+ * unless {@code --reset} is given, which empties the backend's tables first.
+ * <p>
+ * Nothing else needs fixing up afterwards: on its next start the backend moves the id
+ * generators past the seeded ids ({@code IdGeneratorAligner}) and backfills the
+ * dashboard rollup from the appointments table.
+ */
+final class Seeder {
+
+    private static final String INSERT_PATIENT =
+            "insert into patient (id, name, age, email, phone, medical_history) values (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_DOCTOR = "insert into doctor (id, name, name_key) values (?, ?, ?)";
+    private static final String INSERT_APPOINTMENT = "insert into appointments (id, patient_id, doctor_id, "
+            + "appointment_time, duration_minutes, reason, status, created_at, updated_at, version) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    // children first, so a plain delete would also work where truncate is refused
+    private static final List<String> TABLES = List.of("appointments", "appointment_daily_rollup", "patient", "doctor",
+            "id_generator");
+
+    private final EmbeddedBackend.Database db;
+    private final SyntheticClinic clinic;
+    private final int threads;
+    private final int batchSize;
+    private final boolean reset;
+    private final Map<String, String> overrides;
+
+    Seeder(EmbeddedBackend.Database db, SyntheticClinic clinic, int threads, int batchSize, boolean reset,
+           Map<String, String> overrides) {
+        this.db = db;
+        this.clinic = clinic;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.reset = reset;
+        this.overrides = overrides;
+    }
+
+    void seed(long patients, long appointments) throws Exception {
+        Files.createDirectories(db.workDir());
+        if (reset) {
+            reset();
+        }
+        long started = System.nanoTime();
+        try (ConfigurableApplicationContext ignored = EmbeddedBackend.start(db, false, 0, overrides)) {
+            System.out.printf("schema ready in %.1f s%n", (System.nanoTime() - started) / 1e9);
+        }
+        try (Connection c = connect()) {
+            long existing = count(c, "patient") + count(c, "appointments") + count(c, "doctor");
+            if (existing > 0) {
+                throw new IllegalStateException("database already has " + existing + " rows; use --reset to replace them");
+            }
+        }
+        System.out.printf("%d doctors, %s .. %s%n", clinic.doctors(), clinic.firstDay(), clinic.lastDay());
+        write("doctors", clinic.doctors(), INSERT_DOCTOR, clinic::doctors, Seeder::bindDoctor);
+        write("patients", patients, INSERT_PATIENT, clinic::patients, Seeder::bindPatient);
+        write("appointments", appointments, INSERT_APPOINTMENT, clinic::appointments, Seeder::bindAppointment);
+        analyze();
+    }
+
+    private interface Binder<T> {
+        void bind(PreparedStatement ps, T row) throws SQLException;
+    }
+
+    // the generator runs on this thread, writers take batches off a bounded queue
+    private <T> void write(String what, long total, String sql, Consumer<Consumer<T>> generator, Binder<T> binder)
+            throws Exception {
+        BlockingQueue<List<T>> queue = new ArrayBlockingQueue<>(threads * 4);
+        List<T> endOfRows = List.of();
+        AtomicLong written = new AtomicLong();
+        ExecutorService writers = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        long started = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            results.add(writers.submit(() -> {
+                try (Connection c = connect(); PreparedStatement ps = c.prepareStatement(sql)) {
+                    c.setAutoCommit(false);
+                    for (List<T> batch = queue.take(); batch != endOfRows; batch = queue.take()) {
+                        for (T row : batch) {
+                            binder.bind(ps, row);
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                        c.commit();
+                        written.addAndGet(batch.size());
+                    }
+                }
+                return null;
+            }));
+        }
+        Thread progress = Thread.ofPlatform().daemon().start(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(10_000);
+                    long n = written.get();
+                    System.out.printf("  %s: %,d / %,d (%.0f rows/s)%n", what, n, total,
+                            n / ((System.nanoTime() - started) / 1e9));
+                }
+            } catch (InterruptedException ex) {
+                // done
+            }
+        });
+        try {
+            List<T> batch = new ArrayList<>(batchSize);
+            generator.accept(row -> {
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    put(queue, new ArrayList<>(batch), results);
+                    batch.clear();
+                }
+            });
+            if (!batch.isEmpty()) put(queue, batch, results);
+            for (int t = 0; t < threads; t++) put(queue, endOfRows, results);
+            for (Future<?> result : results) result.get();
+        } finally {
+            progress.interrupt();
+            writers.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.out.printf("%s: %,d rows in %.1f s (%,.0f rows/s)%n", what, written.get(), seconds, written.get() / seconds);
+    }
+
+    // a writer that failed would leave the generator blocked on a full queue forever
+    private static <T> void put(BlockingQueue<List<T>> queue, List<T> batch, List<Future<?>> writers) {
+        try {
+            while (!queue.offer(batch, 1, TimeUnit.SECONDS)) {
+                for (Future<?> w : writers) {
+                    if (w.isDone()) w.get();
+                }
+            }
+        } catch (Exception ex) {
+            throw new IllegalStateException("writer failed", ex);
+        }
+    }
+
+    private static void bindPatient(PreparedStatement ps, PatientRow p) throws SQLException {
+        ps.setLong(1, p.id());
+        ps.setString(2, p.name());
+        ps.setInt(3, p.age());
+        ps.setString(4, p.email());
+        ps.setString(5, p.phone());
+        ps.setString(6, p.medicalHistory());
+    }
+
+    private static void bindDoctor(PreparedStatement ps, DoctorRow d) throws SQLException {
+        ps.setInt(1, d.id());
+        ps.setString(2, d.name());
+        ps.setString(3, Doctor.keyOf(d.name()));
+    }
+
+    private static void bindAppointment(PreparedStatement ps, AppointmentRow a) throws SQLException {
+        ps.setLong(1, a.id());
+        ps.setLong(2, a.patientId());
+        ps.setInt(3, a.doctorId());
+        ps.setTimestamp(4, timestamp(a.time()));
+        ps.setInt(5, a.durationMinutes());
+        ps.setString(6, a.reason());
+        ps.setString(7, a.status());
+        ps.setTimestamp(8, timestamp(a.createdAt()));
+        ps.setTimestamp(9, timestamp(a.updatedAt()));
+    }
+
+    private static Timestamp timestamp(LocalDateTime t) {
+        return Timestamp.valueOf(t);
+    }
+
+    private void reset() throws SQLException, IOException {
+        try (Connection c = connect(); Statement st = c.createStatement()) {
+            st.execute(db.isH2() ? "set referential_integrity false" : "set foreign_key_checks = 0");
+            for (String table : TABLES) {
+                if (exists(c, table)) {
+                    st.execute("truncate table " + table);
+                    System.out.println("emptied " + table);
+                }
+            }
+            st.execute(db.isH2() ? "set referential_integrity true" : "set foreign_key_checks = 1");
+        }
+        // a snapshot or audit trail of the old rows would be replayed over the new ones
+        Path snapshot = db.workDir().resolve("appointments.snapshot");
+        Files.deleteIfExists(snapshot);
+        Path audit = db.workDir().resolve("audit");
+        if (Files.isDirectory(audit)) {
+            try (Stream<Path> files = Files.walk(audit)) {
+                for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.delete(p);
+            }
+        }
+    }
+
+    private void analyze() throws SQLException {
+        long started = System.nanoTime();
+        try (Connection c = connect(); Statement st = c.createStatement()) {
+            if (db.isH2()) st.execute("analyze");
+            else st.execute("analyze table patient, appointments");
+        }
+        System.out.printf("statistics updated in %.1f s%n", (System.nanoTime() - started) / 1e9);
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(db.url(), db.user(), db.password());
+    }
+
+    private static boolean exists(Connection c, String table) throws SQLException {
+        try (ResultSet rs = c.getMetaData().getTables(c.getCatalog(), null, table, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    private static long count(Connection c, String table) throws SQLException {
+        try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery("select count(*) from " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.smartmedical.loadtest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * A hospital's worth of patients and appointments, the same for the same seed and size.
+ * Skew, as a real diary has it:
+ * <ul>
+ *   <li>doctors: log-normal popularity, the busiest about 3x the average, and at most
+ *       {@value #MAX_PER_DOCTOR_DAY} appointments a day;</li>
+ *   <li>days: Mondays busiest, Saturdays light, Sundays closed, about 15% more in winter;
+ *       future days thin out with lead time (most bookings are a few weeks ahead);</li>
+ *   <li>time of day: {@value #SLOTS_PER_DAY} half-hour slots from 09:00, a morning peak and
+ *       a lunch dip; 15% of appointments take an hour, and none of a doctor's overlap;</li>
+ *   <li>patients: every 20th patient is a frequent visitor and gets 30% of the bookings;</li>
+ *   <li>status: past rows COMPLETED (9% CANCELLED), future rows SCHEDULED (6% CANCELLED).</li>
+ * </ul>
+ * Appointments come out in time order with ids from 1, so ids grow with time as they
+ * would in production. Per-day counts are fixed up front so the total is exact.
+ */
+final class SyntheticClinic {
+
+    static final int SLOTS_PER_DAY = 16;
+    static final int SLOT_MINUTES = 30;
+    static final int MAX_PER_DOCTOR_DAY = 12;
+    static final LocalTime FIRST_SLOT = LocalTime.of(9, 0);
+    // average appointments per doctor on a full-weight day when --doctors is not given
+    private static final double AUTO_DOCTOR_LOAD = 4.0;
+
+    static final String[] FIRST = {"Aarav", "Vivaan", "Aditya", "Vihaan", "Arjun", "Sai", "Reyansh", "Ayaan",
+            "Krishna", "Ishaan", "Rahul", "Rohan", "Karan", "Aman", "Nikhil", "Saanvi", "Ananya", "Diya", "Aadhya",
+            "Pari", "Anika", "Navya", "Riya", "Priya", "Neha", "Pooja", "Sneha", "Kavya", "Meera", "Tanvi", "Mann",
+            "Khushal", "Bruce", "Tony", "Stephen", "Elon", "Natasha", "Wanda", "Peter", "Clint"};
+    static final String[] LAST = {"Sharma", "Verma", "Gupta", "Singh", "Kumar", "Patel", "Shah", "Mehta",
+            "Joshi", "Iyer", "Nair", "Reddy", "Rao", "Das", "Bose", "Banerjee", "Chatterjee", "Mukherjee", "Kapoor",
+            "Malhotra", "Khanna", "Agarwal", "Jain", "Bansal", "Mishra", "Pandey", "Tiwari", "Yadav", "Chauhan",
+            "Rathore", "Stark", "Banner", "Strange", "Musk", "Romanoff", "Parker", "Barton"};
+    static final String[] REASONS = {"Routine check-up", "Follow-up", "Fever", "Back pain", "Blood test results",
+            "Vaccination", "Skin rash", "Headache", "Diabetes review", "Blood pressure", "Prescription renewal",
+            "Chest pain", "Joint pain", "Allergy"};
+    private static final String[] DOMAINS = {"gmail.com", "yahoo.com", "outlook.com", "hospital.org", "rediffmail.com"};
+    private static final String[] HISTORIES = {"Hypertension", "Type 2 diabetes", "Asthma", "Penicillin allergy",
+            "Hypothyroidism", "Migraine", "Previous appendectomy"};
+    // 09:00 .. 16:30
+    private static final double[] SLOT_WEIGHT = {1.3, 1.5, 1.5, 1.4, 1.2, 1.0, 0.6, 0.6,
+            0.9, 1.0, 1.0, 0.9, 0.8, 0.7, 0.6, 0.5};
+
+    record PatientRow(long id, String name, int age, String email, String phone, String medicalHistory) {}
+
+    record DoctorRow(int id, String name) {}
+
+    // doctorId is DoctorRow.id, doctor index + 1
+    record AppointmentRow(long id, long patientId, int doctorId, LocalDateTime time, int durationMinutes,
+                          String reason, String status, LocalDateTime createdAt, LocalDateTime updatedAt) {}
+
+    private record Booking(LocalDateTime time, int doctor, int durationMinutes) {}
+
+    private final long seed;
+    private final long patients;
+    private final long appointments;
+    private final int doctors;
+    private final LocalDate firstDay;
+    private final int days;
+    private final LocalDateTime now;
+    private final double[] doctorWeight;
+    private final double[] dayWeight;
+
+    SyntheticClinic(long seed, long patients, long appointments, int doctors, int pastDays, int futureDays,
+                    LocalDateTime now) {
+        if (patients < 1) throw new IllegalArgumentException("--patients must be at least 1");
+        this.seed = seed;
+        this.patients = patients;
+        this.appointments = appointments;
+        this.now = now.truncatedTo(ChronoUnit.SECONDS);
+        this.firstDay = now.toLocalDate().minusDays(pastDays);
+        this.days = pastDays + futureDays + 1;
+        this.dayWeight = new double[days];
+        double totalDayWeight = 0;
+        int openDays = 0;
+        for (int i = 0; i < days; i++) {
+            dayWeight[i] = dayWeight(firstDay.plusDays(i), now.toLocalDate());
+            totalDayWeight += dayWeight[i];
+            if (dayWeight[i] > 0) openDays++;
+        }
+        this.doctors = doctors > 0 ? doctors
+                : (int) Math.max(10, Math.ceil(appointments / (totalDayWeight * AUTO_DOCTOR_LOAD)));
+        long capacity = (long) this.doctors * openDays * MAX_PER_DOCTOR_DAY;
+        if (appointments > capacity * 0.8) {
+            throw new IllegalArgumentException(appointments + " appointments do not fit " + this.doctors
+                    + " doctors over " + days + " days (at most " + MAX_PER_DOCTOR_DAY
+                    + " a day each); add --doctors or --past-days");
+        }
+        SplittableRandom rnd = new SplittableRandom(seed);
+        this.doctorWeight = new double[this.doctors];
+        for (int d = 0; d < this.doctors; d++) {
+            doctorWeight[d] = Math.min(3.0, Math.max(0.15, Math.exp(0.6 * rnd.nextGaussian() - 0.18)));
+        }
+    }
+
+    int doctors() {
+        return doctors;
+    }
+
+    LocalDate firstDay() {
+        return firstDay;
+    }
+
+    LocalDate lastDay() {
+        return firstDay.plusDays(days - 1L);
+    }
+
+    static String doctorName(int d) {
+        int names = FIRST.length * LAST.length;
+        String name = "Dr. " + FIRST[d % FIRST.length] + " " + LAST[(d / FIRST.length) % LAST.length];
+        return d < names ? name : name + " " + (d / names + 1);
+    }
+
+    /** Every doctor, ids 1..doctors. */
+    void doctors(Consumer<DoctorRow> sink) {
+        for (int d = 0; d < doctors; d++) sink.accept(new DoctorRow(d + 1, doctorName(d)));
+    }
+
+    PatientRow patient(long id) {
+        SplittableRandom rnd = new SplittableRandom(seed ^ (id * 0x9E3779B97F4A7C15L));
+        String first = FIRST[rnd.nextInt(FIRST.length)];
+        String last = LAST[rnd.nextInt(LAST.length)];
+        int age = 1 + (int) (94 * Math.pow(rnd.nextDouble(), 0.7));
+        String email = (first + "." + last + id).toLowerCase() + "@" + DOMAINS[rnd.nextInt(DOMAINS.length)];
+        String phone = String.valueOf(6_000_000_000L + rnd.nextLong(4_000_000_000L));
+        String history = rnd.nextInt(10) < 6 ? "" : HISTORIES[rnd.nextInt(HISTORIES.length)];
+        return new PatientRow(id, first + " " + last, age, email, phone, history);
+    }
+
+    void patients(Consumer<PatientRow> sink) {
+        for (long id = 1; id <= patients; id++) sink.accept(patient(id));
+    }
+
+    /** Every appointment, in time order, ids 1..n. */
+    void appointments(Consumer<AppointmentRow> sink) {
+        byte[] perDoctorDay = dailyCounts();
+        long nextId = 1;
+        List<Booking> day = new ArrayList<>();
+        for (int i = 0; i < days; i++) {
+            if (dayWeight[i] == 0) continue;
+            SplittableRandom rnd = new SplittableRandom(seed * 31 + i);
+            LocalDateTime opening = firstDay.plusDays(i).atTime(FIRST_SLOT);
+            day.clear();
+            for (int d = 0; d < doctors; d++) {
+                place(perDoctorDay[d * days + i], d, opening, rnd, day);
+            }
+            day.sort(Comparator.comparing(Booking::time).thenComparingInt(Booking::doctor));
+            for (Booking b : day) sink.accept(row(nextId++, b, rnd));
+        }
+    }
+
+    // appointments per doctor and day: expected load scaled to the total, rounded at random, then made exact
+    private byte[] dailyCounts() {
+        double scale = scaleFor(appointments);
+        byte[] counts = new byte[doctors * days];
+        SplittableRandom rnd = new SplittableRandom(seed + 1);
+        long total = 0;
+        for (int d = 0; d < doctors; d++) {
+            for (int i = 0; i < days; i++) {
+                double expected = Math.min(MAX_PER_DOCTOR_DAY, scale * doctorWeight[d] * dayWeight[i]);
+                int k = (int) expected + (rnd.nextDouble() < expected - (int) expected ? 1 : 0);
+                counts[d * days + i] = (byte) Math.min(k, MAX_PER_DOCTOR_DAY);
+                total += counts[d * days + i];
+            }
+        }
+        while (total != appointments) {
+            int cell = rnd.nextInt(counts.length);
+            if (dayWeight[cell % days] == 0) continue;
+            if (total < appointments && counts[cell] < MAX_PER_DOCTOR_DAY) {
+                counts[cell]++;
+                total++;
+            } else if (total > appointments && counts[cell] > 0) {
+                counts[cell]--;
+                total--;
+            }
+        }
+        return counts;
+    }
+
+    private double scaleFor(long target) {
+        double low = 0;
+        double high = 1;
+        while (expectedTotal(high) < target) high *= 2;
+        for (int iteration = 0; iteration < 40; iteration++) {
+            double mid = (low + high) / 2;
+            if (expectedTotal(mid) < target) low = mid;
+            else high = mid;
+        }
+        return high;
+    }
+
+    private double expectedTotal(double scale) {
+        double total = 0;
+        for (double w : doctorWeight) {
+            for (double dw : dayWeight) total += Math.min(MAX_PER_DOCTOR_DAY, scale * w * dw);
+        }
+        return total;
+    }
+
+    // k non-overlapping bookings for one doctor on one day, starts weighted by time of day
+    private static void place(int k, int doctor, LocalDateTime opening, SplittableRandom rnd, List<Booking> out) {
+        boolean[] taken = new boolean[SLOTS_PER_DAY];
+        double[] weight = new double[SLOTS_PER_DAY];
+        int free = SLOTS_PER_DAY;
+        for (int n = 0; n < k; n++) {
+            // an hour only while the rest of the day's bookings still fit
+            int slots = rnd.nextInt(100) < 15 && free - 2 >= k - n - 1 ? 2 : 1;
+            int start = pick(taken, slots, weight, rnd);
+            if (start < 0) {
+                slots = 1;
+                start = pick(taken, slots, weight, rnd);
+            }
+            for (int s = start; s < start + slots; s++) taken[s] = true;
+            free -= slots;
+            out.add(new Booking(opening.plusMinutes((long) start * SLOT_MINUTES), doctor, slots * SLOT_MINUTES));
+        }
+    }
+
+    private static int pick(boolean[] taken, int slots, double[] weight, SplittableRandom rnd) {
+        double total = 0;
+        for (int s = 0; s < SLOTS_PER_DAY; s++) {
+            boolean free = s + slots <= SLOTS_PER_DAY;
+            for (int t = s; free && t < s + slots; t++) free = !taken[t];
+            weight[s] = free ? SLOT_WEIGHT[s] : 0;
+            total += weight[s];
+        }
+        if (total == 0) return -1;
+        double r = rnd.nextDouble() * total;
+        for (int s = 0; s < SLOTS_PER_DAY; s++) {
+            r -= weight[s];
+            if (r < 0 && weight[s] > 0) return s;
+        }
+        for (int s = SLOTS_PER_DAY - 1; s >= 0; s--) if (weight[s] > 0) return s;
+        return -1;
+    }
+
+    private AppointmentRow row(long id, Booking b, SplittableRandom rnd) {
+        long patientId;
+        if (rnd.nextInt(100) < 30 && patients >= 20) {
+            patientId = 20 * (1 + rnd.nextLong(patients / 20));
+        } else {
+            patientId = 1 + rnd.nextLong(patients);
+        }
+        LocalDateTime end = b.time().plusMinutes(b.durationMinutes());
+        boolean past = !end.isAfter(now);
+        boolean cancelled = rnd.nextInt(100) < (past ? 9 : 6);
+        String status = cancelled ? "CANCELLED" : past ? "COMPLETED" : "SCHEDULED";
+        // booked on average 12 days ahead, at least an hour
+        long leadMinutes = 60 + (long) (-Math.log(1 - rnd.nextDouble()) * 12 * 24 * 60);
+        LocalDateTime created = b.time().minusMinutes(leadMinutes);
+        if (created.isAfter(now)) created = now;
+        LocalDateTime updated = switch (status) {
+            case "COMPLETED" -> end;
+            case "CANCELLED" -> created.plusSeconds((long) (rnd.nextDouble()
+                    * Math.max(0, ChronoUnit.SECONDS.between(created, past ? b.time() : now))));
+            default -> created;
+        };
+        return new AppointmentRow(id, patientId, b.doctor() + 1, b.time(), b.durationMinutes(),
+                REASONS[rnd.nextInt(REASONS.length)], status, created, updated);
+    }
+
+    private static double dayWeight(LocalDate day, LocalDate today) {
+        double weekday = switch (day.getDayOfWeek()) {
+            case MONDAY -> 1.15;
+            case TUESDAY -> 1.05;
+            case FRIDAY -> 0.9;
+            case SATURDAY -> 0.3;
+            case SUNDAY -> 0.0;
+            default -> 1.0;
+        };
+        double season = 1 + 0.15 * Math.cos(2 * Math.PI * (day.getDayOfYear() - 15) / 365.0);
+        long ahead = ChronoUnit.DAYS.between(today, day);
+        double booked = ahead <= 0 ? 1 : 0.15 + 0.85 * Math.exp(-ahead / 21.0);
+        return weekday * season * booked;
+    }
+}